@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.kinesis.retrieval.AggregatorUtil;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+/**
+ * Measures {@link AggregatorUtil#deaggregate} for one GetRecords batch of plain or KPL aggregated records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregatorUtilBenchmark {
+    private static final String STARTING_HASH_KEY = "0";
+    private static final String ENDING_HASH_KEY = "340282366920938463463374607431768211455";
+
+    @Param({"true", "false"})
+    private boolean aggregated;
+
+    @Param({"100"})
+    private int recordsPerBatch;
+
+    @Param({"100"})
+    private int userRecordsPerAggregate;
+
+    @Param({"10"})
+    private int distinctPartitionKeys;
+
+    @Param({"128", "1024"})
+    private int payloadBytes;
+
+    @Param({"false", "true"})
+    private boolean zeroCopyDeaggregation;
+
+    private AggregatorUtil aggregatorUtil;
+    private List<KinesisClientRecord> records;
+
+    @Setup
+    public void setup() {
+        aggregatorUtil = new AggregatorUtil(zeroCopyDeaggregation);
+        records = aggregated
+                ? RecordFixtures.aggregatedRecords(
+                        recordsPerBatch, userRecordsPerAggregate, payloadBytes, distinctPartitionKeys)
+                : RecordFixtures.plainRecords(recordsPerBatch, payloadBytes);
+    }
+
+    @Benchmark
+    public List<KinesisClientRecord> deaggregate() {
+        RecordFixtures.rewind(records);
+        return aggregatorUtil.deaggregate(records);
+    }
+
+    @Benchmark
+    public List<KinesisClientRecord> deaggregateWithinHashKeyRange() {
+        RecordFixtures.rewind(records);
+        return aggregatorUtil.deaggregate(records, STARTING_HASH_KEY, ENDING_HASH_KEY);
+    }
+}
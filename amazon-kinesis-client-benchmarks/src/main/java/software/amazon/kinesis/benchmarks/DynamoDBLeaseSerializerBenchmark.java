@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.kinesis.common.HashKeyRangeForLease;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.dynamodb.DynamoDBLeaseSerializer;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Measures the conversion of a {@link Lease} to and from its DynamoDB item representation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDBLeaseSerializerBenchmark {
+    private final DynamoDBLeaseSerializer serializer = new DynamoDBLeaseSerializer();
+    private Lease lease;
+    private Map<String, AttributeValue> dynamoRecord;
+
+    @Setup
+    public void setup() {
+        lease = new Lease();
+        lease.leaseKey("shardId-000000000042");
+        lease.leaseOwner(UUID.randomUUID().toString());
+        lease.leaseCounter(1234L);
+        lease.concurrencyToken(UUID.randomUUID());
+        lease.checkpoint(new ExtendedSequenceNumber(RecordFixtures.sequenceNumber(0), 12L));
+        lease.pendingCheckpoint(new ExtendedSequenceNumber(RecordFixtures.sequenceNumber(100), 0L));
+        lease.ownerSwitchesSinceCheckpoint(1L);
+        lease.parentShardIds(Arrays.asList("shardId-000000000020", "shardId-000000000021"));
+        lease.hashKeyRange(HashKeyRangeForLease.deserialize("0", "170141183460469231731687303715884105727"));
+        dynamoRecord = serializer.toDynamoRecord(lease);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> toDynamoRecord() {
+        return serializer.toDynamoRecord(lease);
+    }
+
+    @Benchmark
+    public Lease fromDynamoRecord() {
+        return serializer.fromDynamoRecord(dynamoRecord);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Measures {@link ExtendedSequenceNumber#compareTo(ExtendedSequenceNumber)} between sequence numbers and sentinels,
+ * and building an {@link ExtendedSequenceNumber} for a record and comparing it, as done for every record processed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtendedSequenceNumberBenchmark {
+    private final ExtendedSequenceNumber lower = new ExtendedSequenceNumber(RecordFixtures.sequenceNumber(0), 5L);
+    private final ExtendedSequenceNumber higher = new ExtendedSequenceNumber(RecordFixtures.sequenceNumber(1), 0L);
+    private final ExtendedSequenceNumber sameSequenceNumber =
+            new ExtendedSequenceNumber(RecordFixtures.sequenceNumber(0), 6L);
+    private final String recordSequenceNumber = RecordFixtures.sequenceNumber(1);
+
+    @Benchmark
+    public int compareSequenceNumbers() {
+        return lower.compareTo(higher);
+    }
+
+    @Benchmark
+    public int compareSubSequenceNumbers() {
+        return lower.compareTo(sameSequenceNumber);
+    }
+
+    @Benchmark
+    public int compareToTrimHorizon() {
+        return lower.compareTo(ExtendedSequenceNumber.TRIM_HORIZON);
+    }
+
+    @Benchmark
+    public int compareToShardEnd() {
+        return lower.compareTo(ExtendedSequenceNumber.SHARD_END);
+    }
+
+    @Benchmark
+    public int constructAndCompare() {
+        return new ExtendedSequenceNumber(recordSequenceNumber, 0L).compareTo(lower);
+    }
+}
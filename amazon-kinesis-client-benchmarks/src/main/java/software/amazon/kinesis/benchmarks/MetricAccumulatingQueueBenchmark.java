@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+import software.amazon.kinesis.metrics.CloudWatchMetricKey;
+import software.amazon.kinesis.metrics.MetricAccumulatingQueue;
+
+/**
+ * Measures {@link MetricAccumulatingQueue#offer} as used by the CloudWatch publisher, with a single thread and with
+ * several threads offering into the same queue the way shard consumers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricAccumulatingQueueBenchmark {
+    private static final int MAX_QUEUE_SIZE = 10000;
+
+    @Param({"100"})
+    private int distinctKeys;
+
+    private MetricAccumulatingQueue<CloudWatchMetricKey> queue;
+    private List<CloudWatchMetricKey> keys;
+    private List<MetricDatum> data;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        queue = new MetricAccumulatingQueue<>(MAX_QUEUE_SIZE);
+        keys = new ArrayList<>(distinctKeys);
+        data = new ArrayList<>(distinctKeys);
+        for (int i = 0; i < distinctKeys; i++) {
+            final MetricDatum datum = MetricDatum.builder()
+                    .metricName("Metric" + (i % 10))
+                    .dimensions(
+                            Dimension.builder()
+                                    .name("Operation")
+                                    .value("ProcessTask")
+                                    .build(),
+                            Dimension.builder()
+                                    .name("ShardId")
+                                    .value("shardId-" + i)
+                                    .build())
+                    .unit(StandardUnit.COUNT)
+                    .statisticValues(StatisticSet.builder()
+                            .sum(1.0)
+                            .minimum(1.0)
+                            .maximum(1.0)
+                            .sampleCount(1.0)
+                            .build())
+                    .build();
+            data.add(datum);
+            keys.add(new CloudWatchMetricKey(datum));
+        }
+    }
+
+    /**
+     * Per-thread cursor over the pre-built keys, so every thread cycles through all of them.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(final int bound) {
+            next = next + 1 == bound ? 0 : next + 1;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean offer(final Cursor cursor) {
+        final int i = cursor.next(distinctKeys);
+        return queue.offer(keys.get(i), data.get(i));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean offerContended(final Cursor cursor) {
+        final int i = cursor.next(distinctKeys);
+        return queue.offer(keys.get(i), data.get(i));
+    }
+}
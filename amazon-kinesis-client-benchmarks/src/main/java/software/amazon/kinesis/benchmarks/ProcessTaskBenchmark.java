@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
+import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.kinesis.checkpoint.Checkpoint;
+import software.amazon.kinesis.checkpoint.ShardRecordProcessorCheckpointer;
+import software.amazon.kinesis.leases.ShardDetector;
+import software.amazon.kinesis.leases.ShardInfo;
+import software.amazon.kinesis.lifecycle.ProcessTask;
+import software.amazon.kinesis.lifecycle.TaskResult;
+import software.amazon.kinesis.lifecycle.events.InitializationInput;
+import software.amazon.kinesis.lifecycle.events.LeaseLostInput;
+import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
+import software.amazon.kinesis.lifecycle.events.ShardEndedInput;
+import software.amazon.kinesis.lifecycle.events.ShutdownRequestedInput;
+import software.amazon.kinesis.metrics.FilteringMetricsScope;
+import software.amazon.kinesis.metrics.InternedDimensions;
+import software.amazon.kinesis.metrics.MetricsConfig;
+import software.amazon.kinesis.metrics.MetricsFactory;
+import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.metrics.NullMetricsFactory;
+import software.amazon.kinesis.metrics.PrimitiveAccumulatingMetricsScope;
+import software.amazon.kinesis.processor.Checkpointer;
+import software.amazon.kinesis.processor.ShardRecordProcessor;
+import software.amazon.kinesis.retrieval.AggregatorUtil;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.ShardHashKeyRange;
+import software.amazon.kinesis.retrieval.ThrottlingReporter;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Measures {@link ProcessTask#call()} for one GetRecords batch, including deaggregation, sequence number filtering
+ * and metrics, with a record processor that only iterates the records it is handed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessTaskBenchmark {
+    private static final String SHARD_ID = "shardId-000000000000";
+
+    @Param({"true", "false"})
+    private boolean aggregated;
+
+    @Param({"100"})
+    private int recordsPerBatch;
+
+    @Param({"100"})
+    private int userRecordsPerAggregate;
+
+    @Param({"10"})
+    private int distinctPartitionKeys;
+
+    @Param({"128", "1024"})
+    private int payloadBytes;
+
+    @Param({"false", "true"})
+    private boolean zeroCopyDeaggregation;
+
+    @Param({"false", "true"})
+    private boolean lazyDeaggregation;
+
+    @Param({"null", "filtering", "primitive"})
+    private String metricsScope;
+
+    private final ShardInfo shardInfo =
+            new ShardInfo(SHARD_ID, "concurrencyToken", Collections.emptySet(), ExtendedSequenceNumber.TRIM_HORIZON);
+    private final ShardRecordProcessor shardRecordProcessor = new IteratingShardRecordProcessor();
+    private final ShardDetector shardDetector = new SingleShardDetector();
+    private final ThrottlingReporter throttlingReporter = new ThrottlingReporter(5, SHARD_ID);
+    private AggregatorUtil aggregatorUtil;
+    private MetricsFactory metricsFactory;
+    private ShardRecordProcessorCheckpointer checkpointer;
+    private ShardHashKeyRange shardHashKeyRange;
+    private List<KinesisClientRecord> records;
+
+    @Setup
+    public void setup() {
+        aggregatorUtil = new AggregatorUtil(zeroCopyDeaggregation);
+        metricsFactory = metricsFactory(metricsScope);
+        // resolved once per shard, as ShardConsumer does
+        shardHashKeyRange = ShardHashKeyRange.of(shardDetector.shard(SHARD_ID).hashKeyRange());
+        checkpointer = new ShardRecordProcessorCheckpointer(shardInfo, new NoOpCheckpointer());
+        checkpointer.setInitialCheckpointValue(ExtendedSequenceNumber.TRIM_HORIZON);
+        records = aggregated
+                ? RecordFixtures.aggregatedRecords(
+                        recordsPerBatch, userRecordsPerAggregate, payloadBytes, distinctPartitionKeys)
+                : RecordFixtures.plainRecords(recordsPerBatch, payloadBytes);
+    }
+
+    @Benchmark
+    public TaskResult call() {
+        RecordFixtures.rewind(records);
+        final ProcessRecordsInput input = ProcessRecordsInput.builder()
+                .records(records)
+                .millisBehindLatest(0L)
+                .build();
+        return new ProcessTask(
+                        shardInfo,
+                        shardRecordProcessor,
+                        checkpointer,
+                        0L,
+                        throttlingReporter,
+                        input,
+                        false,
+                        0L,
+                        aggregatorUtil,
+                        metricsFactory,
+                        null,
+                        lazyDeaggregation,
+                        shardHashKeyRange,
+                        null)
+                .call();
+    }
+
+    /**
+     * The accumulating scopes filter at {@link MetricsLevel#SUMMARY}, the default level, and drop the data when they end
+     * instead of publishing it.
+     */
+    private static MetricsFactory metricsFactory(String metricsScope) {
+        final Set<String> dimensions = MetricsConfig.METRICS_DIMENSIONS_ALL;
+        switch (metricsScope) {
+            case "filtering":
+                return () -> new FilteringMetricsScope(MetricsLevel.SUMMARY, dimensions);
+            case "primitive":
+                // like the CloudWatchMetricsFactory, all scopes share their dimensions
+                final InternedDimensions internedDimensions = new InternedDimensions();
+                return () ->
+                        new PrimitiveAccumulatingMetricsScope(
+                                MetricsLevel.SUMMARY, dimensions, Collections.emptySet(), internedDimensions) {
+                            @Override
+                            protected void publish(List<MetricDatum> data) {}
+                        };
+            default:
+                return new NullMetricsFactory();
+        }
+    }
+
+    private static class IteratingShardRecordProcessor implements ShardRecordProcessor {
+        private long bytes;
+
+        @Override
+        public void initialize(InitializationInput initializationInput) {}
+
+        @Override
+        public void processRecords(ProcessRecordsInput processRecordsInput) {
+            final Iterable<KinesisClientRecord> records = processRecordsInput.lazyRecords() != null
+                    ? processRecordsInput.lazyRecords()
+                    : processRecordsInput.records();
+            for (KinesisClientRecord record : records) {
+                bytes += record.data().remaining();
+            }
+        }
+
+        @Override
+        public void leaseLost(LeaseLostInput leaseLostInput) {}
+
+        @Override
+        public void shardEnded(ShardEndedInput shardEndedInput) {}
+
+        @Override
+        public void shutdownRequested(ShutdownRequestedInput shutdownRequestedInput) {}
+    }
+
+    private static class SingleShardDetector implements ShardDetector {
+        private final Shard shard = Shard.builder()
+                .shardId(SHARD_ID)
+                .hashKeyRange(HashKeyRange.builder()
+                        .startingHashKey("0")
+                        .endingHashKey("340282366920938463463374607431768211455")
+                        .build())
+                .build();
+
+        @Override
+        public Shard shard(String shardId) {
+            return shard;
+        }
+
+        @Override
+        public List<Shard> listShards() {
+            return Collections.singletonList(shard);
+        }
+    }
+
+    private static class NoOpCheckpointer implements Checkpointer {
+        private String operation;
+
+        @Override
+        public void setCheckpoint(String leaseKey, ExtendedSequenceNumber checkpointValue, String concurrencyToken) {}
+
+        @Override
+        public ExtendedSequenceNumber getCheckpoint(String leaseKey) {
+            return null;
+        }
+
+        @Override
+        public Checkpoint getCheckpointObject(String leaseKey) {
+            return null;
+        }
+
+        @Override
+        public void prepareCheckpoint(
+                String leaseKey, ExtendedSequenceNumber pendingCheckpoint, String concurrencyToken) {}
+
+        @Override
+        public void prepareCheckpoint(
+                String leaseKey,
+                ExtendedSequenceNumber pendingCheckpoint,
+                String concurrencyToken,
+                byte[] pendingCheckpointState) {}
+
+        @Override
+        public void operation(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public String operation() {
+            return operation;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.protobuf.ByteString;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.kinesis.model.Record;
+import software.amazon.kinesis.retrieval.AggregatorUtil;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.kpl.Messages;
+
+/**
+ * Builds synthetic Kinesis records for the benchmarks. All records are generated from a fixed seed so that every run
+ * of a benchmark sees the same payloads, partition keys and sequence numbers.
+ */
+public final class RecordFixtures {
+    /**
+     * A realistic 56 digit Kinesis sequence number used as the base for generated sequence numbers.
+     */
+    public static final BigInteger BASE_SEQUENCE_NUMBER =
+            new BigInteger("49590338271490256608559692538361571095921575989136588898");
+
+    private static final long SEED = 0x4b434cL;
+
+    private RecordFixtures() {}
+
+    /**
+     * Creates plain, non-aggregated records.
+     *
+     * @param count number of records to create
+     * @param payloadBytes size of each record's payload
+     * @return the generated records
+     */
+    public static List<KinesisClientRecord> plainRecords(final int count, final int payloadBytes) {
+        final Random random = new Random(SEED);
+        final List<KinesisClientRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(KinesisClientRecord.builder()
+                    .sequenceNumber(sequenceNumber(i))
+                    .approximateArrivalTimestamp(Instant.EPOCH.plusMillis(i))
+                    .partitionKey(partitionKey(random))
+                    .data(ByteBuffer.wrap(payload(random, payloadBytes)))
+                    .build());
+        }
+        return records;
+    }
+
+    /**
+     * Creates KPL aggregated records.
+     *
+     * @param count number of Kinesis records to create
+     * @param userRecordsPerAggregate number of user records packed into each Kinesis record
+     * @param payloadBytes size of each user record's payload
+     * @param distinctPartitionKeys number of distinct partition keys used within each aggregate
+     * @return the generated records
+     */
+    public static List<KinesisClientRecord> aggregatedRecords(
+            final int count,
+            final int userRecordsPerAggregate,
+            final int payloadBytes,
+            final int distinctPartitionKeys) {
+        final Random random = new Random(SEED);
+        final List<KinesisClientRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(KinesisClientRecord.builder()
+                    .sequenceNumber(sequenceNumber(i))
+                    .approximateArrivalTimestamp(Instant.EPOCH.plusMillis(i))
+                    .partitionKey(partitionKey(random))
+                    .data(ByteBuffer.wrap(
+                            aggregate(random, userRecordsPerAggregate, payloadBytes, distinctPartitionKeys)))
+                    .build());
+        }
+        return records;
+    }
+
+    /**
+     * Creates SDK records as returned by GetRecords or SubscribeToShard.
+     *
+     * @param count number of records to create
+     * @param payloadBytes size of each record's payload
+     * @return the generated records
+     */
+    public static List<Record> sdkRecords(final int count, final int payloadBytes) {
+        final Random random = new Random(SEED);
+        final List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(Record.builder()
+                    .sequenceNumber(sequenceNumber(i))
+                    .approximateArrivalTimestamp(Instant.EPOCH.plusMillis(i))
+                    .partitionKey(partitionKey(random))
+                    .data(SdkBytes.fromByteArray(payload(random, payloadBytes)))
+                    .build());
+        }
+        return records;
+    }
+
+    /**
+     * Rewinds the data buffer of every record, so the same records can be deaggregated again.
+     *
+     * @param records records to reset
+     */
+    public static void rewind(final List<KinesisClientRecord> records) {
+        for (KinesisClientRecord record : records) {
+            record.data().rewind();
+        }
+    }
+
+    public static String sequenceNumber(final long offset) {
+        return BASE_SEQUENCE_NUMBER.add(BigInteger.valueOf(offset)).toString();
+    }
+
+    private static byte[] aggregate(
+            final Random random,
+            final int userRecordsPerAggregate,
+            final int payloadBytes,
+            final int distinctPartitionKeys) {
+        final Messages.AggregatedRecord.Builder builder = Messages.AggregatedRecord.newBuilder();
+        final int partitionKeys = Math.max(1, Math.min(distinctPartitionKeys, userRecordsPerAggregate));
+        for (int i = 0; i < partitionKeys; i++) {
+            builder.addPartitionKeyTable(partitionKey(random));
+        }
+        for (int i = 0; i < userRecordsPerAggregate; i++) {
+            builder.addRecords(Messages.Record.newBuilder()
+                    .setPartitionKeyIndex(i % partitionKeys)
+                    .setData(ByteString.copyFrom(payload(random, payloadBytes))));
+        }
+        final byte[] message = builder.build().toByteArray();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            out.write(AggregatorUtil.AGGREGATED_RECORD_MAGIC);
+            out.write(message);
+            out.write(MessageDigest.getInstance("MD5").digest(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String partitionKey(final Random random) {
+        return Long.toHexString(random.nextLong());
+    }
+
+    private static byte[] payload(final Random random, final int payloadBytes) {
+        final byte[] payload = new byte[payloadBytes];
+        random.nextBytes(payload);
+        return payload;
+    }
+}
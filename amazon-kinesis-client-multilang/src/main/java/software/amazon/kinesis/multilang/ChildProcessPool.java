@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.multilang;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A fixed number of child processes shared by the record processors of all shards, instead of a child process per
+ * shard. Every message written to a shared child process carries the id of the shard it is for, and the child process
+ * must set the shard id on every message it writes back. A child process has a single task reading its STDOUT and a
+ * single task draining its STDERR, whatever the number of shards it processes.
+ *
+ * Child processes are started as shards connect, until the pool is full, after which a shard is given to the child
+ * process processing the fewest shards. A child process exits when its STDIN is closed, which happens when this
+ * process exits. A child process whose STDOUT has ended, e.g. because it died, is dropped from the pool when the next
+ * shard connects, so that a new child process is started in its place.
+ */
+@Slf4j
+class ChildProcessPool {
+    private final ProcessBuilder processBuilder;
+    private final int size;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executorService;
+
+    private final List<ChildProcess> childProcesses = new ArrayList<>();
+    private int startedChildProcesses = 0;
+
+    /**
+     * @param processBuilder Starts the child processes.
+     * @param size The most child processes to start.
+     * @param objectMapper An object mapper used to convert messages to and from json.
+     * @param executorService An executor service to read from and write to the child processes with.
+     */
+    ChildProcessPool(
+            ProcessBuilder processBuilder, int size, ObjectMapper objectMapper, ExecutorService executorService) {
+        Validate.isTrue(size > 0, "The child process pool size must be positive, but was %d", size);
+        this.processBuilder = processBuilder;
+        this.size = size;
+        this.objectMapper = objectMapper;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Connects a shard to a child process, starting a new child process if every child process already processes
+     * shards and the pool isn't full.
+     *
+     * @param shardId The shard to connect.
+     * @return The connection of the shard to its child process.
+     * @throws IOException If a child process can't be started.
+     */
+    synchronized ShardConnection connect(String shardId) throws IOException {
+        removeFailedChildProcesses();
+        Optional<ChildProcess> leastLoaded =
+                childProcesses.stream().min(Comparator.comparingInt(ChildProcess::shardCount));
+        ChildProcess childProcess;
+        if (leastLoaded.isPresent() && (leastLoaded.get().shardCount() == 0 || childProcesses.size() >= size)) {
+            childProcess = leastLoaded.get();
+        } else {
+            childProcess = startChildProcess("child process " + startedChildProcesses++);
+            childProcesses.add(childProcess);
+        }
+        log.info("Connecting shard {} to {}", shardId, childProcess.name);
+        return childProcess.connect(shardId);
+    }
+
+    /**
+     * Drops the child processes whose STDOUT has ended. The shards connected to them have already failed to get
+     * messages, and the shards connecting from now on would too.
+     */
+    private void removeFailedChildProcesses() {
+        Iterator<ChildProcess> iterator = childProcesses.iterator();
+        while (iterator.hasNext()) {
+            ChildProcess childProcess = iterator.next();
+            if (childProcess.dispatchTask.isFailed()) {
+                log.warn("Removing {} from the pool, as the end of its STDOUT has been reached", childProcess.name);
+                iterator.remove();
+                childProcess.process.destroy();
+            }
+        }
+    }
+
+    private ChildProcess startChildProcess(String name) throws IOException {
+        final Process process;
+        try {
+            process = startProcess();
+        } catch (IOException e) {
+            throw new IOException("Failed to start client executable", e);
+        }
+        MessageWriter messageWriter =
+                new MessageWriter().initialize(process.getOutputStream(), name, objectMapper, executorService);
+        DispatchChildSTDOUTTask dispatchTask = new DispatchChildSTDOUTTask(objectMapper);
+        dispatchTask.initialize(new BufferedReader(new InputStreamReader(process.getInputStream())), name);
+        DrainChildSTDERRTask readSTDERRTask = new DrainChildSTDERRTask();
+        readSTDERRTask.initialize(new BufferedReader(new InputStreamReader(process.getErrorStream())), name);
+
+        executorService.submit(dispatchTask);
+        executorService.submit(readSTDERRTask);
+        log.info("Started {} of a pool of {}", name, size);
+        return new ChildProcess(name, process, messageWriter, dispatchTask);
+    }
+
+    /**
+     * The {@link ProcessBuilder} class is final so not easily mocked. We wrap the only interaction we have with it in
+     * this package level method to permit unit testing.
+     *
+     * @return The process started by processBuilder
+     * @throws IOException If the process can't be started.
+     */
+    Process startProcess() throws IOException {
+        return processBuilder.start();
+    }
+
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    private static class ChildProcess {
+        private final String name;
+        private final Process process;
+        private final MessageWriter messageWriter;
+        private final DispatchChildSTDOUTTask dispatchTask;
+
+        int shardCount() {
+            return dispatchTask.shardCount();
+        }
+
+        ShardConnection connect(String shardId) {
+            ShardMessageReader messageReader = new ShardMessageReader(shardId);
+            dispatchTask.addShardReader(messageReader);
+            return new ShardConnection(shardId, dispatchTask, messageReader, messageWriter.forShard(shardId));
+        }
+    }
+
+    /**
+     * The connection of a shard to the child process processing it.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    static class ShardConnection {
+        private final String shardId;
+        private final DispatchChildSTDOUTTask dispatchTask;
+
+        /**
+         * Reads the messages the child process writes for the shard.
+         */
+        @Getter
+        private final MessageReader messageReader;
+
+        /**
+         * Writes messages for the shard to the child process.
+         */
+        @Getter
+        private final MessageWriter messageWriter;
+
+        /**
+         * Disconnects the shard from the child process, which keeps running for the other shards.
+         */
+        void close() {
+            try {
+                messageWriter.close();
+            } catch (IOException e) {
+                log.error("Encountered exception while disconnecting shard {} from its child process.", shardId, e);
+            }
+            dispatchTask.removeShardReader(shardId);
+        }
+    }
+}
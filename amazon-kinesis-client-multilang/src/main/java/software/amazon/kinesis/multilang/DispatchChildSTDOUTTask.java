@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.multilang;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.kinesis.multilang.messages.Message;
+
+/**
+ * Reads the messages off the STDOUT of a child process that processes several shards, and hands each of them to the
+ * {@link ShardMessageReader} of the shard it is for. Runs until the end of the child process's STDOUT is reached, after
+ * which every reader fails to get further messages.
+ */
+@Slf4j
+class DispatchChildSTDOUTTask extends LineReaderTask<Boolean> {
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ShardMessageReader> shardReaders = new ConcurrentHashMap<>();
+
+    private volatile RuntimeException failure;
+
+    /**
+     * @param objectMapper An object mapper for decoding json messages from the input stream.
+     */
+    DispatchChildSTDOUTTask(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Starts handing the messages for a shard to its reader. The reader fails straight away if the end of the child
+     * process's STDOUT has already been reached.
+     *
+     * @param shardReader The reader of the shard.
+     */
+    void addShardReader(ShardMessageReader shardReader) {
+        shardReaders.put(shardReader.getShardId(), shardReader);
+        if (failure != null) {
+            shardReader.fail(failure);
+        }
+    }
+
+    /**
+     * Stops handing messages to the reader of a shard.
+     *
+     * @param shardId The shard.
+     */
+    void removeShardReader(String shardId) {
+        shardReaders.remove(shardId);
+    }
+
+    /**
+     * @return Whether the end of the child process's STDOUT has been reached, after which no messages are handed out.
+     */
+    boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return The number of shards that messages are handed to.
+     */
+    int shardCount() {
+        return shardReaders.size();
+    }
+
+    @Override
+    protected HandleLineResult<Boolean> handleLine(String line) {
+        if (GetNextMessageTask.isEmptyLine(line)) {
+            return new HandleLineResult<Boolean>();
+        }
+        final Message message;
+        try {
+            message = objectMapper.readValue(line, Message.class);
+        } catch (IOException e) {
+            log.info("Skipping unexpected line on STDOUT for {}: {}", getShardId(), line);
+            return new HandleLineResult<Boolean>();
+        }
+        ShardMessageReader shardReader = message.getShardId() == null ? null : shardReaders.get(message.getShardId());
+        if (shardReader == null) {
+            log.warn(
+                    "Skipping message for unknown shard {} on STDOUT for {}: {}",
+                    message.getShardId(),
+                    getShardId(),
+                    line);
+        } else {
+            shardReader.deliver(message);
+        }
+        return new HandleLineResult<Boolean>();
+    }
+
+    @Override
+    protected Boolean returnAfterException(Exception e) {
+        failShardReaders(new RuntimeException(
+                "Encountered an error while reading a line from STDOUT of " + getShardId()
+                        + " so won't be able to return a message.",
+                e));
+        return false;
+    }
+
+    @Override
+    protected Boolean returnAfterEndOfInput() {
+        failShardReaders(new RuntimeException(
+                "Reached end of STDOUT of " + getShardId() + " so won't be able to return a message."));
+        return true;
+    }
+
+    private void failShardReaders(RuntimeException cause) {
+        failure = cause;
+        shardReaders.values().forEach(shardReader -> shardReader.fail(cause));
+    }
+
+    /**
+     * @param reader The STDOUT of the child process.
+     * @param childProcessName The name of the child process, used in place of a shard id in logs.
+     * @return this
+     */
+    public LineReaderTask<Boolean> initialize(BufferedReader reader, String childProcessName) {
+        return initialize(reader, childProcessName, "Dispatching messages from STDOUT of " + childProcessName);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.multilang;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * How messages are written to the child process's STDIN. Messages from the child process are always read as lines of
+ * JSON.
+ */
+public enum MessageFraming {
+    /**
+     * Each message is a line of JSON, with record data encoded as base64. This is the default.
+     */
+    JSON,
+    /**
+     * Each message is a frame made of:
+     * <ol>
+     *     <li>the length of the rest of the frame, as a 4 byte big-endian integer</li>
+     *     <li>the length of the header, as a 4 byte big-endian integer</li>
+     *     <li>the header, which is the JSON of the message as it would be written as a line, except that records have
+     *     no data field</li>
+     *     <li>for each record in the header, the length of its data as a 4 byte big-endian integer, or -1 if it has no
+     *     data, followed by the raw bytes of its data</li>
+     * </ol>
+     * Binary framing is offered to the child process in the initialize message, and only used once the child process
+     * has accepted it by echoing the framing in its status message for the initialize message.
+     */
+    BINARY;
+
+    /**
+     * @return the name of the framing as it appears in the initialize and status messages
+     */
+    public String messageValue() {
+        return name().toLowerCase();
+    }
+
+    public static MessageFraming from(String source) {
+        Validate.notEmpty(source);
+        try {
+            return MessageFraming.valueOf(source.toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            throw new IllegalArgumentException(
+                    "Unknown message framing '" + source + "'. Available message framings: " + availableFramings());
+        }
+    }
+
+    private static String availableFramings() {
+        return "(" + Arrays.stream(MessageFraming.values()).map(Enum::name).collect(Collectors.joining(", ")) + ")";
+    }
+}
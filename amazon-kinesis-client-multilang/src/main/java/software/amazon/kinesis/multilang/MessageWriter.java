@@ -14,15 +14,27 @@
  */
 package software.amazon.kinesis.multilang;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingOutputStream;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.kinesis.lifecycle.events.InitializationInput;
 import software.amazon.kinesis.lifecycle.events.LeaseLostInput;
@@ -35,18 +47,36 @@ import software.amazon.kinesis.multilang.messages.Message;
 import software.amazon.kinesis.multilang.messages.ProcessRecordsMessage;
 import software.amazon.kinesis.multilang.messages.ShardEndedMessage;
 import software.amazon.kinesis.multilang.messages.ShutdownRequestedMessage;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
 
 /**
  * Defines methods for writing {@link Message} objects to the child process's STDIN.
  */
 @Slf4j
 class MessageWriter {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
     private BufferedWriter writer;
 
+    /**
+     * The child process's STDIN, which binary frames and streamed messages are written to. Null if the writer was
+     * initialized without it, in which case only JSON framing is supported and messages are streamed to the writer.
+     */
+    private DataOutputStream outputStream;
+
+    private volatile MessageFraming framing = MessageFraming.JSON;
+
     private volatile boolean open = true;
 
     private String shardId;
 
+    /**
+     * Whether this writer shares its output with the writers of other shards of the same child process, in which case
+     * every message carries the shard id and closing this writer leaves the output open.
+     */
+    private boolean shared;
+
     private ObjectMapper objectMapper;
 
     private ExecutorService executorService;
@@ -80,7 +110,10 @@ class MessageWriter {
                                 System.lineSeparator().length());
                         writer.flush();
                     }
-                    log.info("Message size == {} bytes for shard {}", message.getBytes().length, shardId);
+                    log.info(
+                            "Message size == {} bytes for shard {}",
+                            message.getBytes(StandardCharsets.UTF_8).length,
+                            shardId);
                 } catch (IOException e) {
                     open = false;
                 }
@@ -97,6 +130,58 @@ class MessageWriter {
         }
     }
 
+    /**
+     * Streams the JSON of a message to the subprocess, followed by the line separator provided by the system. The JSON
+     * is generated by the writing task straight into the output buffers, so the message is never held as a String.
+     *
+     * @param messageName The name of the message, for logging.
+     * @param messageJson Writes the JSON of the message.
+     * @return
+     */
+    private Future<Boolean> streamMessageToOutput(final String messageName, final MessageJson messageJson) {
+        Callable<Boolean> streamMessageToOutputTask = () -> {
+            try {
+                synchronized (writer) {
+                    if (outputStream == null) {
+                        writeJson(objectMapper.getFactory().createGenerator(writer), messageJson);
+                        writer.write(
+                                System.lineSeparator(),
+                                0,
+                                System.lineSeparator().length());
+                        writer.flush();
+                    } else {
+                        CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+                        writeJson(
+                                objectMapper.getFactory().createGenerator(countingStream, JsonEncoding.UTF8),
+                                messageJson);
+                        countingStream.write(LINE_SEPARATOR);
+                        countingStream.flush();
+                        log.info("Message size == {} bytes for shard {}", countingStream.getCount(), shardId);
+                    }
+                }
+            } catch (IOException e) {
+                open = false;
+            }
+            return open;
+        };
+
+        if (open) {
+            return this.executorService.submit(streamMessageToOutputTask);
+        } else {
+            String errorMessage =
+                    "Cannot write message " + messageName + " because writer is closed for shard " + shardId;
+            log.info(errorMessage);
+            throw new IllegalStateException(errorMessage);
+        }
+    }
+
+    private static void writeJson(JsonGenerator generator, MessageJson messageJson) throws IOException {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (JsonGenerator messageGenerator = generator) {
+            messageJson.write(messageGenerator);
+        }
+    }
+
     /**
      * Converts the message to a JSON string and writes it to the subprocess.
      *
@@ -105,6 +190,12 @@ class MessageWriter {
      */
     private Future<Boolean> writeMessage(Message message) {
         log.info("Writing {} to child process for shard {}", message.getClass().getSimpleName(), shardId);
+        if (shared) {
+            message.setShardId(shardId);
+        }
+        if (framing == MessageFraming.BINARY) {
+            return writeFrame(message);
+        }
         try {
             String jsonText = objectMapper.writeValueAsString(message);
             return writeMessageToOutput(jsonText);
@@ -117,6 +208,83 @@ class MessageWriter {
         }
     }
 
+    /**
+     * Writes a message without records as a binary frame, which is just its JSON header.
+     *
+     * @param message A message to be written to the subprocess.
+     * @return
+     */
+    private Future<Boolean> writeFrame(Message message) {
+        final byte[] header;
+        try {
+            header = objectMapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            String errorMessage = String.format(
+                    "Encountered I/O error while writing %s action to subprocess",
+                    message.getClass().getSimpleName());
+            log.error(errorMessage, e);
+            throw new RuntimeException(errorMessage, e);
+        }
+        return writeFrame(message.getClass().getSimpleName(), header, Collections.emptyList());
+    }
+
+    /**
+     * Writes a binary frame, made of a JSON header without record data followed by the raw record data. The data is
+     * written straight from the remaining bytes of each buffer, without changing its position. See
+     * {@link MessageFraming#BINARY} for the layout of the frame.
+     *
+     * @param messageName The name of the message, for logging.
+     * @param header The JSON of the message without record data.
+     * @param records The data of the records in the header, in the same order; a null buffer is a record without data.
+     * @return
+     */
+    private Future<Boolean> writeFrame(final String messageName, final byte[] header, final List<ByteBuffer> records) {
+        long frameLength = Integer.BYTES + header.length;
+        for (ByteBuffer data : records) {
+            frameLength += Integer.BYTES + (data == null ? 0 : data.remaining());
+        }
+        if (frameLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Cannot write a frame of " + frameLength + " bytes to subprocess for shard " + shardId);
+        }
+        final int length = (int) frameLength;
+
+        Callable<Boolean> writeFrameTask = () -> {
+            try {
+                synchronized (writer) {
+                    outputStream.writeInt(length);
+                    outputStream.writeInt(header.length);
+                    outputStream.write(header);
+                    for (ByteBuffer data : records) {
+                        outputStream.writeInt(data == null ? -1 : data.remaining());
+                        if (data == null) {
+                            continue;
+                        }
+                        if (data.hasArray()) {
+                            outputStream.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                        } else {
+                            Channels.newChannel(outputStream).write(data.duplicate());
+                        }
+                    }
+                    outputStream.flush();
+                }
+                log.info("Frame size == {} bytes for shard {}", length, shardId);
+            } catch (IOException e) {
+                open = false;
+            }
+            return open;
+        };
+
+        if (open) {
+            return this.executorService.submit(writeFrameTask);
+        } else {
+            String errorMessage =
+                    "Cannot write message " + messageName + " because writer is closed for shard " + shardId;
+            log.info(errorMessage);
+            throw new IllegalStateException(errorMessage);
+        }
+    }
+
     /**
      * Writes an {@link InitializeMessage} to the subprocess.
      *
@@ -127,6 +295,17 @@ class MessageWriter {
         return writeMessage(new InitializeMessage(initializationInput));
     }
 
+    /**
+     * Writes an {@link InitializeMessage} that has already been built to the subprocess, such as one offering the
+     * subprocess a framing or a number of processRecords messages in flight.
+     *
+     * @param initializeMessage
+     *            the message to write
+     */
+    Future<Boolean> writeInitializeMessage(InitializeMessage initializeMessage) {
+        return writeMessage(initializeMessage);
+    }
+
     /**
      * Writes a {@link ProcessRecordsMessage} message to the subprocess.
      *
@@ -134,7 +313,31 @@ class MessageWriter {
      *            the records, and associated metadata to be processed.
      */
     Future<Boolean> writeProcessRecordsMessage(ProcessRecordsInput processRecordsInput) {
-        return writeMessage(new ProcessRecordsMessage(processRecordsInput));
+        log.info("Writing {} to child process for shard {}", ProcessRecordsMessage.class.getSimpleName(), shardId);
+        if (framing == MessageFraming.BINARY) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            try {
+                writeJson(
+                        objectMapper.getFactory().createGenerator(header, JsonEncoding.UTF8),
+                        generator -> ProcessRecordsMessage.writeFrameHeaderJson(
+                                processRecordsInput, shared ? shardId : null, generator));
+            } catch (IOException e) {
+                String errorMessage = String.format(
+                        "Encountered I/O error while writing %s action to subprocess",
+                        ProcessRecordsMessage.class.getSimpleName());
+                log.error(errorMessage, e);
+                throw new RuntimeException(errorMessage, e);
+            }
+            return writeFrame(
+                    ProcessRecordsMessage.class.getSimpleName(),
+                    header.toByteArray(),
+                    processRecordsInput.records().stream()
+                            .map(KinesisClientRecord::data)
+                            .collect(Collectors.toList()));
+        }
+        return streamMessageToOutput(
+                ProcessRecordsMessage.class.getSimpleName(),
+                generator -> ProcessRecordsMessage.writeJson(processRecordsInput, shared ? shardId : null, generator));
     }
 
     /**
@@ -188,13 +391,35 @@ class MessageWriter {
      */
     void close() throws IOException {
         open = false;
-        this.writer.close();
+        if (!shared) {
+            this.writer.close();
+        }
     }
 
     boolean isOpen() {
         return this.open;
     }
 
+    /**
+     * @return whether messages can be written as binary frames
+     */
+    boolean supportsBinaryFraming() {
+        return outputStream != null && !shared;
+    }
+
+    /**
+     * Writes the following messages with the given framing, which the subprocess must have accepted.
+     *
+     * @param framing The framing to write messages with.
+     */
+    void useFraming(MessageFraming framing) {
+        if (framing == MessageFraming.BINARY && !supportsBinaryFraming()) {
+            throw new IllegalStateException("Binary framing isn't supported by the writer for shard " + shardId);
+        }
+        log.info("Writing messages to child process for shard {} with {} framing", shardId, framing);
+        this.framing = framing;
+    }
+
     /**
      * An initialization method allows us to delay setting the attributes of this class. Some of the attributes,
      * stream and shardId, are not known to the {@link MultiLangRecordProcessorFactory} when it constructs a
@@ -203,6 +428,9 @@ class MessageWriter {
      * set inside this method instead of the constructor so that this object will be initialized when all its attributes
      * are known to the record processor.
      *
+     * <p>Text messages and binary frames are written through the same buffer, and text is always encoded in UTF-8 like
+     * the JSON streamed to the buffer, so the subprocess reads one encoding whatever the framing or the platform.</p>
+     *
      * @param stream Used to write messages to the subprocess.
      * @param shardId The shard we're working on.
      * @param objectMapper The object mapper to encode messages.
@@ -210,8 +438,12 @@ class MessageWriter {
      */
     MessageWriter initialize(
             OutputStream stream, String shardId, ObjectMapper objectMapper, ExecutorService executorService) {
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(stream, OUTPUT_BUFFER_SIZE));
         return this.initialize(
-                new BufferedWriter(new OutputStreamWriter(stream)), shardId, objectMapper, executorService);
+                new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
+                shardId,
+                objectMapper,
+                executorService);
     }
 
     /**
@@ -228,4 +460,23 @@ class MessageWriter {
         this.executorService = executorService;
         return this;
     }
+
+    /**
+     * Creates a writer for a shard processed by the same child process as this writer. The new writer shares the output
+     * of this writer, and adds the shard id to every message it writes so the child process can tell the shards apart.
+     * Closing it only prevents further writes for the shard.
+     *
+     * @param shardId The shard the new writer writes messages for.
+     * @return A writer for the shard.
+     */
+    MessageWriter forShard(String shardId) {
+        MessageWriter shardWriter = new MessageWriter().initialize(writer, shardId, objectMapper, executorService);
+        shardWriter.outputStream = outputStream;
+        shardWriter.shared = true;
+        return shardWriter;
+    }
+
+    private interface MessageJson {
+        void write(JsonGenerator generator) throws IOException;
+    }
 }
@@ -14,12 +14,16 @@
  */
 package software.amazon.kinesis.multilang;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.kinesis.exceptions.InvalidStateException;
 import software.amazon.kinesis.lifecycle.events.InitializationInput;
@@ -36,6 +40,8 @@ import software.amazon.kinesis.multilang.messages.ShardEndedMessage;
 import software.amazon.kinesis.multilang.messages.ShutdownRequestedMessage;
 import software.amazon.kinesis.multilang.messages.StatusMessage;
 import software.amazon.kinesis.processor.RecordProcessorCheckpointer;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 /**
  * An implementation of the multi language protocol.
@@ -51,6 +57,21 @@ class MultiLangProtocol {
 
     private MultiLangDaemonConfiguration configuration;
 
+    /**
+     * The most processRecords messages written without their status message, as agreed with the child process.
+     */
+    private int maxProcessRecordsInFlight = 1;
+
+    /**
+     * The processRecords messages waiting for their status message, oldest first.
+     */
+    private final Queue<ProcessRecordsInFlight> processRecordsInFlight = new LinkedList<>();
+
+    /**
+     * The sequence number of the last record written in a processRecords message.
+     */
+    private ExtendedSequenceNumber lastWrittenSequenceNumber;
+
     /**
      * Constructor.
      *
@@ -83,13 +104,61 @@ class MultiLangProtocol {
         /*
          * Call and response to child process.
          */
-        Future<Boolean> writeFuture = messageWriter.writeInitializeMessage(initializationInput);
-        return waitForStatusMessage(InitializeMessage.ACTION, null, writeFuture);
+        boolean offerBinaryFraming =
+                configuration.getMessageFraming() == MessageFraming.BINARY && messageWriter.supportsBinaryFraming();
+        int offeredProcessRecordsInFlight = configuration.getMaxProcessRecordsInFlight();
+        if (!offerBinaryFraming && offeredProcessRecordsInFlight <= 1) {
+            Future<Boolean> writeFuture = messageWriter.writeInitializeMessage(initializationInput);
+            return waitForStatusMessage(InitializeMessage.ACTION, null, writeFuture);
+        }
+
+        InitializeMessage initializeMessage = new InitializeMessage(initializationInput);
+        if (offerBinaryFraming) {
+            initializeMessage.setFraming(MessageFraming.BINARY.messageValue());
+        }
+        if (offeredProcessRecordsInFlight > 1) {
+            initializeMessage.setMaxProcessRecordsInFlight(offeredProcessRecordsInFlight);
+        }
+        Future<Boolean> writeFuture = messageWriter.writeInitializeMessage(initializeMessage);
+        Optional<StatusMessage> statusMessage = nextStatusMessage(InitializeMessage.ACTION, null);
+        boolean statusWasCorrect = statusMessage
+                .map(m -> validateStatusMessage(m, InitializeMessage.ACTION))
+                .orElse(false);
+        if (!(writerIsStillOpen(InitializeMessage.ACTION, writeFuture) && statusWasCorrect)) {
+            return false;
+        }
+        if (offerBinaryFraming) {
+            if (MessageFraming.BINARY.messageValue().equals(statusMessage.get().getFraming())) {
+                messageWriter.useFraming(MessageFraming.BINARY);
+            } else {
+                log.info(
+                        "Subprocess for shard {} didn't accept binary framing, writing messages as JSON",
+                        initializationInput.shardId());
+            }
+        }
+        if (offeredProcessRecordsInFlight > 1) {
+            Integer acceptedProcessRecordsInFlight = statusMessage.get().getMaxProcessRecordsInFlight();
+            if (acceptedProcessRecordsInFlight != null && acceptedProcessRecordsInFlight > 1) {
+                maxProcessRecordsInFlight = Math.min(acceptedProcessRecordsInFlight, offeredProcessRecordsInFlight);
+                log.info(
+                        "Writing up to {} processRecords messages in flight to subprocess for shard {}",
+                        maxProcessRecordsInFlight,
+                        initializationInput.shardId());
+            } else {
+                log.info(
+                        "Subprocess for shard {} didn't accept processRecords messages in flight, waiting for the"
+                                + " status of each",
+                        initializationInput.shardId());
+            }
+        }
+        return true;
     }
 
     /**
      * Writes a {@link ProcessRecordsMessage} to the child process's STDIN and waits for the child process to respond
-     * with a {@link StatusMessage} on its STDOUT.
+     * with a {@link StatusMessage} on its STDOUT. If the child process accepted processRecords messages in flight, only
+     * waits for the status messages of the oldest ones, until no more than the accepted number are in flight; the
+     * checkpoint messages the child process writes meanwhile are still handled in the order they are written.
      *
      * @param processRecordsInput
      *            The records, and associated metadata, to process.
@@ -97,7 +166,43 @@ class MultiLangProtocol {
      */
     boolean processRecords(ProcessRecordsInput processRecordsInput) {
         Future<Boolean> writeFuture = messageWriter.writeProcessRecordsMessage(processRecordsInput);
-        return waitForStatusMessage(ProcessRecordsMessage.ACTION, processRecordsInput.checkpointer(), writeFuture);
+        if (maxProcessRecordsInFlight <= 1) {
+            return waitForStatusMessage(ProcessRecordsMessage.ACTION, processRecordsInput.checkpointer(), writeFuture);
+        }
+        /*
+         * The message has to be written before anything else is, so that the messages in flight and the responses to
+         * checkpoint messages reach the child process in order.
+         */
+        if (!writerIsStillOpen(ProcessRecordsMessage.ACTION, writeFuture)) {
+            return false;
+        }
+        List<KinesisClientRecord> records = processRecordsInput.records();
+        if (records != null && !records.isEmpty()) {
+            KinesisClientRecord lastRecord = records.get(records.size() - 1);
+            lastWrittenSequenceNumber =
+                    new ExtendedSequenceNumber(lastRecord.sequenceNumber(), lastRecord.subSequenceNumber());
+        }
+        processRecordsInFlight.add(
+                new ProcessRecordsInFlight(processRecordsInput.checkpointer(), lastWrittenSequenceNumber));
+        return waitForProcessRecordsInFlight(maxProcessRecordsInFlight - 1);
+    }
+
+    /**
+     * Waits for the status messages of the oldest processRecords messages in flight, until no more than the given
+     * number are left in flight.
+     *
+     * @param inFlight
+     *            The most processRecords messages to leave in flight.
+     * @return Whether or not the status messages waited for were received.
+     */
+    private boolean waitForProcessRecordsInFlight(int inFlight) {
+        while (processRecordsInFlight.size() > inFlight) {
+            if (!waitForStatusMessage(ProcessRecordsMessage.ACTION, processRecordsInFlight.peek().checkpointer)) {
+                return false;
+            }
+            processRecordsInFlight.remove();
+        }
+        return true;
     }
 
     /**
@@ -108,7 +213,9 @@ class MultiLangProtocol {
      * @return true if the message was successfully writtem
      */
     boolean leaseLost(LeaseLostInput leaseLostInput) {
-        return waitForStatusMessage(LeaseLostMessage.ACTION, null, messageWriter.writeLeaseLossMessage(leaseLostInput));
+        return waitForProcessRecordsInFlight(0)
+                && waitForStatusMessage(
+                        LeaseLostMessage.ACTION, null, messageWriter.writeLeaseLossMessage(leaseLostInput));
     }
 
     /**
@@ -117,10 +224,11 @@ class MultiLangProtocol {
      * @return
      */
     boolean shardEnded(ShardEndedInput shardEndedInput) {
-        return waitForStatusMessage(
-                ShardEndedMessage.ACTION,
-                shardEndedInput.checkpointer(),
-                messageWriter.writeShardEndedMessage(shardEndedInput));
+        return waitForProcessRecordsInFlight(0)
+                && waitForStatusMessage(
+                        ShardEndedMessage.ACTION,
+                        shardEndedInput.checkpointer(),
+                        messageWriter.writeShardEndedMessage(shardEndedInput));
     }
 
     /**
@@ -131,6 +239,9 @@ class MultiLangProtocol {
      * @return Whether or not this operation succeeded.
      */
     boolean shutdownRequested(RecordProcessorCheckpointer checkpointer) {
+        if (!waitForProcessRecordsInFlight(0)) {
+            return false;
+        }
         Future<Boolean> writeFuture = messageWriter.writeShutdownRequestedMessage();
         return waitForStatusMessage(ShutdownRequestedMessage.ACTION, checkpointer, writeFuture);
     }
@@ -156,9 +267,12 @@ class MultiLangProtocol {
         boolean statusWasCorrect = waitForStatusMessage(action, checkpointer);
 
         // Examine whether or not we failed somewhere along the line.
+        return writerIsStillOpen(action, writeFuture) && statusWasCorrect;
+    }
+
+    private boolean writerIsStillOpen(String action, Future<Boolean> writeFuture) {
         try {
-            boolean writerIsStillOpen = writeFuture.get();
-            return statusWasCorrect && writerIsStillOpen;
+            return writeFuture.get();
         } catch (InterruptedException e) {
             log.error("Interrupted while writing {} message for shard {}", action, initializationInput.shardId());
             return false;
@@ -178,6 +292,21 @@ class MultiLangProtocol {
      * @return Whether or not this operation succeeded.
      */
     boolean waitForStatusMessage(String action, RecordProcessorCheckpointer checkpointer) {
+        return nextStatusMessage(action, checkpointer)
+                .map(statusMessage -> validateStatusMessage(statusMessage, action))
+                .orElse(false);
+    }
+
+    /**
+     * Reads messages until a {@link StatusMessage}, checkpointing as asked by any {@link CheckpointMessage} before it.
+     *
+     * @param action
+     *            What action is being waited on.
+     * @param checkpointer
+     *            the checkpointer from the process records, or shutdown request
+     * @return The status message, or empty if reading it or communicating the result of a checkpoint failed.
+     */
+    private Optional<StatusMessage> nextStatusMessage(String action, RecordProcessorCheckpointer checkpointer) {
         Optional<StatusMessage> statusMessage = Optional.empty();
         while (!statusMessage.isPresent()) {
             Future<Message> future = this.messageReader.getNextMessageFromSTDOUT();
@@ -186,7 +315,7 @@ class MultiLangProtocol {
                     .orElse(futureMethod(future::get, action));
 
             if (!message.isPresent()) {
-                return false;
+                return Optional.empty();
             }
 
             Optional<Boolean> checkpointFailed = message.filter(m -> m instanceof CheckpointMessage)
@@ -195,12 +324,12 @@ class MultiLangProtocol {
                     .map(checkpointSuccess -> !checkpointSuccess);
 
             if (checkpointFailed.orElse(false)) {
-                return false;
+                return Optional.empty();
             }
 
             statusMessage = message.filter(m -> m instanceof StatusMessage).map(m -> (StatusMessage) m);
         }
-        return this.validateStatusMessage(statusMessage.get(), action);
+        return statusMessage;
     }
 
     private interface FutureMethod<T> {
@@ -261,8 +390,10 @@ class MultiLangProtocol {
     /**
      * Attempts to checkpoint with the provided {@link RecordProcessorCheckpointer} at the sequence number in the
      * provided {@link CheckpointMessage}. If no sequence number is provided, i.e. the sequence number is null, then
-     * this method will call {@link RecordProcessorCheckpointer#checkpoint()}. The method returns a future representing
-     * the attempt to write the result of this checkpoint attempt to the child process.
+     * this method will call {@link RecordProcessorCheckpointer#checkpoint()}, unless later processRecords messages are
+     * in flight: the checkpointer already permits checkpointing their records, so the checkpoint is made at the last
+     * record of the oldest processRecords message instead. The method returns a future representing the attempt to
+     * write the result of this checkpoint attempt to the child process.
      *
      * @param checkpointMessage A checkpoint message.
      * @param checkpointer A checkpointer.
@@ -280,6 +411,16 @@ class MultiLangProtocol {
                     } else {
                         checkpointer.checkpoint(sequenceNumber);
                     }
+                } else if (processRecordsInFlight.size() > 1) {
+                    ExtendedSequenceNumber lastSequenceNumber = processRecordsInFlight.peek().lastSequenceNumber;
+                    if (lastSequenceNumber == null) {
+                        throw new InvalidStateException(String.format(
+                                "Can't checkpoint shard %s without a sequence number, as records written after the"
+                                        + " ones being processed are in flight",
+                                initializationInput.shardId()));
+                    }
+                    checkpointer.checkpoint(
+                            lastSequenceNumber.sequenceNumber(), lastSequenceNumber.subSequenceNumber());
                 } else {
                     checkpointer.checkpoint();
                 }
@@ -297,6 +438,19 @@ class MultiLangProtocol {
         }
     }
 
+    /**
+     * A processRecords message waiting for its status message.
+     */
+    @RequiredArgsConstructor
+    private static class ProcessRecordsInFlight {
+        private final RecordProcessorCheckpointer checkpointer;
+
+        /**
+         * The sequence number of the last record written up to and including this message, or null if none was.
+         */
+        private final ExtendedSequenceNumber lastSequenceNumber;
+    }
+
     private String logCheckpointMessage(String sequenceNumber, Long subSequenceNumber) {
         return String.format(
                 "Attempting to checkpoint shard %s @ sequence number %s, and sub sequence number %s",
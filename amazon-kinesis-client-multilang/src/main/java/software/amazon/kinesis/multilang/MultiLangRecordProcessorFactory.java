@@ -38,6 +38,11 @@ public class MultiLangRecordProcessorFactory implements ShardRecordProcessorFact
 
     private final MultiLangDaemonConfiguration configuration;
 
+    /**
+     * The child processes shared by the record processors, or null if each record processor starts its own.
+     */
+    private final ChildProcessPool childProcessPool;
+
     /**
      * @param command The command that will do processing for this factory's record processors.
      * @param executorService An executor service to use while processing inputs and outputs of the child process.
@@ -62,11 +67,21 @@ public class MultiLangRecordProcessorFactory implements ShardRecordProcessorFact
         this.executorService = executorService;
         this.objectMapper = objectMapper;
         this.configuration = configuration;
+        this.childProcessPool = configuration.getChildProcessPoolSize() > 0
+                ? new ChildProcessPool(
+                        new ProcessBuilder(commandArray),
+                        configuration.getChildProcessPoolSize(),
+                        objectMapper,
+                        executorService)
+                : null;
     }
 
     @Override
     public ShardRecordProcessor shardRecordProcessor() {
         log.debug("Creating new record processor for client executable: {}", command);
+        if (childProcessPool != null) {
+            return new MultiLangShardRecordProcessor(childProcessPool, configuration);
+        }
         /*
          * Giving ProcessBuilder the command as an array of Strings allows users to specify command line arguments.
          */
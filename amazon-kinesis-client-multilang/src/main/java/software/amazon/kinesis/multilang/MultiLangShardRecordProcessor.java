@@ -35,7 +35,8 @@ import software.amazon.kinesis.processor.ShardRecordProcessor;
  * A record processor that manages creating a child process that implements the multi language protocol and connecting
  * that child process's input and outputs to a {@link MultiLangProtocol} object and calling the appropriate methods on
  * that object when its corresponding {@link #initialize}, {@link #processRecords}, and {@link #shutdown} methods are
- * called.
+ * called. When given a {@link ChildProcessPool}, the record processor connects to a child process shared with other
+ * shards instead.
  */
 @Slf4j
 public class MultiLangShardRecordProcessor implements ShardRecordProcessor {
@@ -63,10 +64,28 @@ public class MultiLangShardRecordProcessor implements ShardRecordProcessor {
 
     private final MultiLangDaemonConfiguration configuration;
 
+    private final ChildProcessPool childProcessPool;
+
+    private ChildProcessPool.ShardConnection shardConnection;
+
     @Override
     public void initialize(InitializationInput initializationInput) {
         try {
             this.shardId = initializationInput.shardId();
+            if (childProcessPool != null) {
+                shardConnection = childProcessPool.connect(shardId);
+                protocol = new MultiLangProtocol(
+                        shardConnection.getMessageReader(),
+                        shardConnection.getMessageWriter(),
+                        initializationInput,
+                        configuration);
+                if (!protocol.initialize()) {
+                    throw new RuntimeException("Failed to initialize child process");
+                }
+
+                initialized = true;
+                return;
+            }
             try {
                 this.process = startProcess();
             } catch (IOException e) {
@@ -220,6 +239,38 @@ public class MultiLangShardRecordProcessor implements ShardRecordProcessor {
             MessageReader messageReader,
             DrainChildSTDERRTask readSTDERRTask,
             MultiLangDaemonConfiguration configuration) {
+        this(
+                processBuilder,
+                executorService,
+                objectMapper,
+                messageWriter,
+                messageReader,
+                readSTDERRTask,
+                configuration,
+                null);
+    }
+
+    /**
+     * Constructor for a record processor that connects to a child process of the pool instead of starting its own.
+     *
+     * @param childProcessPool
+     *            The pool of child processes shared by the record processors of all shards
+     * @param configuration
+     *            The configuration of the daemon
+     */
+    MultiLangShardRecordProcessor(ChildProcessPool childProcessPool, MultiLangDaemonConfiguration configuration) {
+        this(null, null, null, null, null, null, configuration, childProcessPool);
+    }
+
+    private MultiLangShardRecordProcessor(
+            ProcessBuilder processBuilder,
+            ExecutorService executorService,
+            ObjectMapper objectMapper,
+            MessageWriter messageWriter,
+            MessageReader messageReader,
+            DrainChildSTDERRTask readSTDERRTask,
+            MultiLangDaemonConfiguration configuration,
+            ChildProcessPool childProcessPool) {
         this.executorService = executorService;
         this.processBuilder = processBuilder;
         this.objectMapper = objectMapper;
@@ -227,15 +278,24 @@ public class MultiLangShardRecordProcessor implements ShardRecordProcessor {
         this.messageReader = messageReader;
         this.readSTDERRTask = readSTDERRTask;
         this.configuration = configuration;
+        this.childProcessPool = childProcessPool;
 
         this.state = ProcessState.ACTIVE;
     }
 
     /**
      * Performs the necessary shutdown actions for the child process, e.g. stopping all the handlers after they have
-     * drained their streams. Attempts to wait for child process to completely finish before returning.
+     * drained their streams. Attempts to wait for child process to completely finish before returning. A child process
+     * of the pool keeps running for the other shards, so the record processor only disconnects from it.
      */
     private void childProcessShutdownSequence() {
+        if (childProcessPool != null) {
+            if (shardConnection != null) {
+                shardConnection.close();
+            }
+            state = ProcessState.SHUTDOWN;
+            return;
+        }
         try {
             /*
              * Close output stream to the child process. The child process should be reading off its stdin until it
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.multilang;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import software.amazon.kinesis.multilang.messages.Message;
+
+/**
+ * Provides the messages of one shard of a child process that processes several shards. The child process's STDOUT is
+ * read by a {@link DispatchChildSTDOUTTask}, which hands each message to the reader of the shard it is for, so waiting
+ * for a message doesn't take a thread of its own.
+ */
+class ShardMessageReader extends MessageReader {
+    private final String shardId;
+
+    private final Queue<Message> messages = new ArrayDeque<>();
+
+    private CompletableFuture<Message> pendingMessage;
+
+    private Throwable failure;
+
+    /**
+     * @param shardId The shard whose messages this reader provides.
+     */
+    ShardMessageReader(String shardId) {
+        this.shardId = shardId;
+    }
+
+    /**
+     * Returns a future of the next message for the shard. The future fails once the child process's STDOUT can't be
+     * read anymore and all the messages for the shard read before that have been returned.
+     *
+     * @return A future of the next message for the shard.
+     */
+    @Override
+    synchronized Future<Message> getNextMessageFromSTDOUT() {
+        CompletableFuture<Message> nextMessage = new CompletableFuture<>();
+        if (!messages.isEmpty()) {
+            nextMessage.complete(messages.poll());
+        } else if (failure != null) {
+            nextMessage.completeExceptionally(failure);
+        } else {
+            pendingMessage = nextMessage;
+        }
+        return nextMessage;
+    }
+
+    /**
+     * The STDOUT of the child process is shared with other shards, and drained by its {@link DispatchChildSTDOUTTask},
+     * so there is nothing to drain for the shard.
+     *
+     * @return A completed future.
+     */
+    @Override
+    Future<Boolean> drainSTDOUT() {
+        return CompletableFuture.completedFuture(true);
+    }
+
+    /**
+     * Hands a message read from the child process's STDOUT to the shard.
+     *
+     * @param message A message for the shard.
+     */
+    synchronized void deliver(Message message) {
+        if (pendingMessage != null && !pendingMessage.isDone()) {
+            CompletableFuture<Message> waitingForMessage = pendingMessage;
+            pendingMessage = null;
+            waitingForMessage.complete(message);
+        } else {
+            messages.add(message);
+        }
+    }
+
+    /**
+     * Fails the following attempts to get a message for the shard once the messages already delivered are returned.
+     *
+     * @param cause Why no more messages will be delivered.
+     */
+    synchronized void fail(Throwable cause) {
+        failure = cause;
+        if (pendingMessage != null) {
+            pendingMessage.completeExceptionally(cause);
+            pendingMessage = null;
+        }
+    }
+
+    String getShardId() {
+        return shardId;
+    }
+}
@@ -55,6 +55,7 @@ import software.amazon.kinesis.leases.ShardPrioritization;
 import software.amazon.kinesis.lifecycle.LifecycleConfig;
 import software.amazon.kinesis.metrics.MetricsConfig;
 import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.multilang.MessageFraming;
 import software.amazon.kinesis.multilang.config.credentials.V2CredentialWrapper;
 import software.amazon.kinesis.processor.ProcessorConfig;
 import software.amazon.kinesis.processor.ShardRecordProcessorFactory;
@@ -193,6 +194,20 @@ public class MultiLangDaemonConfiguration {
 
     private long shutdownGraceMillis;
     private Integer timeoutInSeconds;
+    private MessageFraming messageFraming = MessageFraming.JSON;
+
+    /**
+     * The number of child processes shared by the record processors of all shards, with a shard id in every message.
+     * When not positive, each record processor starts a child process of its own.
+     */
+    private int childProcessPoolSize;
+
+    /**
+     * The most processRecords messages offered to be in flight to a child process for a shard before waiting for the
+     * status message of the first of them. The child process has to accept the offer in its response to the
+     * initialize message; otherwise, as when this is 1, each processRecords message waits for its status message.
+     */
+    private int maxProcessRecordsInFlight = 1;
 
     private final BuilderDynaBean kinesisCredentialsProvider;
 
@@ -270,6 +285,15 @@ public class MultiLangDaemonConfiguration {
                 },
                 RetrievalMode.class);
 
+        convertUtilsBean.register(
+                new Converter() {
+                    @Override
+                    public <T> T convert(Class<T> type, Object value) {
+                        return type.cast(MessageFraming.from(value.toString()));
+                    }
+                },
+                MessageFraming.class);
+
         convertUtilsBean.register(
                 new Converter() {
                     @Override
@@ -14,6 +14,7 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 import software.amazon.kinesis.lifecycle.events.InitializationInput;
@@ -37,6 +38,22 @@ public class InitializeMessage extends Message {
     private String sequenceNumber;
     private Long subSequenceNumber;
 
+    /**
+     * The framing that the daemon offers to write the following messages with, which the client's process accepts by
+     * echoing it in its {@link StatusMessage}. Absent when messages are written as lines of JSON.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String framing;
+
+    /**
+     * The most processRecords messages the daemon offers to write before waiting for the status message of the first
+     * of them. The client's process accepts by setting the number it can handle in its {@link StatusMessage}, in which
+     * case it must also expect processRecords messages between a checkpoint message it writes and the response to it.
+     * Absent when each processRecords message waits for the status message of the previous one.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxProcessRecordsInFlight;
+
     /**
      * Default constructor.
      */
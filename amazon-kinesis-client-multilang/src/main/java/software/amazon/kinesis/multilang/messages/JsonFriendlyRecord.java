@@ -14,6 +14,8 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
+import java.nio.ByteBuffer;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
@@ -44,15 +46,7 @@ public class JsonFriendlyRecord {
     public static String ACTION = "record";
 
     public static JsonFriendlyRecord fromKinesisClientRecord(@NonNull final KinesisClientRecord record) {
-        byte[] data;
-        if (record.data() == null) {
-            data = null;
-        } else if (record.data().hasArray()) {
-            data = record.data().array();
-        } else {
-            data = new byte[record.data().limit()];
-            record.data().get(data);
-        }
+        byte[] data = record.data() == null ? null : remainingBytes(record.data());
         Long approximateArrival = record.approximateArrivalTimestamp() == null
                 ? null
                 : record.approximateArrivalTimestamp().toEpochMilli();
@@ -64,4 +58,24 @@ public class JsonFriendlyRecord {
     public String getAction() {
         return ACTION;
     }
+
+    /**
+     * Gets the remaining bytes of the buffer, without changing its position. The backing array is only used as is when
+     * it holds exactly those bytes; a buffer that is a view into part of a larger array, such as a deaggregated
+     * sub-record, is copied.
+     *
+     * @param data the buffer holding the data of a record
+     * @return the remaining bytes of the buffer
+     */
+    private static byte[] remainingBytes(final ByteBuffer data) {
+        if (data.hasArray()
+                && data.arrayOffset() == 0
+                && data.position() == 0
+                && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
 }
@@ -14,10 +14,13 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonSubTypes.Type;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.Setter;
 
 /**
  * Abstract class for all messages that are sent to the client's process.
@@ -37,6 +40,15 @@ public abstract class Message {
 
     private ObjectMapper mapper = new ObjectMapper();
 
+    /**
+     * The shard the message is for. Only set when a child process processes several shards, in which case the child
+     * process must set it on every message it sends back too.
+     */
+    @Getter
+    @Setter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String shardId;
+
     /**
      * Default constructor.
      */
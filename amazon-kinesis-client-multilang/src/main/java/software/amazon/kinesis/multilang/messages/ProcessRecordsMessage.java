@@ -14,9 +14,13 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import lombok.Getter;
 import lombok.Setter;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
@@ -59,4 +63,103 @@ public class ProcessRecordsMessage extends Message {
         }
         this.setRecords(recordMessages);
     }
+
+    /**
+     * Writes the JSON of the message for the given input, as it would be written by serializing a
+     * ProcessRecordsMessage, without building the message. Record data is encoded straight from the buffers of the
+     * records, so the only copy of a batch is the JSON written to the generator's target.
+     *
+     * @param processRecordsInput
+     *            the process records input to be sent to the child
+     * @param generator
+     *            the generator to write the JSON to
+     * @throws IOException
+     *             if the generator fails to write
+     */
+    public static void writeJson(ProcessRecordsInput processRecordsInput, JsonGenerator generator) throws IOException {
+        writeJson(processRecordsInput, null, generator);
+    }
+
+    /**
+     * Writes the JSON of the message for the given input, with the shard it is for.
+     *
+     * @param processRecordsInput
+     *            the process records input to be sent to the child
+     * @param shardId
+     *            the shard the records are from, or null to leave it out of the message
+     * @param generator
+     *            the generator to write the JSON to
+     * @throws IOException
+     *             if the generator fails to write
+     * @see Message#getShardId()
+     */
+    public static void writeJson(ProcessRecordsInput processRecordsInput, String shardId, JsonGenerator generator)
+            throws IOException {
+        writeJson(processRecordsInput, shardId, true, generator);
+    }
+
+    /**
+     * Writes the JSON of the message for the given input without the data of the records, which is the header of the
+     * message when it is written as a binary frame.
+     *
+     * @param processRecordsInput
+     *            the process records input to be sent to the child
+     * @param shardId
+     *            the shard the records are from, or null to leave it out of the message
+     * @param generator
+     *            the generator to write the JSON to
+     * @throws IOException
+     *             if the generator fails to write
+     */
+    public static void writeFrameHeaderJson(
+            ProcessRecordsInput processRecordsInput, String shardId, JsonGenerator generator) throws IOException {
+        writeJson(processRecordsInput, shardId, false, generator);
+    }
+
+    private static void writeJson(
+            ProcessRecordsInput processRecordsInput, String shardId, boolean withData, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("action", ACTION);
+        if (shardId != null) {
+            generator.writeStringField("shardId", shardId);
+        }
+        generator.writeArrayFieldStart("records");
+        for (KinesisClientRecord record : processRecordsInput.records()) {
+            generator.writeStartObject();
+            if (withData) {
+                generator.writeFieldName("data");
+                writeData(record.data(), generator);
+            }
+            generator.writeStringField("partitionKey", record.partitionKey());
+            generator.writeStringField("sequenceNumber", record.sequenceNumber());
+            generator.writeFieldName("approximateArrivalTimestamp");
+            if (record.approximateArrivalTimestamp() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(record.approximateArrivalTimestamp().toEpochMilli());
+            }
+            generator.writeNumberField("subSequenceNumber", record.subSequenceNumber());
+            generator.writeStringField("action", JsonFriendlyRecord.ACTION);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeFieldName("millisBehindLatest");
+        if (processRecordsInput.millisBehindLatest() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(processRecordsInput.millisBehindLatest());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeData(ByteBuffer data, JsonGenerator generator) throws IOException {
+        if (data == null) {
+            generator.writeNull();
+        } else if (data.hasArray()) {
+            generator.writeBinary(data.array(), data.arrayOffset() + data.position(), data.remaining());
+        } else {
+            generator.writeBinary(new ByteBufferBackedInputStream(data.duplicate()), data.remaining());
+        }
+    }
 }
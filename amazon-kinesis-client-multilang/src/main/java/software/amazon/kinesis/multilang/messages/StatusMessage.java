@@ -14,7 +14,7 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -23,7 +23,6 @@ import lombok.Setter;
  * A message sent by the client's process to indicate to the record processor that it completed a particular action.
  */
 @NoArgsConstructor
-@AllArgsConstructor
 @Getter
 @Setter
 public class StatusMessage extends Message {
@@ -36,4 +35,21 @@ public class StatusMessage extends Message {
      * The name of the most recently received action.
      */
     private String responseFor;
+
+    /**
+     * The framing offered in an {@link InitializeMessage} that the client's process accepts, when responding to it.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String framing;
+
+    /**
+     * The most processRecords messages in flight that the client's process accepts, when responding to an
+     * {@link InitializeMessage} offering them. No more than the number offered are written either way.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer maxProcessRecordsInFlight;
+
+    public StatusMessage(String responseFor) {
+        this.responseFor = responseFor;
+    }
 }
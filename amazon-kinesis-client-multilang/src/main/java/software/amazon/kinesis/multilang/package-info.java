@@ -73,6 +73,19 @@
  * action. The multi-lang daemon will not begin to send another message until it has received the response for the
  * previous message.
  *
+ * When childProcessPoolSize is set, a fixed number of child processes is shared by all the shards instead. Every message
+ * sent to a shared child process has a "shardId" field naming the shard it is for, and the child process must set the
+ * same "shardId" on every status and checkpoint message it sends back. The daemon still waits for the response to the
+ * previous message of a shard before sending the next message for that shard, but messages for different shards are
+ * interleaved.
+ *
+ * When maxProcessRecordsInFlight is more than 1, the initialize message offers it to the child process, which accepts by
+ * setting "maxProcessRecordsInFlight" on its status message to the number of processRecords messages it can take before
+ * the daemon waits for the status of the first of them. A child process that accepts must expect processRecords messages
+ * between a checkpoint message it writes and the response to it. Status and checkpoint messages are still handled in
+ * the order the child process writes them, and every processRecords message in flight is waited for before any other
+ * message is sent.
+ *
  * <h4>Checkpointing Behavior</h4>
  *
  * The child process may send a checkpoint message at any time <b>after</b> receiving a processRecords or shutdown
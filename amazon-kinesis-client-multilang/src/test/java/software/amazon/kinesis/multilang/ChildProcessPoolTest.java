@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.multilang;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.kinesis.multilang.messages.Message;
+import software.amazon.kinesis.multilang.messages.StatusMessage;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChildProcessPoolTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<FakeChildProcess> startedProcesses = new ArrayList<>();
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        for (FakeChildProcess process : startedProcesses) {
+            process.stdout.close();
+        }
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testChildProcessesAreStartedUntilPoolIsFull() throws Exception {
+        ChildProcessPool pool = pool(2);
+
+        pool.connect("shard-0");
+        ChildProcessPool.ShardConnection shard1 = pool.connect("shard-1");
+        pool.connect("shard-2");
+        assertThat(startedProcesses.size(), equalTo(2));
+
+        shard1.close();
+        ChildProcessPool.ShardConnection shard3 = pool.connect("shard-3");
+        shard3.getMessageWriter().writeShutdownRequestedMessage().get();
+
+        assertThat(startedProcesses.size(), equalTo(2));
+        JsonNode message = objectMapper.readTree(startedProcesses.get(1).stdin.readLine());
+        assertThat(message.get("shardId").asText(), equalTo("shard-3"));
+    }
+
+    @Test
+    public void testMessagesAreDispatchedByShardId() throws Exception {
+        ChildProcessPool pool = pool(1);
+        ChildProcessPool.ShardConnection shard1 = pool.connect("shard-1");
+        ChildProcessPool.ShardConnection shard2 = pool.connect("shard-2");
+        FakeChildProcess process = startedProcesses.get(0);
+
+        shard1.getMessageWriter().writeShutdownRequestedMessage().get();
+        JsonNode message = objectMapper.readTree(process.stdin.readLine());
+        assertThat(message.get("action").asText(), equalTo("shutdownRequested"));
+        assertThat(message.get("shardId").asText(), equalTo("shard-1"));
+
+        process.writeLine("{\"action\":\"status\",\"responseFor\":\"initialize\",\"shardId\":\"shard-2\"}");
+        process.writeLine("{\"action\":\"status\",\"responseFor\":\"initialize\"}");
+        process.writeLine("{\"action\":\"status\",\"responseFor\":\"shutdownRequested\",\"shardId\":\"shard-1\"}");
+
+        assertThat(
+                responseFor(shard1.getMessageReader().getNextMessageFromSTDOUT().get(5, TimeUnit.SECONDS)),
+                equalTo("shutdownRequested"));
+        assertThat(
+                responseFor(shard2.getMessageReader().getNextMessageFromSTDOUT().get(5, TimeUnit.SECONDS)),
+                equalTo("initialize"));
+    }
+
+    @Test
+    public void testShardsFailToGetMessagesAfterEndOfSTDOUT() throws Exception {
+        ChildProcessPool pool = pool(1);
+        ChildProcessPool.ShardConnection shard1 = pool.connect("shard-1");
+
+        startedProcesses.get(0).stdout.close();
+
+        assertFailsToGetMessage(shard1.getMessageReader());
+    }
+
+    @Test
+    public void testNewShardsAreConnectedToNewChildProcessAfterChildProcessDies() throws Exception {
+        ChildProcessPool pool = pool(2);
+        pool.connect("shard-0");
+        ChildProcessPool.ShardConnection shard1 = pool.connect("shard-1");
+        FakeChildProcess deadProcess = startedProcesses.get(1);
+        deadProcess.stdout.close();
+        assertFailsToGetMessage(shard1.getMessageReader());
+        shard1.close();
+
+        ChildProcessPool.ShardConnection shard2 = pool.connect("shard-2");
+
+        assertThat(startedProcesses.size(), equalTo(3));
+        assertThat(deadProcess.destroyed, equalTo(true));
+        FakeChildProcess newProcess = startedProcesses.get(2);
+        shard2.getMessageWriter().writeShutdownRequestedMessage().get();
+        assertThat(
+                objectMapper
+                        .readTree(newProcess.stdin.readLine())
+                        .get("shardId")
+                        .asText(),
+                equalTo("shard-2"));
+        newProcess.writeLine("{\"action\":\"status\",\"responseFor\":\"shutdownRequested\",\"shardId\":\"shard-2\"}");
+        assertThat(
+                responseFor(shard2.getMessageReader().getNextMessageFromSTDOUT().get(5, TimeUnit.SECONDS)),
+                equalTo("shutdownRequested"));
+    }
+
+    private ChildProcessPool pool(int size) {
+        return new ChildProcessPool(new ProcessBuilder(), size, objectMapper, executorService) {
+            @Override
+            Process startProcess() throws IOException {
+                FakeChildProcess process = new FakeChildProcess();
+                startedProcesses.add(process);
+                return process;
+            }
+        };
+    }
+
+    private static String responseFor(Message message) {
+        assertThat(message, instanceOf(StatusMessage.class));
+        return ((StatusMessage) message).getResponseFor();
+    }
+
+    private static void assertFailsToGetMessage(MessageReader messageReader) throws Exception {
+        try {
+            messageReader.getNextMessageFromSTDOUT().get(5, TimeUnit.SECONDS);
+            fail("Expected getting a message to fail after the end of STDOUT");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RuntimeException.class));
+        }
+    }
+
+    /**
+     * A child process whose STDIN is read, and whose STDOUT is written, by the test.
+     */
+    private static class FakeChildProcess extends Process {
+        private final PipedOutputStream stdinSink = new PipedOutputStream();
+        private final BufferedReader stdin;
+        private final PipedOutputStream stdout = new PipedOutputStream();
+        private final PipedInputStream stdoutSource;
+        private volatile boolean destroyed = false;
+
+        FakeChildProcess() throws IOException {
+            stdin = new BufferedReader(new InputStreamReader(new PipedInputStream(stdinSink), StandardCharsets.UTF_8));
+            stdoutSource = new PipedInputStream(stdout);
+        }
+
+        void writeLine(String line) throws IOException {
+            stdout.write((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            stdout.flush();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return stdinSink;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return stdoutSource;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public int waitFor() {
+            return 0;
+        }
+
+        @Override
+        public int exitValue() {
+            return 0;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+        }
+    }
+}
@@ -14,16 +14,22 @@
  */
 package software.amazon.kinesis.multilang;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Before;
@@ -35,6 +41,7 @@ import software.amazon.kinesis.lifecycle.events.InitializationInput;
 import software.amazon.kinesis.lifecycle.events.LeaseLostInput;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
 import software.amazon.kinesis.lifecycle.events.ShardEndedInput;
+import software.amazon.kinesis.multilang.messages.InitializeMessage;
 import software.amazon.kinesis.multilang.messages.Message;
 import software.amazon.kinesis.retrieval.KinesisClientRecord;
 
@@ -101,6 +108,150 @@ public class MessageWriterTest {
         verify(this.stream, Mockito.atLeastOnce()).flush();
     }
 
+    @Test
+    public void writeProcessRecordsMessageStreamsJsonLineTest() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ObjectMapper objectMapper = new ObjectMapper();
+        messageWriter = new MessageWriter().initialize(output, SHARD_ID, objectMapper, Executors.newCachedThreadPool());
+        ByteBuffer data = ByteBuffer.allocateDirect(6);
+        data.put("kitten".getBytes()).flip();
+
+        Assert.assertTrue(messageWriter
+                .writeProcessRecordsMessage(ProcessRecordsInput.builder()
+                        .records(Collections.singletonList(KinesisClientRecord.builder()
+                                .data(data)
+                                .partitionKey("some cats")
+                                .build()))
+                        .build())
+                .get());
+
+        String line = output.toString("UTF-8");
+        Assert.assertTrue(line.endsWith(System.lineSeparator()));
+        JsonNode message = objectMapper.readTree(line);
+        Assert.assertEquals("processRecords", message.get("action").asText());
+        Assert.assertArrayEquals(
+                "kitten".getBytes(), message.get("records").get(0).get("data").binaryValue());
+    }
+
+    @Test
+    public void writeProcessRecordsMessageAsBinaryFrameWritesOnlyRemainingDataTest() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        messageWriter =
+                new MessageWriter().initialize(output, SHARD_ID, new ObjectMapper(), Executors.newCachedThreadPool());
+        messageWriter.useFraming(MessageFraming.BINARY);
+        ByteBuffer slice = ByteBuffer.wrap("xxcowxx".getBytes(), 2, 3).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(6);
+        direct.put("xxdogx".getBytes()).flip();
+        direct.position(2).limit(5);
+
+        Assert.assertTrue(messageWriter
+                .writeProcessRecordsMessage(ProcessRecordsInput.builder()
+                        .records(Arrays.asList(
+                                KinesisClientRecord.builder().data(slice).build(),
+                                KinesisClientRecord.builder().data(direct).build()))
+                        .build())
+                .get());
+
+        DataInputStream frame = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        frame.readInt();
+        frame.skipBytes(frame.readInt());
+        for (String expected : Arrays.asList("cow", "dog")) {
+            byte[] data = new byte[frame.readInt()];
+            frame.readFully(data);
+            Assert.assertEquals(expected, new String(data));
+        }
+        Assert.assertEquals(-1, frame.read());
+        Assert.assertEquals(2, direct.position());
+    }
+
+    @Test
+    public void writeProcessRecordsMessageAsBinaryFrameTest() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ObjectMapper objectMapper = new ObjectMapper();
+        messageWriter = new MessageWriter().initialize(output, SHARD_ID, objectMapper, Executors.newCachedThreadPool());
+        Assert.assertTrue(messageWriter.supportsBinaryFraming());
+        messageWriter.useFraming(MessageFraming.BINARY);
+        List<KinesisClientRecord> records = Arrays.asList(
+                KinesisClientRecord.builder()
+                        .data(ByteBuffer.wrap("kitten".getBytes()))
+                        .partitionKey("some cats")
+                        .sequenceNumber("357234807854789057805")
+                        .build(),
+                KinesisClientRecord.builder().build());
+
+        Assert.assertTrue(messageWriter
+                .writeProcessRecordsMessage(
+                        ProcessRecordsInput.builder().records(records).build())
+                .get());
+
+        DataInputStream frame = new DataInputStream(new ByteArrayInputStream(output.toByteArray()));
+        int frameLength = frame.readInt();
+        Assert.assertEquals(output.size() - Integer.BYTES, frameLength);
+        byte[] header = new byte[frame.readInt()];
+        frame.readFully(header);
+        JsonNode message = objectMapper.readTree(header);
+        Assert.assertEquals("processRecords", message.get("action").asText());
+        Assert.assertEquals(2, message.get("records").size());
+        Assert.assertEquals(
+                "some cats", message.get("records").get(0).get("partitionKey").asText());
+        Assert.assertFalse(message.get("records").get(0).has("data"));
+        byte[] data = new byte[frame.readInt()];
+        frame.readFully(data);
+        Assert.assertEquals("kitten", new String(data));
+        Assert.assertEquals(-1, frame.readInt());
+        Assert.assertEquals(0, frame.available());
+    }
+
+    @Test
+    public void writeInitializeMessageOfferingBinaryFramingTest() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        messageWriter =
+                new MessageWriter().initialize(output, SHARD_ID, new ObjectMapper(), Executors.newCachedThreadPool());
+
+        InitializeMessage initializeMessage = new InitializeMessage(
+                InitializationInput.builder().shardId(SHARD_ID).build());
+        initializeMessage.setFraming(MessageFraming.BINARY.messageValue());
+
+        messageWriter.writeInitializeMessage(initializeMessage).get();
+
+        Assert.assertTrue(output.toString().contains("\"framing\":\"binary\""));
+        Assert.assertTrue(output.toString().endsWith(System.lineSeparator()));
+    }
+
+    @Test
+    public void writeMessagesInUtf8Test() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        messageWriter =
+                new MessageWriter().initialize(output, SHARD_ID, new ObjectMapper(), Executors.newCachedThreadPool());
+        String sequenceNumber = "K\u00e4tzchen-\u2603";
+
+        messageWriter.writeCheckpointMessageWithError(sequenceNumber, 0L, null).get();
+        messageWriter
+                .writeProcessRecordsMessage(ProcessRecordsInput.builder()
+                        .records(Collections.singletonList(KinesisClientRecord.builder()
+                                .data(ByteBuffer.wrap("kitten".getBytes()))
+                                .partitionKey(sequenceNumber)
+                                .sequenceNumber(sequenceNumber)
+                                .build()))
+                        .build())
+                .get();
+
+        String[] lines = new String(output.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+        Assert.assertEquals(2, lines.length);
+        ObjectMapper objectMapper = new ObjectMapper();
+        Assert.assertEquals(
+                sequenceNumber,
+                objectMapper.readTree(lines[0]).get("sequenceNumber").asText());
+        Assert.assertEquals(
+                sequenceNumber,
+                objectMapper
+                        .readTree(lines[1])
+                        .get("records")
+                        .get(0)
+                        .get("partitionKey")
+                        .asText());
+    }
+
     @Test
     public void writeShutdownMessageTest() throws IOException, InterruptedException, ExecutionException {
         Future<Boolean> future = this.messageWriter.writeShardEndedMessage(
@@ -15,6 +15,7 @@
 package software.amazon.kinesis.multilang;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -27,28 +28,34 @@ import com.google.common.util.concurrent.SettableFuture;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import software.amazon.kinesis.checkpoint.ShardRecordProcessorCheckpointer;
 import software.amazon.kinesis.exceptions.InvalidStateException;
 import software.amazon.kinesis.exceptions.KinesisClientLibDependencyException;
 import software.amazon.kinesis.exceptions.ShutdownException;
 import software.amazon.kinesis.exceptions.ThrottlingException;
+import software.amazon.kinesis.leases.ShardInfo;
 import software.amazon.kinesis.lifecycle.events.InitializationInput;
 import software.amazon.kinesis.lifecycle.events.LeaseLostInput;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
 import software.amazon.kinesis.lifecycle.events.ShardEndedInput;
 import software.amazon.kinesis.multilang.config.MultiLangDaemonConfiguration;
 import software.amazon.kinesis.multilang.messages.CheckpointMessage;
+import software.amazon.kinesis.multilang.messages.InitializeMessage;
 import software.amazon.kinesis.multilang.messages.LeaseLostMessage;
 import software.amazon.kinesis.multilang.messages.Message;
 import software.amazon.kinesis.multilang.messages.ProcessRecordsMessage;
 import software.amazon.kinesis.multilang.messages.ShardEndedMessage;
 import software.amazon.kinesis.multilang.messages.StatusMessage;
+import software.amazon.kinesis.processor.Checkpointer;
 import software.amazon.kinesis.processor.RecordProcessorCheckpointer;
 import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -59,7 +66,9 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -118,6 +127,135 @@ public class MultiLangProtocolTest {
         assertThat(protocol.initialize(), equalTo(true));
     }
 
+    @Test
+    public void testInitializeSwitchesToBinaryFramingWhenAccepted() {
+        StatusMessage statusMessage = new StatusMessage("initialize");
+        statusMessage.setFraming("binary");
+        when(configuration.getMessageFraming()).thenReturn(MessageFraming.BINARY);
+        when(messageWriter.supportsBinaryFraming()).thenReturn(true);
+        when(messageWriter.writeInitializeMessage(argThat(offersFraming("binary"))))
+                .thenReturn(buildFuture(true));
+        when(messageReader.getNextMessageFromSTDOUT()).thenReturn(buildFuture(statusMessage, Message.class));
+
+        assertThat(protocol.initialize(), equalTo(true));
+        verify(messageWriter).useFraming(MessageFraming.BINARY);
+    }
+
+    @Test
+    public void testInitializeKeepsJsonFramingWhenBinaryNotAccepted() {
+        when(configuration.getMessageFraming()).thenReturn(MessageFraming.BINARY);
+        when(messageWriter.supportsBinaryFraming()).thenReturn(true);
+        when(messageWriter.writeInitializeMessage(argThat(offersFraming("binary"))))
+                .thenReturn(buildFuture(true));
+        when(messageReader.getNextMessageFromSTDOUT())
+                .thenReturn(buildFuture(new StatusMessage("initialize"), Message.class));
+
+        assertThat(protocol.initialize(), equalTo(true));
+        verify(messageWriter, never()).useFraming(any(MessageFraming.class));
+    }
+
+    @Test
+    public void testProcessRecordsInFlightWaitForOldestStatus() {
+        StatusMessage initializeStatus = new StatusMessage("initialize");
+        initializeStatus.setMaxProcessRecordsInFlight(3);
+        when(configuration.getMaxProcessRecordsInFlight()).thenReturn(2);
+        when(messageWriter.writeInitializeMessage(any(InitializeMessage.class))).thenReturn(buildFuture(true));
+        when(messageWriter.writeProcessRecordsMessage(any(ProcessRecordsInput.class)))
+                .thenReturn(buildFuture(true));
+        when(messageWriter.writeShardEndedMessage(any(ShardEndedInput.class))).thenReturn(buildFuture(true));
+        when(messageReader.getNextMessageFromSTDOUT())
+                .thenAnswer(buildMessageAnswers(Arrays.asList(
+                        initializeStatus,
+                        new StatusMessage(ProcessRecordsMessage.ACTION),
+                        new StatusMessage(ProcessRecordsMessage.ACTION),
+                        new StatusMessage(ShardEndedMessage.ACTION))));
+        ProcessRecordsInput processRecordsInput =
+                ProcessRecordsInput.builder().records(EMPTY_RECORD_LIST).build();
+
+        assertThat(protocol.initialize(), equalTo(true));
+        assertThat(protocol.processRecords(processRecordsInput), equalTo(true));
+        verify(messageReader, times(1)).getNextMessageFromSTDOUT();
+        assertThat(protocol.processRecords(processRecordsInput), equalTo(true));
+        verify(messageReader, times(2)).getNextMessageFromSTDOUT();
+
+        assertThat(protocol.shardEnded(ShardEndedInput.builder().build()), equalTo(true));
+        verify(messageReader, times(4)).getNextMessageFromSTDOUT();
+    }
+
+    @Test
+    public void testCheckpointWithoutSequenceNumberStopsAtOldestProcessRecordsInFlight() throws Exception {
+        StatusMessage initializeStatus = new StatusMessage("initialize");
+        initializeStatus.setMaxProcessRecordsInFlight(2);
+        when(configuration.getMaxProcessRecordsInFlight()).thenReturn(2);
+        when(messageWriter.writeInitializeMessage(any(InitializeMessage.class))).thenReturn(buildFuture(true));
+        when(messageWriter.writeProcessRecordsMessage(any(ProcessRecordsInput.class)))
+                .thenReturn(buildFuture(true));
+        when(messageWriter.writeCheckpointMessageWithError(any(String.class), any(Long.class), any(Throwable.class)))
+                .thenReturn(buildFuture(true));
+        when(messageReader.getNextMessageFromSTDOUT())
+                .thenAnswer(buildMessageAnswers(Arrays.asList(
+                        initializeStatus,
+                        new CheckpointMessage(null, null, null),
+                        new StatusMessage(ProcessRecordsMessage.ACTION))));
+        Checkpointer storedCheckpoints = Mockito.mock(Checkpointer.class);
+        ShardRecordProcessorCheckpointer shardCheckpointer = new ShardRecordProcessorCheckpointer(
+                new ShardInfo(shardId, "token", null, ExtendedSequenceNumber.TRIM_HORIZON), storedCheckpoints);
+        shardCheckpointer.setInitialCheckpointValue(ExtendedSequenceNumber.TRIM_HORIZON);
+
+        assertThat(protocol.initialize(), equalTo(true));
+        // The checkpointer permits checkpointing each batch as it is handed to the record processor.
+        shardCheckpointer.largestPermittedCheckpointValue(new ExtendedSequenceNumber("2", 0L));
+        assertThat(protocol.processRecords(processRecordsInput(shardCheckpointer, "1", "2")), equalTo(true));
+        shardCheckpointer.largestPermittedCheckpointValue(new ExtendedSequenceNumber("4", 0L));
+        assertThat(protocol.processRecords(processRecordsInput(shardCheckpointer, "3", "4")), equalTo(true));
+
+        verify(storedCheckpoints).setCheckpoint(shardId, new ExtendedSequenceNumber("2", 0L), "token");
+        assertThat(shardCheckpointer.lastCheckpointValue(), equalTo(new ExtendedSequenceNumber("2", 0L)));
+    }
+
+    private static ProcessRecordsInput processRecordsInput(
+            RecordProcessorCheckpointer checkpointer, String... sequenceNumbers) {
+        List<KinesisClientRecord> records = new ArrayList<>();
+        for (String sequenceNumber : sequenceNumbers) {
+            records.add(KinesisClientRecord.builder()
+                    .sequenceNumber(sequenceNumber)
+                    .subSequenceNumber(0L)
+                    .build());
+        }
+        return ProcessRecordsInput.builder()
+                .records(records)
+                .checkpointer(checkpointer)
+                .build();
+    }
+
+    @Test
+    public void testProcessRecordsWaitForStatusWhenInFlightNotAccepted() {
+        when(configuration.getMaxProcessRecordsInFlight()).thenReturn(2);
+        when(messageWriter.writeInitializeMessage(any(InitializeMessage.class))).thenReturn(buildFuture(true));
+        when(messageWriter.writeProcessRecordsMessage(any(ProcessRecordsInput.class)))
+                .thenReturn(buildFuture(true));
+        when(messageReader.getNextMessageFromSTDOUT())
+                .thenAnswer(buildMessageAnswers(Arrays.asList(
+                        new StatusMessage("initialize"), new StatusMessage(ProcessRecordsMessage.ACTION))));
+
+        assertThat(protocol.initialize(), equalTo(true));
+        assertThat(
+                protocol.processRecords(
+                        ProcessRecordsInput.builder().records(EMPTY_RECORD_LIST).build()),
+                equalTo(true));
+        verify(messageReader, times(2)).getNextMessageFromSTDOUT();
+    }
+
+    private static ArgumentMatcher<InitializeMessage> offersFraming(final String framing) {
+        return new ArgumentMatcher<InitializeMessage>() {
+            @Override
+            public boolean matches(Object argument) {
+                return argument instanceof InitializeMessage
+                        && framing.equals(((InitializeMessage) argument).getFraming());
+            }
+        };
+    }
+
     @Test
     public void testProcessRecords() {
         when(messageWriter.writeProcessRecordsMessage(any(ProcessRecordsInput.class)))
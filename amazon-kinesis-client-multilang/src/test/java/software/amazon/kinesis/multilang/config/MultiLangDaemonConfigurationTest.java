@@ -26,6 +26,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.kinesis.multilang.MessageFraming;
 import software.amazon.kinesis.processor.ShardRecordProcessorFactory;
 import software.amazon.kinesis.retrieval.fanout.FanOutConfig;
 import software.amazon.kinesis.retrieval.polling.PollingConfig;
@@ -229,6 +230,26 @@ public class MultiLangDaemonConfigurationTest {
                 resolvedConfiguration.getRetrievalConfig().retrievalSpecificConfig(), instanceOf(FanOutConfig.class));
     }
 
+    @Test
+    public void testMessageFramingSetForBinaryString() throws Exception {
+        MultiLangDaemonConfiguration configuration = baseConfiguration();
+        assertThat(configuration.getMessageFraming(), equalTo(MessageFraming.JSON));
+
+        utilsBean.setProperty(configuration, "messageFraming", "binary");
+
+        assertThat(configuration.getMessageFraming(), equalTo(MessageFraming.BINARY));
+    }
+
+    @Test
+    public void testChildProcessPoolSizeSetFromString() throws Exception {
+        MultiLangDaemonConfiguration configuration = baseConfiguration();
+        assertThat(configuration.getChildProcessPoolSize(), equalTo(0));
+
+        utilsBean.setProperty(configuration, "childProcessPoolSize", "4");
+
+        assertThat(configuration.getChildProcessPoolSize(), equalTo(4));
+    }
+
     @Test
     public void testInvalidRetrievalMode() throws Exception {
         thrown.expect(IllegalArgumentException.class);
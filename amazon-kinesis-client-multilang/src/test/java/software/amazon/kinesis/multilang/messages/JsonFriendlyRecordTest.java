@@ -70,6 +70,30 @@ public class JsonFriendlyRecordTest {
         assertThat(jsonFriendlyRecord, equivalentTo(kinesisClientRecord));
     }
 
+    @Test
+    public void testRecordHandlesSlicedByteBuffer() {
+        ByteBuffer backing = ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6});
+        backing.position(2).limit(5);
+        ByteBuffer expected = backing.slice();
+        kinesisClientRecord = defaultRecord().data(expected).build();
+        JsonFriendlyRecord jsonFriendlyRecord = JsonFriendlyRecord.fromKinesisClientRecord(kinesisClientRecord);
+
+        assertThat(jsonFriendlyRecord, equivalentTo(kinesisClientRecord));
+        assertThat(jsonFriendlyRecord.getData(), equalTo(new byte[] {3, 4, 5}));
+    }
+
+    @Test
+    public void testRecordHandlesPartlyReadBufferWithoutMovingIt() {
+        ByteBuffer expected = ByteBuffer.allocateDirect(4);
+        expected.put(new byte[] {1, 2, 3, 4});
+        expected.position(1);
+        kinesisClientRecord = defaultRecord().data(expected).build();
+        JsonFriendlyRecord jsonFriendlyRecord = JsonFriendlyRecord.fromKinesisClientRecord(kinesisClientRecord);
+
+        assertThat(jsonFriendlyRecord.getData(), equalTo(new byte[] {2, 3, 4}));
+        assertThat(expected.position(), equalTo(1));
+    }
+
     private static RecordMatcher equivalentTo(KinesisClientRecord expected) {
         return new RecordMatcher(expected);
     }
@@ -119,11 +143,14 @@ public class JsonFriendlyRecordTest {
         if (expected == null) {
             return nullValue();
         } else {
-            if (expected.hasArray()) {
+            if (expected.hasArray()
+                    && expected.arrayOffset() == 0
+                    && expected.position() == 0
+                    && expected.remaining() == expected.array().length) {
                 return sameInstance(expected.array());
             } else {
-                byte[] contents = new byte[expected.limit()];
-                expected.get(contents);
+                byte[] contents = new byte[expected.remaining()];
+                expected.duplicate().get(contents);
                 return equalTo(contents);
             }
         }
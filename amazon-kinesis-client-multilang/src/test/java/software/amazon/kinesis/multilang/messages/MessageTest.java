@@ -14,10 +14,15 @@
  */
 package software.amazon.kinesis.multilang.messages;
 
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
@@ -81,4 +86,60 @@ public class MessageTest {
         String s = withBadMapper.toString();
         Assert.assertNotNull(s);
     }
+
+    @Test
+    public void processRecordsWriteJsonMatchesSerializedMessageTest() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ProcessRecordsInput processRecordsInput = ProcessRecordsInput.builder()
+                .records(Arrays.asList(
+                        KinesisClientRecord.builder()
+                                .data(ByteBuffer.wrap("cat".getBytes()))
+                                .partitionKey("cat")
+                                .sequenceNumber("555")
+                                .approximateArrivalTimestamp(Instant.ofEpochMilli(1234L))
+                                .subSequenceNumber(2L)
+                                .build(),
+                        KinesisClientRecord.builder().build()))
+                .millisBehindLatest(100L)
+                .build();
+
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            ProcessRecordsMessage.writeJson(processRecordsInput, generator);
+        }
+        StringWriter jsonWithShardId = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(jsonWithShardId)) {
+            ProcessRecordsMessage.writeJson(processRecordsInput, "shard-123", generator);
+        }
+
+        // The JSON is written by hand, so it must stay the same, byte for byte, as the serialized message.
+        ProcessRecordsMessage message = new ProcessRecordsMessage(processRecordsInput);
+        Assert.assertEquals(objectMapper.writeValueAsString(message), json.toString());
+        message.setShardId("shard-123");
+        Assert.assertEquals(objectMapper.writeValueAsString(message), jsonWithShardId.toString());
+    }
+
+    @Test
+    public void processRecordsWriteJsonEncodesRemainingDataTest() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ByteBuffer direct = ByteBuffer.allocateDirect(8);
+        direct.put("xxdogxxx".getBytes()).flip();
+        direct.position(2).limit(5);
+        ByteBuffer slice = ByteBuffer.wrap("xxcowxxx".getBytes(), 2, 3).slice();
+        ProcessRecordsInput processRecordsInput = ProcessRecordsInput.builder()
+                .records(Arrays.asList(
+                        KinesisClientRecord.builder().data(direct).build(),
+                        KinesisClientRecord.builder().data(slice).build()))
+                .build();
+
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            ProcessRecordsMessage.writeJson(processRecordsInput, generator);
+        }
+
+        JsonNode records = objectMapper.readTree(json.toString()).get("records");
+        Assert.assertArrayEquals("dog".getBytes(), records.get(0).get("data").binaryValue());
+        Assert.assertArrayEquals("cow".getBytes(), records.get(1).get("data").binaryValue());
+        Assert.assertEquals(2, direct.position());
+    }
 }
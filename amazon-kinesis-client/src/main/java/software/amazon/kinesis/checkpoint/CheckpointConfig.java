@@ -26,4 +26,20 @@ import software.amazon.kinesis.checkpoint.dynamodb.DynamoDBCheckpointFactory;
 @Accessors(fluent = true)
 public class CheckpointConfig {
     private CheckpointFactory checkpointFactory = new DynamoDBCheckpointFactory();
+
+    /**
+     * Policy the KCL checkpoints shards with on behalf of their record processors, in addition to any checkpoints the
+     * record processors make.
+     *
+     * <p>Default value: null, so shards are only checkpointed by their record processors</p>
+     */
+    private CheckpointPolicy checkpointPolicy = null;
+
+    /**
+     * Interval between evaluations of the checkpoint policy for all shards of the worker, which allows time based
+     * policies to checkpoint shards that stop receiving records. Only used when there is a checkpoint policy.
+     *
+     * <p>Default value: 1000L</p>
+     */
+    private long checkpointPolicyEvaluationIntervalMillis = 1000L;
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.checkpoint;
+
+import java.time.Duration;
+
+import lombok.NonNull;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Decides when the KCL checkpoints a shard on behalf of its record processor. After each call to processRecords, the
+ * policy is given the records and bytes processed and the time elapsed since the last checkpoint it asked for, and
+ * when it returns true the shard is checkpointed at the last record of the batch, without blocking the processing of
+ * the shard.
+ *
+ * Policies are also evaluated periodically, every {@link CheckpointConfig#checkpointPolicyEvaluationIntervalMillis()},
+ * so a time based policy checkpoints a shard that stops receiving batches. These checkpoints are also at the last
+ * record of the last batch processRecords returned from, never within a batch still being processed.
+ *
+ * <p>The checkpoints of each shard are written one at a time, with conditional updates of the shard's lease, rather
+ * than being batched across shards in DynamoDB transactions. A transaction consumes twice the write capacity of the
+ * updates it contains, and is cancelled as a whole if any of its leases was lost or is being renewed at the same time,
+ * which the renewer does for every lease of the worker every few seconds. The checkpoints of each shard are coalesced
+ * instead, so a shard has at most one checkpoint write in flight.</p>
+ */
+@FunctionalInterface
+public interface CheckpointPolicy {
+    /**
+     * @param recordsSinceCheckpoint the records processed since the last checkpoint
+     * @param bytesSinceCheckpoint the bytes of data of the records processed since the last checkpoint
+     * @param timeSinceCheckpoint the time since the last checkpoint, or since the record processor was initialized
+     * @return true if the shard should be checkpointed
+     */
+    boolean shouldCheckpoint(long recordsSinceCheckpoint, long bytesSinceCheckpoint, Duration timeSinceCheckpoint);
+
+    /**
+     * @param other another policy
+     * @return a policy that checkpoints when either this policy or the other one does
+     */
+    default CheckpointPolicy or(@NonNull CheckpointPolicy other) {
+        return (records, bytes, time) ->
+                shouldCheckpoint(records, bytes, time) || other.shouldCheckpoint(records, bytes, time);
+    }
+
+    /**
+     * @param interval the time between checkpoints
+     * @return a policy that checkpoints once the interval has elapsed since the last checkpoint
+     */
+    static CheckpointPolicy everyInterval(@NonNull Duration interval) {
+        Validate.isTrue(!interval.isNegative() && !interval.isZero(), "Checkpoint interval must be positive");
+        return (records, bytes, time) -> records > 0 && time.compareTo(interval) >= 0;
+    }
+
+    /**
+     * @param recordCount the number of records between checkpoints
+     * @return a policy that checkpoints once the number of records have been processed since the last checkpoint
+     */
+    static CheckpointPolicy everyRecords(long recordCount) {
+        Validate.isTrue(recordCount > 0, "Checkpoint record count must be positive");
+        return (records, bytes, time) -> records >= recordCount;
+    }
+
+    /**
+     * @param byteCount the number of bytes of record data between checkpoints
+     * @return a policy that checkpoints once the number of bytes have been processed since the last checkpoint
+     */
+    static CheckpointPolicy everyBytes(long byteCount) {
+        Validate.isTrue(byteCount > 0, "Checkpoint byte count must be positive");
+        return (records, bytes, time) -> bytes >= byteCount;
+    }
+}
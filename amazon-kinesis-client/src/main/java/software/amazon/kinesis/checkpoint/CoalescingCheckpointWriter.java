@@ -0,0 +1,244 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.checkpoint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.exceptions.KinesisClientLibDependencyException;
+import software.amazon.kinesis.exceptions.KinesisClientLibException;
+import software.amazon.kinesis.exceptions.ShutdownException;
+import software.amazon.kinesis.processor.Checkpointer;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Writes checkpoints through a {@link Checkpointer} off the calling thread, with at most one write in flight per lease
+ * and concurrency token. Checkpoints requested while a write is in flight are coalesced into a single following write of
+ * the highest of them, which completes the futures of all the checkpoints it covers.
+ *
+ * Writes for different concurrency tokens of the same lease are never coalesced, so every write is still conditional on
+ * the token of the record processor that requested it.
+ *
+ * Synchronous checkpoints are written on the calling thread with {@link #writeInline}, once the writes in flight for
+ * their lease and concurrency token are done, so that only asynchronous checkpoints wait for the executor.
+ */
+@Slf4j
+@KinesisClientInternalApi
+public class CoalescingCheckpointWriter {
+    private final CheckpointWrite checkpointWrite;
+    private final Executor executor;
+
+    /**
+     * The checkpoints waiting for the write in flight of their lease and concurrency token. A key is present for as
+     * long as a write is in flight for it.
+     */
+    private final Map<WriteKey, PendingWrite> pendingWrites = new HashMap<>();
+
+    /**
+     * Completed once the write in flight of their lease and concurrency token is done and no further write is pending.
+     */
+    private final Map<WriteKey, List<CompletableFuture<Void>>> idleWaiters = new HashMap<>();
+
+    /**
+     * @param checkpointer the checkpointer to write checkpoints with
+     * @param executor the executor to write checkpoints on
+     */
+    public CoalescingCheckpointWriter(@NonNull Checkpointer checkpointer, @NonNull Executor executor) {
+        this(checkpointer::setCheckpoint, executor);
+    }
+
+    /**
+     * @param checkpointWrite the write of a single checkpoint, for checkpointers whose own
+     *        {@link Checkpointer#setCheckpoint(String, ExtendedSequenceNumber, String)} goes through this writer
+     * @param executor the executor to write checkpoints on
+     */
+    public CoalescingCheckpointWriter(@NonNull CheckpointWrite checkpointWrite, @NonNull Executor executor) {
+        this.checkpointWrite = checkpointWrite;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes a checkpoint, or coalesces it with the next write of the lease if a write is already in flight.
+     *
+     * @param leaseKey the lease to checkpoint
+     * @param checkpointValue the checkpoint
+     * @param concurrencyToken the concurrency token the checkpoint is conditional on
+     * @return a future completed once a checkpoint at least as high has been written, or completed exceptionally with
+     *         the exception thrown by the {@link Checkpointer} for the write covering it
+     */
+    public CompletableFuture<Void> write(
+            @NonNull String leaseKey, @NonNull ExtendedSequenceNumber checkpointValue, String concurrencyToken) {
+        final WriteKey key = new WriteKey(leaseKey, concurrencyToken);
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (pendingWrites) {
+            final PendingWrite pendingWrite = pendingWrites.get(key);
+            if (pendingWrite != null) {
+                pendingWrite.add(checkpointValue, future);
+                return future;
+            }
+            pendingWrites.put(key, new PendingWrite());
+        }
+        final PendingWrite write = new PendingWrite();
+        write.add(checkpointValue, future);
+        submit(key, write);
+        return future;
+    }
+
+    /**
+     * Writes a checkpoint on the calling thread, after the writes in flight for the lease and concurrency token.
+     * Checkpoints requested asynchronously meanwhile are coalesced into a write following this one.
+     *
+     * @param leaseKey the lease to checkpoint
+     * @param checkpointValue the checkpoint
+     * @param concurrencyToken the concurrency token the checkpoint is conditional on
+     * @throws KinesisClientLibException the exception thrown by the {@link Checkpointer} for the write
+     */
+    public void writeInline(
+            @NonNull String leaseKey, @NonNull ExtendedSequenceNumber checkpointValue, String concurrencyToken)
+            throws KinesisClientLibException {
+        final WriteKey key = new WriteKey(leaseKey, concurrencyToken);
+        while (true) {
+            final CompletableFuture<Void> idle;
+            synchronized (pendingWrites) {
+                if (!pendingWrites.containsKey(key)) {
+                    pendingWrites.put(key, new PendingWrite());
+                    break;
+                }
+                idle = new CompletableFuture<>();
+                idleWaiters.computeIfAbsent(key, k -> new ArrayList<>()).add(idle);
+            }
+            idle.join();
+        }
+        try {
+            checkpointWrite.write(leaseKey, checkpointValue, concurrencyToken);
+        } finally {
+            next(key);
+        }
+    }
+
+    private void submit(WriteKey key, PendingWrite write) {
+        try {
+            executor.execute(() -> runWrite(key, write));
+        } catch (RejectedExecutionException e) {
+            log.error("Unable to submit checkpoint write for {}", key.getLeaseKey(), e);
+            write.complete(new ShutdownException(
+                    "Unable to write checkpoint for " + key.getLeaseKey() + ", the checkpoint writer is shut down", e));
+            next(key);
+        } catch (RuntimeException e) {
+            log.error("Unable to submit checkpoint write for {}", key.getLeaseKey(), e);
+            write.complete(
+                    new KinesisClientLibDependencyException("Unable to write checkpoint for " + key.getLeaseKey(), e));
+            next(key);
+        }
+    }
+
+    private void runWrite(WriteKey key, PendingWrite write) {
+        Throwable failure = null;
+        try {
+            checkpointWrite.write(key.getLeaseKey(), write.checkpointValue, key.getConcurrencyToken());
+        } catch (Exception e) {
+            failure = e;
+        }
+        write.complete(failure);
+        next(key);
+    }
+
+    /**
+     * Submits the checkpoints that were coalesced while the write of the key was in flight, if any.
+     */
+    private void next(WriteKey key) {
+        final PendingWrite nextWrite;
+        final List<CompletableFuture<Void>> waiters;
+        synchronized (pendingWrites) {
+            final PendingWrite pendingWrite = pendingWrites.get(key);
+            if (pendingWrite.isEmpty()) {
+                pendingWrites.remove(key);
+                nextWrite = null;
+                waiters = idleWaiters.remove(key);
+            } else {
+                nextWrite = pendingWrite;
+                waiters = null;
+                pendingWrites.put(key, new PendingWrite());
+            }
+        }
+        if (nextWrite == null) {
+            if (waiters != null) {
+                waiters.forEach(waiter -> waiter.complete(null));
+            }
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Writing checkpoint {} for {}, coalescing {} checkpoints",
+                    nextWrite.checkpointValue,
+                    key.getLeaseKey(),
+                    nextWrite.futures.size());
+        }
+        submit(key, nextWrite);
+    }
+
+    /**
+     * Writes a single checkpoint, as {@link Checkpointer#setCheckpoint(String, ExtendedSequenceNumber, String)} does.
+     */
+    @FunctionalInterface
+    public interface CheckpointWrite {
+        void write(String leaseKey, ExtendedSequenceNumber checkpointValue, String concurrencyToken)
+                throws KinesisClientLibException;
+    }
+
+    @Value
+    private static class WriteKey {
+        String leaseKey;
+        String concurrencyToken;
+    }
+
+    /**
+     * The highest of a number of checkpoints, and the futures of all of them.
+     */
+    private static class PendingWrite {
+        private ExtendedSequenceNumber checkpointValue;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        void add(ExtendedSequenceNumber checkpoint, CompletableFuture<Void> future) {
+            if (checkpointValue == null || checkpointValue.compareTo(checkpoint) < 0) {
+                checkpointValue = checkpoint;
+            }
+            futures.add(future);
+        }
+
+        boolean isEmpty() {
+            return futures.isEmpty();
+        }
+
+        void complete(Throwable failure) {
+            for (CompletableFuture<Void> future : futures) {
+                if (failure == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.checkpoint;
+
+import java.time.Duration;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.leases.ShardInfo;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Checkpoints a shard when its {@link CheckpointPolicy} asks for it, keeping track of what was processed since the
+ * last checkpoint. Checkpoints are written asynchronously, so the processing of the shard doesn't wait for them.
+ *
+ * <p>Shards are only checkpointed at the last record of the last batch the record processor returned from, never at
+ * the largest permitted checkpoint value, which already covers the batch being processed.</p>
+ */
+@Slf4j
+@RequiredArgsConstructor
+@KinesisClientInternalApi
+public class PolicyCheckpointer {
+    @NonNull
+    private final ShardInfo shardInfo;
+
+    @NonNull
+    private final CheckpointPolicy checkpointPolicy;
+
+    @NonNull
+    private final ShardRecordProcessorCheckpointer recordProcessorCheckpointer;
+
+    private long recordsSinceCheckpoint;
+    private long bytesSinceCheckpoint;
+    private long lastCheckpointNanos = System.nanoTime();
+    private ExtendedSequenceNumber processedCheckpoint;
+
+    /**
+     * Accounts for a batch of records once the record processor returned from processing it, and checkpoints at the
+     * last record of the batch if the policy asks for it.
+     *
+     * @param records the number of records processed
+     * @param bytes the bytes of data of the records processed
+     */
+    public synchronized void recordsProcessed(long records, long bytes) {
+        recordsSinceCheckpoint += records;
+        bytesSinceCheckpoint += bytes;
+        if (records > 0) {
+            processedCheckpoint = recordProcessorCheckpointer.largestPermittedCheckpointValue();
+        }
+        checkpointIfRequired();
+    }
+
+    /**
+     * Checkpoints at the last record of the last processed batch if the policy asks for it with what was processed so
+     * far. This is run periodically by the worker, so time based policies checkpoint shards that stop receiving
+     * batches. A batch still being processed is never checkpointed.
+     */
+    public synchronized void checkpointIfDue() {
+        checkpointIfRequired();
+    }
+
+    private void checkpointIfRequired() {
+        final long now = System.nanoTime();
+        if (processedCheckpoint == null
+                || !checkpointPolicy.shouldCheckpoint(
+                        recordsSinceCheckpoint, bytesSinceCheckpoint, Duration.ofNanos(now - lastCheckpointNanos))) {
+            return;
+        }
+        recordsSinceCheckpoint = 0;
+        bytesSinceCheckpoint = 0;
+        lastCheckpointNanos = now;
+
+        final String leaseKey = ShardInfo.getLeaseKey(shardInfo);
+        log.debug("Checkpointing {} as required by the checkpoint policy", leaseKey);
+        recordProcessorCheckpointer.checkpointAsyncIfAhead(processedCheckpoint).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                log.warn("Unable to checkpoint {} as required by the checkpoint policy", leaseKey, throwable);
+            }
+        });
+    }
+}
@@ -14,6 +14,9 @@
  */
 package software.amazon.kinesis.checkpoint;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -111,6 +114,60 @@ public class ShardRecordProcessorCheckpointer implements RecordProcessorCheckpoi
             throws KinesisClientLibDependencyException, InvalidStateException, ThrottlingException, ShutdownException,
                     IllegalArgumentException {
 
+        this.advancePosition(validatedCheckpoint(sequenceNumber, subSequenceNumber));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CompletableFuture<Void> checkpointAsync() {
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Checkpointing {}, token {} asynchronously at largest permitted value {}",
+                    ShardInfo.getLeaseKey(shardInfo),
+                    shardInfo.concurrencyToken(),
+                    this.largestPermittedCheckpointValue);
+        }
+        return advancePositionAsync(this.largestPermittedCheckpointValue);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CompletableFuture<Void> checkpointAsync(String sequenceNumber) {
+        return checkpointAsync(sequenceNumber, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized CompletableFuture<Void> checkpointAsync(String sequenceNumber, long subSequenceNumber) {
+        return advancePositionAsync(validatedCheckpoint(sequenceNumber, subSequenceNumber));
+    }
+
+    /**
+     * Checkpoints asynchronously at the given value, unless the shard was already checkpointed at or beyond it.
+     *
+     * @param checkpoint a checkpoint no larger than the largest permitted checkpoint value
+     * @return a future completed once the checkpoint is stored, or right away if there is nothing to store
+     */
+    synchronized CompletableFuture<Void> checkpointAsyncIfAhead(@NonNull ExtendedSequenceNumber checkpoint) {
+        if (lastCheckpointValue != null && checkpoint.compareTo(lastCheckpointValue) <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return advancePositionAsync(checkpoint);
+    }
+
+    /**
+     * Checks that a checkpoint falls between the last checkpoint and the largest permitted checkpoint.
+     *
+     * @return the checkpoint
+     * @throws IllegalArgumentException if the checkpoint is out of range
+     */
+    private ExtendedSequenceNumber validatedCheckpoint(String sequenceNumber, long subSequenceNumber) {
         if (subSequenceNumber < 0) {
             throw new IllegalArgumentException(
                     "Could not checkpoint at invalid, negative subsequence number " + subSequenceNumber);
@@ -131,7 +188,7 @@ public class ShardRecordProcessorCheckpointer implements RecordProcessorCheckpoi
                         shardInfo.concurrencyToken(),
                         newCheckpoint);
             }
-            this.advancePosition(newCheckpoint);
+            return newCheckpoint;
         } else {
             throw new IllegalArgumentException(String.format(
                     "Could not checkpoint at extended sequence number %s as it did not fall into acceptable range "
@@ -293,12 +350,7 @@ public class ShardRecordProcessorCheckpointer implements RecordProcessorCheckpoi
 
     void advancePosition(ExtendedSequenceNumber extendedSequenceNumber)
             throws KinesisClientLibDependencyException, InvalidStateException, ThrottlingException, ShutdownException {
-        ExtendedSequenceNumber checkpointToRecord = extendedSequenceNumber;
-        if (sequenceNumberAtShardEnd != null && sequenceNumberAtShardEnd.equals(extendedSequenceNumber)) {
-            // If we are about to checkpoint the very last sequence number for this shard, we might as well
-            // just checkpoint at SHARD_END
-            checkpointToRecord = ExtendedSequenceNumber.SHARD_END;
-        }
+        ExtendedSequenceNumber checkpointToRecord = checkpointToRecord(extendedSequenceNumber);
 
         // Don't checkpoint a value we already successfully checkpointed
         if (extendedSequenceNumber != null && !extendedSequenceNumber.equals(lastCheckpointValue)) {
@@ -325,6 +377,74 @@ public class ShardRecordProcessorCheckpointer implements RecordProcessorCheckpoi
         }
     }
 
+    /**
+     * Asynchronous version of {@link #advancePosition(ExtendedSequenceNumber)}. The last checkpoint value only advances
+     * once the checkpoint is stored, and never moves back if checkpoints are stored out of order.
+     *
+     * @param extendedSequenceNumber the checkpoint
+     * @return a future completed once the checkpoint is stored, or completed exceptionally with one of the exceptions
+     *         thrown by {@link #advancePosition(ExtendedSequenceNumber)}
+     */
+    CompletableFuture<Void> advancePositionAsync(ExtendedSequenceNumber extendedSequenceNumber) {
+        final ExtendedSequenceNumber checkpointToRecord = checkpointToRecord(extendedSequenceNumber);
+
+        // Don't checkpoint a value we already successfully checkpointed
+        if (extendedSequenceNumber == null || extendedSequenceNumber.equals(lastCheckpointValue)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Setting {}, token {} checkpoint to {} asynchronously",
+                    ShardInfo.getLeaseKey(shardInfo),
+                    shardInfo.concurrencyToken(),
+                    checkpointToRecord);
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        checkpointer
+                .setCheckpointAsync(ShardInfo.getLeaseKey(shardInfo), checkpointToRecord, shardInfo.concurrencyToken())
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable == null) {
+                        checkpointStored(checkpointToRecord);
+                        result.complete(null);
+                    } else {
+                        result.completeExceptionally(checkpointException(throwable));
+                    }
+                });
+        return result;
+    }
+
+    private synchronized void checkpointStored(ExtendedSequenceNumber checkpoint) {
+        if (lastCheckpointValue == null || lastCheckpointValue.compareTo(checkpoint) < 0) {
+            lastCheckpointValue = checkpoint;
+        }
+    }
+
+    private static Throwable checkpointException(Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+        if (cause instanceof ThrottlingException
+                || cause instanceof ShutdownException
+                || cause instanceof InvalidStateException
+                || cause instanceof KinesisClientLibDependencyException) {
+            return cause;
+        }
+        if (cause instanceof KinesisClientLibException) {
+            log.warn("Caught exception setting checkpoint.", cause);
+            return new KinesisClientLibDependencyException("Caught exception while checkpointing", (Exception) cause);
+        }
+        return cause;
+    }
+
+    private ExtendedSequenceNumber checkpointToRecord(ExtendedSequenceNumber extendedSequenceNumber) {
+        if (sequenceNumberAtShardEnd != null && sequenceNumberAtShardEnd.equals(extendedSequenceNumber)) {
+            // If we are about to checkpoint the very last sequence number for this shard, we might as well
+            // just checkpoint at SHARD_END
+            return ExtendedSequenceNumber.SHARD_END;
+        }
+        return extendedSequenceNumber;
+    }
+
     /**
      * This method stores the given sequenceNumber as a pending checkpoint in the lease table without overwriting the
      * current checkpoint, then returns a PreparedCheckpointer that is ready to checkpoint at the given sequence number.
@@ -17,13 +17,20 @@ package software.amazon.kinesis.checkpoint.dynamodb;
 
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
 import software.amazon.kinesis.checkpoint.Checkpoint;
+import software.amazon.kinesis.checkpoint.CoalescingCheckpointWriter;
 import software.amazon.kinesis.exceptions.KinesisClientLibDependencyException;
 import software.amazon.kinesis.exceptions.KinesisClientLibException;
 import software.amazon.kinesis.exceptions.ShutdownException;
@@ -45,6 +52,12 @@ import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 @Slf4j
 @KinesisClientInternalApi
 public class DynamoDBCheckpointer implements Checkpointer {
+    /**
+     * Number of threads writing asynchronous checkpoints. Further asynchronous writes wait for one of them, rather than
+     * each parking a thread of their own on the lease table. Synchronous checkpoints are written on the calling thread.
+     */
+    static final int CHECKPOINT_WRITER_THREADS = 8;
+
     @NonNull
     private final LeaseCoordinator leaseCoordinator;
 
@@ -53,10 +66,31 @@ public class DynamoDBCheckpointer implements Checkpointer {
 
     private String operation;
 
+    private final ExecutorService checkpointWriterExecutor = newCheckpointWriterExecutor();
+
+    /**
+     * Writes the checkpoints of all the shards of the worker, coalescing the checkpoints of a shard requested while
+     * one of its writes is in flight.
+     */
+    private final CoalescingCheckpointWriter checkpointWriter =
+            new CoalescingCheckpointWriter(this::writeCheckpoint, checkpointWriterExecutor);
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The checkpoint is written on the calling thread, once any asynchronous write of the shard in flight is done,
+     * as that write could otherwise land after it and move the checkpoint back.</p>
+     */
     @Override
     public void setCheckpoint(
             final String leaseKey, final ExtendedSequenceNumber checkpointValue, final String concurrencyToken)
             throws KinesisClientLibException {
+        checkpointWriter.writeInline(leaseKey, checkpointValue, concurrencyToken);
+    }
+
+    private void writeCheckpoint(
+            final String leaseKey, final ExtendedSequenceNumber checkpointValue, final String concurrencyToken)
+            throws KinesisClientLibException {
         try {
             boolean wasSuccessful = setCheckpoint(leaseKey, checkpointValue, UUID.fromString(concurrencyToken));
             if (!wasSuccessful) {
@@ -73,6 +107,35 @@ public class DynamoDBCheckpointer implements Checkpointer {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> setCheckpointAsync(
+            final String leaseKey, final ExtendedSequenceNumber checkpointValue, final String concurrencyToken) {
+        return checkpointWriter.write(leaseKey, checkpointValue, concurrencyToken);
+    }
+
+    /**
+     * Stops the threads writing asynchronous checkpoints, once the writes already requested are done. Asynchronous
+     * checkpoints requested afterwards fail with a {@link ShutdownException}.
+     */
+    public void shutdown() {
+        checkpointWriterExecutor.shutdown();
+    }
+
+    private static ExecutorService newCheckpointWriterExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                CHECKPOINT_WRITER_THREADS,
+                CHECKPOINT_WRITER_THREADS,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("CheckpointWriter-%04d")
+                        .setDaemon(true)
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public ExtendedSequenceNumber getCheckpoint(final String leaseKey) throws KinesisClientLibException {
         try {
@@ -67,6 +67,22 @@ public class CoordinatorConfig {
      */
     private long shardConsumerDispatchPollIntervalMillis = 1000L;
 
+    /**
+     * How the Scheduler dispatches the lifecycle of its shard consumers.
+     *
+     * <p>Default value: {@link ShardConsumerDispatchMode#POLLING}</p>
+     */
+    private ShardConsumerDispatchMode shardConsumerDispatchMode = ShardConsumerDispatchMode.POLLING;
+
+    /**
+     * The number of milliseconds between passes over all shard consumers for health checks, when using
+     * {@link ShardConsumerDispatchMode#EVENT_DRIVEN}. Between these passes only the shard consumers with state changes
+     * are dispatched.
+     *
+     * <p>Default value: 10000 milliseconds</p>
+     */
+    private long shardConsumerFullDispatchIntervalMillis = 10000L;
+
     /**
      * Shard prioritization strategy.
      *
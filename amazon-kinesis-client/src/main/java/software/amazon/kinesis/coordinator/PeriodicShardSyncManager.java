@@ -50,6 +50,7 @@ import software.amazon.kinesis.common.HashKeyRangeForLease;
 import software.amazon.kinesis.common.StreamConfig;
 import software.amazon.kinesis.common.StreamIdentifier;
 import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseCache;
 import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.MultiStreamLease;
 import software.amazon.kinesis.leases.ShardDetector;
@@ -89,6 +90,7 @@ class PeriodicShardSyncManager {
     private final String workerId;
     private final LeaderDecider leaderDecider;
     private final LeaseRefresher leaseRefresher;
+    private final LeaseCache leaseCache;
     private final Map<StreamIdentifier, StreamConfig> currentStreamConfigMap;
     private final Function<StreamConfig, ShardSyncTaskManager> shardSyncTaskManagerProvider;
     private final Map<StreamConfig, ShardSyncTaskManager> streamToShardSyncTaskManagerMap;
@@ -107,6 +109,7 @@ class PeriodicShardSyncManager {
             String workerId,
             LeaderDecider leaderDecider,
             LeaseRefresher leaseRefresher,
+            LeaseCache leaseCache,
             Map<StreamIdentifier, StreamConfig> currentStreamConfigMap,
             Function<StreamConfig, ShardSyncTaskManager> shardSyncTaskManagerProvider,
             Map<StreamConfig, ShardSyncTaskManager> streamToShardSyncTaskManagerMap,
@@ -119,6 +122,7 @@ class PeriodicShardSyncManager {
                 workerId,
                 leaderDecider,
                 leaseRefresher,
+                leaseCache,
                 currentStreamConfigMap,
                 shardSyncTaskManagerProvider,
                 streamToShardSyncTaskManagerMap,
@@ -134,6 +138,7 @@ class PeriodicShardSyncManager {
             String workerId,
             LeaderDecider leaderDecider,
             LeaseRefresher leaseRefresher,
+            LeaseCache leaseCache,
             Map<StreamIdentifier, StreamConfig> currentStreamConfigMap,
             Function<StreamConfig, ShardSyncTaskManager> shardSyncTaskManagerProvider,
             Map<StreamConfig, ShardSyncTaskManager> streamToShardSyncTaskManagerMap,
@@ -148,6 +153,7 @@ class PeriodicShardSyncManager {
         this.workerId = workerId;
         this.leaderDecider = leaderDecider;
         this.leaseRefresher = leaseRefresher;
+        this.leaseCache = leaseCache;
         this.currentStreamConfigMap = currentStreamConfigMap;
         this.shardSyncTaskManagerProvider = shardSyncTaskManagerProvider;
         this.streamToShardSyncTaskManagerMap = streamToShardSyncTaskManagerMap;
@@ -317,7 +323,7 @@ class PeriodicShardSyncManager {
     private Map<StreamIdentifier, List<Lease>> getStreamToLeasesMap(
             final Set<StreamIdentifier> streamIdentifiersToFilter)
             throws DependencyException, ProvisionedThroughputException, InvalidStateException {
-        final List<Lease> leases = leaseRefresher.listLeases();
+        final List<Lease> leases = leaseCache == null ? leaseRefresher.listLeases() : leaseCache.listLeases();
         if (!isMultiStreamingMode) {
             Validate.isTrue(streamIdentifiersToFilter.size() == 1);
             return Collections.singletonMap(streamIdentifiersToFilter.iterator().next(), leases);
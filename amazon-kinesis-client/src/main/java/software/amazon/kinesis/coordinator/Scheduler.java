@@ -35,6 +35,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -44,6 +45,7 @@ import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.reactivex.rxjava3.plugins.RxJavaPlugins;
 import lombok.AccessLevel;
 import lombok.Getter;
@@ -57,6 +59,7 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.utils.Validate;
 import software.amazon.kinesis.checkpoint.CheckpointConfig;
 import software.amazon.kinesis.checkpoint.ShardRecordProcessorCheckpointer;
+import software.amazon.kinesis.checkpoint.dynamodb.DynamoDBCheckpointer;
 import software.amazon.kinesis.common.StreamConfig;
 import software.amazon.kinesis.common.StreamIdentifier;
 import software.amazon.kinesis.leases.HierarchicalShardSyncer;
@@ -137,6 +140,8 @@ public class Scheduler implements Runnable {
     private final int maxInitializationAttempts;
     private final Checkpointer checkpoint;
     private final long shardConsumerDispatchPollIntervalMillis;
+    private final ShardConsumerDispatchMode shardConsumerDispatchMode;
+    private final long shardConsumerFullDispatchIntervalMillis;
     // Backoff time when polling to check if application has finished processing
     // parent shards
     private final long parentShardPollIntervalMillis;
@@ -178,6 +183,20 @@ public class Scheduler implements Runnable {
     // info, value is ShardConsumer.
     private final ConcurrentMap<ShardInfo, ShardConsumer> shardInfoShardConsumerMap = new ConcurrentHashMap<>();
 
+    @Getter(AccessLevel.NONE)
+    private final ShardConsumerDispatchQueue shardConsumerDispatchQueue = new ShardConsumerDispatchQueue();
+
+    // Only used in EVENT_DRIVEN dispatch mode, by the thread running the worker loop.
+    @Getter(AccessLevel.NONE)
+    private Set<ShardInfo> dispatchedAssignments = Collections.emptySet();
+
+    @Getter(AccessLevel.NONE)
+    private long nextFullDispatchMillis = 0L;
+
+    // Evaluates the checkpoint policy for all shard consumers, if there is a checkpoint policy.
+    @Getter(AccessLevel.NONE)
+    private ScheduledExecutorService checkpointPolicyExecutor;
+
     private volatile boolean shutdown;
     private volatile long shutdownStartTimeMillis;
     private volatile boolean shutdownComplete = false;
@@ -275,6 +294,11 @@ public class Scheduler implements Runnable {
         // TODO: Move this configuration to lifecycle
         //
         this.shardConsumerDispatchPollIntervalMillis = this.coordinatorConfig.shardConsumerDispatchPollIntervalMillis();
+        this.shardConsumerDispatchMode = this.coordinatorConfig.shardConsumerDispatchMode();
+        this.shardConsumerFullDispatchIntervalMillis = this.coordinatorConfig.shardConsumerFullDispatchIntervalMillis();
+        if (isEventDrivenDispatch()) {
+            this.leaseCoordinator.addAssignmentChangeListener(shardConsumerDispatchQueue::assignmentsChanged);
+        }
         this.parentShardPollIntervalMillis = this.coordinatorConfig.parentShardPollIntervalMillis();
         this.executorService = this.coordinatorConfig.coordinatorFactory().createExecutorService();
         this.diagnosticEventFactory = diagnosticEventFactory;
@@ -317,6 +341,7 @@ public class Scheduler implements Runnable {
                 leaseManagementConfig.workerIdentifier(),
                 leaderDecider,
                 leaseRefresher,
+                leaseCoordinator.leaseCache(),
                 currentStreamConfigMap,
                 shardSyncTaskManagerProvider,
                 streamToShardSyncTaskManagerMap,
@@ -395,6 +420,7 @@ public class Scheduler implements Runnable {
                     log.info("Scheduling periodicShardSync");
                     leaderElectedPeriodicShardSyncManager.start();
                     streamSyncWatch.start();
+                    startCheckpointPolicyEvaluation();
                     isDone = true;
                 } catch (Exception e) {
                     log.error("Caught exception when initializing LeaseCoordinator", e);
@@ -418,6 +444,34 @@ public class Scheduler implements Runnable {
         }
     }
 
+    /**
+     * Periodically evaluates the checkpoint policy for all shard consumers, so that time based policies checkpoint
+     * shards that stop receiving records. Policies are otherwise only evaluated after records are processed.
+     */
+    private void startCheckpointPolicyEvaluation() {
+        if (checkpointConfig.checkpointPolicy() == null || checkpointPolicyExecutor != null) {
+            return;
+        }
+        final long intervalMillis = checkpointConfig.checkpointPolicyEvaluationIntervalMillis();
+        checkpointPolicyExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("CheckpointPolicy-%04d")
+                .setDaemon(true)
+                .build());
+        checkpointPolicyExecutor.scheduleWithFixedDelay(
+                this::checkpointShardsIfDue, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @VisibleForTesting
+    void checkpointShardsIfDue() {
+        for (Map.Entry<ShardInfo, ShardConsumer> entry : shardInfoShardConsumerMap.entrySet()) {
+            try {
+                entry.getValue().checkpointIfDue();
+            } catch (RuntimeException e) {
+                log.warn("Unable to evaluate the checkpoint policy for {}", ShardInfo.getLeaseKey(entry.getKey()), e);
+            }
+        }
+    }
+
     @VisibleForTesting
     boolean shouldInitiateLeaseSync()
             throws InterruptedException, DependencyException, ProvisionedThroughputException, InvalidStateException {
@@ -439,17 +493,12 @@ public class Scheduler implements Runnable {
     @VisibleForTesting
     void runProcessLoop() {
         try {
-            Set<ShardInfo> assignedShards = new HashSet<>();
-            for (ShardInfo shardInfo : getShardInfoForAssignments()) {
-                ShardConsumer shardConsumer = createOrGetShardConsumer(
-                        shardInfo, processorConfig.shardRecordProcessorFactory(), leaseCleanupManager);
-
-                shardConsumer.executeLifecycle();
-                assignedShards.add(shardInfo);
+            // once shutdown has started, fall back to polling until all shard consumers have shut down
+            if (isEventDrivenDispatch() && !shutdown && !dispatchEventsUntilFullDispatch()) {
+                return;
             }
 
-            // clean up shard consumers for unassigned shards
-            cleanupShardConsumers(assignedShards);
+            dispatchAssignments();
 
             // check for new streams and sync with the scheduler state
             if (isLeader()) {
@@ -460,8 +509,12 @@ public class Scheduler implements Runnable {
             }
 
             logExecutorState();
-            slog.info("Sleeping ...");
-            Thread.sleep(shardConsumerDispatchPollIntervalMillis);
+            if (isEventDrivenDispatch() && !shutdown) {
+                nextFullDispatchMillis = System.currentTimeMillis() + shardConsumerFullDispatchIntervalMillis;
+            } else {
+                slog.info("Sleeping ...");
+                Thread.sleep(shardConsumerDispatchPollIntervalMillis);
+            }
         } catch (Exception e) {
             log.error(
                     "Worker.run caught exception, sleeping for {} milli seconds!",
@@ -472,8 +525,60 @@ public class Scheduler implements Runnable {
             } catch (InterruptedException ex) {
                 log.info("Worker: sleep interrupted after catching exception ", ex);
             }
+        } finally {
+            slog.resetInfoLogging();
         }
-        slog.resetInfoLogging();
+    }
+
+    /**
+     * Executes the lifecycle of all shard consumers for assigned shards, and cleans up those for shards that are no
+     * longer assigned.
+     */
+    private void dispatchAssignments() {
+        Set<ShardInfo> assignedShards = new HashSet<>();
+        for (ShardInfo shardInfo : getShardInfoForAssignments()) {
+            ShardConsumer shardConsumer = createOrGetShardConsumer(
+                    shardInfo, processorConfig.shardRecordProcessorFactory(), leaseCleanupManager);
+
+            shardConsumer.executeLifecycle();
+            assignedShards.add(shardInfo);
+        }
+
+        // clean up shard consumers for unassigned shards
+        cleanupShardConsumers(assignedShards);
+        dispatchedAssignments = assignedShards;
+    }
+
+    /**
+     * Waits for lease assignment changes and shard consumer state changes, and dispatches the affected shard consumers,
+     * until the next pass over all shard consumers is due.
+     *
+     * @return true if the next pass over all shard consumers is due
+     */
+    private boolean dispatchEventsUntilFullDispatch() throws InterruptedException {
+        final long millisUntilFullDispatch = nextFullDispatchMillis - System.currentTimeMillis();
+        if (millisUntilFullDispatch <= 0) {
+            return true;
+        }
+        final ShardConsumerDispatchQueue.Events events = shardConsumerDispatchQueue.take(millisUntilFullDispatch);
+        if (events.assignmentsChanged()) {
+            dispatchAssignments();
+        } else {
+            for (ShardInfo shardInfo : events.changedShardConsumers()) {
+                if (dispatchedAssignments.contains(shardInfo)) {
+                    createOrGetShardConsumer(
+                                    shardInfo, processorConfig.shardRecordProcessorFactory(), leaseCleanupManager)
+                            .executeLifecycle();
+                } else {
+                    cleanupShardConsumer(shardInfo);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isEventDrivenDispatch() {
+        return shardConsumerDispatchMode == ShardConsumerDispatchMode.EVENT_DRIVEN;
     }
 
     private boolean isLeader() {
@@ -920,6 +1025,9 @@ public class Scheduler implements Runnable {
             // Stop the lease cleanup manager
             leaseCleanupManager.shutdown();
 
+            // Wake up the worker loop if it is waiting for events.
+            shardConsumerDispatchQueue.assignmentsChanged();
+
             leaderElectedPeriodicShardSyncManager.stop();
             workerStateChangeListener.onWorkerStateChange(WorkerStateChangeListener.WorkerState.SHUT_DOWN);
         }
@@ -936,6 +1044,13 @@ public class Scheduler implements Runnable {
             // This should interrupt all active record processor tasks.
             executorService.shutdownNow();
         }
+        retrievalConfig.retrievalFactory().shutdown();
+        if (checkpointPolicyExecutor != null) {
+            checkpointPolicyExecutor.shutdownNow();
+        }
+        if (checkpoint instanceof DynamoDBCheckpointer) {
+            ((DynamoDBCheckpointer) checkpoint).shutdown();
+        }
         if (metricsFactory instanceof CloudWatchMetricsFactory) {
             ((CloudWatchMetricsFactory) metricsFactory).shutdown();
         }
@@ -987,6 +1102,9 @@ public class Scheduler implements Runnable {
         if ((consumer == null)
                 || (consumer.isShutdown() && consumer.shutdownReason().equals(ShutdownReason.LEASE_LOST))) {
             consumer = buildConsumer(shardInfo, shardRecordProcessorFactory, leaseCleanupManager);
+            if (isEventDrivenDispatch()) {
+                consumer.lifecycleEventListener(() -> shardConsumerDispatchQueue.shardConsumerChanged(shardInfo));
+            }
             shardInfoShardConsumerMap.put(shardInfo, consumer);
             slog.infoForce("Created new shardConsumer for : " + shardInfo);
         }
@@ -1044,7 +1162,9 @@ public class Scheduler implements Runnable {
                 hierarchicalShardSyncerProvider.apply(streamConfig),
                 metricsFactory,
                 leaseCleanupManager,
-                schemaRegistryDecoder);
+                schemaRegistryDecoder,
+                processorConfig.lazyDeaggregation(),
+                checkpointConfig.checkpointPolicy());
         return new ShardConsumer(
                 cache,
                 executorService,
@@ -1067,19 +1187,26 @@ public class Scheduler implements Runnable {
     void cleanupShardConsumers(Set<ShardInfo> assignedShards) {
         for (ShardInfo shard : shardInfoShardConsumerMap.keySet()) {
             if (!assignedShards.contains(shard)) {
-                // Shutdown the consumer since we are no longer responsible for
-                // the shard.
-                ShardConsumer consumer = shardInfoShardConsumerMap.get(shard);
-                if (consumer.leaseLost()) {
-                    shardInfoShardConsumerMap.remove(shard);
-                    log.debug("Removed consumer for {} as lease has been lost", ShardInfo.getLeaseKey(shard));
-                } else {
-                    consumer.executeLifecycle();
-                }
+                cleanupShardConsumer(shard);
             }
         }
     }
 
+    private void cleanupShardConsumer(ShardInfo shard) {
+        // Shutdown the consumer since we are no longer responsible for
+        // the shard.
+        ShardConsumer consumer = shardInfoShardConsumerMap.get(shard);
+        if (consumer == null) {
+            return;
+        }
+        if (consumer.leaseLost()) {
+            shardInfoShardConsumerMap.remove(shard);
+            log.debug("Removed consumer for {} as lease has been lost", ShardInfo.getLeaseKey(shard));
+        } else {
+            consumer.executeLifecycle();
+        }
+    }
+
     /**
      * Exceptions in the RxJava layer can fail silently unless an error handler is set to propagate these exceptions
      * back to the KCL, as is done below.
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.coordinator;
+
+/**
+ * How the {@link Scheduler} dispatches the lifecycle of its shard consumers.
+ */
+public enum ShardConsumerDispatchMode {
+    /**
+     * The Scheduler executes the lifecycle of every shard consumer once every
+     * {@link CoordinatorConfig#shardConsumerDispatchPollIntervalMillis()}. A state change, such as the end of a shard,
+     * a lost lease or the completion of initialization, can wait up to that interval to be acted on.
+     */
+    POLLING,
+
+    /**
+     * The Scheduler waits for leases to be gained or lost, and for the tasks of shard consumers to complete, and only
+     * executes the lifecycle of the affected shard consumers. State changes are acted on as soon as they happen. All
+     * shard consumers are still health checked once every
+     * {@link CoordinatorConfig#shardConsumerFullDispatchIntervalMillis()}.
+     */
+    EVENT_DRIVEN;
+}
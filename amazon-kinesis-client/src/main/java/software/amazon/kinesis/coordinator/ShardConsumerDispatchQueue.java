@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.coordinator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import lombok.Value;
+import lombok.experimental.Accessors;
+import software.amazon.kinesis.leases.ShardInfo;
+
+/**
+ * Collects the events that the {@link Scheduler} dispatches shard consumers on in
+ * {@link ShardConsumerDispatchMode#EVENT_DRIVEN} mode. Events for the same shard consumer are merged until they are
+ * taken.
+ */
+class ShardConsumerDispatchQueue {
+    private final Set<ShardInfo> changedShardConsumers = new LinkedHashSet<>();
+    private boolean assignmentsChanged = false;
+
+    /**
+     * Records that the lifecycle of the shard consumer for the given shard needs to be executed.
+     */
+    synchronized void shardConsumerChanged(ShardInfo shardInfo) {
+        changedShardConsumers.add(shardInfo);
+        notifyAll();
+    }
+
+    /**
+     * Records that leases may have been gained or lost, so all shard consumers need to be dispatched.
+     */
+    synchronized void assignmentsChanged() {
+        assignmentsChanged = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits until there are events, or the timeout elapses, and takes all events.
+     *
+     * @param timeoutMillis the maximum time to wait for events
+     * @return the events, which are empty if the timeout elapsed
+     */
+    synchronized Events take(long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remainingMillis = timeoutMillis;
+        while (!assignmentsChanged && changedShardConsumers.isEmpty() && remainingMillis > 0) {
+            wait(remainingMillis);
+            remainingMillis = deadline - System.currentTimeMillis();
+        }
+        final Events events = new Events(
+                assignmentsChanged,
+                changedShardConsumers.isEmpty() ? Collections.emptyList() : new ArrayList<>(changedShardConsumers));
+        assignmentsChanged = false;
+        changedShardConsumers.clear();
+        return events;
+    }
+
+    @Value
+    @Accessors(fluent = true)
+    static class Events {
+        boolean assignmentsChanged;
+        List<ShardInfo> changedShardConsumers;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * Non-blocking counterpart of the lease operations of {@link LeaseRefresher}, so that callers can compose them
+ * without parking a thread for every request in flight.
+ *
+ * <p>
+ * Every method behaves like its synchronous counterpart in {@link LeaseRefresher}. Where the synchronous method
+ * throws a {@link DependencyException}, {@link InvalidStateException} or {@link ProvisionedThroughputException},
+ * the returned future completes exceptionally with a {@link CompletionException} caused by that exception instead.
+ * Methods that mutate the passed-in lease object do so before the returned future completes.
+ * </p>
+ */
+public interface AsyncLeaseRefresher {
+
+    /**
+     * List all objects in table asynchronously.
+     *
+     * @return future of the list of leases
+     *
+     * @see LeaseRefresher#listLeases()
+     */
+    CompletableFuture<List<Lease>> listLeasesAsync();
+
+    /**
+     * @param leaseKey Get the lease for this leasekey
+     *
+     * @return future of the lease for the specified leaseKey, completed with null if one doesn't exist
+     *
+     * @see LeaseRefresher#getLease(String)
+     */
+    CompletableFuture<Lease> getLeaseAsync(String leaseKey);
+
+    /**
+     * Renew a lease by incrementing the lease counter.
+     *
+     * @param lease the lease to renew
+     *
+     * @return future completed with true if renewal succeeded, false otherwise
+     *
+     * @see LeaseRefresher#renewLease(Lease)
+     */
+    CompletableFuture<Boolean> renewLeaseAsync(Lease lease);
+
+    /**
+     * Take a lease for the given owner by incrementing its leaseCounter and setting its owner field.
+     *
+     * @param lease the lease to take
+     * @param owner the new owner
+     *
+     * @return future completed with true if lease was successfully taken, false otherwise
+     *
+     * @see LeaseRefresher#takeLease(Lease, String)
+     */
+    CompletableFuture<Boolean> takeLeaseAsync(Lease lease, String owner);
+
+    /**
+     * Evict the current owner of lease by setting owner to null.
+     *
+     * @param lease the lease to void
+     *
+     * @return future completed with true if eviction succeeded, false otherwise
+     *
+     * @see LeaseRefresher#evictLease(Lease)
+     */
+    CompletableFuture<Boolean> evictLeaseAsync(Lease lease);
+
+    /**
+     * Update application-specific fields of the given lease.
+     *
+     * @param lease the lease to update
+     *
+     * @return future completed with true if update succeeded, false otherwise
+     *
+     * @see LeaseRefresher#updateLease(Lease)
+     */
+    CompletableFuture<Boolean> updateLeaseAsync(Lease lease);
+
+    /**
+     * Gets the current checkpoint of the shard.
+     *
+     * @param leaseKey Checkpoint of this shard will be returned
+     *
+     * @return future of the checkpoint of this shard, completed with null if the shard record doesn't exist
+     *
+     * @see LeaseRefresher#getCheckpoint(String)
+     */
+    CompletableFuture<ExtendedSequenceNumber> getCheckpointAsync(String leaseKey);
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
+
+/**
+ * An in-memory view of the lease table that is kept current by applying the changes of a {@link LeaseChangeSource},
+ * so that listing leases doesn't require scanning the table. The table is still scanned in full when the cache is
+ * first read, when the change source fails, and every {@code fullScanIntervalMillis} as a consistency backstop.
+ *
+ * <p>
+ * After the change source fails, or fails to start, the table is scanned on every sync, as it is without a cache, and
+ * the change source is only started again after an exponential backoff of up to {@code fullScanIntervalMillis}, so
+ * that a change source that keeps failing doesn't add restarts to the scans.
+ * </p>
+ *
+ * <p>
+ * A change source may only be read by a limited number of workers at a time. Every full scan counts the workers that
+ * hold leases, and while there are more than {@code maxWorkers}, the change source is stopped and the table is
+ * scanned on every sync instead. The table is also scanned while the change source lags behind it.
+ * </p>
+ *
+ * <p>
+ * The cache is synced when it is read, so it's only as current as the last call to {@link #listLeases()}. Every sync
+ * that changes the cache increments its {@link #version()}.
+ * </p>
+ */
+@Slf4j
+@KinesisClientInternalApi
+public class LeaseCache {
+    private static final long INITIAL_RESTART_BACKOFF_MILLIS = 1000L;
+
+    private final LeaseRefresher leaseRefresher;
+    private final LeaseChangeSource leaseChangeSource;
+    private final long fullScanIntervalNanos;
+    private final int maxWorkers;
+
+    private final Map<String, Lease> leases = new HashMap<>();
+    private long version = 0L;
+    private boolean changeSourceStarted = false;
+    private long lastFullScanNanos;
+    private long restartBackoffNanos = 0L;
+    private long nextStartNanos;
+    private boolean tooManyWorkers = false;
+
+    /**
+     * @param leaseRefresher refresher to scan the lease table with
+     * @param leaseChangeSource source of the changes made to the lease table
+     * @param fullScanIntervalMillis interval between full scans of the lease table
+     */
+    public LeaseCache(
+            @NonNull final LeaseRefresher leaseRefresher,
+            @NonNull final LeaseChangeSource leaseChangeSource,
+            final long fullScanIntervalMillis) {
+        this(leaseRefresher, leaseChangeSource, fullScanIntervalMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param leaseRefresher refresher to scan the lease table with
+     * @param leaseChangeSource source of the changes made to the lease table
+     * @param fullScanIntervalMillis interval between full scans of the lease table
+     * @param maxWorkers max number of workers holding leases for which the change source is followed
+     */
+    public LeaseCache(
+            @NonNull final LeaseRefresher leaseRefresher,
+            @NonNull final LeaseChangeSource leaseChangeSource,
+            final long fullScanIntervalMillis,
+            final int maxWorkers) {
+        if (fullScanIntervalMillis <= 0) {
+            throw new IllegalArgumentException("fullScanIntervalMillis should be > 0");
+        }
+        if (maxWorkers <= 0) {
+            throw new IllegalArgumentException("maxWorkers should be > 0");
+        }
+        this.leaseRefresher = leaseRefresher;
+        this.leaseChangeSource = leaseChangeSource;
+        this.fullScanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fullScanIntervalMillis);
+        this.maxWorkers = maxWorkers;
+    }
+
+    /**
+     * Syncs the cache with the lease table and lists the leases in it. The returned leases are copies, which callers
+     * are free to modify.
+     *
+     * @return list of leases
+     *
+     * @throws DependencyException if the lease table had to be scanned, and the scan failed in an unexpected way
+     * @throws InvalidStateException if the lease table had to be scanned, and it does not exist
+     * @throws ProvisionedThroughputException if the lease table had to be scanned, and it lacked capacity
+     */
+    public synchronized List<Lease> listLeases()
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        sync();
+        final List<Lease> result = new ArrayList<>(leases.size());
+        for (Lease lease : leases.values()) {
+            result.add(lease.copy());
+        }
+        return result;
+    }
+
+    /**
+     * @return a number that is incremented whenever the leases in the cache change
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Stops the change source. The cache falls back to scanning the lease table if it is read afterwards.
+     */
+    public synchronized void stop() {
+        if (changeSourceStarted) {
+            changeSourceStarted = false;
+            leaseChangeSource.stop();
+        }
+    }
+
+    private void sync() throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        boolean fullScanRequired = System.nanoTime() - lastFullScanNanos >= fullScanIntervalNanos;
+        if (changeSourceStarted) {
+            try {
+                applyChanges(leaseChangeSource.poll());
+                restartBackoffNanos = 0L;
+                // The changes that weren't read yet would leave outdated lease counters in the cache.
+                fullScanRequired |= leaseChangeSource.isLagging();
+            } catch (DependencyException e) {
+                log.warn("Failed to read changes of the lease table, scanning it instead.", e);
+                changeSourceStarted = false;
+                backOffRestart();
+            }
+        }
+        if (!changeSourceStarted) {
+            // Changes may have been missed while the change source wasn't started, so the table has to be scanned.
+            if (!tooManyWorkers && (restartBackoffNanos == 0L || System.nanoTime() - nextStartNanos >= 0)) {
+                startChangeSource();
+            }
+            fullScanRequired = true;
+        }
+        if (fullScanRequired) {
+            fullScan();
+            checkWorkers();
+        }
+    }
+
+    /**
+     * Stops the change source while more workers hold leases than may follow it, and lets it be started again once
+     * there are few enough of them.
+     */
+    private void checkWorkers() {
+        final Set<String> workers = new HashSet<>();
+        for (Lease lease : leases.values()) {
+            if (lease.leaseOwner() != null) {
+                workers.add(lease.leaseOwner());
+            }
+        }
+        final boolean tooMany = workers.size() > maxWorkers;
+        if (tooMany && !tooManyWorkers) {
+            log.warn(
+                    "{} workers hold leases, but only {} may follow changes of the lease table, scanning it instead.",
+                    workers.size(),
+                    maxWorkers);
+            stop();
+        } else if (!tooMany && tooManyWorkers) {
+            log.info("{} workers hold leases, following changes of the lease table again.", workers.size());
+        }
+        tooManyWorkers = tooMany;
+    }
+
+    /**
+     * Starts the change source before the lease table is scanned, so that the changes made while the table is being
+     * scanned are applied on the next sync. Those that the scan already saw are returned again, and would take the
+     * cache back to older versions of the leases, so updates of a lease with a lower lease counter than the cached
+     * lease are dropped.
+     */
+    private void startChangeSource() {
+        try {
+            leaseChangeSource.start();
+            changeSourceStarted = true;
+        } catch (DependencyException | InvalidStateException e) {
+            log.warn("Failed to start following changes of the lease table, scanning it instead.", e);
+            backOffRestart();
+        }
+    }
+
+    private void backOffRestart() {
+        restartBackoffNanos = restartBackoffNanos == 0L
+                ? Math.min(TimeUnit.MILLISECONDS.toNanos(INITIAL_RESTART_BACKOFF_MILLIS), fullScanIntervalNanos)
+                : Math.min(restartBackoffNanos * 2, fullScanIntervalNanos);
+        nextStartNanos = System.nanoTime() + restartBackoffNanos;
+    }
+
+    private void fullScan() throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final long startNanos = System.nanoTime();
+        final List<Lease> scannedLeases = leaseRefresher.listLeases();
+        leases.clear();
+        for (Lease lease : scannedLeases) {
+            leases.put(lease.leaseKey(), lease);
+        }
+        lastFullScanNanos = startNanos;
+        version++;
+        log.debug("Scanned {} leases into the lease cache", leases.size());
+    }
+
+    private void applyChanges(final List<LeaseChange> changes) {
+        int appliedChanges = 0;
+        for (LeaseChange change : changes) {
+            if (change.isDeletion()) {
+                leases.remove(change.leaseKey());
+            } else if (isOlderThanCachedLease(change.lease())) {
+                continue;
+            } else {
+                leases.put(change.leaseKey(), change.lease());
+            }
+            appliedChanges++;
+        }
+        if (appliedChanges == 0) {
+            return;
+        }
+        version++;
+        log.debug("Applied {} of {} changes to the lease cache", appliedChanges, changes.size());
+    }
+
+    private boolean isOlderThanCachedLease(final Lease lease) {
+        final Lease cachedLease = leases.get(lease.leaseKey());
+        return cachedLease != null
+                && cachedLease.leaseCounter() != null
+                && lease.leaseCounter() != null
+                && lease.leaseCounter() < cachedLease.leaseCounter();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+/**
+ * A change made to a lease in the lease table, as reported by a {@link LeaseChangeSource}.
+ */
+@Accessors(fluent = true)
+@Value
+public class LeaseChange {
+
+    /**
+     * Key of the changed lease.
+     */
+    String leaseKey;
+
+    /**
+     * The lease as it was written, or null if the lease was deleted.
+     */
+    Lease lease;
+
+    public static LeaseChange leaseUpdated(@NonNull final Lease lease) {
+        return new LeaseChange(lease.leaseKey(), lease);
+    }
+
+    public static LeaseChange leaseDeleted(@NonNull final String leaseKey) {
+        return new LeaseChange(leaseKey, null);
+    }
+
+    /**
+     * @return true if the lease was deleted
+     */
+    public boolean isDeletion() {
+        return lease == null;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import java.util.List;
+
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+
+/**
+ * A feed of the changes made to the lease table, which lets a {@link LeaseCache} stay current without scanning the
+ * whole table.
+ *
+ * <p>
+ * Changes to a lease must be returned in the order they were made. Changes to different leases may be returned in any
+ * order. A change source isn't required to be thread safe; the {@link LeaseCache} using it serializes all calls.
+ * </p>
+ */
+public interface LeaseChangeSource {
+
+    /**
+     * Starts, or restarts, following the lease table. Every change made after this method returns is returned by a
+     * later call to {@link #poll()}; changes made before may be returned too.
+     *
+     * @throws DependencyException if the change feed can't be read
+     * @throws InvalidStateException if the lease table has no change feed that can be followed
+     */
+    void start() throws DependencyException, InvalidStateException;
+
+    /**
+     * Returns the changes made since the previous call, or since {@link #start()} for the first call. If this method
+     * throws, changes may have been missed, and the change source has to be started again. A change source that is
+     * throttled may return only some of the changes, or none, and return the rest from later calls.
+     *
+     * @return changes to the lease table, possibly empty
+     *
+     * @throws DependencyException if the change feed can't be read
+     */
+    List<LeaseChange> poll() throws DependencyException;
+
+    /**
+     * Whether the last call to {@link #poll()} left changes to be returned by later calls, e.g. because it was
+     * throttled. The {@link LeaseCache} scans the lease table while the change source lags behind it, so that the
+     * lease taker never sees outdated lease counters.
+     *
+     * @return true if the change source is known to lag behind the lease table
+     */
+    default boolean isLagging() {
+        return false;
+    }
+
+    /**
+     * Stops following the lease table and releases the resources held by the change source.
+     */
+    default void stop() {}
+}
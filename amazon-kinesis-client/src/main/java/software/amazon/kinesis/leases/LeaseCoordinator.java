@@ -128,6 +128,23 @@ public interface LeaseCoordinator {
      */
     List<ShardInfo> getCurrentAssignments();
 
+    /**
+     * Registers a listener that is run whenever leases may have been gained or lost by this worker, so that the current
+     * assignments can be looked at again without waiting for the next poll. The default implementation never runs the
+     * listener.
+     *
+     * @param listener the listener to run, on a thread of the lease coordinator
+     */
+    default void addAssignmentChangeListener(Runnable listener) {}
+
+    /**
+     * @return cache of the lease table that is kept current by a {@link LeaseChangeSource}, or null if leases are
+     *         listed by scanning the lease table. The default implementation returns null.
+     */
+    default LeaseCache leaseCache() {
+        return null;
+    }
+
     /**
      * Default implementation returns an empty list and concrete implementation is expected to return all leases
      * for the application that are in the lease table. This enables application managing Kcl Scheduler to take care of
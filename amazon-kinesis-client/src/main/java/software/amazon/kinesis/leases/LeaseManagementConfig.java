@@ -39,6 +39,7 @@ import software.amazon.kinesis.common.InitialPositionInStreamExtended;
 import software.amazon.kinesis.common.LeaseCleanupConfig;
 import software.amazon.kinesis.common.StreamConfig;
 import software.amazon.kinesis.leases.dynamodb.DynamoDBLeaseManagementFactory;
+import software.amazon.kinesis.leases.dynamodb.DynamoDBStreamsLeaseChangeSource;
 import software.amazon.kinesis.leases.dynamodb.TableCreatorCallback;
 import software.amazon.kinesis.metrics.MetricsFactory;
 import software.amazon.kinesis.metrics.NullMetricsFactory;
@@ -61,6 +62,14 @@ public class LeaseManagementConfig {
     public static final long DEFAULT_PERIODIC_SHARD_SYNC_INTERVAL_MILLIS = 2 * 60 * 1000L;
     public static final boolean DEFAULT_LEASE_TABLE_DELETION_PROTECTION_ENABLED = false;
     public static final boolean DEFAULT_LEASE_TABLE_PITR_ENABLED = false;
+    public static final int DEFAULT_LEASE_TABLE_SCAN_SEGMENTS = 1;
+    public static final int DEFAULT_MAX_CONCURRENT_LEASE_TAKES = 1;
+    public static final int DEFAULT_LEASE_RENEWAL_BATCH_SIZE = 1;
+    public static final int DEFAULT_MAX_LEASE_RENEWAL_THREADS = 20;
+    public static final long DEFAULT_LEASE_TABLE_FULL_SCAN_INTERVAL_MILLIS =
+            Duration.ofMinutes(5).toMillis();
+    public static final int DEFAULT_LEASE_CHANGE_SOURCE_MAX_WORKERS =
+            DynamoDBStreamsLeaseChangeSource.MAX_READERS_PER_SHARD;
     public static final boolean DEFAULT_ENABLE_PRIORITY_LEASE_ASSIGNMENT = true;
     public static final int DEFAULT_CONSECUTIVE_HOLES_FOR_TRIGGERING_LEASE_RECOVERY = 3;
 
@@ -183,11 +192,59 @@ public class LeaseManagementConfig {
     private Function<StreamConfig, ShardDetector> customShardDetectorProvider;
 
     /**
-     * The size of the thread pool to create for the lease renewer to use.
+     * The size of the thread pool to create for the lease renewer to use. If the lease refresher renews leases
+     * asynchronously, this is the max number of renewals in flight instead.
+     *
+     * <p>Default value: {@link #DEFAULT_MAX_LEASE_RENEWAL_THREADS}</p>
+     */
+    private int maxLeaseRenewalThreads = DEFAULT_MAX_LEASE_RENEWAL_THREADS;
+
+    /**
+     * The maximum number of leases the lease taker takes concurrently. With more than one, the conditional updates
+     * for the leases selected in a taker run are issued in parallel on a thread pool of this size, so that picking up
+     * many expired leases, e.g. after a worker died, takes about one DynamoDB round trip per this many leases.
+     *
+     * <p>Default value: 1, which takes leases one at a time</p>
+     */
+    private int maxConcurrentLeaseTakes = DEFAULT_MAX_CONCURRENT_LEASE_TAKES;
+
+    /**
+     * The number of leases the lease renewer renews in one DynamoDB TransactWriteItems request, up to 100. With more
+     * than one, a worker holding many leases makes far fewer renewal requests and needs far fewer renewal threads. If
+     * a transaction fails, e.g. because a lease was taken by another worker, its leases are renewed one at a time.
+     *
+     * <p>Default value: 1, which renews every lease with its own request</p>
+     */
+    private int leaseRenewalBatchSize = DEFAULT_LEASE_RENEWAL_BATCH_SIZE;
+
+    /**
+     * Provides the source of the changes made to the lease table, given the lease serializer in use. If set, the lease
+     * taker and the periodic shard sync read leases from a {@link LeaseCache} that the changes are applied to, rather
+     * than scanning the lease table every time, e.g. with a
+     * {@link software.amazon.kinesis.leases.dynamodb.DynamoDBStreamsLeaseChangeSource} for the stream of the lease
+     * table.
      *
-     * <p>Default value: 20</p>
+     * <p>Default value: null, which scans the lease table every time</p>
      */
-    private int maxLeaseRenewalThreads = 20;
+    private Function<LeaseSerializer, LeaseChangeSource> leaseChangeSourceProvider;
+
+    /**
+     * Interval between the full scans of the lease table that keep the {@link LeaseCache} consistent with it, if a
+     * {@link #leaseChangeSourceProvider()} is set.
+     *
+     * <p>Default value: 5 minutes</p>
+     */
+    private long leaseTableFullScanIntervalMillis = DEFAULT_LEASE_TABLE_FULL_SCAN_INTERVAL_MILLIS;
+
+    /**
+     * Max number of workers holding leases for which the changes of the lease table are followed, if a
+     * {@link #leaseChangeSourceProvider()} is set. Every worker reads the whole change feed, and DynamoDB Streams only
+     * serves two readers of a shard at a time, so larger fleets scan the lease table instead, and only follow the
+     * changes again once the fleet shrinks. Only raise this for a change source that serves more readers.
+     *
+     * <p>Default value: {@link #DEFAULT_LEASE_CHANGE_SOURCE_MAX_WORKERS}</p>
+     */
+    private int leaseChangeSourceMaxWorkers = DEFAULT_LEASE_CHANGE_SOURCE_MAX_WORKERS;
 
     /**
      *
@@ -232,6 +289,15 @@ public class LeaseManagementConfig {
      */
     private Collection<Tag> tags = DefaultSdkAutoConstructList.getInstance();
 
+    /**
+     * The number of segments the lease table is scanned in when listing all leases. With more than one segment, the
+     * segments are scanned concurrently with DynamoDB parallel scan, which shortens listing large lease tables, e.g.
+     * in multi-stream mode, at the cost of more concurrent read requests.
+     *
+     * <p>Default value: 1, which scans the lease table sequentially
+     */
+    private int leaseTableScanSegments = DEFAULT_LEASE_TABLE_SCAN_SEGMENTS;
+
     /**
      * Frequency (in millis) of the auditor job to scan for partial leases in the lease table.
      * If the auditor detects any hole in the leases for a stream, then it would trigger shard sync based on
@@ -440,7 +506,8 @@ public class LeaseManagementConfig {
                     leaseSerializer,
                     customShardDetectorProvider(),
                     isMultiStreamingMode,
-                    leaseCleanupConfig());
+                    leaseCleanupConfig(),
+                    this);
         }
         return leaseManagementFactory;
     }
@@ -17,7 +17,6 @@ package software.amazon.kinesis.leases;
 
 import software.amazon.kinesis.common.StreamConfig;
 import software.amazon.kinesis.coordinator.DeletedStreamListProvider;
-import software.amazon.kinesis.leases.dynamodb.DynamoDBLeaseRefresher;
 import software.amazon.kinesis.metrics.MetricsFactory;
 
 /**
@@ -39,7 +38,7 @@ public interface LeaseManagementFactory {
         throw new UnsupportedOperationException("createShardSyncTaskManager method not implemented");
     }
 
-    DynamoDBLeaseRefresher createLeaseRefresher();
+    LeaseRefresher createLeaseRefresher();
 
     ShardDetector createShardDetector();
 
@@ -14,6 +14,7 @@
  */
 package software.amazon.kinesis.leases;
 
+import java.util.Collection;
 import java.util.List;
 
 import software.amazon.kinesis.common.StreamIdentifier;
@@ -137,6 +138,33 @@ public interface LeaseRefresher {
      */
     boolean renewLease(Lease lease) throws DependencyException, InvalidStateException, ProvisionedThroughputException;
 
+    /**
+     * Renew a batch of leases atomically by incrementing their lease counters. Conditional on the leaseCounter of every
+     * lease in DynamoDB matching the leaseCounter of the input; if any of them doesn't match, none of the leases is
+     * renewed. Mutates the leaseCounter of the passed-in lease objects after updating the records in DynamoDB.
+     *
+     * @param leases the leases to renew
+     *
+     * @return true if all leases were renewed, false if none were renewed because a condition didn't hold
+     *
+     * <p>The default implementation isn't atomic: it renews the leases one at a time with {@link #renewLease(Lease)},
+     * and stops at the first lease that isn't renewed, so the leases before it are renewed even if it returns
+     * false.</p>
+     *
+     * @throws InvalidStateException if lease table does not exist
+     * @throws ProvisionedThroughputException if DynamoDB update fails due to lack of capacity
+     * @throws DependencyException if DynamoDB update fails in an unexpected way
+     */
+    default boolean renewLeases(Collection<Lease> leases)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        for (Lease lease : leases) {
+            if (!renewLease(lease)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Take a lease for the given owner by incrementing its leaseCounter and setting its owner field. Conditional on
      * the leaseCounter in DynamoDB matching the leaseCounter of the input. Mutates the leaseCounter and owner of the
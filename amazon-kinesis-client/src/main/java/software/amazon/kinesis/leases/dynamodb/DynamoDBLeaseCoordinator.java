@@ -16,9 +16,12 @@ package software.amazon.kinesis.leases.dynamodb;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedTransferQueue;
@@ -30,9 +33,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseCache;
 import software.amazon.kinesis.leases.LeaseCoordinator;
 import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.LeaseRefresher;
@@ -70,13 +76,20 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
             .setNameFormat("LeaseRenewer-%04d")
             .setDaemon(true)
             .build();
+    private static final ThreadFactory LEASE_TAKER_THREAD_FACTORY = new ThreadFactoryBuilder()
+            .setNameFormat("LeaseTaker-%04d")
+            .setDaemon(true)
+            .build();
 
     private final LeaseRenewer leaseRenewer;
     private final LeaseTaker leaseTaker;
+    private final List<Runnable> assignmentChangeListeners = new CopyOnWriteArrayList<>();
     private final long renewerIntervalMillis;
     private final long takerIntervalMillis;
     private final ExecutorService leaseRenewalThreadpool;
+    private final ExecutorService leaseTakerThreadpool;
     private final LeaseRefresher leaseRefresher;
+    private final LeaseCache leaseCache;
     private long initialLeaseTableReadCapacity;
     private long initialLeaseTableWriteCapacity;
     protected final MetricsFactory metricsFactory;
@@ -203,6 +216,7 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
      * @param metricsFactory
      *            Used to publish metrics about lease operations
      */
+    @Deprecated
     public DynamoDBLeaseCoordinator(
             final LeaseRefresher leaseRefresher,
             final String workerIdentifier,
@@ -215,14 +229,95 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
             final long initialLeaseTableReadCapacity,
             final long initialLeaseTableWriteCapacity,
             final MetricsFactory metricsFactory) {
+        this(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                enablePriorityLeaseAssignment,
+                epsilonMillis,
+                maxLeasesForWorker,
+                maxLeasesToStealAtOneTime,
+                maxLeaseRenewerThreadCount,
+                LeaseManagementConfig.DEFAULT_MAX_CONCURRENT_LEASE_TAKES,
+                LeaseManagementConfig.DEFAULT_LEASE_RENEWAL_BATCH_SIZE,
+                null,
+                initialLeaseTableReadCapacity,
+                initialLeaseTableWriteCapacity,
+                metricsFactory);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param leaseRefresher
+     *            LeaseRefresher instance to use
+     * @param workerIdentifier
+     *            Identifies the worker (e.g. useful to track lease ownership)
+     * @param leaseDurationMillis
+     *            Duration of a lease
+     * @param enablePriorityLeaseAssignment
+     *            Whether to enable priority lease assignment for very expired leases
+     * @param epsilonMillis
+     *            Allow for some variance when calculating lease expirations
+     * @param maxLeasesForWorker
+     *            Max leases this Worker can handle at a time
+     * @param maxLeasesToStealAtOneTime
+     *            Steal up to these many leases at a time (for load balancing)
+     * @param maxLeaseRenewerThreadCount
+     *            Max threads to renew leases in parallel with
+     * @param maxConcurrentLeaseTakes
+     *            Max leases to take in parallel; leases are taken one at a time if this is 1
+     * @param leaseRenewalBatchSize
+     *            Leases to renew in one transaction; leases are renewed one at a time if this is 1
+     * @param leaseCache
+     *            Cache for the lease taker to read leases from, or null to scan the lease table on every run
+     * @param initialLeaseTableReadCapacity
+     *            Initial dynamodb lease table read iops if creating the lease table
+     * @param initialLeaseTableWriteCapacity
+     *            Initial dynamodb lease table write iops if creating the lease table
+     * @param metricsFactory
+     *            Used to publish metrics about lease operations
+     */
+    public DynamoDBLeaseCoordinator(
+            final LeaseRefresher leaseRefresher,
+            final String workerIdentifier,
+            final long leaseDurationMillis,
+            final boolean enablePriorityLeaseAssignment,
+            final long epsilonMillis,
+            final int maxLeasesForWorker,
+            final int maxLeasesToStealAtOneTime,
+            final int maxLeaseRenewerThreadCount,
+            final int maxConcurrentLeaseTakes,
+            final int leaseRenewalBatchSize,
+            final LeaseCache leaseCache,
+            final long initialLeaseTableReadCapacity,
+            final long initialLeaseTableWriteCapacity,
+            final MetricsFactory metricsFactory) {
         this.leaseRefresher = leaseRefresher;
+        this.leaseCache = leaseCache;
         this.leaseRenewalThreadpool = getLeaseRenewalExecutorService(maxLeaseRenewerThreadCount);
+        if (maxConcurrentLeaseTakes <= 0) {
+            throw new IllegalArgumentException("maxConcurrentLeaseTakes should be >= 1");
+        }
+        // An AsyncLeaseRefresher lets the taker compose concurrent takes without parking a thread for each of them.
+        this.leaseTakerThreadpool = maxConcurrentLeaseTakes > 1 && !(leaseRefresher instanceof AsyncLeaseRefresher)
+                ? getLeaseTakerExecutorService(maxConcurrentLeaseTakes)
+                : null;
         this.leaseTaker = new DynamoDBLeaseTaker(leaseRefresher, workerIdentifier, leaseDurationMillis, metricsFactory)
                 .withMaxLeasesForWorker(maxLeasesForWorker)
                 .withMaxLeasesToStealAtOneTime(maxLeasesToStealAtOneTime)
-                .withEnablePriorityLeaseAssignment(enablePriorityLeaseAssignment);
+                .withEnablePriorityLeaseAssignment(enablePriorityLeaseAssignment)
+                .withMaxConcurrentLeaseTakes(maxConcurrentLeaseTakes)
+                .withLeaseCache(leaseCache)
+                .withLeaseTakerExecutorService(leaseTakerThreadpool);
         this.leaseRenewer = new DynamoDBLeaseRenewer(
-                leaseRefresher, workerIdentifier, leaseDurationMillis, leaseRenewalThreadpool, metricsFactory);
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                leaseRenewalThreadpool,
+                metricsFactory,
+                leaseRenewalBatchSize,
+                maxLeaseRenewerThreadCount);
         this.renewerIntervalMillis = getRenewerTakerIntervalMillis(leaseDurationMillis, epsilonMillis);
         this.takerIntervalMillis = (leaseDurationMillis + epsilonMillis) * 2;
         if (initialLeaseTableReadCapacity <= 0) {
@@ -320,6 +415,9 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
                     leaseRenewer.addLeasesToRenew(takenLeases.values());
                 }
             }
+            if (!takenLeases.isEmpty()) {
+                notifyAssignmentChangeListeners();
+            }
 
             success = true;
         } finally {
@@ -331,7 +429,31 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
 
     @Override
     public void runLeaseRenewer() throws DependencyException, InvalidStateException {
+        if (assignmentChangeListeners.isEmpty()) {
+            leaseRenewer.renewLeases();
+            return;
+        }
+        final Set<String> heldLeaseKeys =
+                new HashSet<>(leaseRenewer.getCurrentlyHeldLeases().keySet());
         leaseRenewer.renewLeases();
+        if (!heldLeaseKeys.equals(leaseRenewer.getCurrentlyHeldLeases().keySet())) {
+            notifyAssignmentChangeListeners();
+        }
+    }
+
+    @Override
+    public void addAssignmentChangeListener(@NonNull final Runnable listener) {
+        assignmentChangeListeners.add(listener);
+    }
+
+    private void notifyAssignmentChangeListeners() {
+        for (Runnable listener : assignmentChangeListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("Assignment change listener threw an exception", e);
+            }
+        }
     }
 
     @Override
@@ -359,6 +481,11 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
         return leaseRefresher;
     }
 
+    @Override
+    public LeaseCache leaseCache() {
+        return leaseCache;
+    }
+
     @Override
     public void stop() {
         if (leaseCoordinatorThreadPool != null) {
@@ -383,10 +510,17 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
         }
 
         leaseRenewalThreadpool.shutdownNow();
+        if (leaseTakerThreadpool != null) {
+            leaseTakerThreadpool.shutdownNow();
+        }
+        if (leaseCache != null) {
+            leaseCache.stop();
+        }
         synchronized (shutdownLock) {
             leaseRenewer.clearCurrentlyHeldLeases();
             running = false;
         }
+        notifyAssignmentChangeListeners();
     }
 
     @Override
@@ -403,6 +537,7 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
                 leaseRenewer.dropLease(lease);
             }
         }
+        notifyAssignmentChangeListeners();
     }
 
     @Override
@@ -434,6 +569,24 @@ public class DynamoDBLeaseCoordinator implements LeaseCoordinator {
                 LEASE_RENEWAL_THREAD_FACTORY);
     }
 
+    /**
+     * Returns executor service that should be used for taking leases in parallel.
+     * @param maximumPoolSize Maximum number of leases taken at a time
+     * @return Executor service that should be used for taking leases.
+     */
+    private static ExecutorService getLeaseTakerExecutorService(int maximumPoolSize) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maximumPoolSize,
+                maximumPoolSize,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedTransferQueue<>(),
+                LEASE_TAKER_THREAD_FACTORY);
+        // The taker runs once per taker interval, don't keep its threads around in between.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @Override
     public List<ShardInfo> getCurrentAssignments() {
         Collection<Lease> leases = getAssignments();
@@ -36,10 +36,13 @@ import software.amazon.kinesis.common.StreamIdentifier;
 import software.amazon.kinesis.coordinator.DeletedStreamListProvider;
 import software.amazon.kinesis.leases.HierarchicalShardSyncer;
 import software.amazon.kinesis.leases.KinesisShardDetector;
+import software.amazon.kinesis.leases.LeaseCache;
+import software.amazon.kinesis.leases.LeaseChangeSource;
 import software.amazon.kinesis.leases.LeaseCleanupManager;
 import software.amazon.kinesis.leases.LeaseCoordinator;
 import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.LeaseManagementFactory;
+import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.LeaseSerializer;
 import software.amazon.kinesis.leases.ShardDetector;
 import software.amazon.kinesis.leases.ShardSyncTaskManager;
@@ -103,6 +106,12 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
     private final Collection<Tag> tags;
     private final boolean isMultiStreamMode;
     private final LeaseCleanupConfig leaseCleanupConfig;
+    private final int leaseTableScanSegments;
+    private final int maxConcurrentLeaseTakes;
+    private final int leaseRenewalBatchSize;
+    private final Function<LeaseSerializer, LeaseChangeSource> leaseChangeSourceProvider;
+    private final long leaseTableFullScanIntervalMillis;
+    private final int leaseChangeSourceMaxWorkers;
 
     /**
      * Constructor.
@@ -1016,6 +1025,7 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
                 leaseCleanupConfig);
     }
 
+    @Deprecated
     public DynamoDBLeaseManagementFactory(
             final KinesisAsyncClient kinesisClient,
             final DynamoDbAsyncClient dynamoDBClient,
@@ -1050,6 +1060,85 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
             Function<StreamConfig, ShardDetector> customShardDetectorProvider,
             boolean isMultiStreamMode,
             LeaseCleanupConfig leaseCleanupConfig) {
+        this(
+                kinesisClient,
+                dynamoDBClient,
+                tableName,
+                workerIdentifier,
+                executorService,
+                failoverTimeMillis,
+                enablePriorityLeaseAssignment,
+                epsilonMillis,
+                maxLeasesForWorker,
+                maxLeasesToStealAtOneTime,
+                maxLeaseRenewalThreads,
+                cleanupLeasesUponShardCompletion,
+                ignoreUnexpectedChildShards,
+                shardSyncIntervalMillis,
+                consistentReads,
+                listShardsBackoffTimeMillis,
+                maxListShardsRetryAttempts,
+                maxCacheMissesBeforeReload,
+                listShardsCacheAllowedAgeInSeconds,
+                cacheMissWarningModulus,
+                initialLeaseTableReadCapacity,
+                initialLeaseTableWriteCapacity,
+                deprecatedHierarchicalShardSyncer,
+                tableCreatorCallback,
+                dynamoDbRequestTimeout,
+                billingMode,
+                leaseTableDeletionProtectionEnabled,
+                leaseTablePitrEnabled,
+                tags,
+                leaseSerializer,
+                customShardDetectorProvider,
+                isMultiStreamMode,
+                leaseCleanupConfig,
+                new LeaseManagementConfig(tableName, dynamoDBClient, kinesisClient, workerIdentifier));
+    }
+
+    /**
+     * Constructor. Settings that don't have a parameter of their own, like the lease table scan segments and the
+     * lease taker and renewer concurrency, are read from the given LeaseManagementConfig, so that adding such a
+     * setting doesn't take another constructor.
+     *
+     * @param leaseManagementConfig config to read the remaining lease management settings from
+     */
+    public DynamoDBLeaseManagementFactory(
+            final KinesisAsyncClient kinesisClient,
+            final DynamoDbAsyncClient dynamoDBClient,
+            final String tableName,
+            final String workerIdentifier,
+            final ExecutorService executorService,
+            final long failoverTimeMillis,
+            final boolean enablePriorityLeaseAssignment,
+            final long epsilonMillis,
+            final int maxLeasesForWorker,
+            final int maxLeasesToStealAtOneTime,
+            final int maxLeaseRenewalThreads,
+            final boolean cleanupLeasesUponShardCompletion,
+            final boolean ignoreUnexpectedChildShards,
+            final long shardSyncIntervalMillis,
+            final boolean consistentReads,
+            final long listShardsBackoffTimeMillis,
+            final int maxListShardsRetryAttempts,
+            final int maxCacheMissesBeforeReload,
+            final long listShardsCacheAllowedAgeInSeconds,
+            final int cacheMissWarningModulus,
+            final long initialLeaseTableReadCapacity,
+            final long initialLeaseTableWriteCapacity,
+            final HierarchicalShardSyncer deprecatedHierarchicalShardSyncer,
+            final TableCreatorCallback tableCreatorCallback,
+            Duration dynamoDbRequestTimeout,
+            BillingMode billingMode,
+            final boolean leaseTableDeletionProtectionEnabled,
+            final boolean leaseTablePitrEnabled,
+            Collection<Tag> tags,
+            LeaseSerializer leaseSerializer,
+            Function<StreamConfig, ShardDetector> customShardDetectorProvider,
+            boolean isMultiStreamMode,
+            LeaseCleanupConfig leaseCleanupConfig,
+            @NonNull final LeaseManagementConfig leaseManagementConfig) {
         this.kinesisClient = kinesisClient;
         this.dynamoDBClient = dynamoDBClient;
         this.tableName = tableName;
@@ -1083,12 +1172,26 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
         this.isMultiStreamMode = isMultiStreamMode;
         this.leaseCleanupConfig = leaseCleanupConfig;
         this.tags = tags;
+        this.leaseTableScanSegments = leaseManagementConfig.leaseTableScanSegments();
+        this.maxConcurrentLeaseTakes = leaseManagementConfig.maxConcurrentLeaseTakes();
+        this.leaseRenewalBatchSize = leaseManagementConfig.leaseRenewalBatchSize();
+        this.leaseChangeSourceProvider = leaseManagementConfig.leaseChangeSourceProvider();
+        this.leaseTableFullScanIntervalMillis = leaseManagementConfig.leaseTableFullScanIntervalMillis();
+        this.leaseChangeSourceMaxWorkers = leaseManagementConfig.leaseChangeSourceMaxWorkers();
     }
 
     @Override
     public LeaseCoordinator createLeaseCoordinator(@NonNull final MetricsFactory metricsFactory) {
+        final LeaseRefresher leaseRefresher = this.createLeaseRefresher();
+        final LeaseCache leaseCache = leaseChangeSourceProvider == null
+                ? null
+                : new LeaseCache(
+                        leaseRefresher,
+                        leaseChangeSourceProvider.apply(leaseSerializer),
+                        leaseTableFullScanIntervalMillis,
+                        leaseChangeSourceMaxWorkers);
         return new DynamoDBLeaseCoordinator(
-                this.createLeaseRefresher(),
+                leaseRefresher,
                 workerIdentifier,
                 failoverTimeMillis,
                 enablePriorityLeaseAssignment,
@@ -1096,6 +1199,9 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
                 maxLeasesForWorker,
                 maxLeasesToStealAtOneTime,
                 maxLeaseRenewalThreads,
+                maxConcurrentLeaseTakes,
+                leaseRenewalBatchSize,
+                leaseCache,
                 initialLeaseTableReadCapacity,
                 initialLeaseTableWriteCapacity,
                 metricsFactory);
@@ -1165,7 +1271,8 @@ public class DynamoDBLeaseManagementFactory implements LeaseManagementFactory {
                 billingMode,
                 leaseTableDeletionProtectionEnabled,
                 leaseTablePitrEnabled,
-                tags);
+                tags,
+                leaseTableScanSegments);
     }
 
     @Override
@@ -17,17 +17,26 @@ package software.amazon.kinesis.leases.dynamodb;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.core.util.DefaultSdkAutoConstructList;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeAction;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValueUpdate;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
@@ -37,6 +46,8 @@ import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbRequest;
+import software.amazon.awssdk.services.dynamodb.model.ExpectedAttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.LimitExceededException;
@@ -49,12 +60,17 @@ import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.TableStatus;
 import software.amazon.awssdk.services.dynamodb.model.Tag;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
 import software.amazon.awssdk.services.dynamodb.model.UpdateContinuousBackupsRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 import software.amazon.awssdk.utils.CollectionUtils;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
 import software.amazon.kinesis.common.FutureUtils;
 import software.amazon.kinesis.common.StreamIdentifier;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
 import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.LeaseRefresher;
@@ -67,11 +83,11 @@ import software.amazon.kinesis.retrieval.AWSExceptionManager;
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 /**
- * An implementation of {@link LeaseRefresher} that uses DynamoDB.
+ * An implementation of {@link LeaseRefresher} and {@link AsyncLeaseRefresher} that uses DynamoDB.
  */
 @Slf4j
 @KinesisClientInternalApi
-public class DynamoDBLeaseRefresher implements LeaseRefresher {
+public class DynamoDBLeaseRefresher implements LeaseRefresher, AsyncLeaseRefresher {
 
     protected final String table;
     protected final DynamoDbAsyncClient dynamoDBClient;
@@ -84,11 +100,20 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
     private final boolean leaseTableDeletionProtectionEnabled;
     private final boolean leaseTablePitrEnabled;
     private final Collection<Tag> tags;
+    private final int leaseTableScanSegments;
 
     private boolean newTableCreated = false;
 
     private static final String STREAM_NAME = "streamName";
     private static final String DDB_STREAM_NAME = ":streamName";
+    private static final Set<String> THROTTLING_CANCELLATION_REASONS =
+            ImmutableSet.of("ThrottlingError", "ProvisionedThroughputExceeded");
+
+    /**
+     * The maximum number of leases that can be renewed at a time by {@link #renewLeases(Collection)}, which is the
+     * maximum number of items of a DynamoDB transaction.
+     */
+    public static final int MAX_LEASES_PER_TRANSACTION = 100;
 
     /**
      * Constructor.
@@ -244,6 +269,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
      * @param billingMode
      * @param leaseTableDeletionProtectionEnabled
      */
+    @Deprecated
     public DynamoDBLeaseRefresher(
             final String table,
             final DynamoDbAsyncClient dynamoDBClient,
@@ -255,6 +281,50 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             final boolean leaseTableDeletionProtectionEnabled,
             final boolean leaseTablePitrEnabled,
             final Collection<Tag> tags) {
+        this(
+                table,
+                dynamoDBClient,
+                serializer,
+                consistentReads,
+                tableCreatorCallback,
+                dynamoDbRequestTimeout,
+                billingMode,
+                leaseTableDeletionProtectionEnabled,
+                leaseTablePitrEnabled,
+                tags,
+                LeaseManagementConfig.DEFAULT_LEASE_TABLE_SCAN_SEGMENTS);
+    }
+
+    /**
+     * Constructor.
+     * @param table
+     * @param dynamoDBClient
+     * @param serializer
+     * @param consistentReads
+     * @param tableCreatorCallback
+     * @param dynamoDbRequestTimeout
+     * @param billingMode
+     * @param leaseTableDeletionProtectionEnabled
+     * @param leaseTablePitrEnabled
+     * @param tags
+     * @param leaseTableScanSegments number of segments the lease table is scanned in concurrently when listing leases
+     */
+    public DynamoDBLeaseRefresher(
+            final String table,
+            final DynamoDbAsyncClient dynamoDBClient,
+            final LeaseSerializer serializer,
+            final boolean consistentReads,
+            @NonNull final TableCreatorCallback tableCreatorCallback,
+            Duration dynamoDbRequestTimeout,
+            final BillingMode billingMode,
+            final boolean leaseTableDeletionProtectionEnabled,
+            final boolean leaseTablePitrEnabled,
+            final Collection<Tag> tags,
+            final int leaseTableScanSegments) {
+        if (leaseTableScanSegments < 1) {
+            throw new IllegalArgumentException(
+                    "leaseTableScanSegments must be at least 1, but was " + leaseTableScanSegments);
+        }
         this.table = table;
         this.dynamoDBClient = dynamoDBClient;
         this.serializer = serializer;
@@ -265,6 +335,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         this.leaseTableDeletionProtectionEnabled = leaseTableDeletionProtectionEnabled;
         this.leaseTablePitrEnabled = leaseTablePitrEnabled;
         this.tags = tags;
+        this.leaseTableScanSegments = leaseTableScanSegments;
     }
 
     /**
@@ -482,6 +553,11 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
     /**
      * List with the given page size. Package access for integration testing.
      *
+     * <p>
+     * Unless the number of pages is limited, the lease table is scanned in {@code leaseTableScanSegments} segments,
+     * which are paged through concurrently.
+     * </p>
+     *
      * @param limit number of items to consider at a time - used by integration tests to force paging.
      * @param maxPages mad paginated scan calls
      * @param streamIdentifier streamIdentifier for multi-stream mode. Can be null.
@@ -517,15 +593,16 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
 
         try {
             try {
+                if (leaseTableScanSegments > 1 && maxPages == Integer.MAX_VALUE) {
+                    return scanSegments(scanRequest);
+                }
+
                 ScanResponse scanResult =
                         FutureUtils.resolveOrCancelFuture(dynamoDBClient.scan(scanRequest), dynamoDbRequestTimeout);
                 List<Lease> result = new ArrayList<>();
 
                 while (scanResult != null) {
-                    for (Map<String, AttributeValue> item : scanResult.items()) {
-                        log.debug("Got item {} from DynamoDB.", item.toString());
-                        result.add(serializer.fromDynamoRecord(item));
-                    }
+                    addLeases(scanResult, result);
 
                     Map<String, AttributeValue> lastEvaluatedKey = scanResult.lastEvaluatedKey();
                     if (CollectionUtils.isNullOrEmpty(lastEvaluatedKey) || --maxPages <= 0) {
@@ -559,6 +636,75 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         }
     }
 
+    /**
+     * Scans the lease table in {@code leaseTableScanSegments} segments. A request is kept in flight for every segment
+     * that has pages left, and the leases of each page are added to the returned list as soon as the page is resolved,
+     * so the leases of the segments are interleaved page by page, like the pages of a sequential scan aren't in any
+     * particular order either.
+     *
+     * @param scanRequest request to scan the whole table with
+     * @return list of leases
+     */
+    @SuppressWarnings("unchecked")
+    private List<Lease> scanSegments(final ScanRequest scanRequest)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        final ScanRequest[] segmentRequests = new ScanRequest[leaseTableScanSegments];
+        final CompletableFuture<ScanResponse>[] pendingScans = new CompletableFuture[leaseTableScanSegments];
+        final List<Lease> result = new ArrayList<>();
+        for (int segment = 0; segment < leaseTableScanSegments; segment++) {
+            segmentRequests[segment] = scanRequest.toBuilder()
+                    .segment(segment)
+                    .totalSegments(leaseTableScanSegments)
+                    .build();
+            pendingScans[segment] = dynamoDBClient.scan(segmentRequests[segment]);
+        }
+
+        try {
+            int remainingSegments = leaseTableScanSegments;
+            while (remainingSegments > 0) {
+                for (int segment = 0; segment < leaseTableScanSegments; segment++) {
+                    final CompletableFuture<ScanResponse> pendingScan = pendingScans[segment];
+                    if (pendingScan == null) {
+                        continue;
+                    }
+                    // resolveOrCancelFuture cancels the scan itself if it fails.
+                    pendingScans[segment] = null;
+                    final ScanResponse scanResult =
+                            FutureUtils.resolveOrCancelFuture(pendingScan, dynamoDbRequestTimeout);
+                    addLeases(scanResult, result);
+
+                    final Map<String, AttributeValue> lastEvaluatedKey = scanResult.lastEvaluatedKey();
+                    if (CollectionUtils.isNullOrEmpty(lastEvaluatedKey)) {
+                        remainingSegments--;
+                        log.debug("lastEvaluatedKey was null - scan of segment {} finished.", segment);
+                    } else {
+                        segmentRequests[segment] = segmentRequests[segment].toBuilder()
+                                .exclusiveStartKey(lastEvaluatedKey)
+                                .build();
+                        log.debug("lastEvaluatedKey was {}, continuing scan of segment {}.", lastEvaluatedKey, segment);
+                        pendingScans[segment] = dynamoDBClient.scan(segmentRequests[segment]);
+                    }
+                }
+            }
+        } finally {
+            for (CompletableFuture<ScanResponse> pendingScan : pendingScans) {
+                if (pendingScan != null) {
+                    pendingScan.cancel(true);
+                }
+            }
+        }
+
+        log.debug("Listed {} leases in {} segments from table {}", result.size(), leaseTableScanSegments, table);
+        return result;
+    }
+
+    private void addLeases(final ScanResponse scanResult, final List<Lease> leases) {
+        for (Map<String, AttributeValue> item : scanResult.items()) {
+            log.debug("Got item {} from DynamoDB.", item.toString());
+            leases.add(serializer.fromDynamoRecord(item));
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -603,26 +749,13 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throws DependencyException, InvalidStateException, ProvisionedThroughputException {
         log.debug("Getting lease with key {}", leaseKey);
 
-        GetItemRequest request = GetItemRequest.builder()
-                .tableName(table)
-                .key(serializer.getDynamoHashKey(leaseKey))
-                .consistentRead(consistentReads)
-                .build();
+        GetItemRequest request = getLeaseRequest(leaseKey);
         final AWSExceptionManager exceptionManager = createExceptionManager();
         try {
             try {
                 GetItemResponse result =
                         FutureUtils.resolveOrCancelFuture(dynamoDBClient.getItem(request), dynamoDbRequestTimeout);
-
-                Map<String, AttributeValue> dynamoRecord = result.item();
-                if (CollectionUtils.isNullOrEmpty(dynamoRecord)) {
-                    log.debug("No lease found with key {}, returning null.", leaseKey);
-                    return null;
-                } else {
-                    final Lease lease = serializer.fromDynamoRecord(dynamoRecord);
-                    log.debug("Retrieved lease: {}", lease);
-                    return lease;
-                }
+                return toLease(leaseKey, result);
             } catch (ExecutionException e) {
                 throw exceptionManager.apply(e.getCause());
             } catch (InterruptedException e) {
@@ -634,6 +767,26 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         }
     }
 
+    private GetItemRequest getLeaseRequest(final String leaseKey) {
+        return GetItemRequest.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(leaseKey))
+                .consistentRead(consistentReads)
+                .build();
+    }
+
+    private Lease toLease(final String leaseKey, final GetItemResponse result) {
+        Map<String, AttributeValue> dynamoRecord = result.item();
+        if (CollectionUtils.isNullOrEmpty(dynamoRecord)) {
+            log.debug("No lease found with key {}, returning null.", leaseKey);
+            return null;
+        } else {
+            final Lease lease = serializer.fromDynamoRecord(dynamoRecord);
+            log.debug("Retrieved lease: {}", lease);
+            return lease;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -642,12 +795,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throws DependencyException, InvalidStateException, ProvisionedThroughputException {
         log.debug("Renewing lease with key {}", lease.leaseKey());
 
-        UpdateItemRequest request = UpdateItemRequest.builder()
-                .tableName(table)
-                .key(serializer.getDynamoHashKey(lease))
-                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
-                .attributeUpdates(serializer.getDynamoLeaseCounterUpdate(lease))
-                .build();
+        UpdateItemRequest request = renewLeaseRequest(lease);
 
         final AWSExceptionManager exceptionManager = createExceptionManager();
         exceptionManager.add(ConditionalCheckFailedException.class, t -> t);
@@ -667,15 +815,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
                     lease.leaseKey(),
                     lease.leaseCounter());
 
-            // If we had a spurious retry during the Dynamo update, then this conditional PUT failure
-            // might be incorrect. So, we get the item straight away and check if the lease owner + lease
-            // counter are what we expected.
-            String expectedOwner = lease.leaseOwner();
-            Long expectedCounter = lease.leaseCounter() + 1;
-            final Lease updatedLease = getLease(lease.leaseKey());
-            if (updatedLease == null
-                    || !expectedOwner.equals(updatedLease.leaseOwner())
-                    || !expectedCounter.equals(updatedLease.leaseCounter())) {
+            if (!isSpuriousRenewalFailure(lease, getLease(lease.leaseKey()))) {
                 return false;
             }
 
@@ -684,11 +824,146 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throw new DependencyException(e);
         }
 
+        leaseRenewed(lease);
+        return true;
+    }
+
+    private UpdateItemRequest renewLeaseRequest(final Lease lease) {
+        return UpdateItemRequest.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(lease))
+                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
+                .attributeUpdates(serializer.getDynamoLeaseCounterUpdate(lease))
+                .build();
+    }
+
+    /**
+     * @return true if the renewal of the given lease, whose conditional update failed, did go through after all
+     */
+    private boolean isSpuriousRenewalFailure(final Lease lease, final Lease updatedLease) {
+        // If we had a spurious retry during the Dynamo update, then this conditional PUT failure
+        // might be incorrect. So, we check if the lease owner + lease counter are what we expected.
+        final Long expectedCounter = lease.leaseCounter() + 1;
+        return updatedLease != null
+                && lease.leaseOwner().equals(updatedLease.leaseOwner())
+                && expectedCounter.equals(updatedLease.leaseCounter());
+    }
+
+    private void leaseRenewed(final Lease lease) {
         lease.leaseCounter(lease.leaseCounter() + 1);
         log.debug("Renewed lease with key {}", lease.leaseKey());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The leases are renewed with a single TransactWriteItems request, so at most
+     * {@link #MAX_LEASES_PER_TRANSACTION} leases can be renewed at a time. Retries of the request by the SDK reuse its
+     * client request token, which makes them idempotent, so unlike {@link #renewLease(Lease)} a failed condition isn't
+     * double-checked against the lease table.</p>
+     */
+    @Override
+    public boolean renewLeases(@NonNull final Collection<Lease> leases)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        if (leases.isEmpty()) {
+            return true;
+        }
+        if (leases.size() > MAX_LEASES_PER_TRANSACTION) {
+            throw new IllegalArgumentException("Cannot renew more than " + MAX_LEASES_PER_TRANSACTION
+                    + " leases at a time, but was asked to renew " + leases.size());
+        }
+        log.debug("Renewing {} leases in one transaction", leases.size());
+
+        final List<TransactWriteItem> items = new ArrayList<>(leases.size());
+        for (Lease lease : leases) {
+            items.add(TransactWriteItem.builder()
+                    .update(toTransactUpdate(
+                            lease,
+                            serializer.getDynamoLeaseCounterExpectation(lease),
+                            serializer.getDynamoLeaseCounterUpdate(lease)))
+                    .build());
+        }
+        final TransactWriteItemsRequest request =
+                TransactWriteItemsRequest.builder().transactItems(items).build();
+
+        final AWSExceptionManager exceptionManager = createExceptionManager();
+        exceptionManager.add(TransactionCanceledException.class, t -> t);
+
+        try {
+            try {
+                FutureUtils.resolveOrCancelFuture(dynamoDBClient.transactWriteItems(request), dynamoDbRequestTimeout);
+            } catch (ExecutionException e) {
+                throw exceptionManager.apply(e.getCause());
+            } catch (InterruptedException e) {
+                throw new DependencyException(e);
+            }
+        } catch (TransactionCanceledException e) {
+            if (e.hasCancellationReasons()
+                    && e.cancellationReasons().stream()
+                            .anyMatch(reason -> THROTTLING_CANCELLATION_REASONS.contains(reason.code()))) {
+                throw new ProvisionedThroughputException(e);
+            }
+            log.debug("Renewal of {} leases failed because a lease counter didn't match", leases.size());
+            return false;
+        } catch (DynamoDbException | TimeoutException e) {
+            throw convertAndRethrowExceptions("renew", leases.iterator().next().leaseKey(), e);
+        }
+
+        for (Lease lease : leases) {
+            lease.leaseCounter(lease.leaseCounter() + 1);
+        }
+        log.debug("Renewed {} leases", leases.size());
         return true;
     }
 
+    /**
+     * Converts the given expected values and attribute updates of a lease, as made by the serializer for UpdateItem,
+     * to the condition and update expressions of a transactional update.
+     */
+    private Update toTransactUpdate(
+            final Lease lease,
+            final Map<String, ExpectedAttributeValue> expectations,
+            final Map<String, AttributeValueUpdate> updates) {
+        final Map<String, String> names = new HashMap<>();
+        final Map<String, AttributeValue> values = new HashMap<>();
+
+        final StringJoiner condition = new StringJoiner(" AND ");
+        for (Map.Entry<String, ExpectedAttributeValue> expectation : expectations.entrySet()) {
+            final String name = "#a" + names.size();
+            names.put(name, expectation.getKey());
+            if (expectation.getValue().value() == null) {
+                condition.add("attribute_not_exists(" + name + ")");
+            } else {
+                final String value = ":v" + values.size();
+                values.put(value, expectation.getValue().value());
+                condition.add(name + " = " + value);
+            }
+        }
+
+        final StringJoiner set = new StringJoiner(", ", "SET ", " ").setEmptyValue("");
+        final StringJoiner remove = new StringJoiner(", ", "REMOVE ", "").setEmptyValue("");
+        for (Map.Entry<String, AttributeValueUpdate> update : updates.entrySet()) {
+            final String name = "#a" + names.size();
+            names.put(name, update.getKey());
+            if (update.getValue().action() == AttributeAction.DELETE) {
+                remove.add(name);
+            } else {
+                final String value = ":v" + values.size();
+                values.put(value, update.getValue().value());
+                set.add(name + " = " + value);
+            }
+        }
+
+        return Update.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(lease))
+                .conditionExpression(condition.toString())
+                .updateExpression((set.toString() + remove.toString()).trim())
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -706,15 +981,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         final AWSExceptionManager exceptionManager = createExceptionManager();
         exceptionManager.add(ConditionalCheckFailedException.class, t -> t);
 
-        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
-        updates.putAll(serializer.getDynamoTakeLeaseUpdate(lease, owner));
-
-        UpdateItemRequest request = UpdateItemRequest.builder()
-                .tableName(table)
-                .key(serializer.getDynamoHashKey(lease))
-                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
-                .attributeUpdates(updates)
-                .build();
+        UpdateItemRequest request = takeLeaseRequest(lease, owner);
 
         try {
             try {
@@ -735,6 +1002,23 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throw convertAndRethrowExceptions("take", lease.leaseKey(), e);
         }
 
+        leaseTaken(lease, oldOwner, owner);
+        return true;
+    }
+
+    private UpdateItemRequest takeLeaseRequest(final Lease lease, final String owner) {
+        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
+        updates.putAll(serializer.getDynamoTakeLeaseUpdate(lease, owner));
+
+        return UpdateItemRequest.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(lease))
+                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
+                .attributeUpdates(updates)
+                .build();
+    }
+
+    private void leaseTaken(final Lease lease, final String oldOwner, final String owner) {
         lease.leaseCounter(lease.leaseCounter() + 1);
         lease.leaseOwner(owner);
 
@@ -743,8 +1027,6 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         }
 
         log.info("Transferred lease {} ownership from {} to {}", lease.leaseKey(), oldOwner, owner);
-
-        return true;
     }
 
     /**
@@ -758,14 +1040,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         final AWSExceptionManager exceptionManager = createExceptionManager();
         exceptionManager.add(ConditionalCheckFailedException.class, t -> t);
 
-        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
-        updates.putAll(serializer.getDynamoEvictLeaseUpdate(lease));
-        UpdateItemRequest request = UpdateItemRequest.builder()
-                .tableName(table)
-                .key(serializer.getDynamoHashKey(lease))
-                .expected(serializer.getDynamoLeaseOwnerExpectation(lease))
-                .attributeUpdates(updates)
-                .build();
+        UpdateItemRequest request = evictLeaseRequest(lease);
 
         try {
             try {
@@ -786,11 +1061,26 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throw convertAndRethrowExceptions("evict", lease.leaseKey(), e);
         }
 
+        leaseEvicted(lease);
+        return true;
+    }
+
+    private UpdateItemRequest evictLeaseRequest(final Lease lease) {
+        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
+        updates.putAll(serializer.getDynamoEvictLeaseUpdate(lease));
+        return UpdateItemRequest.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(lease))
+                .expected(serializer.getDynamoLeaseOwnerExpectation(lease))
+                .attributeUpdates(updates)
+                .build();
+    }
+
+    private void leaseEvicted(final Lease lease) {
         lease.leaseOwner(null);
         lease.leaseCounter(lease.leaseCounter() + 1);
 
         log.info("Evicted lease with leaseKey {}", lease.leaseKey());
-        return true;
     }
 
     /**
@@ -865,15 +1155,7 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         final AWSExceptionManager exceptionManager = createExceptionManager();
         exceptionManager.add(ConditionalCheckFailedException.class, t -> t);
 
-        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
-        updates.putAll(serializer.getDynamoUpdateLeaseUpdate(lease));
-
-        UpdateItemRequest request = UpdateItemRequest.builder()
-                .tableName(table)
-                .key(serializer.getDynamoHashKey(lease))
-                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
-                .attributeUpdates(updates)
-                .build();
+        UpdateItemRequest request = updateLeaseRequest(lease);
 
         try {
             try {
@@ -893,9 +1175,25 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
             throw convertAndRethrowExceptions("update", lease.leaseKey(), e);
         }
 
+        leaseUpdated(lease);
+        return true;
+    }
+
+    private UpdateItemRequest updateLeaseRequest(final Lease lease) {
+        Map<String, AttributeValueUpdate> updates = serializer.getDynamoLeaseCounterUpdate(lease);
+        updates.putAll(serializer.getDynamoUpdateLeaseUpdate(lease));
+
+        return UpdateItemRequest.builder()
+                .tableName(table)
+                .key(serializer.getDynamoHashKey(lease))
+                .expected(serializer.getDynamoLeaseCounterExpectation(lease))
+                .attributeUpdates(updates)
+                .build();
+    }
+
+    private void leaseUpdated(final Lease lease) {
         lease.leaseCounter(lease.leaseCounter() + 1);
         log.info("Updated lease {}.", lease.leaseKey());
-        return true;
     }
 
     @Override
@@ -945,6 +1243,244 @@ public class DynamoDBLeaseRefresher implements LeaseRefresher {
         return checkpoint;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<List<Lease>> listLeasesAsync() {
+        log.debug("Listing leases from table {}", table);
+
+        final ScanRequest scanRequest =
+                withRequestTimeout(ScanRequest.builder().tableName(table).build());
+        final CompletableFuture<List<Lease>> leases;
+        if (leaseTableScanSegments > 1) {
+            // The pages of all segments are added to one list as they complete, on whichever threads they complete on.
+            final List<Lease> result = Collections.synchronizedList(new ArrayList<>());
+            final List<CompletableFuture<List<Lease>>> segments = new ArrayList<>(leaseTableScanSegments);
+            for (int segment = 0; segment < leaseTableScanSegments; segment++) {
+                segments.add(scanAsync(
+                        scanRequest.toBuilder()
+                                .segment(segment)
+                                .totalSegments(leaseTableScanSegments)
+                                .build(),
+                        result));
+            }
+            leases = CompletableFuture.allOf(segments.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> result);
+        } else {
+            leases = scanAsync(scanRequest, new ArrayList<>());
+        }
+        return leases.handle((result, t) -> {
+            if (t != null) {
+                final Throwable cause = unwrapCompletionException(t);
+                if (cause instanceof ResourceNotFoundException) {
+                    throw new CompletionException(new InvalidStateException(
+                            "Cannot scan lease table " + table + " because it does not exist.", cause));
+                }
+                throw toCompletionException("list", null, cause);
+            }
+            log.debug("Listed {} leases from table {}", result.size(), table);
+            return result;
+        });
+    }
+
+    /**
+     * Scans the pages of the given request one after the other, each page being requested once the previous one has
+     * completed.
+     */
+    private CompletableFuture<List<Lease>> scanAsync(final ScanRequest scanRequest, final List<Lease> result) {
+        return dynamoDBClient.scan(scanRequest).thenCompose(scanResult -> {
+            addLeases(scanResult, result);
+            final Map<String, AttributeValue> lastEvaluatedKey = scanResult.lastEvaluatedKey();
+            if (CollectionUtils.isNullOrEmpty(lastEvaluatedKey)) {
+                return CompletableFuture.completedFuture(result);
+            }
+            log.debug("lastEvaluatedKey was {}, continuing scan.", lastEvaluatedKey);
+            return scanAsync(
+                    scanRequest.toBuilder().exclusiveStartKey(lastEvaluatedKey).build(), result);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Lease> getLeaseAsync(@NonNull final String leaseKey) {
+        return dynamoDBClient
+                .getItem(withRequestTimeout(getLeaseRequest(leaseKey)))
+                .handle((result, t) -> {
+                    if (t != null) {
+                        throw toCompletionException("get", leaseKey, t);
+                    }
+                    return toLease(leaseKey, result);
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> renewLeaseAsync(@NonNull final Lease lease) {
+        log.debug("Renewing lease with key {}", lease.leaseKey());
+
+        return dynamoDBClient
+                .updateItem(withRequestTimeout(renewLeaseRequest(lease)))
+                .handle((result, t) -> {
+                    if (t == null) {
+                        leaseRenewed(lease);
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    if (!(unwrapCompletionException(t) instanceof ConditionalCheckFailedException)) {
+                        throw toCompletionException("renew", lease.leaseKey(), t);
+                    }
+                    log.debug(
+                            "Lease renewal failed for lease with key {} because the lease counter was not {}",
+                            lease.leaseKey(),
+                            lease.leaseCounter());
+                    return getLeaseAsync(lease.leaseKey()).thenApply(updatedLease -> {
+                        if (!isSpuriousRenewalFailure(lease, updatedLease)) {
+                            return false;
+                        }
+                        log.info(
+                                "Detected spurious renewal failure for lease with key {}, but recovered",
+                                lease.leaseKey());
+                        leaseRenewed(lease);
+                        return true;
+                    });
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> takeLeaseAsync(@NonNull final Lease lease, @NonNull final String owner) {
+        final String oldOwner = lease.leaseOwner();
+
+        log.debug(
+                "Taking lease with leaseKey {} from {} to {}",
+                lease.leaseKey(),
+                lease.leaseOwner() == null ? "nobody" : lease.leaseOwner(),
+                owner);
+
+        return dynamoDBClient
+                .updateItem(withRequestTimeout(takeLeaseRequest(lease, owner)))
+                .handle((result, t) -> {
+                    if (t == null) {
+                        leaseTaken(lease, oldOwner, owner);
+                        return true;
+                    }
+                    if (unwrapCompletionException(t) instanceof ConditionalCheckFailedException) {
+                        log.debug(
+                                "Lease take failed for lease with key {} because the lease counter was not {}",
+                                lease.leaseKey(),
+                                lease.leaseCounter());
+                        return false;
+                    }
+                    throw toCompletionException("take", lease.leaseKey(), t);
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> evictLeaseAsync(@NonNull final Lease lease) {
+        log.debug("Evicting lease with leaseKey {} owned by {}", lease.leaseKey(), lease.leaseOwner());
+
+        return dynamoDBClient
+                .updateItem(withRequestTimeout(evictLeaseRequest(lease)))
+                .handle((result, t) -> {
+                    if (t == null) {
+                        leaseEvicted(lease);
+                        return true;
+                    }
+                    if (unwrapCompletionException(t) instanceof ConditionalCheckFailedException) {
+                        log.debug(
+                                "Lease eviction failed for lease with key {} because the lease owner was not {}",
+                                lease.leaseKey(),
+                                lease.leaseOwner());
+                        return false;
+                    }
+                    throw toCompletionException("evict", lease.leaseKey(), t);
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> updateLeaseAsync(@NonNull final Lease lease) {
+        log.debug("Updating lease: {}", lease);
+
+        return dynamoDBClient
+                .updateItem(withRequestTimeout(updateLeaseRequest(lease)))
+                .handle((result, t) -> {
+                    if (t == null) {
+                        leaseUpdated(lease);
+                        return true;
+                    }
+                    if (unwrapCompletionException(t) instanceof ConditionalCheckFailedException) {
+                        log.debug(
+                                "Lease update failed for lease with key {} because the lease counter was not {}",
+                                lease.leaseKey(),
+                                lease.leaseCounter());
+                        return false;
+                    }
+                    throw toCompletionException("update", lease.leaseKey(), t);
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ExtendedSequenceNumber> getCheckpointAsync(final String leaseKey) {
+        return getLeaseAsync(leaseKey).thenApply(lease -> lease == null ? null : lease.checkpoint());
+    }
+
+    /**
+     * Bounds the asynchronous request by the request timeout, which the synchronous methods enforce while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends DynamoDbRequest> T withRequestTimeout(final T request) {
+        return (T) request.toBuilder()
+                .overrideConfiguration(o -> o.apiCallTimeout(dynamoDbRequestTimeout))
+                .build();
+    }
+
+    private static Throwable unwrapCompletionException(final Throwable t) {
+        Throwable cause = t;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Converts the failure of an asynchronous request the way the synchronous methods convert theirs, so that the
+     * returned futures complete exceptionally with the exceptions documented in {@link LeaseRefresher}.
+     */
+    private CompletionException toCompletionException(
+            final String operation, final String leaseKey, final Throwable t) {
+        final Throwable cause = unwrapCompletionException(t);
+        if (cause instanceof DependencyException
+                || cause instanceof InvalidStateException
+                || cause instanceof ProvisionedThroughputException) {
+            return new CompletionException(cause);
+        }
+        if (!(cause instanceof Exception)) {
+            return new CompletionException(new DependencyException(cause));
+        }
+        try {
+            return new CompletionException(convertAndRethrowExceptions(operation, leaseKey, (Exception) cause));
+        } catch (ProvisionedThroughputException | InvalidStateException e) {
+            return new CompletionException(e);
+        }
+    }
+
     /*
      * This method contains boilerplate exception handling - it throws or returns something to be thrown. The
      * inconsistency there exists to satisfy the compiler when this method is used at the end of non-void methods.
@@ -16,19 +16,27 @@ package software.amazon.kinesis.leases.dynamodb;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
+import com.google.common.collect.Iterables;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -36,7 +44,9 @@ import org.apache.commons.lang3.StringUtils;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
 import software.amazon.kinesis.common.StreamIdentifier;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.LeaseRenewer;
 import software.amazon.kinesis.leases.MultiStreamLease;
@@ -49,12 +59,20 @@ import software.amazon.kinesis.metrics.MetricsScope;
 import software.amazon.kinesis.metrics.MetricsUtil;
 
 /**
- * An implementation of {@link LeaseRenewer} that uses DynamoDB via {@link LeaseRefresher}.
+ * An implementation of {@link LeaseRenewer} that uses DynamoDB via {@link LeaseRefresher}. If the lease refresher is
+ * an {@link AsyncLeaseRefresher} and leases are renewed one at a time, the renewals are composed on its futures
+ * instead of parking a thread of the executor service for each of them. Like the renewals on the executor service,
+ * at most maxConcurrentRenewals of them are in flight at a time.
  */
 @Slf4j
 @KinesisClientInternalApi
 public class DynamoDBLeaseRenewer implements LeaseRenewer {
     private static final int RENEWAL_RETRIES = 2;
+    /**
+     * Time to back off for before retrying a batch renewal that was throttled, doubled for every further try.
+     */
+    private static final long BATCH_RENEWAL_BACKOFF_MILLIS = 100L;
+
     private static final String RENEW_ALL_LEASES_DIMENSION = "RenewAllLeases";
 
     private final LeaseRefresher leaseRefresher;
@@ -62,8 +80,16 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
     private final long leaseDurationNanos;
     private final ExecutorService executorService;
     private final MetricsFactory metricsFactory;
+    private final int leaseRenewalBatchSize;
+    private final int maxConcurrentRenewals;
 
     private final ConcurrentNavigableMap<String, Lease> ownedLeases = new ConcurrentSkipListMap<>();
+    /**
+     * Owned leases whose asynchronous renewal is in flight. Updates of these leases wait on the lease for the renewal
+     * to complete.
+     */
+    private final Set<Lease> renewalsInFlight =
+            Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
 
     /**
      * Constructor.
@@ -83,11 +109,84 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
             final long leaseDurationMillis,
             final ExecutorService executorService,
             final MetricsFactory metricsFactory) {
+        this(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                executorService,
+                metricsFactory,
+                LeaseManagementConfig.DEFAULT_LEASE_RENEWAL_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param leaseRefresher
+     *            LeaseRefresher to use
+     * @param workerIdentifier
+     *            identifier of this worker
+     * @param leaseDurationMillis
+     *            duration of a lease in milliseconds
+     * @param executorService
+     *            ExecutorService to use for renewing leases in parallel
+     * @param leaseRenewalBatchSize
+     *            number of leases to renew in one transaction, or 1 to renew leases one at a time
+     */
+    public DynamoDBLeaseRenewer(
+            final LeaseRefresher leaseRefresher,
+            final String workerIdentifier,
+            final long leaseDurationMillis,
+            final ExecutorService executorService,
+            final MetricsFactory metricsFactory,
+            final int leaseRenewalBatchSize) {
+        this(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                executorService,
+                metricsFactory,
+                leaseRenewalBatchSize,
+                LeaseManagementConfig.DEFAULT_MAX_LEASE_RENEWAL_THREADS);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param leaseRefresher
+     *            LeaseRefresher to use
+     * @param workerIdentifier
+     *            identifier of this worker
+     * @param leaseDurationMillis
+     *            duration of a lease in milliseconds
+     * @param executorService
+     *            ExecutorService to use for renewing leases in parallel
+     * @param leaseRenewalBatchSize
+     *            number of leases to renew in one transaction, or 1 to renew leases one at a time
+     * @param maxConcurrentRenewals
+     *            max asynchronous renewals in flight at a time, usually the number of threads of the executor service
+     */
+    public DynamoDBLeaseRenewer(
+            final LeaseRefresher leaseRefresher,
+            final String workerIdentifier,
+            final long leaseDurationMillis,
+            final ExecutorService executorService,
+            final MetricsFactory metricsFactory,
+            final int leaseRenewalBatchSize,
+            final int maxConcurrentRenewals) {
+        if (leaseRenewalBatchSize <= 0 || leaseRenewalBatchSize > DynamoDBLeaseRefresher.MAX_LEASES_PER_TRANSACTION) {
+            throw new IllegalArgumentException("leaseRenewalBatchSize should be between 1 and "
+                    + DynamoDBLeaseRefresher.MAX_LEASES_PER_TRANSACTION);
+        }
+        if (maxConcurrentRenewals <= 0) {
+            throw new IllegalArgumentException("maxConcurrentRenewals should be >= 1");
+        }
         this.leaseRefresher = leaseRefresher;
         this.workerIdentifier = workerIdentifier;
         this.leaseDurationNanos = TimeUnit.MILLISECONDS.toNanos(leaseDurationMillis);
         this.executorService = executorService;
         this.metricsFactory = metricsFactory;
+        this.leaseRenewalBatchSize = leaseRenewalBatchSize;
+        this.maxConcurrentRenewals = maxConcurrentRenewals;
     }
 
     /**
@@ -115,24 +214,52 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
              * to getCurrentlyHeldLeases. They'll still cross paths, but they won't interleave their executions.
              */
             int lostLeases = 0;
-            List<Future<Boolean>> renewLeaseTasks = new ArrayList<>();
-            for (Lease lease : ownedLeases.descendingMap().values()) {
-                renewLeaseTasks.add(executorService.submit(new RenewLeaseTask(lease)));
+            List<Future<Integer>> renewLeaseTasks = new ArrayList<>();
+            List<Integer> renewLeaseTaskSizes = new ArrayList<>();
+            if (leaseRenewalBatchSize > 1) {
+                for (List<Lease> batch :
+                        Iterables.partition(ownedLeases.descendingMap().values(), leaseRenewalBatchSize)) {
+                    renewLeaseTasks.add(executorService.submit(new RenewLeaseBatchTask(batch)));
+                    renewLeaseTaskSizes.add(batch.size());
+                }
+            } else if (leaseRefresher instanceof AsyncLeaseRefresher) {
+                final AsyncLeaseRefresher asyncLeaseRefresher = (AsyncLeaseRefresher) leaseRefresher;
+                // Leases are spread over maxConcurrentRenewals lanes, each renewing its leases one after another.
+                final CompletableFuture<?>[] lanes = new CompletableFuture[maxConcurrentRenewals];
+                int renewals = 0;
+                for (Lease lease : ownedLeases.descendingMap().values()) {
+                    final int lane = renewals++ % lanes.length;
+                    final CompletableFuture<?> previous =
+                            lanes[lane] == null ? CompletableFuture.completedFuture(null) : lanes[lane];
+                    final CompletableFuture<Integer> renewal = previous.handle((v, t) -> null)
+                            .thenCompose(v -> renewLeaseAsync(asyncLeaseRefresher, lease))
+                            .thenApply(renewed -> renewed ? 0 : 1);
+                    lanes[lane] = renewal;
+                    renewLeaseTasks.add(renewal);
+                    renewLeaseTaskSizes.add(1);
+                }
+                // Wait once for all the renewals, join() ignores interrupts like the renewals themselves do.
+                CompletableFuture.allOf(renewLeaseTasks.toArray(new CompletableFuture[0]))
+                        .handle((v, t) -> null)
+                        .join();
+            } else {
+                for (Lease lease : ownedLeases.descendingMap().values()) {
+                    renewLeaseTasks.add(executorService.submit(new RenewLeaseTask(lease)));
+                    renewLeaseTaskSizes.add(1);
+                }
             }
             int leasesInUnknownState = 0;
             Exception lastException = null;
-            for (Future<Boolean> renewLeaseTask : renewLeaseTasks) {
+            for (int i = 0; i < renewLeaseTasks.size(); i++) {
                 try {
-                    if (!renewLeaseTask.get()) {
-                        lostLeases++;
-                    }
+                    lostLeases += renewLeaseTasks.get(i).get();
                 } catch (InterruptedException e) {
                     log.info("Interrupted while waiting for a lease to renew.");
-                    leasesInUnknownState += 1;
+                    leasesInUnknownState += renewLeaseTaskSizes.get(i);
                     Thread.currentThread().interrupt();
                 } catch (ExecutionException e) {
                     log.error("Encountered an exception while renewing a lease.", e.getCause());
-                    leasesInUnknownState += 1;
+                    leasesInUnknownState += renewLeaseTaskSizes.get(i);
                     lastException = e;
                 }
             }
@@ -155,14 +282,142 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
         }
     }
 
+    /**
+     * Renews a lease, returning the number of leases lost.
+     */
     @RequiredArgsConstructor
-    private class RenewLeaseTask implements Callable<Boolean> {
+    private class RenewLeaseTask implements Callable<Integer> {
         private final Lease lease;
 
         @Override
-        public Boolean call() throws Exception {
-            return renewLease(lease);
+        public Integer call() throws Exception {
+            return renewLease(lease) ? 0 : 1;
+        }
+    }
+
+    /**
+     * Renews a batch of leases in one transaction, returning the number of leases lost.
+     */
+    @RequiredArgsConstructor
+    private class RenewLeaseBatchTask implements Callable<Integer> {
+        private final List<Lease> leases;
+
+        @Override
+        public Integer call() throws Exception {
+            return renewLeaseBatch(leases);
+        }
+    }
+
+    /**
+     * Renews the given leases in one transaction. If the transaction fails, e.g. because another worker took one of
+     * the leases or one of them expired, the leases are renewed one at a time to find out which of them were lost.
+     * Throttled transactions are retried after backing off instead, since renewing the leases one at a time would
+     * only add load to a table that is already out of capacity. If the transaction is throttled on every try, the
+     * leases are counted as not renewed, like throttled single lease renewals, and are retried on the next renewal.
+     *
+     * @return number of leases lost
+     */
+    private int renewLeaseBatch(List<Lease> leases) throws DependencyException, InvalidStateException {
+        final MetricsScope scope = MetricsUtil.createMetricsWithOperation(metricsFactory, RENEW_ALL_LEASES_DIMENSION);
+
+        boolean success = false;
+        boolean renewedLeases = false;
+        long startTime = System.currentTimeMillis();
+        try {
+            for (int i = 1; i <= RENEWAL_RETRIES; i++) {
+                try {
+                    renewedLeases = renewLeaseBatchHoldingLocks(leases, 0);
+                    success = true;
+                    break;
+                } catch (ProvisionedThroughputException e) {
+                    log.info(
+                            "Worker {} could not renew {} leases on try {} out of {} due to capacity",
+                            workerIdentifier,
+                            leases.size(),
+                            i,
+                            RENEWAL_RETRIES);
+                    if (i < RENEWAL_RETRIES && !backOff(BATCH_RENEWAL_BACKOFF_MILLIS << (i - 1))) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            MetricsUtil.addWorkerIdentifier(scope, workerIdentifier);
+            MetricsUtil.addSuccessAndLatency(scope, "RenewLeaseBatch", success, startTime, MetricsLevel.DETAILED);
+            MetricsUtil.endScope(scope);
+        }
+
+        if (renewedLeases) {
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "Worker {} successfully renewed {} leases in one transaction", workerIdentifier, leases.size());
+            }
+            return 0;
+        }
+        if (!success) {
+            log.info(
+                    "Worker {} could not renew {} leases due to capacity, retrying them on the next renewal",
+                    workerIdentifier,
+                    leases.size());
+            return leases.size();
+        }
+
+        log.info(
+                "Worker {} could not renew {} leases in one transaction, renewing them one at a time",
+                workerIdentifier,
+                leases.size());
+        int lostLeases = 0;
+        for (Lease lease : leases) {
+            if (!renewLease(lease)) {
+                lostLeases++;
+            }
+        }
+        return lostLeases;
+    }
+
+    /**
+     * Sleeps for the given time, with up to as much jitter again so that the batches of a worker don't retry in
+     * lockstep.
+     *
+     * @return false if the thread was interrupted while backing off
+     */
+    private static boolean backOff(long backoffMillis) {
+        try {
+            Thread.sleep(backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Renews the given leases while holding the locks of all of them, like renewLease holds the lock of its lease.
+     * Leases are only locked one at a time elsewhere and batches don't overlap, so locking many leases can't deadlock.
+     */
+    private boolean renewLeaseBatchHoldingLocks(List<Lease> leases, int lockedLeases)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        if (lockedLeases < leases.size()) {
+            synchronized (leases.get(lockedLeases)) {
+                return renewLeaseBatchHoldingLocks(leases, lockedLeases + 1);
+            }
+        }
+
+        final long now = System.nanoTime();
+        for (Lease lease : leases) {
+            if (lease.isExpired(leaseDurationNanos, now)) {
+                // Don't renew expired leases, renewing the leases one at a time drops them.
+                return false;
+            }
+        }
+        if (!leaseRefresher.renewLeases(leases)) {
+            return false;
         }
+        final long renewedNanos = System.nanoTime();
+        for (Lease lease : leases) {
+            lease.lastCounterIncrementNanos(renewedNanos);
+        }
+        return true;
     }
 
     private boolean renewLease(Lease lease) throws DependencyException, InvalidStateException {
@@ -223,6 +478,115 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
         return renewedLease;
     }
 
+    /**
+     * Asynchronous counterpart of {@link #renewLease(Lease)}. The lock of the lease can't be held while the renewal is
+     * in flight, so a copy of the lease is renewed, and the new lease counter is copied to the lease under its lock
+     * once the renewal completes. Until then, the lease is in {@link #renewalsInFlight}, and updates of the lease wait
+     * for the renewal rather than racing it for the lease counter.
+     *
+     * @return future completed with true if the lease was renewed, false otherwise
+     */
+    private CompletableFuture<Boolean> renewLeaseAsync(AsyncLeaseRefresher asyncLeaseRefresher, Lease lease) {
+        final String leaseKey = lease.leaseKey();
+        final long startTime = System.currentTimeMillis();
+
+        final Lease renewedCopy;
+        synchronized (lease) {
+            // Don't renew expired lease during regular renewals, see renewLease(Lease, boolean).
+            if (lease.isExpired(leaseDurationNanos, System.nanoTime())) {
+                renewedCopy = null;
+            } else {
+                renewedCopy = lease.copy();
+                renewalsInFlight.add(lease);
+            }
+        }
+        final CompletableFuture<Boolean> renewal = renewedCopy == null
+                ? CompletableFuture.completedFuture(false)
+                : renewLeaseAsync(asyncLeaseRefresher, renewedCopy, 1);
+
+        return renewal.handle((renewed, t) -> {
+            final boolean renewedLease = t == null && Boolean.TRUE.equals(renewed);
+            synchronized (lease) {
+                if (renewedLease) {
+                    lease.leaseCounter(renewedCopy.leaseCounter());
+                    lease.lastCounterIncrementNanos(System.nanoTime());
+                }
+                renewalsInFlight.remove(lease);
+                lease.notifyAll();
+            }
+
+            // A renewal that was throttled on every try is neither renewed nor lost.
+            final boolean success = t == null && renewed != null;
+            if (renewedLease) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Worker {} successfully renewed lease with key {}", workerIdentifier, leaseKey);
+                }
+            } else if (success) {
+                log.info("Worker {} lost lease with key {}", workerIdentifier, leaseKey);
+                ownedLeases.remove(leaseKey);
+            }
+
+            final MetricsScope scope =
+                    MetricsUtil.createMetricsWithOperation(metricsFactory, RENEW_ALL_LEASES_DIMENSION);
+            MetricsUtil.addWorkerIdentifier(scope, workerIdentifier);
+            MetricsUtil.addSuccessAndLatency(scope, "RenewLease", success, startTime, MetricsLevel.DETAILED);
+            MetricsUtil.endScope(scope);
+
+            if (t != null) {
+                throw t instanceof CompletionException ? (CompletionException) t : new CompletionException(t);
+            }
+            return renewedLease;
+        });
+    }
+
+    /**
+     * Renews the given lease, retrying throttled renewals like {@link #renewLease(Lease, boolean)}.
+     *
+     * @return future completed with true if the lease was renewed, false if it wasn't, or null if the renewal was
+     *         throttled on every try
+     */
+    private CompletableFuture<Boolean> renewLeaseAsync(
+            AsyncLeaseRefresher asyncLeaseRefresher, Lease lease, int attempt) {
+        return asyncLeaseRefresher
+                .renewLeaseAsync(lease)
+                .handle((renewed, t) -> {
+                    if (t == null) {
+                        return CompletableFuture.completedFuture(renewed);
+                    }
+                    final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    if (!(cause instanceof ProvisionedThroughputException)) {
+                        final CompletableFuture<Boolean> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(cause);
+                        return failed;
+                    }
+                    log.info(
+                            "Worker {} could not renew lease with key {} on try {} out of {} due to capacity",
+                            workerIdentifier,
+                            lease.leaseKey(),
+                            attempt,
+                            RENEWAL_RETRIES);
+                    return attempt < RENEWAL_RETRIES
+                            ? renewLeaseAsync(asyncLeaseRefresher, lease, attempt + 1)
+                            : CompletableFuture.<Boolean>completedFuture(null);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Waits for the asynchronous renewal of the given lease to complete, if one is in flight. Must be called while
+     * holding the lock of the lease, which is released while waiting.
+     */
+    private void awaitRenewal(Lease lease) throws DependencyException {
+        try {
+            while (renewalsInFlight.contains(lease)) {
+                lease.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyException("Interrupted while waiting for the renewal of lease " + lease.leaseKey(), e);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -326,6 +690,7 @@ public class DynamoDBLeaseRenewer implements LeaseRenewer {
         try {
             log.info("Updating lease from {} to {}", authoritativeLease, lease);
             synchronized (authoritativeLease) {
+                awaitRenewal(authoritativeLease);
                 authoritativeLease.update(lease);
                 boolean updatedLease = leaseRefresher.updateLease(authoritativeLease);
                 if (updatedLease) {
@@ -24,14 +24,23 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Uninterruptibles;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseCache;
 import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.LeaseTaker;
 import software.amazon.kinesis.leases.exceptions.DependencyException;
@@ -72,6 +81,9 @@ public class DynamoDBLeaseTaker implements LeaseTaker {
     private boolean enablePriorityLeaseAssignment = true;
     private int veryOldLeaseDurationNanosMultiplier = 3;
     private long lastScanTimeNanos = 0L;
+    private ExecutorService leaseTakerExecutorService;
+    private int maxConcurrentLeaseTakes = 1;
+    private LeaseCache leaseCache;
 
     public DynamoDBLeaseTaker(
             LeaseRefresher leaseRefresher,
@@ -132,6 +144,47 @@ public class DynamoDBLeaseTaker implements LeaseTaker {
         return this;
     }
 
+    /**
+     * Takes the leases selected in a run in parallel on the given executor service, rather than one at a time. The
+     * number of leases being taken at once is bounded by the number of threads of the executor service, which is
+     * owned by the caller.
+     *
+     * @param leaseTakerExecutorService ExecutorService to take leases on, or null to take leases one at a time
+     * @return LeaseTaker
+     */
+    public DynamoDBLeaseTaker withLeaseTakerExecutorService(ExecutorService leaseTakerExecutorService) {
+        this.leaseTakerExecutorService = leaseTakerExecutorService;
+        return this;
+    }
+
+    /**
+     * Max leases to take at once. If the lease refresher is an {@link AsyncLeaseRefresher}, the takes are composed
+     * on its futures and no executor service is needed; otherwise this has no effect and the number of leases taken
+     * at once is bounded by the {@link #withLeaseTakerExecutorService(ExecutorService) lease taker executor service}.
+     *
+     * @param maxConcurrentLeaseTakes Max leases to take at once; leases are taken one at a time if this is 1
+     * @return LeaseTaker
+     */
+    public DynamoDBLeaseTaker withMaxConcurrentLeaseTakes(int maxConcurrentLeaseTakes) {
+        if (maxConcurrentLeaseTakes <= 0) {
+            throw new IllegalArgumentException("maxConcurrentLeaseTakes should be >= 1");
+        }
+        this.maxConcurrentLeaseTakes = maxConcurrentLeaseTakes;
+        return this;
+    }
+
+    /**
+     * Reads leases from the given cache rather than scanning the lease table on every run. Leases that are about to
+     * be stolen are still read from the lease table if the cache took long to sync, as with a scan.
+     *
+     * @param leaseCache LeaseCache to read leases from, or null to scan the lease table
+     * @return LeaseTaker
+     */
+    public DynamoDBLeaseTaker withLeaseCache(LeaseCache leaseCache) {
+        this.leaseCache = leaseCache;
+        return this;
+    }
+
     /**
      * Max leases to steal from a more loaded Worker at one time (for load balancing).
      * Setting this to a higher number can allow for faster load convergence (e.g. during deployments, cold starts),
@@ -219,36 +272,15 @@ public class DynamoDBLeaseTaker implements LeaseTaker {
 
             Set<String> untakenLeaseKeys = new HashSet<>();
 
-            for (Lease lease : leasesToTake) {
-                String leaseKey = lease.leaseKey();
-
-                startTime = System.currentTimeMillis();
-                success = false;
-                try {
-                    for (int i = 1; i <= TAKE_RETRIES; i++) {
-                        try {
-                            if (leaseRefresher.takeLease(lease, workerIdentifier)) {
-                                lease.lastCounterIncrementNanos(System.nanoTime());
-                                takenLeases.put(leaseKey, lease);
-                            } else {
-                                untakenLeaseKeys.add(leaseKey);
-                            }
-
-                            success = true;
-                            break;
-                        } catch (ProvisionedThroughputException e) {
-                            log.info(
-                                    "Could not take lease with key {} for worker {} on try {} out of {} due to"
-                                            + " capacity",
-                                    leaseKey,
-                                    workerIdentifier,
-                                    i,
-                                    TAKE_RETRIES);
-                        }
-                    }
-                } finally {
-                    MetricsUtil.addSuccessAndLatency(scope, "TakeLease", success, startTime, MetricsLevel.DETAILED);
+            if (maxConcurrentLeaseTakes > 1 && leaseRefresher instanceof AsyncLeaseRefresher) {
+                takeLeasesAsync(leasesToTake, takenLeases, untakenLeaseKeys);
+            } else if (leaseTakerExecutorService == null) {
+                for (Lease lease : leasesToTake) {
+                    final Boolean taken = takeLease(lease, scope);
+                    addTakeResult(lease, taken, takenLeases, untakenLeaseKeys);
                 }
+            } else {
+                takeLeasesInParallel(leasesToTake, takenLeases, untakenLeaseKeys);
             }
 
             if (takenLeases.size() > 0) {
@@ -276,6 +308,203 @@ public class DynamoDBLeaseTaker implements LeaseTaker {
         return takenLeases;
     }
 
+    /**
+     * Takes a lease, retrying up to TAKE_RETRIES times if DynamoDB throttles the request.
+     *
+     * @param lease lease to take
+     * @param scope scope to add the TakeLease latency to
+     * @return true if the lease was taken, false if another worker updated it first, or null if all tries were
+     *         throttled
+     */
+    private Boolean takeLease(Lease lease, MetricsScope scope) throws DependencyException, InvalidStateException {
+        final long startTime = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            for (int i = 1; i <= TAKE_RETRIES; i++) {
+                try {
+                    final boolean taken = leaseRefresher.takeLease(lease, workerIdentifier);
+                    if (taken) {
+                        lease.lastCounterIncrementNanos(System.nanoTime());
+                    }
+                    success = true;
+                    return taken;
+                } catch (ProvisionedThroughputException e) {
+                    log.info(
+                            "Could not take lease with key {} for worker {} on try {} out of {} due to capacity",
+                            lease.leaseKey(),
+                            workerIdentifier,
+                            i,
+                            TAKE_RETRIES);
+                }
+            }
+            return null;
+        } finally {
+            MetricsUtil.addSuccessAndLatency(scope, "TakeLease", success, startTime, MetricsLevel.DETAILED);
+        }
+    }
+
+    /**
+     * Takes the given leases on the lease taker executor service, so that as many conditional updates as it has
+     * threads are in flight at once. Like lease renewals, every take uses its own metrics scope since scopes aren't
+     * shared across threads.
+     */
+    private void takeLeasesInParallel(
+            Set<Lease> leasesToTake, Map<String, Lease> takenLeases, Set<String> untakenLeaseKeys)
+            throws DependencyException, InvalidStateException {
+        final List<Lease> leases = new ArrayList<>(leasesToTake);
+        final List<Future<Boolean>> takeLeaseTasks = new ArrayList<>(leases.size());
+        for (Lease lease : leases) {
+            takeLeaseTasks.add(leaseTakerExecutorService.submit(() -> {
+                final MetricsScope scope =
+                        MetricsUtil.createMetricsWithOperation(metricsFactory, TAKE_LEASES_DIMENSION);
+                try {
+                    MetricsUtil.addWorkerIdentifier(scope, workerIdentifier);
+                    return takeLease(lease, scope);
+                } finally {
+                    MetricsUtil.endScope(scope);
+                }
+            }));
+        }
+
+        addTakeResults(leases, takeLeaseTasks, takenLeases, untakenLeaseKeys);
+    }
+
+    /**
+     * Waits for the takes of all the given leases, and adds their results. Takes that are in flight may still succeed
+     * once the thread is interrupted, so they are waited for all the same, and the interrupt is restored afterwards,
+     * rather than losing leases that are owned by this worker but would never be renewed. Once all takes complete, the
+     * first DependencyException or InvalidStateException a take failed with is thrown, as when taking leases one at a
+     * time.
+     */
+    private void addTakeResults(
+            List<Lease> leases,
+            List<? extends Future<Boolean>> takeLeaseTasks,
+            Map<String, Lease> takenLeases,
+            Set<String> untakenLeaseKeys)
+            throws DependencyException, InvalidStateException {
+        Throwable failure = null;
+        for (int i = 0; i < leases.size(); i++) {
+            final Lease lease = leases.get(i);
+            try {
+                final Boolean taken = Uninterruptibles.getUninterruptibly(takeLeaseTasks.get(i));
+                addTakeResult(lease, taken, takenLeases, untakenLeaseKeys);
+                if (Boolean.TRUE.equals(taken)) {
+                    // The results are lost if another take failed, so the next run must still see this one as owned.
+                    allLeases.put(lease.leaseKey(), lease);
+                }
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause() instanceof CompletionException
+                                && e.getCause().getCause() != null
+                        ? e.getCause().getCause()
+                        : e.getCause();
+                log.error("Encountered an exception while taking lease with key {}.", lease.leaseKey(), cause);
+                untakenLeaseKeys.add(lease.leaseKey());
+                if (failure == null) {
+                    failure = cause;
+                }
+            }
+        }
+
+        if (failure instanceof DependencyException) {
+            throw (DependencyException) failure;
+        }
+        if (failure instanceof InvalidStateException) {
+            throw (InvalidStateException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Takes the given leases through the {@link AsyncLeaseRefresher}, in as many lanes as leases may be taken at
+     * once. Every lane starts the take of its next lease when the previous one completes, so no thread is parked
+     * while the conditional updates are in flight, and the calling thread waits once for all of them to complete.
+     */
+    private void takeLeasesAsync(Set<Lease> leasesToTake, Map<String, Lease> takenLeases, Set<String> untakenLeaseKeys)
+            throws DependencyException, InvalidStateException {
+        final AsyncLeaseRefresher asyncLeaseRefresher = (AsyncLeaseRefresher) leaseRefresher;
+        final List<Lease> leases = new ArrayList<>(leasesToTake);
+        final List<CompletableFuture<Boolean>> takeLeaseTasks = new ArrayList<>(leases.size());
+        final List<CompletableFuture<Void>> lanes =
+                new ArrayList<>(Collections.nCopies(maxConcurrentLeaseTakes, CompletableFuture.completedFuture(null)));
+        for (int i = 0; i < leases.size(); i++) {
+            final Lease lease = leases.get(i);
+            final int lane = i % maxConcurrentLeaseTakes;
+            final CompletableFuture<Boolean> take =
+                    lanes.get(lane).thenCompose(v -> takeLeaseAsync(asyncLeaseRefresher, lease));
+            takeLeaseTasks.add(take);
+            // The next lease of the lane is taken once this one completes, whether it was taken or not.
+            lanes.set(lane, take.handle((taken, t) -> null));
+        }
+
+        // join() ignores interrupts, so leases taken after an interrupt are still added to the taken leases.
+        CompletableFuture.allOf(takeLeaseTasks.toArray(new CompletableFuture[0]))
+                .handle((v, t) -> null)
+                .join();
+        addTakeResults(leases, takeLeaseTasks, takenLeases, untakenLeaseKeys);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #takeLease(Lease, MetricsScope)}. The TakeLease latency is added to a
+     * metrics scope of its own once the take completes.
+     */
+    private CompletableFuture<Boolean> takeLeaseAsync(AsyncLeaseRefresher asyncLeaseRefresher, Lease lease) {
+        final long startTime = System.currentTimeMillis();
+        return takeLeaseAsync(asyncLeaseRefresher, lease, 1).whenComplete((taken, t) -> {
+            final MetricsScope scope = MetricsUtil.createMetricsWithOperation(metricsFactory, TAKE_LEASES_DIMENSION);
+            try {
+                MetricsUtil.addWorkerIdentifier(scope, workerIdentifier);
+                MetricsUtil.addSuccessAndLatency(
+                        scope, "TakeLease", t == null && taken != null, startTime, MetricsLevel.DETAILED);
+            } finally {
+                MetricsUtil.endScope(scope);
+            }
+        });
+    }
+
+    private CompletableFuture<Boolean> takeLeaseAsync(
+            AsyncLeaseRefresher asyncLeaseRefresher, Lease lease, int attempt) {
+        return asyncLeaseRefresher
+                .takeLeaseAsync(lease, workerIdentifier)
+                .handle((taken, t) -> {
+                    if (t == null) {
+                        if (taken) {
+                            lease.lastCounterIncrementNanos(System.nanoTime());
+                        }
+                        return CompletableFuture.completedFuture(taken);
+                    }
+                    final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                    if (!(cause instanceof ProvisionedThroughputException)) {
+                        final CompletableFuture<Boolean> failed = new CompletableFuture<>();
+                        failed.completeExceptionally(cause);
+                        return failed;
+                    }
+                    log.info(
+                            "Could not take lease with key {} for worker {} on try {} out of {} due to capacity",
+                            lease.leaseKey(),
+                            workerIdentifier,
+                            attempt,
+                            TAKE_RETRIES);
+                    return attempt < TAKE_RETRIES
+                            ? takeLeaseAsync(asyncLeaseRefresher, lease, attempt + 1)
+                            : CompletableFuture.<Boolean>completedFuture(null);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private static void addTakeResult(
+            Lease lease, Boolean taken, Map<String, Lease> takenLeases, Set<String> untakenLeaseKeys) {
+        if (Boolean.TRUE.equals(taken)) {
+            takenLeases.put(lease.leaseKey(), lease);
+        } else if (Boolean.FALSE.equals(taken)) {
+            untakenLeaseKeys.add(lease.leaseKey());
+        }
+    }
+
     /**
      * If update all leases takes longer than the lease renewal time,
      * we fetch the latest lease info for the given leases that are marked for lease steal.
@@ -341,7 +570,7 @@ public class DynamoDBLeaseTaker implements LeaseTaker {
      */
     private void updateAllLeases(Callable<Long> timeProvider)
             throws DependencyException, InvalidStateException, ProvisionedThroughputException {
-        List<Lease> freshList = leaseRefresher.listLeases();
+        List<Lease> freshList = leaseCache == null ? leaseRefresher.listLeases() : leaseCache.listLeases();
         try {
             lastScanTimeNanos = timeProvider.call();
         } catch (Exception e) {
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases.dynamodb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.LimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.model.StreamSpecification;
+import software.amazon.awssdk.services.dynamodb.model.StreamViewType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsAsyncClient;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.common.FutureUtils;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseCache;
+import software.amazon.kinesis.leases.LeaseChange;
+import software.amazon.kinesis.leases.LeaseChangeSource;
+import software.amazon.kinesis.leases.LeaseManagementConfig;
+import software.amazon.kinesis.leases.LeaseSerializer;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+
+/**
+ * A {@link LeaseChangeSource} that follows the DynamoDB stream of the lease table. The stream has to be enabled with
+ * a view type that includes new images, e.g. by a {@link TableCreatorCallback}.
+ *
+ * <p>
+ * The shards of the stream that are open when the change source is started are read from their latest records. Shards
+ * created afterwards are read from their oldest records, once their parent shard has been read to its end, so that the
+ * changes to every lease are returned in order.
+ * </p>
+ *
+ * <p>
+ * Every worker reads every shard of the stream, while DynamoDB Streams throttles reads of a shard by more than
+ * {@link #MAX_READERS_PER_SHARD} readers at a time, so a fleet can only follow the stream with as many workers. The
+ * {@link LeaseCache} enforces that limit, see {@link LeaseManagementConfig#leaseChangeSourceMaxWorkers()}. Throttled
+ * reads are retried by later polls, with exponential backoff, from where they stopped, and the change source reports
+ * itself as lagging until they succeed.
+ * </p>
+ */
+@Slf4j
+@KinesisClientInternalApi
+public class DynamoDBStreamsLeaseChangeSource implements LeaseChangeSource {
+    /**
+     * Max number of processes that DynamoDB Streams lets read the same shard at the same time.
+     */
+    public static final int MAX_READERS_PER_SHARD = 2;
+
+    private static final long INITIAL_THROTTLE_BACKOFF_MILLIS = 500L;
+    private static final long MAX_THROTTLE_BACKOFF_MILLIS = 30000L;
+
+    private final DynamoDbStreamsAsyncClient dynamoDBStreamsClient;
+    private final DynamoDbAsyncClient dynamoDBClient;
+    private final String table;
+    private final LeaseSerializer serializer;
+    private final Duration dynamoDbRequestTimeout;
+    private final String leaseKeyAttributeName;
+
+    private String streamArn;
+    /** Iterators of the shards being read, by shard id, in the order the shards were discovered. */
+    private final Map<String, String> shardIterators = new LinkedHashMap<>();
+    /** Shards that have been read to their end, or that were closed when the change source was started. */
+    private final Set<String> finishedShards = new HashSet<>();
+
+    private boolean shardsChanged = false;
+    private long throttleBackoffMillis = 0L;
+    private long nextPollNanos;
+
+    public DynamoDBStreamsLeaseChangeSource(
+            final DynamoDbStreamsAsyncClient dynamoDBStreamsClient,
+            final DynamoDbAsyncClient dynamoDBClient,
+            final String table,
+            final LeaseSerializer serializer) {
+        this(dynamoDBStreamsClient, dynamoDBClient, table, serializer, LeaseManagementConfig.DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * @param dynamoDBStreamsClient client to read the stream of the lease table with
+     * @param dynamoDBClient client to look up the stream of the lease table with
+     * @param table lease table name
+     * @param serializer lease serializer to use
+     * @param dynamoDbRequestTimeout timeout for DynamoDB and DynamoDB Streams requests
+     */
+    public DynamoDBStreamsLeaseChangeSource(
+            @NonNull final DynamoDbStreamsAsyncClient dynamoDBStreamsClient,
+            @NonNull final DynamoDbAsyncClient dynamoDBClient,
+            @NonNull final String table,
+            @NonNull final LeaseSerializer serializer,
+            @NonNull final Duration dynamoDbRequestTimeout) {
+        this.dynamoDBStreamsClient = dynamoDBStreamsClient;
+        this.dynamoDBClient = dynamoDBClient;
+        this.table = table;
+        this.serializer = serializer;
+        this.dynamoDbRequestTimeout = dynamoDbRequestTimeout;
+        this.leaseKeyAttributeName = serializer.getKeySchema().iterator().next().attributeName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() throws DependencyException, InvalidStateException {
+        shardIterators.clear();
+        finishedShards.clear();
+        throttleBackoffMillis = 0L;
+
+        final TableDescription tableDescription = resolve(dynamoDBClient.describeTable(
+                        DescribeTableRequest.builder().tableName(table).build()))
+                .table();
+        final StreamSpecification streamSpecification = tableDescription.streamSpecification();
+        if (tableDescription.latestStreamArn() == null
+                || streamSpecification == null
+                || !Boolean.TRUE.equals(streamSpecification.streamEnabled())
+                || !(StreamViewType.NEW_IMAGE.equals(streamSpecification.streamViewType())
+                        || StreamViewType.NEW_AND_OLD_IMAGES.equals(streamSpecification.streamViewType()))) {
+            throw new InvalidStateException(
+                    "Lease table " + table + " has no stream with new images to follow changes of leases with.");
+        }
+        streamArn = tableDescription.latestStreamArn();
+
+        for (Shard shard : describeShards()) {
+            if (shard.sequenceNumberRange().endingSequenceNumber() != null) {
+                finishedShards.add(shard.shardId());
+            } else {
+                shardIterators.put(shard.shardId(), getShardIterator(shard.shardId(), ShardIteratorType.LATEST));
+            }
+        }
+        shardsChanged = false;
+        log.info("Following {} shards of stream {} of lease table {}", shardIterators.size(), streamArn, table);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LeaseChange> poll() throws DependencyException {
+        if (streamArn == null) {
+            throw new IllegalStateException("The change source has not been started.");
+        }
+        if (throttleBackoffMillis > 0 && System.nanoTime() - nextPollNanos < 0) {
+            return new ArrayList<>();
+        }
+        if (shardsChanged) {
+            // Child shards are only created when their parents close, so the stream only has to be described again
+            // after a shard has been read to its end.
+            startChildShards();
+        }
+
+        final List<LeaseChange> changes = new ArrayList<>();
+        final Iterator<Map.Entry<String, String>> iterator =
+                shardIterators.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, String> entry = iterator.next();
+            String shardIterator = entry.getValue();
+            while (shardIterator != null) {
+                final GetRecordsResponse response;
+                try {
+                    response = resolve(dynamoDBStreamsClient.getRecords(GetRecordsRequest.builder()
+                            .shardIterator(shardIterator)
+                            .build()));
+                } catch (DependencyException e) {
+                    if (!(e.getCause() instanceof LimitExceededException)) {
+                        throw e;
+                    }
+                    // Nothing was missed, so the shards are read on from here once the backoff has passed, rather
+                    // than failing the poll and having the lease table scanned again.
+                    entry.setValue(shardIterator);
+                    backOff();
+                    return changes;
+                }
+                for (Record record : response.records()) {
+                    changes.add(toLeaseChange(record));
+                }
+                shardIterator = response.nextShardIterator();
+                if (!response.hasRecords() || response.records().isEmpty()) {
+                    // The shard has been read up to its latest record.
+                    break;
+                }
+            }
+            if (shardIterator == null) {
+                log.debug("Read shard {} of stream {} to its end", entry.getKey(), streamArn);
+                iterator.remove();
+                finishedShards.add(entry.getKey());
+                shardsChanged = true;
+            } else {
+                entry.setValue(shardIterator);
+            }
+        }
+        throttleBackoffMillis = 0L;
+        return changes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLagging() {
+        return throttleBackoffMillis > 0;
+    }
+
+    private void backOff() {
+        throttleBackoffMillis = throttleBackoffMillis == 0L
+                ? INITIAL_THROTTLE_BACKOFF_MILLIS
+                : Math.min(throttleBackoffMillis * 2, MAX_THROTTLE_BACKOFF_MILLIS);
+        final long delayMillis =
+                throttleBackoffMillis + ThreadLocalRandom.current().nextLong(throttleBackoffMillis + 1);
+        nextPollNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        log.warn("Reads of stream {} of lease table {} were throttled, waiting {} ms", streamArn, table, delayMillis);
+    }
+
+    private void startChildShards() throws DependencyException {
+        for (Shard shard : describeShards()) {
+            final String shardId = shard.shardId();
+            final String parentShardId = shard.parentShardId();
+            if (shardIterators.containsKey(shardId)
+                    || finishedShards.contains(shardId)
+                    || (parentShardId != null && shardIterators.containsKey(parentShardId))) {
+                continue;
+            }
+            // The parent shard has been read to its end, or was trimmed before the change source was started.
+            shardIterators.put(shardId, getShardIterator(shardId, ShardIteratorType.TRIM_HORIZON));
+        }
+        shardsChanged = false;
+    }
+
+    private List<Shard> describeShards() throws DependencyException {
+        final List<Shard> shards = new ArrayList<>();
+        String exclusiveStartShardId = null;
+        do {
+            final StreamDescription streamDescription = resolve(
+                            dynamoDBStreamsClient.describeStream(DescribeStreamRequest.builder()
+                                    .streamArn(streamArn)
+                                    .exclusiveStartShardId(exclusiveStartShardId)
+                                    .build()))
+                    .streamDescription();
+            shards.addAll(streamDescription.shards());
+            exclusiveStartShardId = streamDescription.lastEvaluatedShardId();
+        } while (exclusiveStartShardId != null);
+        return shards;
+    }
+
+    private String getShardIterator(final String shardId, final ShardIteratorType shardIteratorType)
+            throws DependencyException {
+        return resolve(dynamoDBStreamsClient.getShardIterator(GetShardIteratorRequest.builder()
+                        .streamArn(streamArn)
+                        .shardId(shardId)
+                        .shardIteratorType(shardIteratorType)
+                        .build()))
+                .shardIterator();
+    }
+
+    private LeaseChange toLeaseChange(final Record record) {
+        if (OperationType.REMOVE.equals(record.eventName())) {
+            final AttributeValue leaseKey = record.dynamodb().keys().get(leaseKeyAttributeName);
+            return LeaseChange.leaseDeleted(leaseKey.s());
+        }
+        final Lease lease = serializer.fromDynamoRecord(record.dynamodb().newImage());
+        return LeaseChange.leaseUpdated(lease);
+    }
+
+    private <T> T resolve(final CompletableFuture<T> future) throws DependencyException {
+        try {
+            return FutureUtils.resolveOrCancelFuture(future, dynamoDbRequestTimeout);
+        } catch (ExecutionException e) {
+            throw new DependencyException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DependencyException(e);
+        } catch (TimeoutException e) {
+            throw new DependencyException(e);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.leases.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.common.HashKeyRangeForLease;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.MultiStreamLease;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * An {@link InMemoryLeaseRefresher} that persists the lease table to a local file, so a worker restarting on the same
+ * host resumes from its checkpoints.
+ *
+ * <p>The file is an append-only log of writes. Each record is framed by its length and a CRC32 of its contents, and
+ * holds all leases written by one operation, so renewals of several leases are persisted atomically. When the file is
+ * opened the log is replayed up to the first torn or corrupt record, and the file is truncated there. Once the log
+ * holds more than {@link #COMPACTION_RATIO} records per lease, it is compacted by writing the current leases to a new
+ * file that atomically replaces it.</p>
+ *
+ * <p>A write that fails is truncated off the end of the log, so that the records written after it are replayed. If
+ * the log can't be truncated or reopened after a failure, the refresher fails every later write, rather than append
+ * records that would not be replayed; the worker has to be restarted to reload the lease table from the file.</p>
+ */
+@Slf4j
+@KinesisClientInternalApi
+public class FileLeaseRefresher extends InMemoryLeaseRefresher implements AutoCloseable {
+    /**
+     * Number of log records per lease at which the log is compacted.
+     */
+    static final int COMPACTION_RATIO = 4;
+    /**
+     * Number of log records under which the log is never compacted.
+     */
+    static final int MIN_COMPACTION_RECORDS = 10000;
+
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private static final byte DELETED = 0;
+    private static final byte LEASE = 1;
+    private static final byte MULTI_STREAM_LEASE = 2;
+
+    private final Path file;
+    private final boolean syncWrites;
+
+    private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("FileLeaseRefresher-compaction-%d")
+            .setDaemon(true)
+            .build());
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private FileChannel channel;
+    private long logRecords;
+    /**
+     * Failure that left the log unwritable, after which all writes fail.
+     */
+    private IOException logFailure;
+
+    /**
+     * @param file the file of the lease table, whose lease table is loaded if it exists
+     * @param syncWrites whether writes are flushed to the storage device before they complete, which is needed for
+     *                   checkpoints to survive a crash of the host rather than of the process
+     */
+    public FileLeaseRefresher(@NonNull final Path file, final boolean syncWrites) throws IOException {
+        this.file = file;
+        this.syncWrites = syncWrites;
+        if (Files.exists(file)) {
+            restore(load());
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    @Override
+    protected void leaseTableCreated() throws DependencyException {
+        try {
+            channel = FileChannel.open(
+                    file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (syncWrites) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new DependencyException("Failed to create lease table file " + file, e);
+        }
+    }
+
+    @Override
+    protected void leasesWritten(final Map<String, Lease> writes) throws DependencyException {
+        final ByteBuffer record = toRecord(writes);
+        final boolean compactionDue;
+        synchronized (this) {
+            if (logFailure != null) {
+                throw new DependencyException(
+                        "Lease table file " + file + " can't be written to since an earlier failure", logFailure);
+            }
+            long size = -1;
+            try {
+                size = channel.size();
+                write(channel, record);
+            } catch (IOException e) {
+                truncate(size, e);
+                throw new DependencyException("Failed to write leases " + writes.keySet() + " to " + file, e);
+            }
+            logRecords++;
+            compactionDue = logRecords >= Math.max(MIN_COMPACTION_RECORDS, (long) COMPACTION_RATIO * leaseCount());
+        }
+        if (compactionDue) {
+            compactAsync();
+        }
+    }
+
+    /**
+     * Rewrites the log with a record for each current lease.
+     */
+    public void compact() throws DependencyException {
+        final Lock lock = exclusiveLock();
+        lock.lock();
+        try {
+            synchronized (this) {
+                compactLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactionExecutor.shutdown();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends a record to the log, and flushes it to the storage device if writes are synced.
+     */
+    @VisibleForTesting
+    void write(final FileChannel channel, final ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        if (syncWrites) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Replaces the log with its compacted copy.
+     */
+    @VisibleForTesting
+    void replaceLog(final Path compactedFile) throws IOException {
+        Files.move(compactedFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Truncates the log back to its size before a failed write, so that the torn record doesn't hide the records
+     * written after it when the log is replayed.
+     */
+    private void truncate(final long size, final IOException writeFailure) {
+        if (size >= 0) {
+            try {
+                channel.truncate(size);
+                if (syncWrites) {
+                    channel.force(false);
+                }
+                return;
+            } catch (IOException e) {
+                writeFailure.addSuppressed(e);
+            }
+        }
+        failLog(writeFailure);
+    }
+
+    private void failLog(final IOException failure) {
+        log.error("Lease table file {} can't be written to, no further writes will succeed", file, failure);
+        logFailure = failure;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void reopenLog() throws DependencyException {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            failLog(e);
+            throw new DependencyException("Failed to reopen lease table file " + file, e);
+        }
+    }
+
+    private void compactLocked() throws DependencyException {
+        if (logFailure != null || channel == null || !channel.isOpen()) {
+            return;
+        }
+        final Path compactedFile = file.resolveSibling(file.getFileName() + ".compacting");
+        long records = 0;
+        try (FileChannel compacted = FileChannel.open(
+                compactedFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Lease lease : storedLeases()) {
+                final ByteBuffer record = toRecord(Collections.singletonMap(lease.leaseKey(), lease));
+                while (record.hasRemaining()) {
+                    compacted.write(record);
+                }
+                records++;
+            }
+            compacted.force(true);
+        } catch (IOException e) {
+            throw new DependencyException("Failed to compact lease table file " + file, e);
+        }
+        try {
+            // The log is closed before it's replaced, as open files can't be replaced on every platform.
+            channel.close();
+            replaceLog(compactedFile);
+        } catch (IOException e) {
+            // The log is either unchanged or replaced by its complete copy, so writes can go on appending to it.
+            reopenLog();
+            throw new DependencyException("Failed to replace lease table file " + file, e);
+        }
+        reopenLog();
+        log.debug("Compacted lease table file {} from {} to {} records", file, logRecords, records);
+        logRecords = records;
+    }
+
+    /**
+     * Compacts the log once the write that made it due has released its locks, as compaction excludes all writes.
+     */
+    private void compactAsync() {
+        if (!compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        compactionExecutor.execute(() -> {
+            compactionScheduled.set(false);
+            try {
+                compact();
+            } catch (DependencyException e) {
+                log.warn("Failed to compact lease table file {}", file, e);
+            }
+        });
+    }
+
+    private long leaseCount() {
+        return storedLeases().size();
+    }
+
+    private List<Lease> load() throws IOException {
+        final Map<String, Lease> leases = new LinkedHashMap<>();
+        final byte[] bytes = Files.readAllBytes(file);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long records = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() || checksum != checksum(bytes, buffer.position(), length)) {
+                buffer.position(start);
+                break;
+            }
+            readRecord(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length)), leases);
+            buffer.position(buffer.position() + length);
+            records++;
+        }
+        if (buffer.hasRemaining()) {
+            log.warn(
+                    "Truncating lease table file {} at {} of {} bytes, after its last complete record",
+                    file,
+                    buffer.position(),
+                    bytes.length);
+            try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncated.truncate(buffer.position());
+                truncated.force(true);
+            }
+        }
+        logRecords = records;
+        log.info("Loaded {} leases from {} records of lease table file {}", leases.size(), records, file);
+        return new ArrayList<>(leases.values());
+    }
+
+    private static int checksum(final byte[] bytes, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer toRecord(final Map<String, Lease> writes) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * writes.size());
+        try {
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(writes.size());
+            for (Map.Entry<String, Lease> write : writes.entrySet()) {
+                out.writeUTF(write.getKey());
+                writeLease(out, write.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize leases " + writes.keySet(), e);
+        }
+        final byte[] record = bytes.toByteArray();
+        final int length = record.length - HEADER_BYTES;
+        if (length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Leases " + writes.keySet() + " are too large to write");
+        }
+        return ByteBuffer.wrap(record).putInt(0, length).putInt(Integer.BYTES, checksum(record, HEADER_BYTES, length));
+    }
+
+    private static void readRecord(final DataInputStream in, final Map<String, Lease> leases) throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final String leaseKey = in.readUTF();
+            final Lease lease = readLease(in, leaseKey);
+            if (lease == null) {
+                leases.remove(leaseKey);
+            } else {
+                leases.put(leaseKey, lease);
+            }
+        }
+    }
+
+    private static void writeLease(final DataOutputStream out, final Lease lease) throws IOException {
+        if (lease == null) {
+            out.writeByte(DELETED);
+            return;
+        }
+        if (lease instanceof MultiStreamLease) {
+            final MultiStreamLease multiStreamLease = (MultiStreamLease) lease;
+            out.writeByte(MULTI_STREAM_LEASE);
+            out.writeUTF(multiStreamLease.streamIdentifier());
+            out.writeUTF(multiStreamLease.shardId());
+        } else {
+            out.writeByte(LEASE);
+        }
+        writeNullableString(out, lease.leaseOwner());
+        out.writeLong(lease.leaseCounter());
+        out.writeLong(lease.ownerSwitchesSinceCheckpoint());
+        writeSequenceNumber(out, lease.checkpoint());
+        writeSequenceNumber(out, lease.pendingCheckpoint());
+        final byte[] pendingCheckpointState = lease.pendingCheckpointState();
+        out.writeInt(pendingCheckpointState == null ? -1 : pendingCheckpointState.length);
+        if (pendingCheckpointState != null) {
+            out.write(pendingCheckpointState);
+        }
+        writeStrings(out, lease.parentShardIds());
+        writeStrings(out, lease.childShardIds());
+        final HashKeyRangeForLease hashKeyRange = lease.hashKeyRangeForLease();
+        out.writeBoolean(hashKeyRange != null);
+        if (hashKeyRange != null) {
+            out.writeUTF(hashKeyRange.serializedStartingHashKey());
+            out.writeUTF(hashKeyRange.serializedEndingHashKey());
+        }
+    }
+
+    private static Lease readLease(final DataInputStream in, final String leaseKey) throws IOException {
+        final Lease lease;
+        switch (in.readByte()) {
+            case DELETED:
+                return null;
+            case LEASE:
+                lease = new Lease();
+                break;
+            case MULTI_STREAM_LEASE:
+                lease = new MultiStreamLease().streamIdentifier(in.readUTF()).shardId(in.readUTF());
+                break;
+            default:
+                throw new IOException("Unknown lease type for lease " + leaseKey);
+        }
+        lease.leaseKey(leaseKey);
+        lease.leaseOwner(readNullableString(in));
+        lease.leaseCounter(in.readLong());
+        lease.ownerSwitchesSinceCheckpoint(in.readLong());
+        final ExtendedSequenceNumber checkpoint = readSequenceNumber(in);
+        if (checkpoint != null) {
+            lease.checkpoint(checkpoint);
+        }
+        lease.pendingCheckpoint(readSequenceNumber(in));
+        final int pendingCheckpointStateLength = in.readInt();
+        if (pendingCheckpointStateLength >= 0) {
+            final byte[] pendingCheckpointState = new byte[pendingCheckpointStateLength];
+            in.readFully(pendingCheckpointState);
+            lease.pendingCheckpointState(pendingCheckpointState);
+        }
+        lease.parentShardIds(readStrings(in));
+        lease.childShardIds(readStrings(in));
+        if (in.readBoolean()) {
+            lease.hashKeyRange(HashKeyRangeForLease.deserialize(in.readUTF(), in.readUTF()));
+        }
+        return lease;
+    }
+
+    private static void writeNullableString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeSequenceNumber(final DataOutputStream out, final ExtendedSequenceNumber sequenceNumber)
+            throws IOException {
+        out.writeBoolean(sequenceNumber != null);
+        if (sequenceNumber != null) {
+            out.writeUTF(sequenceNumber.sequenceNumber());
+            out.writeLong(sequenceNumber.subSequenceNumber());
+        }
+    }
+
+    private static ExtendedSequenceNumber readSequenceNumber(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? new ExtendedSequenceNumber(in.readUTF(), in.readLong()) : null;
+    }
+
+    private static void writeStrings(final DataOutputStream out, final Collection<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static Set<String> readStrings(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final Set<String> values = new HashSet<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+}
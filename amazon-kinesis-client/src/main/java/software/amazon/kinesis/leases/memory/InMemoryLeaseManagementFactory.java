@@ -0,0 +1,156 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.leases.memory;
+
+import java.util.concurrent.Executors;
+
+import lombok.NonNull;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.common.StreamConfig;
+import software.amazon.kinesis.coordinator.DeletedStreamListProvider;
+import software.amazon.kinesis.leases.HierarchicalShardSyncer;
+import software.amazon.kinesis.leases.KinesisShardDetector;
+import software.amazon.kinesis.leases.LeaseCleanupManager;
+import software.amazon.kinesis.leases.LeaseCoordinator;
+import software.amazon.kinesis.leases.LeaseManagementConfig;
+import software.amazon.kinesis.leases.LeaseManagementFactory;
+import software.amazon.kinesis.leases.LeaseRefresher;
+import software.amazon.kinesis.leases.ShardDetector;
+import software.amazon.kinesis.leases.ShardSyncTaskManager;
+import software.amazon.kinesis.leases.dynamodb.DynamoDBLeaseCoordinator;
+import software.amazon.kinesis.metrics.MetricsFactory;
+
+/**
+ * A LeaseManagementFactory whose lease coordinators, shard syncs and lease cleanup all share one in-process
+ * LeaseRefresher, such as {@link InMemoryLeaseRefresher} or {@link FileLeaseRefresher}. The remaining settings are
+ * taken from the LeaseManagementConfig, which the factory is then set on:
+ *
+ * <pre>
+ * leaseManagementConfig.leaseManagementFactory(
+ *         new InMemoryLeaseManagementFactory(new InMemoryLeaseRefresher(), leaseManagementConfig, false));
+ * </pre>
+ */
+@KinesisClientInternalApi
+public class InMemoryLeaseManagementFactory implements LeaseManagementFactory {
+    private final LeaseRefresher leaseRefresher;
+    private final LeaseManagementConfig config;
+    private final boolean isMultiStreamMode;
+
+    /**
+     * @param leaseRefresher the lease refresher shared by everything the factory creates
+     * @param config the lease management settings
+     * @param isMultiStreamMode whether the scheduler consumes several streams
+     */
+    public InMemoryLeaseManagementFactory(
+            @NonNull final LeaseRefresher leaseRefresher,
+            @NonNull final LeaseManagementConfig config,
+            final boolean isMultiStreamMode) {
+        this.leaseRefresher = leaseRefresher;
+        this.config = config;
+        this.isMultiStreamMode = isMultiStreamMode;
+    }
+
+    @Override
+    public LeaseCoordinator createLeaseCoordinator(@NonNull final MetricsFactory metricsFactory) {
+        return new DynamoDBLeaseCoordinator(
+                leaseRefresher,
+                config.workerIdentifier(),
+                config.failoverTimeMillis(),
+                config.enablePriorityLeaseAssignment(),
+                config.epsilonMillis(),
+                config.maxLeasesForWorker(),
+                config.maxLeasesToStealAtOneTime(),
+                config.maxLeaseRenewalThreads(),
+                config.maxConcurrentLeaseTakes(),
+                config.leaseRenewalBatchSize(),
+                null,
+                config.initialLeaseTableReadCapacity(),
+                config.initialLeaseTableWriteCapacity(),
+                metricsFactory);
+    }
+
+    /**
+     * Not supported, as shard syncs are created for a {@link StreamConfig}.
+     */
+    @Override
+    public ShardSyncTaskManager createShardSyncTaskManager(final MetricsFactory metricsFactory) {
+        throw new UnsupportedOperationException("Shard syncs must be created for a StreamConfig");
+    }
+
+    @Override
+    public ShardSyncTaskManager createShardSyncTaskManager(
+            final MetricsFactory metricsFactory, final StreamConfig streamConfig) {
+        return createShardSyncTaskManager(metricsFactory, streamConfig, null);
+    }
+
+    @Override
+    public ShardSyncTaskManager createShardSyncTaskManager(
+            final MetricsFactory metricsFactory,
+            final StreamConfig streamConfig,
+            final DeletedStreamListProvider deletedStreamListProvider) {
+        return new ShardSyncTaskManager(
+                createShardDetector(streamConfig),
+                leaseRefresher,
+                streamConfig.initialPositionInStreamExtended(),
+                config.cleanupLeasesUponShardCompletion(),
+                config.ignoreUnexpectedChildShards(),
+                config.shardSyncIntervalMillis(),
+                config.executorService(),
+                new HierarchicalShardSyncer(
+                        isMultiStreamMode, streamConfig.streamIdentifier().toString(), deletedStreamListProvider),
+                metricsFactory);
+    }
+
+    @Override
+    public LeaseRefresher createLeaseRefresher() {
+        return leaseRefresher;
+    }
+
+    /**
+     * Not supported, as shard detectors are created for a {@link StreamConfig}.
+     */
+    @Override
+    public ShardDetector createShardDetector() {
+        throw new UnsupportedOperationException("Shard detectors must be created for a StreamConfig");
+    }
+
+    @Override
+    public ShardDetector createShardDetector(final StreamConfig streamConfig) {
+        return config.customShardDetectorProvider() != null
+                ? config.customShardDetectorProvider().apply(streamConfig)
+                : new KinesisShardDetector(
+                        config.kinesisClient(),
+                        streamConfig.streamIdentifier(),
+                        config.listShardsBackoffTimeInMillis(),
+                        config.maxListShardsRetryAttempts(),
+                        config.listShardsCacheAllowedAgeInSeconds(),
+                        config.maxCacheMissesBeforeReload(),
+                        config.cacheMissWarningModulus(),
+                        config.dynamoDbRequestTimeout());
+    }
+
+    @Override
+    public LeaseCleanupManager createLeaseCleanupManager(final MetricsFactory metricsFactory) {
+        return new LeaseCleanupManager(
+                createLeaseCoordinator(metricsFactory),
+                metricsFactory,
+                Executors.newSingleThreadScheduledExecutor(),
+                config.cleanupLeasesUponShardCompletion(),
+                config.leaseCleanupConfig().leaseCleanupIntervalMillis(),
+                config.leaseCleanupConfig().completedLeaseCleanupIntervalMillis(),
+                config.leaseCleanupConfig().garbageLeaseCleanupIntervalMillis());
+    }
+}
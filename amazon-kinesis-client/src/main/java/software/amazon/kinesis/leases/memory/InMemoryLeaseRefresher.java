@@ -0,0 +1,660 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.leases.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.utils.CollectionUtils;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.common.StreamIdentifier;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseRefresher;
+import software.amazon.kinesis.leases.MultiStreamLease;
+import software.amazon.kinesis.leases.UpdateField;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+/**
+ * A LeaseRefresher that keeps the lease table in memory, for workers whose leases don't need to be shared with other
+ * processes. The conditional writes of {@link software.amazon.kinesis.leases.dynamodb.DynamoDBLeaseRefresher} are
+ * kept: renewals, takes and updates are conditional on the lease counter, and evictions on the lease owner. Leases
+ * are stored as the lease table would store them, so leases read back carry no concurrency token or counter increment
+ * time.
+ *
+ * <p>Writes to a single lease are serialized by a lock striped on the lease key, while renewals of several leases and
+ * {@link #deleteAll()} lock the whole table, which makes them atomic.</p>
+ */
+@Slf4j
+@KinesisClientInternalApi
+public class InMemoryLeaseRefresher implements LeaseRefresher, AsyncLeaseRefresher {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+    private final Object[] leaseLocks = new Object[LOCK_STRIPES];
+
+    private volatile boolean tableExists;
+
+    public InMemoryLeaseRefresher() {
+        for (int i = 0; i < leaseLocks.length; i++) {
+            leaseLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public boolean createLeaseTableIfNotExists(final Long readCapacity, final Long writeCapacity)
+            throws ProvisionedThroughputException, DependencyException {
+        return createLeaseTableIfNotExists();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean createLeaseTableIfNotExists() throws ProvisionedThroughputException, DependencyException {
+        final Lock lock = tableLock.writeLock();
+        lock.lock();
+        try {
+            if (tableExists) {
+                return false;
+            }
+            leaseTableCreated();
+            tableExists = true;
+            log.info("Created in-memory lease table");
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean leaseTableExists() throws DependencyException {
+        return tableExists;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The lease table is created synchronously, so this doesn't wait.</p>
+     */
+    @Override
+    public boolean waitUntilLeaseTableExists(final long secondsBetweenPolls, final long timeoutSeconds)
+            throws DependencyException {
+        return tableExists;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Lease> listLeasesForStream(@NonNull final StreamIdentifier streamIdentifier)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        verifyTableExists();
+        final String streamName = streamIdentifier.serialize();
+        final List<Lease> result = new ArrayList<>();
+        for (Lease lease : leases.values()) {
+            if (lease instanceof MultiStreamLease && streamName.equals(((MultiStreamLease) lease).streamIdentifier())) {
+                result.add(lease.copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Lease> listLeases() throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        verifyTableExists();
+        final List<Lease> result = new ArrayList<>(leases.size());
+        for (Lease lease : leases.values()) {
+            result.add(lease.copy());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean createLeaseIfNotExists(@NonNull final Lease lease)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                if (leases.containsKey(lease.leaseKey())) {
+                    log.debug("Did not create lease {} because it already existed", lease);
+                    return false;
+                }
+                write(lease.leaseKey(), toStoredLease(lease));
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Created lease: {}", lease);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Lease getLease(@NonNull final String leaseKey)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        verifyTableExists();
+        final Lease lease = leases.get(leaseKey);
+        return lease == null ? null : lease.copy();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean renewLease(@NonNull final Lease lease)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                final Lease storedLease = leases.get(lease.leaseKey());
+                if (!hasLeaseCounter(storedLease, lease)) {
+                    log.debug(
+                            "Lease renewal failed for lease with key {} because the lease counter was not {}",
+                            lease.leaseKey(),
+                            lease.leaseCounter());
+                    return false;
+                }
+                final Lease renewedLease = storedLease.copy();
+                renewedLease.leaseCounter(lease.leaseCounter() + 1);
+                write(lease.leaseKey(), renewedLease);
+            }
+        } finally {
+            lock.unlock();
+        }
+        lease.leaseCounter(lease.leaseCounter() + 1);
+        log.debug("Renewed lease with key {}", lease.leaseKey());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The leases are renewed atomically, and there is no limit on the number of leases renewed at a time.</p>
+     */
+    @Override
+    public boolean renewLeases(@NonNull final Collection<Lease> leases)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        if (leases.isEmpty()) {
+            return true;
+        }
+        final Lock lock = tableLock.writeLock();
+        lock.lock();
+        try {
+            verifyTableExists();
+            final Map<String, Lease> renewedLeases = new LinkedHashMap<>();
+            for (Lease lease : leases) {
+                final Lease storedLease = this.leases.get(lease.leaseKey());
+                if (!hasLeaseCounter(storedLease, lease)) {
+                    log.debug("Renewal of {} leases failed because a lease counter didn't match", leases.size());
+                    return false;
+                }
+                final Lease renewedLease = storedLease.copy();
+                renewedLease.leaseCounter(lease.leaseCounter() + 1);
+                renewedLeases.put(lease.leaseKey(), renewedLease);
+            }
+            write(renewedLeases);
+        } finally {
+            lock.unlock();
+        }
+        for (Lease lease : leases) {
+            lease.leaseCounter(lease.leaseCounter() + 1);
+        }
+        log.debug("Renewed {} leases", leases.size());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean takeLease(@NonNull final Lease lease, @NonNull final String owner)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final String oldOwner = lease.leaseOwner();
+        log.debug("Taking lease with leaseKey {} from {} to {}", lease.leaseKey(), oldOwner, owner);
+
+        final boolean ownerSwitched = oldOwner != null && !oldOwner.equals(owner);
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                final Lease storedLease = leases.get(lease.leaseKey());
+                if (!hasLeaseCounter(storedLease, lease)) {
+                    log.debug(
+                            "Lease take failed for lease with key {} because the lease counter was not {}",
+                            lease.leaseKey(),
+                            lease.leaseCounter());
+                    return false;
+                }
+                final Lease takenLease = storedLease.copy();
+                takenLease.leaseCounter(lease.leaseCounter() + 1);
+                takenLease.leaseOwner(owner);
+                if (ownerSwitched) {
+                    takenLease.ownerSwitchesSinceCheckpoint(lease.ownerSwitchesSinceCheckpoint() + 1);
+                }
+                write(lease.leaseKey(), takenLease);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        lease.leaseCounter(lease.leaseCounter() + 1);
+        lease.leaseOwner(owner);
+        if (ownerSwitched) {
+            lease.ownerSwitchesSinceCheckpoint(lease.ownerSwitchesSinceCheckpoint() + 1);
+        }
+        log.info("Transferred lease {} ownership from {} to {}", lease.leaseKey(), oldOwner, owner);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean evictLease(@NonNull final Lease lease)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        log.debug("Evicting lease with leaseKey {} owned by {}", lease.leaseKey(), lease.leaseOwner());
+
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                final Lease storedLease = leases.get(lease.leaseKey());
+                if (storedLease == null
+                        || storedLease.leaseOwner() == null
+                        || !storedLease.leaseOwner().equals(lease.leaseOwner())) {
+                    log.debug(
+                            "Lease eviction failed for lease with key {} because the lease owner was not {}",
+                            lease.leaseKey(),
+                            lease.leaseOwner());
+                    return false;
+                }
+                final Lease evictedLease = storedLease.copy();
+                evictedLease.leaseOwner(null);
+                evictedLease.leaseCounter(lease.leaseCounter() + 1);
+                write(lease.leaseKey(), evictedLease);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        lease.leaseOwner(null);
+        lease.leaseCounter(lease.leaseCounter() + 1);
+        log.info("Evicted lease with leaseKey {}", lease.leaseKey());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteLease(@NonNull final Lease lease)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                write(lease.leaseKey(), null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Deleted lease with leaseKey {}", lease.leaseKey());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteAll() throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        final Lock lock = tableLock.writeLock();
+        lock.lock();
+        try {
+            verifyTableExists();
+            log.warn("Deleting {} leases from the in-memory lease table", leases.size());
+            final Map<String, Lease> deletions = new HashMap<>();
+            for (String leaseKey : leases.keySet()) {
+                deletions.put(leaseKey, null);
+            }
+            write(deletions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean updateLease(@NonNull final Lease lease)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        log.debug("Updating lease: {}", lease);
+
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                final Lease storedLease = leases.get(lease.leaseKey());
+                if (!hasLeaseCounter(storedLease, lease)) {
+                    log.debug(
+                            "Lease update failed for lease with key {} because the lease counter was not {}",
+                            lease.leaseKey(),
+                            lease.leaseCounter());
+                    return false;
+                }
+                final Lease updatedLease = storedLease.copy();
+                updatedLease.leaseCounter(lease.leaseCounter() + 1);
+                updatedLease.checkpoint(lease.checkpoint());
+                updatedLease.ownerSwitchesSinceCheckpoint(lease.ownerSwitchesSinceCheckpoint());
+                updatedLease.pendingCheckpoint(
+                        lease.pendingCheckpoint() != null
+                                        && !lease.pendingCheckpoint()
+                                                .sequenceNumber()
+                                                .isEmpty()
+                                ? lease.pendingCheckpoint()
+                                : null);
+                updatedLease.pendingCheckpointState(copyOf(lease.pendingCheckpointState()));
+                if (!CollectionUtils.isNullOrEmpty(lease.childShardIds())) {
+                    updatedLease.childShardIds(lease.childShardIds());
+                }
+                if (lease.hashKeyRangeForLease() != null) {
+                    updatedLease.hashKeyRange(lease.hashKeyRangeForLease());
+                }
+                write(lease.leaseKey(), updatedLease);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        lease.leaseCounter(lease.leaseCounter() + 1);
+        log.info("Updated lease {}.", lease.leaseKey());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateLeaseWithMetaInfo(@NonNull final Lease lease, @NonNull final UpdateField updateField)
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        log.debug("Updating lease without expectation {}", lease);
+
+        final Lock lock = lockLease(lease.leaseKey());
+        try {
+            synchronized (leaseLock(lease.leaseKey())) {
+                final Lease storedLease = leases.get(lease.leaseKey());
+                if (storedLease == null) {
+                    log.warn(
+                            "Lease update failed for lease with key {} because the lease did not exist at the time of the update",
+                            lease.leaseKey());
+                    return;
+                }
+                final Lease updatedLease = storedLease.copy();
+                switch (updateField) {
+                    case CHILD_SHARDS:
+                        if (!CollectionUtils.isNullOrEmpty(lease.childShardIds())) {
+                            updatedLease.childShardIds(lease.childShardIds());
+                        }
+                        break;
+                    case HASH_KEY_RANGE:
+                        if (lease.hashKeyRangeForLease() != null) {
+                            updatedLease.hashKeyRange(lease.hashKeyRangeForLease());
+                        }
+                        break;
+                }
+                write(lease.leaseKey(), updatedLease);
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Updated lease without expectation {}.", lease);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLeaseTableEmpty()
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        verifyTableExists();
+        return leases.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ExtendedSequenceNumber getCheckpoint(final String leaseKey)
+            throws ProvisionedThroughputException, InvalidStateException, DependencyException {
+        final Lease lease = getLease(leaseKey);
+        return lease == null ? null : lease.checkpoint();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned future is already complete.</p>
+     */
+    @Override
+    public CompletableFuture<List<Lease>> listLeasesAsync() {
+        return completed(this::listLeases);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Lease> getLeaseAsync(final String leaseKey) {
+        return completed(() -> getLease(leaseKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> renewLeaseAsync(final Lease lease) {
+        return completed(() -> renewLease(lease));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> takeLeaseAsync(final Lease lease, final String owner) {
+        return completed(() -> takeLease(lease, owner));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> evictLeaseAsync(final Lease lease) {
+        return completed(() -> evictLease(lease));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> updateLeaseAsync(final Lease lease) {
+        return completed(() -> updateLease(lease));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<ExtendedSequenceNumber> getCheckpointAsync(final String leaseKey) {
+        return completed(() -> getCheckpoint(leaseKey));
+    }
+
+    /**
+     * Called once, with the whole table locked, when the lease table is created.
+     */
+    protected void leaseTableCreated() throws DependencyException {}
+
+    /**
+     * Called with the written leases locked before writes to the lease table become visible, so a failure to persist
+     * the writes fails them.
+     *
+     * @param writes the written leases by lease key, where a null lease is a deletion
+     */
+    protected void leasesWritten(final Map<String, Lease> writes) throws DependencyException {}
+
+    /**
+     * Replaces the contents of the lease table with the given stored leases, and marks the lease table as existing.
+     */
+    void restore(final Collection<Lease> storedLeases) {
+        leases.clear();
+        for (Lease lease : storedLeases) {
+            leases.put(lease.leaseKey(), lease);
+        }
+        tableExists = true;
+    }
+
+    /**
+     * @return the stored leases, which must not be modified
+     */
+    Collection<Lease> storedLeases() {
+        return Collections.unmodifiableCollection(leases.values());
+    }
+
+    /**
+     * @return the lock that excludes all writes to the lease table while held
+     */
+    Lock exclusiveLock() {
+        return tableLock.writeLock();
+    }
+
+    /**
+     * @return a copy of the given lease as the lease table stores it
+     */
+    static Lease toStoredLease(final Lease lease) {
+        final Lease storedLease;
+        if (lease instanceof MultiStreamLease) {
+            final MultiStreamLease multiStreamLease = (MultiStreamLease) lease;
+            storedLease = new MultiStreamLease()
+                    .streamIdentifier(multiStreamLease.streamIdentifier())
+                    .shardId(multiStreamLease.shardId());
+        } else {
+            storedLease = new Lease();
+        }
+        storedLease.leaseKey(lease.leaseKey());
+        storedLease.leaseOwner(lease.leaseOwner());
+        storedLease.leaseCounter(lease.leaseCounter());
+        if (lease.checkpoint() != null) {
+            storedLease.checkpoint(lease.checkpoint());
+        }
+        storedLease.pendingCheckpoint(lease.pendingCheckpoint());
+        storedLease.pendingCheckpointState(copyOf(lease.pendingCheckpointState()));
+        storedLease.ownerSwitchesSinceCheckpoint(lease.ownerSwitchesSinceCheckpoint());
+        storedLease.parentShardIds(lease.parentShardIds());
+        storedLease.childShardIds(lease.childShardIds());
+        storedLease.hashKeyRange(lease.hashKeyRangeForLease());
+        return storedLease;
+    }
+
+    private static byte[] copyOf(final byte[] bytes) {
+        return bytes == null ? null : bytes.clone();
+    }
+
+    private static boolean hasLeaseCounter(final Lease storedLease, final Lease lease) {
+        return storedLease != null && storedLease.leaseCounter().equals(lease.leaseCounter());
+    }
+
+    /**
+     * Locks the lease table for a write of a single lease, which is then serialized with other writes of the lease by
+     * synchronizing on {@link #leaseLock(String)}.
+     */
+    private Lock lockLease(final String leaseKey) throws InvalidStateException {
+        final Lock lock = tableLock.readLock();
+        lock.lock();
+        if (!tableExists) {
+            lock.unlock();
+            throw new InvalidStateException(
+                    "Cannot write lease " + leaseKey + " because the lease table doesn't exist");
+        }
+        return lock;
+    }
+
+    private Object leaseLock(final String leaseKey) {
+        return leaseLocks[(leaseKey.hashCode() & Integer.MAX_VALUE) % leaseLocks.length];
+    }
+
+    private void write(final String leaseKey, final Lease lease) throws DependencyException {
+        write(Collections.singletonMap(leaseKey, lease));
+    }
+
+    private void write(final Map<String, Lease> writes) throws DependencyException {
+        leasesWritten(writes);
+        for (Map.Entry<String, Lease> write : writes.entrySet()) {
+            if (write.getValue() == null) {
+                leases.remove(write.getKey());
+            } else {
+                leases.put(write.getKey(), write.getValue());
+            }
+        }
+    }
+
+    private void verifyTableExists() throws InvalidStateException {
+        if (!tableExists) {
+            throw new InvalidStateException("The lease table doesn't exist");
+        }
+    }
+
+    private static <T> CompletableFuture<T> completed(final LeaseOperation<T> operation) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(operation.call());
+        } catch (DependencyException | InvalidStateException | ProvisionedThroughputException | RuntimeException e) {
+            future.completeExceptionally(new CompletionException(e));
+        }
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface LeaseOperation<T> {
+        T call() throws DependencyException, InvalidStateException, ProvisionedThroughputException;
+    }
+}
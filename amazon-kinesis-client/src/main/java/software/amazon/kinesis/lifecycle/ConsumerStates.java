@@ -258,15 +258,16 @@ class ConsumerStates {
                     argument.shardRecordProcessor(),
                     argument.recordProcessorCheckpointer(),
                     argument.taskBackoffTimeMillis(),
-                    argument.skipShardSyncAtWorkerInitializationIfLeasesExist(),
-                    argument.shardDetector(),
                     throttlingReporter,
                     input,
                     argument.shouldCallProcessRecordsEvenForEmptyRecordList(),
                     argument.idleTimeInMilliseconds(),
                     argument.aggregatorUtil(),
                     argument.metricsFactory(),
-                    argument.schemaRegistryDecoder());
+                    argument.schemaRegistryDecoder(),
+                    argument.lazyDeaggregation(),
+                    consumer.shardHashKeyRange(),
+                    consumer.policyCheckpointer());
         }
 
         @Override
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.lifecycle;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
+import software.amazon.kinesis.retrieval.KinesisClientRecord;
+
+/**
+ * Records of a batch that are deaggregated only as they are consumed.
+ *
+ * <p>
+ * The records can be consumed once, either by iterating {@link #iterable()} as handed out through
+ * {@link ProcessRecordsInput#lazyRecords()}, or through this list, which materializes all remaining records on first
+ * access. The list can no longer be used once iteration has started.
+ * </p>
+ */
+class LazyRecords extends AbstractList<KinesisClientRecord> {
+    private final Iterator<KinesisClientRecord> records;
+    private List<KinesisClientRecord> materialized;
+    private boolean iterating;
+
+    LazyRecords(final Iterator<KinesisClientRecord> records) {
+        this.records = records;
+    }
+
+    /**
+     * @return a view of the records that can only be iterated once
+     */
+    Iterable<KinesisClientRecord> iterable() {
+        return () -> {
+            if (iterating) {
+                throw new IllegalStateException("Lazy records can only be iterated once");
+            }
+            if (materialized != null) {
+                return Collections.unmodifiableList(materialized).iterator();
+            }
+            iterating = true;
+            return records;
+        };
+    }
+
+    /**
+     * Checks whether there are any records left, without consuming them.
+     */
+    @Override
+    public boolean isEmpty() {
+        if (materialized != null) {
+            return materialized.isEmpty();
+        }
+        return !records.hasNext();
+    }
+
+    @Override
+    public KinesisClientRecord get(final int index) {
+        return materialize().get(index);
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    private List<KinesisClientRecord> materialize() {
+        if (materialized == null) {
+            if (iterating) {
+                throw new IllegalStateException("Lazy records are already being iterated and cannot be listed");
+            }
+            materialized = new ArrayList<>();
+            records.forEachRemaining(materialized::add);
+        }
+        return materialized;
+    }
+}
@@ -43,7 +43,10 @@ public class LifecycleConfig {
     private long taskBackoffTimeMillis = 500L;
 
     /**
-     * AggregatorUtil is responsible for deaggregating KPL records.
+     * AggregatorUtil is responsible for deaggregating KPL records. Use {@code new AggregatorUtil(true)} to hand out KPL
+     * user records as read-only views of the aggregated record instead of copies.
+     *
+     * <p>Default value: {@link AggregatorUtil#AggregatorUtil()}</p>
      */
     private AggregatorUtil aggregatorUtil = new AggregatorUtil();
 
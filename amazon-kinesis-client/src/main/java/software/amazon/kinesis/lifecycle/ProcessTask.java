@@ -14,14 +14,17 @@
  */
 package software.amazon.kinesis.lifecycle;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
 
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.awssdk.services.kinesis.model.Shard;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.checkpoint.PolicyCheckpointer;
 import software.amazon.kinesis.checkpoint.ShardRecordProcessorCheckpointer;
 import software.amazon.kinesis.common.StreamIdentifier;
 import software.amazon.kinesis.leases.ShardDetector;
@@ -34,6 +37,7 @@ import software.amazon.kinesis.metrics.MetricsUtil;
 import software.amazon.kinesis.processor.ShardRecordProcessor;
 import software.amazon.kinesis.retrieval.AggregatorUtil;
 import software.amazon.kinesis.retrieval.KinesisClientRecord;
+import software.amazon.kinesis.retrieval.ShardHashKeyRange;
 import software.amazon.kinesis.retrieval.ThrottlingReporter;
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 import software.amazon.kinesis.schemaregistry.SchemaRegistryDecoder;
@@ -56,7 +60,7 @@ public class ProcessTask implements ConsumerTask {
     private final ShardRecordProcessorCheckpointer recordProcessorCheckpointer;
     private final TaskType taskType = TaskType.PROCESS;
     private final long backoffTimeMillis;
-    private final Shard shard;
+    private final ShardHashKeyRange shardHashKeyRange;
     private final ThrottlingReporter throttlingReporter;
     private final boolean shouldCallProcessRecordsEvenForEmptyRecordList;
     private final long idleTimeInMilliseconds;
@@ -65,6 +69,8 @@ public class ProcessTask implements ConsumerTask {
     private final AggregatorUtil aggregatorUtil;
     private final String shardInfoId;
     private final SchemaRegistryDecoder schemaRegistryDecoder;
+    private final boolean lazyDeaggregation;
+    private final PolicyCheckpointer policyCheckpointer;
 
     public ProcessTask(
             @NonNull ShardInfo shardInfo,
@@ -79,7 +85,48 @@ public class ProcessTask implements ConsumerTask {
             long idleTimeInMilliseconds,
             @NonNull AggregatorUtil aggregatorUtil,
             @NonNull MetricsFactory metricsFactory,
-            SchemaRegistryDecoder schemaRegistryDecoder) {
+            SchemaRegistryDecoder schemaRegistryDecoder,
+            boolean lazyDeaggregation,
+            PolicyCheckpointer policyCheckpointer) {
+        this(
+                shardInfo,
+                shardRecordProcessor,
+                recordProcessorCheckpointer,
+                backoffTimeMillis,
+                throttlingReporter,
+                processRecordsInput,
+                shouldCallProcessRecordsEvenForEmptyRecordList,
+                idleTimeInMilliseconds,
+                aggregatorUtil,
+                metricsFactory,
+                schemaRegistryDecoder,
+                lazyDeaggregation,
+                skipShardSyncAtWorkerInitializationIfLeasesExist ? null : hashKeyRange(shardDetector, shardInfo),
+                policyCheckpointer);
+    }
+
+    /**
+     * Constructor for a task whose shard hash key range has already been looked up, such as by the
+     * {@link ShardConsumer} that creates a process task for every batch of its shard.
+     *
+     * @param shardHashKeyRange
+     *            the hash key range of the shard, or null to not filter KPL user records by hash key
+     */
+    public ProcessTask(
+            @NonNull ShardInfo shardInfo,
+            @NonNull ShardRecordProcessor shardRecordProcessor,
+            @NonNull ShardRecordProcessorCheckpointer recordProcessorCheckpointer,
+            long backoffTimeMillis,
+            @NonNull ThrottlingReporter throttlingReporter,
+            ProcessRecordsInput processRecordsInput,
+            boolean shouldCallProcessRecordsEvenForEmptyRecordList,
+            long idleTimeInMilliseconds,
+            @NonNull AggregatorUtil aggregatorUtil,
+            @NonNull MetricsFactory metricsFactory,
+            SchemaRegistryDecoder schemaRegistryDecoder,
+            boolean lazyDeaggregation,
+            ShardHashKeyRange shardHashKeyRange,
+            PolicyCheckpointer policyCheckpointer) {
         this.shardInfo = shardInfo;
         this.shardInfoId = ShardInfo.getLeaseKey(shardInfo);
         this.shardRecordProcessor = shardRecordProcessor;
@@ -91,18 +138,9 @@ public class ProcessTask implements ConsumerTask {
         this.idleTimeInMilliseconds = idleTimeInMilliseconds;
         this.metricsFactory = metricsFactory;
         this.schemaRegistryDecoder = schemaRegistryDecoder;
-
-        if (!skipShardSyncAtWorkerInitializationIfLeasesExist) {
-            this.shard = shardDetector.shard(shardInfo.shardId());
-        } else {
-            this.shard = null;
-        }
-
-        if (this.shard == null && !skipShardSyncAtWorkerInitializationIfLeasesExist) {
-            log.warn("Cannot get the shard for this ProcessTask, so duplicate KPL user records "
-                    + "in the event of resharding will not be dropped during deaggregation of Amazon "
-                    + "Kinesis records.");
-        }
+        this.lazyDeaggregation = lazyDeaggregation;
+        this.policyCheckpointer = policyCheckpointer;
+        this.shardHashKeyRange = shardHashKeyRange;
         this.aggregatorUtil = aggregatorUtil;
 
         this.recordProcessorCheckpointer.checkpointer().operation(PROCESS_TASK_OPERATION);
@@ -155,27 +193,35 @@ public class ProcessTask implements ConsumerTask {
                 }
 
                 throttlingReporter.success();
-                List<KinesisClientRecord> records = deaggregateAnyKplRecords(processRecordsInput.records());
+                if (lazyDeaggregation) {
+                    processRecordsLazily(shardScope);
+                    success = true;
+                } else {
+                    List<KinesisClientRecord> records = deaggregateAnyKplRecords(processRecordsInput.records());
 
-                if (schemaRegistryDecoder != null) {
-                    records = schemaRegistryDecoder.decode(records);
-                }
+                    if (schemaRegistryDecoder != null) {
+                        records = schemaRegistryDecoder.decode(records);
+                    }
 
-                if (!records.isEmpty()) {
-                    shardScope.addData(
-                            RECORDS_PROCESSED_METRIC, records.size(), StandardUnit.COUNT, MetricsLevel.SUMMARY);
-                }
+                    if (!records.isEmpty()) {
+                        shardScope.addData(
+                                RECORDS_PROCESSED_METRIC, records.size(), StandardUnit.COUNT, MetricsLevel.SUMMARY);
+                    }
 
-                recordProcessorCheckpointer.largestPermittedCheckpointValue(filterAndGetMaxExtendedSequenceNumber(
-                        shardScope,
-                        records,
-                        recordProcessorCheckpointer.lastCheckpointValue(),
-                        recordProcessorCheckpointer.largestPermittedCheckpointValue()));
+                    recordProcessorCheckpointer.largestPermittedCheckpointValue(filterAndGetMaxExtendedSequenceNumber(
+                            shardScope,
+                            records,
+                            recordProcessorCheckpointer.lastCheckpointValue(),
+                            recordProcessorCheckpointer.largestPermittedCheckpointValue()));
 
-                if (shouldCallProcessRecords(records)) {
-                    callProcessRecords(processRecordsInput, records);
+                    if (shouldCallProcessRecords(records)) {
+                        callProcessRecords(processRecordsInput, records, null);
+                    }
+                    if (policyCheckpointer != null) {
+                        policyCheckpointer.recordsProcessed(records.size(), dataBytes(records));
+                    }
+                    success = true;
                 }
-                success = true;
             } catch (RuntimeException e) {
                 log.error("ShardId {}: Caught exception: ", shardInfoId, e);
                 exception = e;
@@ -197,17 +243,78 @@ public class ProcessTask implements ConsumerTask {
         }
     }
 
+    /**
+     * Hands the records to the record processor through {@link ProcessRecordsInput#lazyRecords()}, deaggregating,
+     * decoding and filtering them as the record processor iterates.
+     *
+     * @param shardScope
+     *            metrics scope to emit metrics into
+     */
+    private void processRecordsLazily(final MetricsScope shardScope) {
+        final CheckpointFilteringIterator iterator =
+                new CheckpointFilteringIterator(lazilyDeaggregateAnyKplRecords(processRecordsInput.records()));
+        final LazyRecords records = new LazyRecords(iterator);
+
+        if (shouldCallProcessRecords(records)) {
+            callProcessRecords(processRecordsInput, records, records.iterable());
+        }
+
+        if (iterator.recordsProcessed() > 0) {
+            shardScope.addData(
+                    RECORDS_PROCESSED_METRIC, iterator.recordsProcessed(), StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        }
+        if (iterator.dataBytesProcessed() > 0) {
+            shardScope.addData(
+                    DATA_BYTES_PROCESSED_METRIC,
+                    iterator.dataBytesProcessed(),
+                    StandardUnit.BYTES,
+                    MetricsLevel.SUMMARY);
+        }
+        if (policyCheckpointer != null) {
+            policyCheckpointer.recordsProcessed(iterator.recordsProcessed(), iterator.dataBytesProcessed());
+        }
+    }
+
+    private static long dataBytes(List<KinesisClientRecord> records) {
+        long dataBytes = 0;
+        for (KinesisClientRecord record : records) {
+            dataBytes += record.data().limit();
+        }
+        return dataBytes;
+    }
+
+    private Iterator<KinesisClientRecord> lazilyDeaggregateAnyKplRecords(List<KinesisClientRecord> records) {
+        if (shardHashKeyRange == null) {
+            return aggregatorUtil.deaggregateLazily(records);
+        } else {
+            return aggregatorUtil.deaggregateLazily(records, shardHashKeyRange);
+        }
+    }
+
     private List<KinesisClientRecord> deaggregateAnyKplRecords(List<KinesisClientRecord> records) {
-        if (shard == null) {
+        if (shardHashKeyRange == null) {
             return aggregatorUtil.deaggregate(records);
         } else {
-            return aggregatorUtil.deaggregate(
-                    records,
-                    shard.hashKeyRange().startingHashKey(),
-                    shard.hashKeyRange().endingHashKey());
+            return aggregatorUtil.deaggregate(records, shardHashKeyRange);
         }
     }
 
+    /**
+     * Looks up the hash key range of the shard.
+     *
+     * @return the hash key range of the shard, or null if the shard can't be found
+     */
+    static ShardHashKeyRange hashKeyRange(ShardDetector shardDetector, ShardInfo shardInfo) {
+        Shard shard = shardDetector.shard(shardInfo.shardId());
+        if (shard == null) {
+            log.warn("Cannot get the shard for this ProcessTask, so duplicate KPL user records "
+                    + "in the event of resharding will not be dropped during deaggregation of Amazon "
+                    + "Kinesis records.");
+            return null;
+        }
+        return ShardHashKeyRange.of(shard.hashKeyRange());
+    }
+
     /**
      * Sleeps for the configured backoff period. This is usually only called when an exception occurs.
      */
@@ -227,12 +334,20 @@ public class ProcessTask implements ConsumerTask {
      *            the result of the last call to Kinesis
      * @param records
      *            the records to be dispatched. It's possible the records have been adjusted by KPL deaggregation.
+     * @param lazyRecords
+     *            single use view of the records to be dispatched, or null if the records are not deaggregated lazily
      */
-    private void callProcessRecords(ProcessRecordsInput input, List<KinesisClientRecord> records) {
-        log.debug("Calling application processRecords() with {} records from {}", records.size(), shardInfoId);
+    private void callProcessRecords(
+            ProcessRecordsInput input, List<KinesisClientRecord> records, Iterable<KinesisClientRecord> lazyRecords) {
+        if (lazyRecords == null) {
+            log.debug("Calling application processRecords() with {} records from {}", records.size(), shardInfoId);
+        } else {
+            log.debug("Calling application processRecords() with lazily deaggregated records from {}", shardInfoId);
+        }
 
         final ProcessRecordsInput processRecordsInput = ProcessRecordsInput.builder()
                 .records(records)
+                .lazyRecords(lazyRecords)
                 .cacheExitTime(input.cacheExitTime())
                 .cacheEntryTime(input.cacheEntryTime())
                 .isAtShardEnd(input.isAtShardEnd())
@@ -253,7 +368,14 @@ public class ProcessTask implements ConsumerTask {
                     "ShardId {}: Application processRecords() threw an exception when processing shard ",
                     shardInfoId,
                     e);
-            log.error("ShardId {}: Skipping over the following data records: {}", shardInfoId, records);
+            if (lazyRecords == null) {
+                log.error("ShardId {}: Skipping over the following data records: {}", shardInfoId, records);
+            } else {
+                log.error(
+                        "ShardId {}: Skipping over the unprocessed records of {} Kinesis records",
+                        shardInfoId,
+                        input.records().size());
+            }
         } finally {
             MetricsUtil.addLatency(scope, RECORD_PROCESSOR_PROCESS_RECORDS_METRIC, startTime, MetricsLevel.SUMMARY);
             MetricsUtil.endScope(scope);
@@ -278,7 +400,8 @@ public class ProcessTask implements ConsumerTask {
 
     /**
      * Scans a list of records to filter out records up to and including the most recent checkpoint value and to get the
-     * greatest extended sequence number from the retained records. Also emits metrics about the records.
+     * greatest extended sequence number from the retained records. Also emits metrics about the records, accumulated
+     * over the batch so that they are added to the scope once rather than once per record.
      *
      * @param scope
      *            metrics scope to emit metrics into
@@ -296,6 +419,7 @@ public class ProcessTask implements ConsumerTask {
             final ExtendedSequenceNumber lastCheckpointValue,
             final ExtendedSequenceNumber lastLargestPermittedCheckpointValue) {
         ExtendedSequenceNumber largestExtendedSequenceNumber = lastLargestPermittedCheckpointValue;
+        long dataBytesProcessed = 0;
         ListIterator<KinesisClientRecord> recordIterator = records.listIterator();
         while (recordIterator.hasNext()) {
             KinesisClientRecord record = recordIterator.next();
@@ -317,8 +441,82 @@ public class ProcessTask implements ConsumerTask {
                 largestExtendedSequenceNumber = extendedSequenceNumber;
             }
 
-            scope.addData(DATA_BYTES_PROCESSED_METRIC, record.data().limit(), StandardUnit.BYTES, MetricsLevel.SUMMARY);
+            dataBytesProcessed += record.data().limit();
+        }
+
+        if (dataBytesProcessed > 0) {
+            scope.addData(DATA_BYTES_PROCESSED_METRIC, dataBytesProcessed, StandardUnit.BYTES, MetricsLevel.SUMMARY);
         }
         return largestExtendedSequenceNumber;
     }
+
+    /**
+     * Decodes the lazily deaggregated records and drops those up to and including the most recent checkpoint value,
+     * allowing the record processor to checkpoint up to each record as it is handed out. This is the lazy counterpart
+     * of {@link #filterAndGetMaxExtendedSequenceNumber}. The records handed out are counted, so that metrics about them
+     * can be emitted once the record processor is done.
+     */
+    private class CheckpointFilteringIterator implements Iterator<KinesisClientRecord> {
+        private final Iterator<KinesisClientRecord> records;
+        private final ExtendedSequenceNumber lastCheckpointValue;
+        private KinesisClientRecord nextRecord;
+        private ExtendedSequenceNumber nextExtendedSequenceNumber;
+        private long recordsProcessed = 0;
+        private long dataBytesProcessed = 0;
+
+        CheckpointFilteringIterator(final Iterator<KinesisClientRecord> records) {
+            this.records = records;
+            this.lastCheckpointValue = recordProcessorCheckpointer.lastCheckpointValue();
+        }
+
+        long recordsProcessed() {
+            return recordsProcessed;
+        }
+
+        long dataBytesProcessed() {
+            return dataBytesProcessed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (nextRecord == null && records.hasNext()) {
+                KinesisClientRecord record = records.next();
+                if (schemaRegistryDecoder != null) {
+                    record = schemaRegistryDecoder.decode(record);
+                }
+                ExtendedSequenceNumber extendedSequenceNumber =
+                        new ExtendedSequenceNumber(record.sequenceNumber(), record.subSequenceNumber());
+                if (extendedSequenceNumber.compareTo(lastCheckpointValue) <= 0) {
+                    log.debug(
+                            "{} : removing record with ESN {} because the ESN is <= checkpoint ({})",
+                            shardInfoId,
+                            extendedSequenceNumber,
+                            lastCheckpointValue);
+                    continue;
+                }
+                nextRecord = record;
+                nextExtendedSequenceNumber = extendedSequenceNumber;
+            }
+            return nextRecord != null;
+        }
+
+        @Override
+        public KinesisClientRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final KinesisClientRecord record = nextRecord;
+            final ExtendedSequenceNumber largestPermittedCheckpointValue =
+                    recordProcessorCheckpointer.largestPermittedCheckpointValue();
+            if (largestPermittedCheckpointValue == null
+                    || largestPermittedCheckpointValue.compareTo(nextExtendedSequenceNumber) < 0) {
+                recordProcessorCheckpointer.largestPermittedCheckpointValue(nextExtendedSequenceNumber);
+            }
+            nextRecord = null;
+            nextExtendedSequenceNumber = null;
+            recordsProcessed++;
+            dataBytesProcessed += record.data().limit();
+            return record;
+        }
+    }
 }
@@ -31,6 +31,7 @@ import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Subscription;
 import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+import software.amazon.kinesis.checkpoint.PolicyCheckpointer;
 import software.amazon.kinesis.exceptions.internal.BlockedOnParentShardException;
 import software.amazon.kinesis.leases.ShardInfo;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
@@ -38,6 +39,7 @@ import software.amazon.kinesis.lifecycle.events.TaskExecutionListenerInput;
 import software.amazon.kinesis.metrics.MetricsCollectingTaskDecorator;
 import software.amazon.kinesis.metrics.MetricsFactory;
 import software.amazon.kinesis.retrieval.RecordsPublisher;
+import software.amazon.kinesis.retrieval.ShardHashKeyRange;
 
 /**
  * Responsible for consuming data records of a (specified) shard.
@@ -95,6 +97,25 @@ public class ShardConsumer {
 
     private ProcessRecordsInput shardEndProcessRecordsInput;
 
+    /**
+     * Run whenever this consumer may be ready for its lifecycle to be executed again.
+     */
+    private volatile Runnable lifecycleEventListener;
+
+    /**
+     * Hash key range of the shard, resolved once and then shared by all process tasks of this consumer. Null if the
+     * shard couldn't be found, or if it isn't looked up at all.
+     */
+    private ShardHashKeyRange shardHashKeyRange;
+
+    private boolean shardHashKeyRangeResolved;
+
+    /**
+     * Checkpoints the shard as required by the checkpoint policy, if there is one. Created once and then shared by all
+     * process tasks of this consumer.
+     */
+    private PolicyCheckpointer policyCheckpointer;
+
     @Deprecated
     public ShardConsumer(
             RecordsPublisher recordsPublisher,
@@ -217,7 +238,7 @@ public class ShardConsumer {
         }
         try {
             if (isShutdownRequested()) {
-                stateChangeFuture = shutdownComplete();
+                stateChangeFuture = notifyOnCompletion(shutdownComplete());
             } else if (needsInitialization) {
                 if (stateChangeFuture != null) {
                     if (stateChangeFuture.get()) {
@@ -232,7 +253,7 @@ public class ShardConsumer {
                         needsInitialization = false;
                     }
                 }
-                stateChangeFuture = initializeComplete();
+                stateChangeFuture = notifyOnCompletion(initializeComplete());
             }
         } catch (InterruptedException e) {
             //
@@ -255,6 +276,32 @@ public class ShardConsumer {
         }
     }
 
+    /**
+     * Sets a listener that is run whenever a lifecycle task of this consumer completes or a shutdown of this consumer
+     * is requested, which is when {@link #executeLifecycle()} has work to do. This allows the lifecycle to be executed
+     * on demand instead of being polled.
+     *
+     * @param lifecycleEventListener the listener to run, on whichever thread completed the task or requested the
+     *                               shutdown
+     */
+    public void lifecycleEventListener(Runnable lifecycleEventListener) {
+        this.lifecycleEventListener = lifecycleEventListener;
+    }
+
+    private CompletableFuture<Boolean> notifyOnCompletion(CompletableFuture<Boolean> future) {
+        if (lifecycleEventListener != null) {
+            future.whenComplete((result, throwable) -> notifyLifecycleEventListener());
+        }
+        return future;
+    }
+
+    private void notifyLifecycleEventListener() {
+        final Runnable listener = lifecycleEventListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
     @VisibleForTesting
     Throwable healthCheck() {
         logNoDataRetrievedAfterTime();
@@ -515,15 +562,20 @@ public class ShardConsumer {
     }
 
     void markForShutdown(ShutdownReason reason) {
+        final boolean transitioned;
         synchronized (shutdownLock) {
             //
             // ShutdownReason.LEASE_LOST takes precedence over SHARD_END
             // (we won't be able to save checkpoint at end of shard)
             //
-            if (shutdownReason == null || shutdownReason.canTransitionTo(reason)) {
+            transitioned = shutdownReason == null || shutdownReason.canTransitionTo(reason);
+            if (transitioned) {
                 shutdownReason = reason;
             }
         }
+        if (transitioned) {
+            notifyLifecycleEventListener();
+        }
     }
 
     /**
@@ -543,6 +595,51 @@ public class ShardConsumer {
         }
     }
 
+    /**
+     * @return the checkpointer applying the checkpoint policy to the shard, or null if there is no checkpoint policy
+     */
+    synchronized PolicyCheckpointer policyCheckpointer() {
+        if (policyCheckpointer == null && shardConsumerArgument.checkpointPolicy() != null) {
+            policyCheckpointer = new PolicyCheckpointer(
+                    shardInfo,
+                    shardConsumerArgument.checkpointPolicy(),
+                    shardConsumerArgument.recordProcessorCheckpointer());
+        }
+        return policyCheckpointer;
+    }
+
+    /**
+     * Checkpoints the shard if the checkpoint policy asks for it, even if no records were processed since it was last
+     * evaluated. Nothing is done if there is no checkpoint policy, no records were processed yet, or a shutdown was
+     * requested.
+     */
+    public void checkpointIfDue() {
+        final PolicyCheckpointer checkpointer;
+        synchronized (this) {
+            checkpointer = policyCheckpointer;
+        }
+        if (checkpointer != null && !isShutdownRequested()) {
+            checkpointer.checkpointIfDue();
+        }
+    }
+
+    /**
+     * Looks up the hash key range of the shard the first time it is needed, and remembers it, or that the shard
+     * couldn't be found, for the rest of the life of this consumer. No lookup is made if shard sync is skipped at
+     * worker initialization, in which case the process tasks don't filter KPL user records by hash key.
+     *
+     * @return the hash key range of the shard, or null if it is not known
+     */
+    synchronized ShardHashKeyRange shardHashKeyRange() {
+        if (!shardHashKeyRangeResolved) {
+            if (!shardConsumerArgument.skipShardSyncAtWorkerInitializationIfLeasesExist()) {
+                shardHashKeyRange = ProcessTask.hashKeyRange(shardConsumerArgument.shardDetector(), shardInfo);
+            }
+            shardHashKeyRangeResolved = true;
+        }
+        return shardHashKeyRange;
+    }
+
     /**
      * Default task wrapping function for metrics
      *
@@ -24,6 +24,7 @@ import lombok.Getter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 import software.amazon.awssdk.services.kinesis.model.ChildShard;
+import software.amazon.kinesis.processor.ProcessorConfig;
 import software.amazon.kinesis.processor.RecordProcessorCheckpointer;
 import software.amazon.kinesis.processor.ShardRecordProcessor;
 import software.amazon.kinesis.retrieval.KinesisClientRecord;
@@ -57,6 +58,15 @@ public class ProcessRecordsInput {
      * The records received from Kinesis. These records may have been de-aggregated if they were published by the KPL.
      */
     private List<KinesisClientRecord> records;
+    /**
+     * The records received from Kinesis, de-aggregated on demand as they are iterated. Only set when
+     * {@link ProcessorConfig#lazyDeaggregation()} is enabled, and null otherwise.
+     *
+     * This view can only be iterated once. Records that are not iterated are skipped, and the checkpointer only
+     * permits checkpointing up to the last record that was iterated. {@link #records()} may still be used instead, but
+     * it then holds the whole batch in memory, and cannot be used once iteration of this view has started.
+     */
+    private Iterable<KinesisClientRecord> lazyRecords;
 
     /**
      * A checkpointer that the {@link ShardRecordProcessor} can use to checkpoint its progress.
@@ -27,8 +27,10 @@ import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
  */
 public class CloudWatchMetricKey {
 
-    private List<Dimension> dimensions;
-    private String metricName;
+    private final List<Dimension> dimensions;
+    private final String metricName;
+    // The key is looked up for every datum enqueued for publication, so its hash code is computed once
+    private final int hashCode;
 
     /**
      * @param datum data point
@@ -36,11 +38,12 @@ public class CloudWatchMetricKey {
     public CloudWatchMetricKey(MetricDatum datum) {
         this.dimensions = datum.dimensions();
         this.metricName = datum.metricName();
+        this.hashCode = Objects.hash(dimensions, metricName);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(dimensions, metricName);
+        return hashCode;
     }
 
     @Override
@@ -55,6 +58,8 @@ public class CloudWatchMetricKey {
             return false;
         }
         CloudWatchMetricKey other = (CloudWatchMetricKey) obj;
-        return Objects.equals(other.dimensions, dimensions) && Objects.equals(other.metricName, metricName);
+        return other.hashCode == hashCode
+                && Objects.equals(other.dimensions, dimensions)
+                && Objects.equals(other.metricName, metricName);
     }
 }
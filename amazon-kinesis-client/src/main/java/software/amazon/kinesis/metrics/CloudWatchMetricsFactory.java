@@ -17,9 +17,11 @@ package software.amazon.kinesis.metrics;
 import java.util.Set;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import lombok.NonNull;
 import software.amazon.awssdk.core.exception.AbortedException;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
 /**
  * An IMetricsFactory that creates IMetricsScopes that output themselves via CloudWatch. Batches IMetricsScopes together
@@ -43,6 +45,14 @@ public class CloudWatchMetricsFactory implements MetricsFactory {
      * List of enabled dimensions for metrics.
      */
     private final Set<String> metricsEnabledDimensions;
+    /**
+     * Units of the metrics that are published as histograms.
+     */
+    private final Set<StandardUnit> histogramUnits;
+    /**
+     * Dimensions shared by the scopes of this factory, or null if the factory creates {@link CloudWatchMetricsScope}s.
+     */
+    private final InternedDimensions internedDimensions;
 
     /**
      * Constructor.
@@ -70,7 +80,93 @@ public class CloudWatchMetricsFactory implements MetricsFactory {
             @NonNull final MetricsLevel metricsLevel,
             @NonNull final Set<String> metricsEnabledDimensions,
             final int flushSize) {
+        this(
+                cloudWatchClient,
+                namespace,
+                bufferTimeMillis,
+                maxQueueSize,
+                metricsLevel,
+                metricsEnabledDimensions,
+                flushSize,
+                ImmutableSet.of());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cloudWatchClient
+     *            Client used to make CloudWatch requests
+     * @param namespace
+     *            the namespace under which the metrics will appear in the CloudWatch console
+     * @param bufferTimeMillis
+     *            time to buffer metrics before publishing to CloudWatch
+     * @param maxQueueSize
+     *            maximum number of metrics that we can have in a queue
+     * @param metricsLevel
+     *            metrics level to enable
+     * @param metricsEnabledDimensions
+     *            metrics dimensions to allow
+     * @param flushSize
+     *            size of batch that can be published
+     * @param histogramUnits
+     *            units of the metrics to publish as histograms of their values, rather than as statistic sets
+     */
+    public CloudWatchMetricsFactory(
+            @NonNull final CloudWatchAsyncClient cloudWatchClient,
+            @NonNull final String namespace,
+            final long bufferTimeMillis,
+            final int maxQueueSize,
+            @NonNull final MetricsLevel metricsLevel,
+            @NonNull final Set<String> metricsEnabledDimensions,
+            final int flushSize,
+            @NonNull final Set<StandardUnit> histogramUnits) {
+        this(
+                cloudWatchClient,
+                namespace,
+                bufferTimeMillis,
+                maxQueueSize,
+                metricsLevel,
+                metricsEnabledDimensions,
+                flushSize,
+                histogramUnits,
+                false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param cloudWatchClient
+     *            Client used to make CloudWatch requests
+     * @param namespace
+     *            the namespace under which the metrics will appear in the CloudWatch console
+     * @param bufferTimeMillis
+     *            time to buffer metrics before publishing to CloudWatch
+     * @param maxQueueSize
+     *            maximum number of metrics that we can have in a queue
+     * @param metricsLevel
+     *            metrics level to enable
+     * @param metricsEnabledDimensions
+     *            metrics dimensions to allow
+     * @param flushSize
+     *            size of batch that can be published
+     * @param histogramUnits
+     *            units of the metrics to publish as histograms of their values, rather than as statistic sets
+     * @param primitiveMetricsScopes
+     *            whether to create {@link PrimitiveCloudWatchMetricsScope}s rather than {@link CloudWatchMetricsScope}s
+     */
+    public CloudWatchMetricsFactory(
+            @NonNull final CloudWatchAsyncClient cloudWatchClient,
+            @NonNull final String namespace,
+            final long bufferTimeMillis,
+            final int maxQueueSize,
+            @NonNull final MetricsLevel metricsLevel,
+            @NonNull final Set<String> metricsEnabledDimensions,
+            final int flushSize,
+            @NonNull final Set<StandardUnit> histogramUnits,
+            final boolean primitiveMetricsScopes) {
         this.metricsLevel = metricsLevel;
+        this.histogramUnits = Sets.immutableEnumSet(histogramUnits);
+        this.internedDimensions = primitiveMetricsScopes ? new InternedDimensions() : null;
         this.metricsEnabledDimensions =
                 (metricsEnabledDimensions == null ? ImmutableSet.of() : ImmutableSet.copyOf(metricsEnabledDimensions));
 
@@ -83,7 +179,11 @@ public class CloudWatchMetricsFactory implements MetricsFactory {
 
     @Override
     public MetricsScope createMetrics() {
-        return new CloudWatchMetricsScope(runnable, metricsLevel, metricsEnabledDimensions);
+        if (internedDimensions != null) {
+            return new PrimitiveCloudWatchMetricsScope(
+                    runnable, metricsLevel, metricsEnabledDimensions, histogramUnits, internedDimensions);
+        }
+        return new CloudWatchMetricsScope(runnable, metricsLevel, metricsEnabledDimensions, histogramUnits);
     }
 
     public void shutdown() {
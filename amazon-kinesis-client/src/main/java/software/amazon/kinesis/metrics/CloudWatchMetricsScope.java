@@ -14,9 +14,15 @@
  */
 package software.amazon.kinesis.metrics;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
 /**
  * Metrics scope for CloudWatch metrics.
@@ -25,6 +31,13 @@ public class CloudWatchMetricsScope extends FilteringMetricsScope implements Met
 
     private CloudWatchPublisherRunnable publisher;
 
+    /**
+     * Units of the metrics that are published as histograms.
+     */
+    private final Set<StandardUnit> histogramUnits;
+
+    private Map<String, MetricHistogram> histograms;
+
     /**
      * Creates a CloudWatch metrics scope with given metrics level and enabled dimensions.
      * @param publisher Publisher that emits CloudWatch metrics periodically.
@@ -33,8 +46,39 @@ public class CloudWatchMetricsScope extends FilteringMetricsScope implements Met
      */
     public CloudWatchMetricsScope(
             CloudWatchPublisherRunnable publisher, MetricsLevel metricsLevel, Set<String> metricsEnabledDimensions) {
+        this(publisher, metricsLevel, metricsEnabledDimensions, Collections.emptySet());
+    }
+
+    /**
+     * Creates a CloudWatch metrics scope with given metrics level, enabled dimensions and histogram units.
+     * @param publisher Publisher that emits CloudWatch metrics periodically.
+     * @param metricsLevel Metrics level to enable. All data with level below this will be dropped.
+     * @param metricsEnabledDimensions Enabled dimensions for CloudWatch metrics.
+     * @param histogramUnits Units of the metrics to publish as histograms.
+     */
+    public CloudWatchMetricsScope(
+            CloudWatchPublisherRunnable publisher,
+            MetricsLevel metricsLevel,
+            Set<String> metricsEnabledDimensions,
+            Set<StandardUnit> histogramUnits) {
         super(metricsLevel, metricsEnabledDimensions);
         this.publisher = publisher;
+        this.histogramUnits = histogramUnits;
+    }
+
+    /**
+     * Also records the value in the histogram of the metric if its unit is published as a histogram.
+     */
+    @Override
+    public void addData(String key, String name, double value, StandardUnit unit) {
+        super.addData(key, name, value, unit);
+
+        if (histogramUnits.contains(unit)) {
+            if (histograms == null) {
+                histograms = new HashMap<>();
+            }
+            histograms.computeIfAbsent(key, k -> new MetricHistogram()).record(value, 1);
+        }
     }
 
     /**
@@ -47,11 +91,22 @@ public class CloudWatchMetricsScope extends FilteringMetricsScope implements Met
     public void end() {
         super.end();
 
-        final List<MetricDatumWithKey<CloudWatchMetricKey>> dataWithKeys = data.values().stream()
-                .map(metricDatum ->
-                        metricDatum.toBuilder().dimensions(getDimensions()).build())
-                .map(metricDatum -> new MetricDatumWithKey<>(new CloudWatchMetricKey(metricDatum), metricDatum))
-                .collect(Collectors.toList());
+        final List<MetricDatum> metricData = new ArrayList<>(data.size());
+        for (Map.Entry<String, MetricDatum> entry : data.entrySet()) {
+            final MetricDatum metricDatum =
+                    entry.getValue().toBuilder().dimensions(getDimensions()).build();
+            final MetricHistogram histogram = histograms == null ? null : histograms.get(entry.getKey());
+            if (histogram == null) {
+                metricData.add(metricDatum);
+            } else {
+                histogram.addData(metricDatum, metricData);
+            }
+        }
+
+        final List<MetricDatumWithKey<CloudWatchMetricKey>> dataWithKeys = new ArrayList<>(metricData.size());
+        for (MetricDatum metricDatum : metricData) {
+            dataWithKeys.add(new MetricDatumWithKey<>(new CloudWatchMetricKey(metricDatum), metricDatum));
+        }
 
         publisher.enqueue(dataWithKeys);
     }
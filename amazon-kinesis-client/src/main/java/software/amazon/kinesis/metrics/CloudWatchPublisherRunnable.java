@@ -33,9 +33,9 @@ public class CloudWatchPublisherRunnable implements Runnable {
      * Number of metrics that will cause us to flush.
      */
     private int flushSize;
-    private boolean shuttingDown = false;
-    private boolean shutdown = false;
-    private long lastFlushTime = Long.MAX_VALUE;
+    private volatile boolean shuttingDown = false;
+    private volatile boolean shutdown = false;
+    private volatile long lastFlushTime = Long.MAX_VALUE;
     private int maxJitter;
 
     private Random rand = new Random();
@@ -94,39 +94,44 @@ public class CloudWatchPublisherRunnable implements Runnable {
      */
     public void runOnce() {
         List<MetricDatumWithKey<CloudWatchMetricKey>> dataToPublish = null;
-        synchronized (queue) {
-            /*
-             * We should send if:
-             *
-             * it's been maxBufferTimeMillis since our last send
-             * or if the queue contains > batchSize elements
-             * or if we're shutting down
-             */
-            long timeSinceFlush = Math.max(0, getTime() - lastFlushTime);
-            if (timeSinceFlush >= bufferTimeMillis || queue.size() >= flushSize || shuttingDown) {
-                dataToPublish = queue.drain(flushSize);
+        /*
+         * We should send if:
+         *
+         * it's been maxBufferTimeMillis since our last send
+         * or if the queue contains > batchSize elements
+         * or if we're shutting down
+         */
+        if (shouldFlush()) {
+            // The queue accumulates concurrent enqueues by itself, so it is drained without holding its monitor.
+            dataToPublish = queue.drain(flushSize);
+            if (log.isDebugEnabled()) {
+                log.debug("Drained {} datums from queue", dataToPublish.size());
+            }
+
+            if (shuttingDown) {
                 if (log.isDebugEnabled()) {
-                    log.debug("Drained {} datums from queue", dataToPublish.size());
+                    log.debug("Shutting down with {} datums left on the queue", queue.size());
                 }
 
-                if (shuttingDown) {
+                // If we're shutting down, we successfully shut down only when the queue is empty.
+                shutdown = queue.isEmpty();
+            }
+        } else {
+            synchronized (queue) {
+                if (!shouldFlush()) {
+                    long waitTime = bufferTimeMillis - timeSinceFlush();
                     if (log.isDebugEnabled()) {
-                        log.debug("Shutting down with {} datums left on the queue", queue.size());
+                        log.debug(
+                                "Waiting up to {} ms for {} more datums to appear.",
+                                waitTime,
+                                flushSize - queue.size());
                     }
 
-                    // If we're shutting down, we successfully shut down only when the queue is empty.
-                    shutdown = queue.isEmpty();
-                }
-            } else {
-                long waitTime = bufferTimeMillis - timeSinceFlush;
-                if (log.isDebugEnabled()) {
-                    log.debug("Waiting up to {} ms for {} more datums to appear.", waitTime, flushSize - queue.size());
-                }
-
-                try {
-                    // Wait for enqueues for up to maxBufferTimeMillis.
-                    queue.wait(waitTime);
-                } catch (InterruptedException e) {
+                    try {
+                        // Wait for enqueues for up to maxBufferTimeMillis.
+                        queue.wait(waitTime);
+                    } catch (InterruptedException e) {
+                    }
                 }
             }
         }
@@ -146,6 +151,14 @@ public class CloudWatchPublisherRunnable implements Runnable {
         }
     }
 
+    private boolean shouldFlush() {
+        return timeSinceFlush() >= bufferTimeMillis || queue.size() >= flushSize || shuttingDown;
+    }
+
+    private long timeSinceFlush() {
+        return Math.max(0, getTime() - lastFlushTime);
+    }
+
     /**
      * Overrideable for testing purposes.
      */
@@ -166,7 +179,9 @@ public class CloudWatchPublisherRunnable implements Runnable {
     }
 
     /**
-     * Enqueues metric data for publication.
+     * Enqueues metric data for publication. The queue monitor is held while enqueueing, so that no data is enqueued
+     * once the final drain on shutdown has started, but the publication thread is only woken up when the data starts
+     * the buffering time or fills a batch.
      *
      * @param data collection of MetricDatum to enqueue
      */
@@ -190,9 +205,10 @@ public class CloudWatchPublisherRunnable implements Runnable {
             // If this is the first enqueue, start buffering from now.
             if (lastFlushTime == Long.MAX_VALUE) {
                 lastFlushTime = getTime();
+                queue.notify();
+            } else if (queue.size() >= flushSize) {
+                queue.notify();
             }
-
-            queue.notify();
         }
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+
+/**
+ * Dimensions shared by the {@link PrimitiveAccumulatingMetricsScope}s of one metrics factory, so that adding a
+ * dimension that was added to an earlier scope doesn't build a new {@link Dimension}. At most the given number of
+ * dimensions are interned, so dimensions with unbounded values are built anew once the limit is reached rather than
+ * grow the interned dimensions without limit.
+ */
+public class InternedDimensions {
+    /**
+     * Default max number of interned dimensions.
+     */
+    public static final int DEFAULT_MAX_DIMENSIONS = 10_000;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Dimension>> dimensions = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int maxDimensions;
+
+    /**
+     * Creates interned dimensions holding at most {@link #DEFAULT_MAX_DIMENSIONS} dimensions.
+     */
+    public InternedDimensions() {
+        this(DEFAULT_MAX_DIMENSIONS);
+    }
+
+    /**
+     * @param maxDimensions max number of dimensions to intern
+     */
+    public InternedDimensions(int maxDimensions) {
+        this.maxDimensions = maxDimensions;
+    }
+
+    /**
+     * @param name Name of the dimension.
+     * @param value Value for the dimension.
+     * @return the interned dimension with the given name and value, or a new one if the limit was reached
+     */
+    public Dimension dimension(String name, String value) {
+        final ConcurrentMap<String, Dimension> values = dimensions.get(name);
+        if (values != null) {
+            final Dimension dimension = values.get(value);
+            if (dimension != null) {
+                return dimension;
+            }
+        }
+        final Dimension newDimension =
+                Dimension.builder().name(name).value(value).build();
+        if (size.incrementAndGet() > maxDimensions) {
+            size.decrementAndGet();
+            return newDimension;
+        }
+        final Dimension existing =
+                dimensions.computeIfAbsent(name, n -> new ConcurrentHashMap<>()).putIfAbsent(value, newDimension);
+        if (existing != null) {
+            size.decrementAndGet();
+            return existing;
+        }
+        return newDimension;
+    }
+
+    /**
+     * @return the number of interned dimensions
+     */
+    int size() {
+        return size.get();
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import lombok.NonNull;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * An IMetricsFactory that creates IMetricsScopes that record their data into meters of a {@link MeterProvider}, e.g.
+ * the counters, timers and distribution summaries of a Micrometer or OpenTelemetry meter registry.
+ *
+ * <p>
+ * Meter handles are cached per set of dimensions and metric name, so once a metric has been recorded with a set of
+ * dimensions, recording it again takes a few map lookups and the meter's own update, without building dimensions or
+ * calling the provider.
+ * </p>
+ *
+ * <p>
+ * At most {@value #DEFAULT_MAX_CACHED_DIMENSION_SETS} sets of dimensions are cached across the whole tree, and the
+ * least recently used ones are evicted past that, so that dimensions whose values churn, like the ShardId of resharded
+ * streams or the StreamId of multi-stream applications, don't grow the cache without limit. Metrics recorded with an
+ * evicted set of dimensions ask the provider for their meters again. Each set of dimensions caches one meter per
+ * metric name, and KCL records a fixed set of metric names.
+ * </p>
+ */
+public class MeterMetricsFactory implements MetricsFactory {
+    static final int DEFAULT_MAX_CACHED_DIMENSION_SETS = 10_000;
+
+    private static final Comparator<Dimension> DIMENSION_ORDER =
+            Comparator.comparing(Dimension::name).thenComparing(Dimension::value);
+
+    private final MeterProvider meterProvider;
+
+    /**
+     * Enabled metrics level. All metrics below this level will be dropped.
+     */
+    private final MetricsLevel metricsLevel;
+    /**
+     * List of enabled dimensions for metrics.
+     */
+    private final Set<String> metricsEnabledDimensions;
+
+    /**
+     * The sets of dimensions other than the root, keyed by the set they were reached from and the added dimension.
+     */
+    private final Cache<ChildKey, DimensionNode> nodes;
+
+    private final DimensionNode root = new DimensionNode(Collections.emptyList());
+
+    /**
+     * Constructor.
+     *
+     * @param meterProvider
+     *            provider of the meters to record metrics into
+     * @param metricsLevel
+     *            metrics level to enable
+     * @param metricsEnabledDimensions
+     *            metrics dimensions to allow
+     */
+    public MeterMetricsFactory(
+            @NonNull final MeterProvider meterProvider,
+            @NonNull final MetricsLevel metricsLevel,
+            @NonNull final Set<String> metricsEnabledDimensions) {
+        this(meterProvider, metricsLevel, metricsEnabledDimensions, DEFAULT_MAX_CACHED_DIMENSION_SETS);
+    }
+
+    MeterMetricsFactory(
+            @NonNull final MeterProvider meterProvider,
+            @NonNull final MetricsLevel metricsLevel,
+            @NonNull final Set<String> metricsEnabledDimensions,
+            final int maxCachedDimensionSets) {
+        this.nodes = CacheBuilder.newBuilder()
+                .maximumSize(maxCachedDimensionSets)
+                // nodes are only added on a miss, so writes are rare and a single segment evicts in LRU order
+                .concurrencyLevel(1)
+                .build();
+        this.meterProvider = meterProvider;
+        this.metricsLevel = metricsLevel;
+        this.metricsEnabledDimensions = ImmutableSet.copyOf(metricsEnabledDimensions);
+    }
+
+    @Override
+    public MetricsScope createMetrics() {
+        return new MeterMetricsScope(this, metricsLevel, metricsEnabledDimensions);
+    }
+
+    DimensionNode root() {
+        return root;
+    }
+
+    /**
+     * @return the number of cached sets of dimensions, other than the empty set
+     */
+    long cachedDimensionSets() {
+        nodes.cleanUp();
+        return nodes.size();
+    }
+
+    /**
+     * A set of dimensions, reached from the root by adding dimensions one at a time, which caches the meters of the
+     * metrics recorded with it.
+     */
+    final class DimensionNode {
+        private final List<Dimension> dimensions;
+        private final ConcurrentMap<String, BoundMeter> meters = new ConcurrentHashMap<>();
+
+        private DimensionNode(List<Dimension> dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        /**
+         * @return the set of dimensions with the given dimension added
+         */
+        DimensionNode child(String name, String value) {
+            final ChildKey key = new ChildKey(this, name, value);
+            final DimensionNode child = nodes.getIfPresent(key);
+            if (child != null) {
+                return child;
+            }
+            final DimensionNode newChild = new DimensionNode(withDimension(name, value));
+            final DimensionNode existing = nodes.asMap().putIfAbsent(key, newChild);
+            return existing == null ? newChild : existing;
+        }
+
+        /**
+         * @return the meter of the named metric with this set of dimensions
+         */
+        MeterProvider.Meter meter(String name, StandardUnit unit) {
+            BoundMeter boundMeter = meters.get(name);
+            if (boundMeter == null) {
+                boundMeter = meters.computeIfAbsent(
+                        name, n -> new BoundMeter(unit, meterProvider.meter(n, unit, dimensions)));
+            }
+            if (!boundMeter.unit.equals(unit)) {
+                throw new IllegalArgumentException("Cannot add to existing metric with different unit");
+            }
+            return boundMeter.meter;
+        }
+
+        private List<Dimension> withDimension(String name, String value) {
+            final Dimension dimension =
+                    Dimension.builder().name(name).value(value).build();
+            if (dimensions.contains(dimension)) {
+                return dimensions;
+            }
+            final List<Dimension> newDimensions = new ArrayList<>(dimensions.size() + 1);
+            newDimensions.addAll(dimensions);
+            newDimensions.add(dimension);
+            newDimensions.sort(DIMENSION_ORDER);
+            return Collections.unmodifiableList(newDimensions);
+        }
+    }
+
+    /**
+     * Key of a set of dimensions in the cache: the set it was reached from, by identity, and the added dimension. Sets
+     * reached from an evicted set are no longer looked up, and are evicted in turn as they age.
+     */
+    private static final class ChildKey {
+        private final DimensionNode parent;
+        private final String name;
+        private final String value;
+
+        private ChildKey(DimensionNode parent, String name, String value) {
+            this.parent = parent;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ChildKey)) {
+                return false;
+            }
+            final ChildKey other = (ChildKey) o;
+            return parent == other.parent && name.equals(other.name) && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(parent) * 31 + name.hashCode()) * 31 + value.hashCode();
+        }
+    }
+
+    private static final class BoundMeter {
+        private final StandardUnit unit;
+        private final MeterProvider.Meter meter;
+
+        private BoundMeter(StandardUnit unit, MeterProvider.Meter meter) {
+            this.unit = unit;
+            this.meter = meter;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Metrics scope for a {@link MeterMetricsFactory}. Data and dimensions are filtered the same way as by
+ * {@link FilteringMetricsScope}. Dimensions apply to all data of the scope, wherever they are added, so the data is
+ * kept in primitive slots until the scope ends, when each value is recorded into the cached meter of its metric.
+ */
+class MeterMetricsScope implements MetricsScope {
+    private static final int INITIAL_SLOTS = 8;
+
+    /**
+     * Enabled level for the metrics. All metrics below this level will be dropped.
+     */
+    private final MetricsLevel metricsLevel;
+    /**
+     * Set of dimensions that are allowed to be emitted.
+     */
+    private final Set<String> metricsEnabledDimensions;
+    /**
+     * Flag that indicates whether all metrics dimensions are allowed or not.
+     */
+    private final boolean metricsEnabledDimensionsAll;
+
+    private MeterMetricsFactory.DimensionNode dimensions;
+
+    private String[] names = new String[INITIAL_SLOTS];
+    private StandardUnit[] units = new StandardUnit[INITIAL_SLOTS];
+    private double[] values = new double[INITIAL_SLOTS];
+    private int slotCount = 0;
+    private boolean ended = false;
+
+    MeterMetricsScope(MeterMetricsFactory factory, MetricsLevel metricsLevel, Set<String> metricsEnabledDimensions) {
+        this.dimensions = factory.root();
+        this.metricsLevel = metricsLevel;
+        this.metricsEnabledDimensions = metricsEnabledDimensions;
+        this.metricsEnabledDimensionsAll = metricsEnabledDimensions.contains(METRICS_DIMENSIONS_ALL);
+    }
+
+    @Override
+    public void addData(String name, double value, StandardUnit unit) {
+        addData(name, value, unit, MetricsLevel.DETAILED);
+    }
+
+    @Override
+    public void addData(String name, double value, StandardUnit unit, MetricsLevel level) {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call addData after calling IMetricsScope.end()");
+        }
+        if (level.getValue() < metricsLevel.getValue()) {
+            // Drop the data.
+            return;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (names[slot].equals(name) && !units[slot].equals(unit)) {
+                throw new IllegalArgumentException("Cannot add to existing metric with different unit");
+            }
+        }
+
+        if (slotCount == names.length) {
+            final int length = names.length * 2;
+            names = Arrays.copyOf(names, length);
+            units = Arrays.copyOf(units, length);
+            values = Arrays.copyOf(values, length);
+        }
+        names[slotCount] = name;
+        units[slotCount] = unit;
+        values[slotCount] = value;
+        slotCount++;
+    }
+
+    @Override
+    public void addDimension(String name, String value) {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call addDimension after calling IMetricsScope.end()");
+        }
+        if (!metricsEnabledDimensionsAll && !metricsEnabledDimensions.contains(name)) {
+            // Drop dimension.
+            return;
+        }
+        dimensions = dimensions.child(name, value);
+    }
+
+    /**
+     * Records the data of the scope into the meters of its metrics, with the dimensions of the scope.
+     */
+    @Override
+    public void end() {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call IMetricsScope.end() more than once on the same instance");
+        }
+        ended = true;
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            dimensions.meter(names[slot], units[slot]).record(values[slot]);
+        }
+    }
+}
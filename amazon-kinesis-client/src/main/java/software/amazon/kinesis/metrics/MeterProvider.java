@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.List;
+
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Provides the meters that a {@link MeterMetricsFactory} records KCL metrics into, e.g. by registering them with a
+ * Micrometer or OpenTelemetry meter registry.
+ *
+ * <p>
+ * Each meter is requested once per metric name and set of dimensions, and its handle is cached by the factory, so the
+ * provider may register a meter of any kind: a counter for {@link StandardUnit#COUNT}, a timer for
+ * {@link StandardUnit#MILLISECONDS}, and a distribution summary otherwise, for example. The provider may be asked for
+ * the same meter more than once, when scopes add the same dimensions in a different order, and should return an
+ * equivalent meter each time.
+ * </p>
+ */
+@FunctionalInterface
+public interface MeterProvider {
+
+    /**
+     * @param name metric name, e.g. RecordProcessor.processRecords.Time
+     * @param unit unit of the values recorded into the meter
+     * @param dimensions dimensions of the meter, sorted by name and value, e.g. Operation and ShardId
+     * @return the meter to record values of the metric into
+     */
+    Meter meter(String name, StandardUnit unit, List<Dimension> dimensions);
+
+    /**
+     * A meter that values of one metric, with one set of dimensions, are recorded into. Meters are shared by all
+     * scopes, and so are recorded into from many threads.
+     */
+    @FunctionalInterface
+    interface Meter {
+
+        /**
+         * @param value value of the metric
+         */
+        void record(double value);
+    }
+}
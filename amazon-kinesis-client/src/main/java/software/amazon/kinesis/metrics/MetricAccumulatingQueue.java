@@ -15,11 +15,13 @@
 package software.amazon.kinesis.metrics;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
 import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
@@ -27,6 +29,17 @@ import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
 /**
  * Helper class for accumulating MetricDatums with the same name and dimensions.
  *
+ * <p>
+ * The queue is safe to offer into from many threads without a shared lock. Each key is accumulated into a cell of its
+ * own that holds the statistics as primitives, so threads only contend when they offer the same key at the same time,
+ * and the accumulated MetricDatum is only built when the cell is drained.
+ * </p>
+ *
+ * <p>
+ * Keys whose first MetricDatum carries Values and Counts, rather than a StatisticSet, are accumulated into a
+ * {@link MetricHistogram}, and drained as one or more MetricDatums with the Values and Counts of the histogram.
+ * </p>
+ *
  * @param <KeyType> can be a class or object defined by the user that stores information about a MetricDatum needed
  *        by the user.
  *
@@ -42,33 +55,43 @@ import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
  */
 public class MetricAccumulatingQueue<KeyType> {
 
+    private final int maxQueueSize;
     // Queue is for first in first out behavior
-    private BlockingQueue<MetricDatumWithKey<KeyType>> queue;
+    private final Queue<Cell<KeyType>> queue = new ConcurrentLinkedQueue<>();
     // Map is for constant time lookup by key
-    private Map<KeyType, MetricDatumWithKey<KeyType>> map;
+    private final ConcurrentMap<KeyType, Cell<KeyType>> map = new ConcurrentHashMap<>();
+    // Number of keys in the queue, reserved before a key is added so that the queue never exceeds its maximum size
+    private final AtomicInteger size = new AtomicInteger();
 
     public MetricAccumulatingQueue(int maxQueueSize) {
-        queue = new LinkedBlockingQueue<>(maxQueueSize);
-        map = new HashMap<>();
+        this.maxQueueSize = maxQueueSize;
     }
 
     /**
      * @param maxItems number of items to remove from the queue.
      * @return a list of MetricDatums that are no longer contained within the queue or map.
      */
-    public synchronized List<MetricDatumWithKey<KeyType>> drain(int maxItems) {
-        List<MetricDatumWithKey<KeyType>> drainedItems = new ArrayList<>(maxItems);
-        queue.drainTo(drainedItems, maxItems);
-        drainedItems.forEach(datumWithKey -> map.remove(datumWithKey.key));
+    public List<MetricDatumWithKey<KeyType>> drain(int maxItems) {
+        List<MetricDatumWithKey<KeyType>> drainedItems = new ArrayList<>(Math.min(maxItems, size()));
+        Cell<KeyType> cell;
+        while (drainedItems.size() < maxItems && (cell = queue.poll()) != null) {
+            // Removing the key first makes later offers start a new cell, while offers that already hold this cell
+            // either make it into the drained datum or retry.
+            size.decrementAndGet();
+            map.remove(cell.key, cell);
+            for (MetricDatum datum : cell.drain()) {
+                drainedItems.add(new MetricDatumWithKey<>(cell.key, datum));
+            }
+        }
         return drainedItems;
     }
 
-    public synchronized boolean isEmpty() {
-        return queue.isEmpty();
+    public boolean isEmpty() {
+        return size() == 0;
     }
 
-    public synchronized int size() {
-        return queue.size();
+    public int size() {
+        return size.get();
     }
 
     /**
@@ -79,40 +102,115 @@ public class MetricAccumulatingQueue<KeyType> {
      * @param datum metric to be inserted into queue
      * @return a boolean depending on whether the datum was inserted into the queue
      */
-    public synchronized boolean offer(KeyType key, MetricDatum datum) {
-        MetricDatumWithKey<KeyType> metricDatumWithKey = map.get(key);
-
-        if (metricDatumWithKey == null) {
-            metricDatumWithKey = new MetricDatumWithKey<>(key, datum);
-            boolean offered = queue.offer(metricDatumWithKey);
-            if (offered) {
-                map.put(key, metricDatumWithKey);
+    public boolean offer(KeyType key, MetricDatum datum) {
+        while (true) {
+            Cell<KeyType> cell = map.get(key);
+            if (cell == null) {
+                if (size.incrementAndGet() > maxQueueSize) {
+                    size.decrementAndGet();
+                    if (!map.containsKey(key)) {
+                        return false;
+                    }
+                    // Another thread added the key in the meantime, so the datum can still be accumulated.
+                    continue;
+                }
+                final Cell<KeyType> newCell = new Cell<>(key, datum);
+                cell = map.putIfAbsent(key, newCell);
+                if (cell == null) {
+                    queue.offer(newCell);
+                    return true;
+                }
+                size.decrementAndGet();
             }
-
-            return offered;
-        } else {
-            accumulate(metricDatumWithKey, datum);
-            return true;
+            if (cell.accumulate(datum)) {
+                return true;
+            }
+            // The cell was drained concurrently, so the datum goes into a new cell.
         }
     }
 
-    private void accumulate(MetricDatumWithKey<KeyType> metricDatumWithKey, MetricDatum newDatum) {
-        MetricDatum oldDatum = metricDatumWithKey.datum;
-        if (!oldDatum.unit().equals(newDatum.unit())) {
-            throw new IllegalArgumentException("Unit mismatch for datum named " + oldDatum.metricName());
+    /**
+     * The accumulated statistics of one key.
+     */
+    private static final class Cell<KeyType> {
+        private final KeyType key;
+        private final MetricDatum firstDatum;
+        private final MetricHistogram histogram;
+        private boolean accumulated;
+        private boolean drained;
+        private double sum;
+        private double minimum;
+        private double maximum;
+        private double sampleCount;
+
+        Cell(KeyType key, MetricDatum firstDatum) {
+            this.key = key;
+            this.firstDatum = firstDatum;
+            this.histogram = MetricHistogram.hasValues(firstDatum) ? new MetricHistogram() : null;
         }
 
-        StatisticSet oldStats = oldDatum.statisticValues();
-        StatisticSet newStats = newDatum.statisticValues();
+        /**
+         * @return false if the cell has already been drained, and the datum was not accumulated
+         */
+        synchronized boolean accumulate(MetricDatum newDatum) {
+            if (drained) {
+                return false;
+            }
+            if (!firstDatum.unit().equals(newDatum.unit())) {
+                throw new IllegalArgumentException("Unit mismatch for datum named " + firstDatum.metricName());
+            }
 
-        StatisticSet statisticSet = oldStats.toBuilder()
-                .sum(oldStats.sum() + newStats.sum())
-                .minimum(Math.min(oldStats.minimum(), newStats.minimum()))
-                .maximum(Math.max(oldStats.maximum(), newStats.maximum()))
-                .sampleCount(oldStats.sampleCount() + newStats.sampleCount())
-                .build();
+            if (histogram != null) {
+                if (!accumulated) {
+                    histogram.record(firstDatum);
+                    accumulated = true;
+                }
+                histogram.record(newDatum);
+                return true;
+            }
+
+            if (!accumulated) {
+                final StatisticSet firstStats = firstDatum.statisticValues();
+                sum = firstStats.sum();
+                minimum = firstStats.minimum();
+                maximum = firstStats.maximum();
+                sampleCount = firstStats.sampleCount();
+                accumulated = true;
+            }
+
+            final StatisticSet newStats = MetricHistogram.hasValues(newDatum)
+                    ? MetricHistogram.statistics(newDatum)
+                    : newDatum.statisticValues();
+            sum += newStats.sum();
+            minimum = Math.min(minimum, newStats.minimum());
+            maximum = Math.max(maximum, newStats.maximum());
+            sampleCount += newStats.sampleCount();
+            return true;
+        }
 
-        MetricDatum datum = oldDatum.toBuilder().statisticValues(statisticSet).build();
-        metricDatumWithKey.datum(datum);
+        /**
+         * @return the accumulated data, after which no more data can be accumulated into the cell
+         */
+        synchronized List<MetricDatum> drain() {
+            drained = true;
+            if (!accumulated) {
+                return Collections.singletonList(firstDatum);
+            }
+
+            if (histogram != null) {
+                final List<MetricDatum> data = new ArrayList<>(1);
+                histogram.addData(firstDatum, data);
+                return data;
+            }
+
+            final StatisticSet statisticSet = firstDatum.statisticValues().toBuilder()
+                    .sum(sum)
+                    .minimum(minimum)
+                    .maximum(maximum)
+                    .sampleCount(sampleCount)
+                    .build();
+            return Collections.singletonList(
+                    firstDatum.toBuilder().statisticValues(statisticSet).build());
+        }
     }
 }
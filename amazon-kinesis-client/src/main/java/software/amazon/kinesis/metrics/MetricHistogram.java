@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+/**
+ * A fixed size histogram of non-negative metric values, published to CloudWatch as the Values and Counts of a
+ * MetricDatum so that CloudWatch can compute percentiles of the values.
+ *
+ * <p>
+ * Buckets are log-linear: every power of two between 2^{@value #MIN_EXPONENT} and 2^{@value #MAX_EXPONENT} is split
+ * into {@value #SUB_BUCKETS} buckets of equal width, and each bucket is published as its midpoint, which is within
+ * 1/{@value #SUB_BUCKETS}th of every value in the bucket. Values below and above that range are counted in buckets
+ * published as the minimum and maximum value, and zero and negative values are counted in a bucket of their own. The
+ * minimum and maximum are kept exactly, and bucket midpoints are clamped to them, so a histogram of a single value
+ * publishes that exact value.
+ * </p>
+ *
+ * <p>
+ * Histograms are not thread safe.
+ * </p>
+ */
+final class MetricHistogram {
+    /**
+     * CloudWatch accepts at most this many values per MetricDatum, so histograms with more buckets than this are
+     * published as several MetricDatums, which CloudWatch aggregates.
+     */
+    static final int MAX_VALUES_PER_DATUM = 150;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = -10;
+    private static final int MAX_EXPONENT = 40;
+    private static final int UNDERFLOW_BUCKET = 1;
+    private static final int OVERFLOW_BUCKET = 2 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+    private static final int BUCKETS = OVERFLOW_BUCKET + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private double minimum = Double.POSITIVE_INFINITY;
+    private double maximum = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param value value to count
+     * @param count number of times to count the value
+     */
+    void record(double value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        counts[bucket(value)] += count;
+        minimum = Math.min(minimum, value);
+        maximum = Math.max(maximum, value);
+    }
+
+    /**
+     * Counts the values of a datum. The values of a datum with a StatisticSet are not known, so its minimum and maximum
+     * are counted once each, and the rest of its samples are counted at the mean of the remaining sum.
+     *
+     * @param datum datum with either Values and Counts, or a StatisticSet
+     */
+    void record(MetricDatum datum) {
+        if (hasValues(datum)) {
+            final List<Double> values = datum.values();
+            final List<Double> datumCounts = datum.counts();
+            for (int i = 0; i < values.size(); i++) {
+                record(values.get(i), datumCounts.isEmpty() ? 1 : Math.round(datumCounts.get(i)));
+            }
+            return;
+        }
+
+        final StatisticSet statistics = datum.statisticValues();
+        final long sampleCount = Math.round(statistics.sampleCount());
+        if (sampleCount == 1) {
+            record(statistics.minimum(), 1);
+        } else if (sampleCount > 1) {
+            record(statistics.minimum(), 1);
+            record(statistics.maximum(), 1);
+            final double remainder = statistics.sum() - statistics.minimum() - statistics.maximum();
+            record(remainder / (sampleCount - 2), sampleCount - 2);
+        }
+    }
+
+    /**
+     * Adds the counted values to the given list, as MetricDatums with the name, unit and dimensions of the template.
+     *
+     * @param template datum to take the name, unit and dimensions from
+     * @param data list to add the datums to
+     */
+    void addData(MetricDatum template, List<MetricDatum> data) {
+        List<Double> values = new ArrayList<>();
+        List<Double> valueCounts = new ArrayList<>();
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (counts[bucket] == 0) {
+                continue;
+            }
+            values.add(value(bucket));
+            valueCounts.add((double) counts[bucket]);
+            if (values.size() == MAX_VALUES_PER_DATUM) {
+                data.add(datum(template, values, valueCounts));
+                values = new ArrayList<>();
+                valueCounts = new ArrayList<>();
+            }
+        }
+        if (!values.isEmpty()) {
+            data.add(datum(template, values, valueCounts));
+        }
+    }
+
+    /**
+     * @return true if the datum carries Values rather than a StatisticSet
+     */
+    static boolean hasValues(MetricDatum datum) {
+        return datum.values() != null && !datum.values().isEmpty();
+    }
+
+    /**
+     * @return the sum, minimum, maximum and sample count of a datum with Values and Counts
+     */
+    static StatisticSet statistics(MetricDatum datum) {
+        final List<Double> values = datum.values();
+        final List<Double> datumCounts = datum.counts();
+        double sum = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        double sampleCount = 0;
+        for (int i = 0; i < values.size(); i++) {
+            final double value = values.get(i);
+            final double count = datumCounts.isEmpty() ? 1 : datumCounts.get(i);
+            sum += value * count;
+            minimum = Math.min(minimum, value);
+            maximum = Math.max(maximum, value);
+            sampleCount += count;
+        }
+        return StatisticSet.builder()
+                .sum(sum)
+                .minimum(minimum)
+                .maximum(maximum)
+                .sampleCount(sampleCount)
+                .build();
+    }
+
+    private static MetricDatum datum(MetricDatum template, List<Double> values, List<Double> counts) {
+        return template.toBuilder()
+                .statisticValues((StatisticSet) null)
+                .values(values)
+                .counts(counts)
+                .build();
+    }
+
+    private static int bucket(double value) {
+        if (!(value > 0)) {
+            return 0;
+        }
+        final int exponent = Math.getExponent(value);
+        if (exponent < MIN_EXPONENT) {
+            return UNDERFLOW_BUCKET;
+        }
+        if (exponent >= MAX_EXPONENT) {
+            return OVERFLOW_BUCKET;
+        }
+        final int subBucket = (int) (Double.doubleToRawLongBits(value) >>> (52 - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return UNDERFLOW_BUCKET + 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    private double value(int bucket) {
+        if (bucket == UNDERFLOW_BUCKET) {
+            return minimum;
+        }
+        if (bucket == OVERFLOW_BUCKET) {
+            return maximum;
+        }
+        if (bucket == 0) {
+            return Math.max(minimum, Math.min(maximum, 0));
+        }
+        final int exponent = MIN_EXPONENT + (bucket - UNDERFLOW_BUCKET - 1) / SUB_BUCKETS;
+        final int subBucket = (bucket - UNDERFLOW_BUCKET - 1) % SUB_BUCKETS;
+        final double midpoint = Math.scalb(1 + (subBucket + 0.5) / SUB_BUCKETS, exponent);
+        return Math.max(minimum, Math.min(maximum, midpoint));
+    }
+}
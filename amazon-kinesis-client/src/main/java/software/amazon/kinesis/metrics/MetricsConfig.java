@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableSet;
 import lombok.Data;
 import lombok.experimental.Accessors;
 import software.amazon.awssdk.services.cloudwatch.CloudWatchAsyncClient;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 
 /**
  * Used by KCL to configure the metrics reported by the application.
@@ -107,6 +108,29 @@ public class MetricsConfig {
      */
     private int publisherFlushBuffer = 200;
 
+    /**
+     * Units of the CloudWatch metrics to publish as histograms. Metrics with these units are published as the Values
+     * and Counts of log-linear histograms, so that CloudWatch can report percentiles such as p99 for them, e.g.
+     * {@link StandardUnit#MILLISECONDS} for latencies like RecordProcessor.processRecords.Time. Histogram values are
+     * accurate to within about 6%, and each metric key buffers a fixed size histogram until it is published.
+     *
+     * <p>
+     * Default value: no units, all metrics are published as statistic sets
+     * </p>
+     */
+    private HashSet<StandardUnit> metricsHistogramUnits = new HashSet<>();
+
+    /**
+     * Whether CloudWatch metrics scopes accumulate their data into primitive slots, and share their dimensions with
+     * the other scopes, rather than rebuilding a MetricDatum on every call to addData. See
+     * {@link PrimitiveCloudWatchMetricsScope}.
+     *
+     * <p>
+     * Default value: false
+     * </p>
+     */
+    private boolean primitiveMetricsScopes = false;
+
     private MetricsFactory metricsFactory;
 
     public MetricsFactory metricsFactory() {
@@ -118,7 +142,9 @@ public class MetricsConfig {
                     metricsMaxQueueSize(),
                     metricsLevel(),
                     metricsEnabledDimensions(),
-                    publisherFlushBuffer());
+                    publisherFlushBuffer(),
+                    metricsHistogramUnits(),
+                    primitiveMetricsScopes());
         }
         return metricsFactory;
     }
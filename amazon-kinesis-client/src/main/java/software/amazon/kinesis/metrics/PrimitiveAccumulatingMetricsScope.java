@@ -0,0 +1,329 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+import software.amazon.awssdk.services.cloudwatch.model.StatisticSet;
+
+/**
+ * A metrics scope that accumulates data into primitive min, max, sum and sample count slots, one per metric name, and
+ * only builds the {@link MetricDatum}s once the scope ends. Data and dimensions are filtered the same way as by
+ * {@link FilteringMetricsScope}, and data added with the same name is accumulated the same way as by
+ * {@link AccumulatingMetricsScope}, without rebuilding a MetricDatum for every call to addData.
+ *
+ * Scopes hold a handful of metrics, so slots are found by a linear scan that compares names by identity before
+ * equality, which matches the constant names metrics are added with on the first comparison. Dimensions can be
+ * interned across the scopes of a factory with {@link InternedDimensions}.
+ *
+ * Metrics with one of the given histogram units are built with Values and Counts instead of a StatisticSet, so that
+ * CloudWatch can compute their percentiles. A {@link MetricHistogram} is only allocated for such a metric once it is
+ * added to the scope a second time.
+ */
+public abstract class PrimitiveAccumulatingMetricsScope implements MetricsScope {
+    private static final int INITIAL_SLOTS = 4;
+
+    /**
+     * Enabled level for the metrics. All metrics below this level will be dropped.
+     */
+    private final MetricsLevel metricsLevel;
+    /**
+     * Set of dimensions that are allowed to be emitted.
+     */
+    private final Set<String> metricsEnabledDimensions;
+    /**
+     * Flag that indicates whether all metrics dimensions are allowed or not.
+     */
+    private final boolean metricsEnabledDimensionsAll;
+    /**
+     * Units of the metrics that are built as histograms.
+     */
+    private final Set<StandardUnit> histogramUnits;
+    /**
+     * Dimensions shared with other scopes, or null if dimensions are not interned.
+     */
+    private final InternedDimensions internedDimensions;
+
+    private String[] names = new String[INITIAL_SLOTS];
+    private StandardUnit[] units = new StandardUnit[INITIAL_SLOTS];
+    private double[] minimums = new double[INITIAL_SLOTS];
+    private double[] maximums = new double[INITIAL_SLOTS];
+    private double[] sums = new double[INITIAL_SLOTS];
+    private long[] sampleCounts = new long[INITIAL_SLOTS];
+    private MetricHistogram[] histograms;
+    private int slotCount = 0;
+
+    /**
+     * Dimensions of the scope, kept sorted by name and value so that scopes with the same dimensions produce equal
+     * lists of dimensions whatever order they were added in.
+     */
+    private Dimension[] dimensions = new Dimension[INITIAL_SLOTS];
+
+    private int dimensionCount = 0;
+    private boolean ended = false;
+
+    /**
+     * Creates a metrics scope that allows all metrics data and dimensions.
+     */
+    public PrimitiveAccumulatingMetricsScope() {
+        this(MetricsLevel.DETAILED, ImmutableSet.of(METRICS_DIMENSIONS_ALL));
+    }
+
+    /**
+     * Creates a metrics scope that drops data with level below the given enabled level and only allows dimensions
+     * that are part of the given enabled dimensions list.
+     * @param metricsLevel Level of metrics that is enabled. All metrics below this level will be dropped.
+     * @param metricsEnabledDimensions Enabled dimensions.
+     */
+    public PrimitiveAccumulatingMetricsScope(MetricsLevel metricsLevel, Set<String> metricsEnabledDimensions) {
+        this(metricsLevel, metricsEnabledDimensions, Collections.emptySet());
+    }
+
+    /**
+     * Creates a metrics scope that drops data with level below the given enabled level, only allows dimensions that
+     * are part of the given enabled dimensions list, and builds metrics with the given units as histograms.
+     * @param metricsLevel Level of metrics that is enabled. All metrics below this level will be dropped.
+     * @param metricsEnabledDimensions Enabled dimensions.
+     * @param histogramUnits Units of the metrics to build as histograms.
+     */
+    public PrimitiveAccumulatingMetricsScope(
+            MetricsLevel metricsLevel, Set<String> metricsEnabledDimensions, Set<StandardUnit> histogramUnits) {
+        this(metricsLevel, metricsEnabledDimensions, histogramUnits, null);
+    }
+
+    /**
+     * Creates a metrics scope that drops data with level below the given enabled level, only allows dimensions that
+     * are part of the given enabled dimensions list, builds metrics with the given units as histograms, and takes its
+     * dimensions from the given interned dimensions.
+     * @param metricsLevel Level of metrics that is enabled. All metrics below this level will be dropped.
+     * @param metricsEnabledDimensions Enabled dimensions.
+     * @param histogramUnits Units of the metrics to build as histograms.
+     * @param internedDimensions Dimensions shared with other scopes, or null to build the dimensions of this scope.
+     */
+    public PrimitiveAccumulatingMetricsScope(
+            MetricsLevel metricsLevel,
+            Set<String> metricsEnabledDimensions,
+            Set<StandardUnit> histogramUnits,
+            InternedDimensions internedDimensions) {
+        this.histogramUnits = histogramUnits;
+        this.internedDimensions = internedDimensions;
+        this.metricsLevel = metricsLevel;
+        this.metricsEnabledDimensions = metricsEnabledDimensions;
+        this.metricsEnabledDimensionsAll =
+                (metricsEnabledDimensions != null && metricsEnabledDimensions.contains(METRICS_DIMENSIONS_ALL));
+    }
+
+    /**
+     * Adds the data to the metrics scope at lowest metrics level.
+     * @param name Metrics data name.
+     * @param value Value of the metrics.
+     * @param unit Unit of the metrics.
+     */
+    @Override
+    public void addData(String name, double value, StandardUnit unit) {
+        addData(name, value, unit, MetricsLevel.DETAILED);
+    }
+
+    /**
+     * Adds the data to the metrics scope if the given level is equal to above the enabled metrics level.
+     * @param name Metrics data name.
+     * @param value Value of the metrics.
+     * @param unit Unit of the metrics.
+     * @param level Metrics level for the data.
+     */
+    @Override
+    public void addData(String name, double value, StandardUnit unit, MetricsLevel level) {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call addData after calling IMetricsScope.end()");
+        }
+        if (level.getValue() < metricsLevel.getValue()) {
+            // Drop the data.
+            return;
+        }
+
+        final int slot = slot(name);
+        if (slot < 0) {
+            addSlot(name, value, unit);
+            return;
+        }
+        if (!units[slot].equals(unit)) {
+            throw new IllegalArgumentException("Cannot add to existing metric with different unit");
+        }
+        if (histogramUnits.contains(unit)) {
+            histogram(slot).record(value, 1);
+        }
+        minimums[slot] = Math.min(value, minimums[slot]);
+        maximums[slot] = Math.max(value, maximums[slot]);
+        sums[slot] += value;
+        sampleCounts[slot]++;
+    }
+
+    /**
+     * Adds given dimension with value if allowed dimensions list contains this dimension's name.
+     * @param name Name of the dimension.
+     * @param value Value for the dimension.
+     */
+    @Override
+    public void addDimension(String name, String value) {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call addDimension after calling IMetricsScope.end()");
+        }
+        if (!metricsEnabledDimensionsAll
+                && (metricsEnabledDimensions == null || !metricsEnabledDimensions.contains(name))) {
+            // Drop dimension.
+            return;
+        }
+
+        int index = dimensionCount;
+        while (index > 0) {
+            final int comparison = compare(dimensions[index - 1], name, value);
+            if (comparison == 0) {
+                return;
+            }
+            if (comparison < 0) {
+                break;
+            }
+            index--;
+        }
+        if (dimensionCount == dimensions.length) {
+            dimensions = Arrays.copyOf(dimensions, dimensions.length * 2);
+        }
+        System.arraycopy(dimensions, index, dimensions, index + 1, dimensionCount - index);
+        dimensions[index] = dimension(name, value);
+        dimensionCount++;
+    }
+
+    /**
+     * Builds the MetricDatums of the data added to the scope, with the dimensions of the scope, and hands them to
+     * {@link #publish(List)}.
+     */
+    @Override
+    public void end() {
+        if (ended) {
+            throw new IllegalArgumentException("Cannot call IMetricsScope.end() more than once on the same instance");
+        }
+        ended = true;
+
+        final List<Dimension> dimensionList = Arrays.asList(Arrays.copyOf(dimensions, dimensionCount));
+        final List<MetricDatum> data = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (histogramUnits.contains(units[slot])) {
+                addHistogramData(slot, dimensionList, data);
+                continue;
+            }
+            data.add(MetricDatum.builder()
+                    .metricName(names[slot])
+                    .unit(units[slot])
+                    .dimensions(dimensionList)
+                    .statisticValues(StatisticSet.builder()
+                            .maximum(maximums[slot])
+                            .minimum(minimums[slot])
+                            .sampleCount((double) sampleCounts[slot])
+                            .sum(sums[slot])
+                            .build())
+                    .build());
+        }
+        publish(data);
+    }
+
+    /**
+     * Called once when the scope ends.
+     *
+     * @param data the accumulated data of the scope, one MetricDatum per metric name, with the dimensions of the scope
+     */
+    protected abstract void publish(List<MetricDatum> data);
+
+    private void addHistogramData(int slot, List<Dimension> dimensionList, List<MetricDatum> data) {
+        final MetricDatum.Builder builder =
+                MetricDatum.builder().metricName(names[slot]).unit(units[slot]).dimensions(dimensionList);
+        if (histograms == null || histograms[slot] == null) {
+            data.add(builder.values(Collections.singletonList(sums[slot]))
+                    .counts(Collections.singletonList((double) sampleCounts[slot]))
+                    .build());
+            return;
+        }
+        histograms[slot].addData(builder.build(), data);
+    }
+
+    /**
+     * @return the histogram of a slot, which starts with the first value added to the slot
+     */
+    private MetricHistogram histogram(int slot) {
+        if (histograms == null) {
+            histograms = new MetricHistogram[names.length];
+        }
+        if (histograms[slot] == null) {
+            histograms[slot] = new MetricHistogram();
+            histograms[slot].record(minimums[slot], 1);
+        }
+        return histograms[slot];
+    }
+
+    private int slot(String name) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (names[slot] == name) {
+                return slot;
+            }
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (names[slot].equals(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void addSlot(String name, double value, StandardUnit unit) {
+        if (slotCount == names.length) {
+            final int length = names.length * 2;
+            names = Arrays.copyOf(names, length);
+            units = Arrays.copyOf(units, length);
+            minimums = Arrays.copyOf(minimums, length);
+            maximums = Arrays.copyOf(maximums, length);
+            sums = Arrays.copyOf(sums, length);
+            sampleCounts = Arrays.copyOf(sampleCounts, length);
+            if (histograms != null) {
+                histograms = Arrays.copyOf(histograms, length);
+            }
+        }
+        names[slotCount] = name;
+        units[slotCount] = unit;
+        minimums[slotCount] = value;
+        maximums[slotCount] = value;
+        sums[slotCount] = value;
+        sampleCounts[slotCount] = 1;
+        slotCount++;
+    }
+
+    private static int compare(Dimension dimension, String name, String value) {
+        final int comparison = dimension.name().compareTo(name);
+        return comparison != 0 ? comparison : dimension.value().compareTo(value);
+    }
+
+    private Dimension dimension(String name, String value) {
+        if (internedDimensions == null) {
+            return Dimension.builder().name(name).value(value).build();
+        }
+        return internedDimensions.dimension(name, value);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+/**
+ * Metrics scope for CloudWatch metrics that accumulates its data into primitive slots, see
+ * {@link PrimitiveAccumulatingMetricsScope}. Created instead of {@link CloudWatchMetricsScope} if
+ * {@link MetricsConfig#primitiveMetricsScopes()} is enabled.
+ */
+public class PrimitiveCloudWatchMetricsScope extends PrimitiveAccumulatingMetricsScope {
+
+    private final CloudWatchPublisherRunnable publisher;
+
+    /**
+     * Creates a CloudWatch metrics scope with given metrics level, enabled dimensions and histogram units.
+     * @param publisher Publisher that emits CloudWatch metrics periodically.
+     * @param metricsLevel Metrics level to enable. All data with level below this will be dropped.
+     * @param metricsEnabledDimensions Enabled dimensions for CloudWatch metrics.
+     * @param histogramUnits Units of the metrics to publish as histograms.
+     * @param internedDimensions Dimensions shared with the other scopes of the same factory.
+     */
+    public PrimitiveCloudWatchMetricsScope(
+            CloudWatchPublisherRunnable publisher,
+            MetricsLevel metricsLevel,
+            Set<String> metricsEnabledDimensions,
+            Set<StandardUnit> histogramUnits,
+            InternedDimensions internedDimensions) {
+        super(metricsLevel, metricsEnabledDimensions, histogramUnits, internedDimensions);
+        this.publisher = publisher;
+    }
+
+    /**
+     * Enqueues the MetricDatums of the scope to the publisher runnable, which aggregates similar metrics across scopes,
+     * see {@link CloudWatchMetricsScope#end()}.
+     */
+    @Override
+    protected void publish(List<MetricDatum> data) {
+        final List<MetricDatumWithKey<CloudWatchMetricKey>> dataWithKeys = new ArrayList<>(data.size());
+        for (MetricDatum metricDatum : data) {
+            dataWithKeys.add(new MetricDatumWithKey<>(new CloudWatchMetricKey(metricDatum), metricDatum));
+        }
+
+        publisher.enqueue(dataWithKeys);
+    }
+}
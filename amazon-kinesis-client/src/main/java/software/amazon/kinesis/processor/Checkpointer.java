@@ -14,8 +14,11 @@
  */
 package software.amazon.kinesis.processor;
 
+import java.util.concurrent.CompletableFuture;
+
 import software.amazon.kinesis.checkpoint.Checkpoint;
 import software.amazon.kinesis.exceptions.KinesisClientLibException;
+import software.amazon.kinesis.exceptions.KinesisClientLibRetryableException;
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 /**
@@ -37,6 +40,30 @@ public interface Checkpointer {
     void setCheckpoint(String leaseKey, ExtendedSequenceNumber checkpointValue, String concurrencyToken)
             throws KinesisClientLibException;
 
+    /**
+     * Record a checkpoint for a shard without blocking the caller on the write, where the checkpointer supports it.
+     * The write is still conditional on the concurrency token, as with
+     * {@link #setCheckpoint(String, ExtendedSequenceNumber, String)}. By default the checkpoint is written before
+     * returning.
+     *
+     * @param leaseKey Checkpoint is specified for this shard.
+     * @param checkpointValue Value of the checkpoint (e.g. Kinesis sequence number and subsequence number)
+     * @param concurrencyToken Used with conditional writes to prevent stale updates
+     * @return A future completed once the checkpoint is saved, or completed exceptionally with the
+     *         {@link KinesisClientLibException} thrown if it couldn't be.
+     */
+    default CompletableFuture<Void> setCheckpointAsync(
+            String leaseKey, ExtendedSequenceNumber checkpointValue, String concurrencyToken) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            setCheckpoint(leaseKey, checkpointValue, concurrencyToken);
+            future.complete(null);
+        } catch (KinesisClientLibException | KinesisClientLibRetryableException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     /**
      * Get the current checkpoint stored for the specified shard. Useful for checking that the parent shard
      * has been completely processed before we start processing the child shard.
@@ -37,4 +37,14 @@ public class ProcessorConfig {
      * <p>Default value: false</p>
      */
     private boolean callProcessRecordsEvenForEmptyRecordList = false;
+
+    /**
+     * Deaggregate KPL records on demand while the record processor iterates
+     * {@link software.amazon.kinesis.lifecycle.events.ProcessRecordsInput#lazyRecords()}, instead of deaggregating
+     * the whole batch before processRecords() is called. Only the user records of one aggregated record are held in
+     * memory at a time.
+     *
+     * <p>Default value: false</p>
+     */
+    private boolean lazyDeaggregation = false;
 }
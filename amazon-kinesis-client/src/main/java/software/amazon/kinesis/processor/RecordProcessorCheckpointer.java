@@ -14,9 +14,13 @@
  */
 package software.amazon.kinesis.processor;
 
+import java.util.concurrent.CompletableFuture;
+
 import software.amazon.awssdk.services.kinesis.model.Record;
 import software.amazon.kinesis.exceptions.InvalidStateException;
 import software.amazon.kinesis.exceptions.KinesisClientLibDependencyException;
+import software.amazon.kinesis.exceptions.KinesisClientLibException;
+import software.amazon.kinesis.exceptions.KinesisClientLibRetryableException;
 import software.amazon.kinesis.exceptions.ShutdownException;
 import software.amazon.kinesis.exceptions.ThrottlingException;
 
@@ -120,6 +124,72 @@ public interface RecordProcessorCheckpointer {
             throws KinesisClientLibDependencyException, InvalidStateException, ThrottlingException, ShutdownException,
                     IllegalArgumentException;
 
+    /**
+     * This method will checkpoint the progress at the last data record that was delivered to the record processor,
+     * like {@link #checkpoint()}, without waiting for the checkpoint to be stored. Checkpoints requested while an
+     * earlier one of the shard is still being stored are stored together, as the highest of them. The checkpoint is
+     * still conditional on this record processor holding the lease.
+     * A record processor that checkpoints asynchronously at the end of a shard must wait for the returned future before
+     * returning from shardEnded, as the shard is only complete once that checkpoint is stored.
+     * By default, the checkpoint is stored before returning.
+     *
+     * @return A future completed once the checkpoint is stored, or completed exceptionally with one of the exceptions
+     *         thrown by {@link #checkpoint()} if it couldn't be.
+     */
+    default CompletableFuture<Void> checkpointAsync() {
+        try {
+            checkpoint();
+            return CompletableFuture.completedFuture(null);
+        } catch (KinesisClientLibException | KinesisClientLibRetryableException e) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * This method will checkpoint the progress at the provided sequenceNumber without waiting for the checkpoint to be
+     * stored. It is analogous to {@link #checkpointAsync()} but provides the ability to specify the sequence number at
+     * which to checkpoint.
+     *
+     * @param sequenceNumber A sequence number at which to checkpoint in this shard.
+     * @return A future completed once the checkpoint is stored, or completed exceptionally with one of the exceptions
+     *         thrown by {@link #checkpoint(String)} if it couldn't be.
+     * @throws IllegalArgumentException The sequence number is invalid, as for {@link #checkpoint(String)}.
+     */
+    default CompletableFuture<Void> checkpointAsync(String sequenceNumber) {
+        try {
+            checkpoint(sequenceNumber);
+            return CompletableFuture.completedFuture(null);
+        } catch (KinesisClientLibException | KinesisClientLibRetryableException e) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * This method will checkpoint the progress at the provided sequenceNumber and subSequenceNumber without waiting for
+     * the checkpoint to be stored. It is analogous to {@link #checkpointAsync()} but provides the ability to specify
+     * the sequence number and subsequence number at which to checkpoint.
+     *
+     * @param sequenceNumber A sequence number at which to checkpoint in this shard.
+     * @param subSequenceNumber A subsequence number at which to checkpoint within this shard.
+     * @return A future completed once the checkpoint is stored, or completed exceptionally with one of the exceptions
+     *         thrown by {@link #checkpoint(String, long)} if it couldn't be.
+     * @throws IllegalArgumentException The sequence number is invalid, as for {@link #checkpoint(String, long)}.
+     */
+    default CompletableFuture<Void> checkpointAsync(String sequenceNumber, long subSequenceNumber) {
+        try {
+            checkpoint(sequenceNumber, subSequenceNumber);
+            return CompletableFuture.completedFuture(null);
+        } catch (KinesisClientLibException | KinesisClientLibRetryableException e) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
     /**
      * This method will record a pending checkpoint at the last data record that was delivered to the record processor.
      * If the application fails over between calling prepareCheckpoint() and checkpoint(), the init() method of the next
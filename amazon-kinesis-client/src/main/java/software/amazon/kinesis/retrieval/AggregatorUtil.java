@@ -18,16 +18,24 @@ package software.amazon.kinesis.retrieval;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import software.amazon.kinesis.retrieval.kpl.AggregatedRecordParser;
 import software.amazon.kinesis.retrieval.kpl.Messages;
 
 /**
@@ -37,9 +45,35 @@ import software.amazon.kinesis.retrieval.kpl.Messages;
 public class AggregatorUtil {
     public static final byte[] AGGREGATED_RECORD_MAGIC = new byte[] {-13, -119, -102, -62};
     private static final int DIGEST_SIZE = 16;
-    private static final BigInteger STARTING_HASH_KEY = new BigInteger("0");
-    // largest hash key = 2^128-1
-    private static final BigInteger ENDING_HASH_KEY = new BigInteger(StringUtils.repeat("FF", 16), 16);
+    private static final ThreadLocal<MessageDigest> MD5_DIGEST = ThreadLocal.withInitial(AggregatorUtil::newMd5Digest);
+
+    /**
+     * Whether user records are handed out as views of the aggregated record instead of as copies.
+     */
+    @Getter
+    @Accessors(fluent = true)
+    private final boolean zeroCopyDeaggregation;
+
+    public AggregatorUtil() {
+        this(false);
+    }
+
+    /**
+     * Creates an AggregatorUtil that can deaggregate KPL records without copying them.
+     *
+     * <p>
+     * With zero-copy deaggregation the protobuf message of an aggregated record is parsed directly from the record's
+     * data, and the data of every resulting user record is a read-only slice of that buffer. This avoids copying each
+     * aggregated payload, but a user record that is retained after processing keeps the whole aggregated record
+     * reachable, and its data no longer exposes a backing array.
+     * </p>
+     *
+     * @param zeroCopyDeaggregation
+     *            true to hand out user records as read-only views of the aggregated record's data, false to copy them
+     */
+    public AggregatorUtil(boolean zeroCopyDeaggregation) {
+        this.zeroCopyDeaggregation = zeroCopyDeaggregation;
+    }
 
     /**
      * This method deaggregates the given list of Amazon Kinesis records into a
@@ -50,7 +84,7 @@ public class AggregatorUtil {
      * @return A resulting list of deaggregated KPL user records.
      */
     public List<KinesisClientRecord> deaggregate(List<KinesisClientRecord> records) {
-        return deaggregate(records, STARTING_HASH_KEY, ENDING_HASH_KEY);
+        return deaggregate(records, ShardHashKeyRange.FULL);
     }
 
     /**
@@ -67,7 +101,7 @@ public class AggregatorUtil {
      */
     public List<KinesisClientRecord> deaggregate(
             List<KinesisClientRecord> records, String startingHashKey, String endingHashKey) {
-        return deaggregate(records, new BigInteger(startingHashKey), new BigInteger(endingHashKey));
+        return deaggregate(records, ShardHashKeyRange.of(startingHashKey, endingHashKey));
     }
 
     /**
@@ -88,121 +122,266 @@ public class AggregatorUtil {
      * partition keys fall within the range of the startingHashKey and
      * the endingHashKey.
      */
-    // CHECKSTYLE:OFF NPathComplexity
     public List<KinesisClientRecord> deaggregate(
             List<KinesisClientRecord> records, BigInteger startingHashKey, BigInteger endingHashKey) {
+        return deaggregate(records, ShardHashKeyRange.of(startingHashKey, endingHashKey));
+    }
+
+    /**
+     * This method deaggregates the given list of Amazon Kinesis records into a list of KPL user records, discarding
+     * any KPL user records whose explicit hash key or partition key falls outside the given hash key range.
+     *
+     * <p>
+     * The hash keys of partition keys and explicit hash keys are computed once per call, since KPL aggregates share
+     * them through their key tables, and are checked against the range without allocating.
+     * </p>
+     *
+     * @param records      A list of Amazon Kinesis records, each possibly aggregated.
+     * @param hashKeyRange The hash key range that the explicit hash keys or partition keys of retained resulting KPL
+     *                     user records must fall within.
+     * @return A resulting list of KPL user records whose explicit hash keys or partition keys fall within the range.
+     */
+    public List<KinesisClientRecord> deaggregate(List<KinesisClientRecord> records, ShardHashKeyRange hashKeyRange) {
         List<KinesisClientRecord> result = new ArrayList<>();
+        HashKeyCache hashKeys = new HashKeyCache();
+        for (KinesisClientRecord r : records) {
+            deaggregate(r, hashKeyRange, hashKeys, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator that deaggregates the given list of Amazon Kinesis records one record at a time, as the
+     * iterator is advanced. Only the KPL user records of a single Amazon Kinesis record are held at any time.
+     *
+     * @param records A list of Amazon Kinesis records, each possibly aggregated.
+     * @return An iterator over the deaggregated KPL user records.
+     */
+    public Iterator<KinesisClientRecord> deaggregateLazily(List<KinesisClientRecord> records) {
+        return deaggregateLazily(records, ShardHashKeyRange.FULL);
+    }
+
+    /**
+     * Lazily deaggregate any KPL records found. This method converts the starting and ending hash keys to
+     * {@link BigInteger}s before passing them on to {@link #deaggregateLazily(List, BigInteger, BigInteger)}
+     *
+     * @param records
+     *            the records to potentially deaggreate
+     * @param startingHashKey
+     *            the starting hash key of the shard
+     * @param endingHashKey
+     *            the ending hash key of the shard
+     * @return An iterator over the records with any aggregate records deaggregated
+     */
+    public Iterator<KinesisClientRecord> deaggregateLazily(
+            List<KinesisClientRecord> records, String startingHashKey, String endingHashKey) {
+        return deaggregateLazily(records, ShardHashKeyRange.of(startingHashKey, endingHashKey));
+    }
+
+    /**
+     * Returns an iterator that deaggregates the given list of Amazon Kinesis records one record at a time, as the
+     * iterator is advanced. KPL user records are filtered by hash key and numbered exactly as by
+     * {@link #deaggregate(List, BigInteger, BigInteger)}, but only the KPL user records of a single Amazon Kinesis
+     * record are held at any time.
+     *
+     * @param records         A list of Amazon Kinesis records, each possibly aggregated.
+     * @param startingHashKey A BigInteger representing the starting hash key that the
+     *                        explicit hash keys or partition keys of retained resulting KPL
+     *                        user records must be greater than or equal to.
+     * @param endingHashKey   A BigInteger representing the ending hash key that the the
+     *                        explicit hash keys or partition keys of retained resulting KPL
+     *                        user records must be smaller than or equal to.
+     * @return An iterator over the KPL user records whose explicit hash keys or
+     * partition keys fall within the range of the startingHashKey and
+     * the endingHashKey.
+     */
+    public Iterator<KinesisClientRecord> deaggregateLazily(
+            List<KinesisClientRecord> records, BigInteger startingHashKey, BigInteger endingHashKey) {
+        return deaggregateLazily(records, ShardHashKeyRange.of(startingHashKey, endingHashKey));
+    }
+
+    /**
+     * Returns an iterator that deaggregates the given list of Amazon Kinesis records one record at a time, as the
+     * iterator is advanced. KPL user records are filtered by hash key and numbered exactly as by
+     * {@link #deaggregate(List, ShardHashKeyRange)}.
+     *
+     * @param records      A list of Amazon Kinesis records, each possibly aggregated.
+     * @param hashKeyRange The hash key range that the explicit hash keys or partition keys of retained resulting KPL
+     *                     user records must fall within.
+     * @return An iterator over the KPL user records whose explicit hash keys or partition keys fall within the range.
+     */
+    public Iterator<KinesisClientRecord> deaggregateLazily(
+            List<KinesisClientRecord> records, ShardHashKeyRange hashKeyRange) {
+        return new DeaggregatingIterator(records.iterator(), hashKeyRange);
+    }
+
+    /**
+     * Deaggregates a single Amazon Kinesis record, appending the resulting KPL user records to the given list. The
+     * record itself is appended if it is not aggregated.
+     */
+    // CHECKSTYLE:OFF NPathComplexity
+    private void deaggregate(
+            KinesisClientRecord r,
+            ShardHashKeyRange hashKeyRange,
+            HashKeyCache hashKeys,
+            List<KinesisClientRecord> result) {
+        long subSeqNum = 0;
+        Messages.AggregatedRecord ar =
+                zeroCopyDeaggregation ? parseAggregatedRecordInPlace(r.data()) : parseAggregatedRecord(r.data());
+
+        if (ar == null) {
+            result.add(r);
+            return;
+        }
+
+        List<String> pks = ar.getPartitionKeyTableList();
+        List<String> ehks = ar.getExplicitHashKeyTableList();
+        try {
+            int recordsInCurrRecord = 0;
+            for (Messages.Record mr : ar.getRecordsList()) {
+                String explicitHashKey = null;
+                String partitionKey = pks.get((int) mr.getPartitionKeyIndex());
+                if (mr.hasExplicitHashKeyIndex()) {
+                    explicitHashKey = ehks.get((int) mr.getExplicitHashKeyIndex());
+                }
+
+                if (!isInRange(partitionKey, explicitHashKey, hashKeyRange, hashKeys)) {
+                    for (int toRemove = 0; toRemove < recordsInCurrRecord; ++toRemove) {
+                        result.remove(result.size() - 1);
+                    }
+                    break;
+                }
+
+                ++recordsInCurrRecord;
+
+                ByteBuffer data = zeroCopyDeaggregation
+                        ? mr.getData().asReadOnlyByteBuffer().slice()
+                        : ByteBuffer.wrap(mr.getData().toByteArray());
+                KinesisClientRecord record = r.toBuilder()
+                        .data(data)
+                        .partitionKey(partitionKey)
+                        .explicitHashKey(explicitHashKey)
+                        .build();
+                result.add(convertRecordToKinesisClientRecord(record, true, subSeqNum++, explicitHashKey));
+            }
+        } catch (Exception e) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Unexpected exception during deaggregation, record was:\n");
+            sb.append("PKS:\n");
+            for (String s : pks) {
+                sb.append(s).append("\n");
+            }
+            sb.append("EHKS: \n");
+            for (String s : ehks) {
+                sb.append(s).append("\n");
+            }
+            for (Messages.Record mr : ar.getRecordsList()) {
+                sb.append("Record: [hasEhk=")
+                        .append(mr.hasExplicitHashKeyIndex())
+                        .append(", ")
+                        .append("ehkIdx=")
+                        .append(mr.getExplicitHashKeyIndex())
+                        .append(", ")
+                        .append("pkIdx=")
+                        .append(mr.getPartitionKeyIndex())
+                        .append(", ")
+                        .append("dataLen=")
+                        .append(mr.getData().size())
+                        .append("]\n");
+            }
+            sb.append("Sequence number: ")
+                    .append(r.sequenceNumber())
+                    .append("\n")
+                    .append("Raw data: ")
+                    .append(javax.xml.bind.DatatypeConverter.printBase64Binary(messageData(r.data())))
+                    .append("\n");
+            log.error(sb.toString(), e);
+        }
+    }
+
+    /**
+     * Parses the KPL aggregated record held in the given buffer by copying the protobuf message out of it. The buffer
+     * is left at its limit if it holds an aggregated record, and is rewound otherwise.
+     *
+     * @param bb the data of a Kinesis record
+     * @return the aggregated record, or null if the buffer does not hold one
+     */
+    private Messages.AggregatedRecord parseAggregatedRecord(ByteBuffer bb) {
         byte[] magic = new byte[AGGREGATED_RECORD_MAGIC.length];
         byte[] digest = new byte[DIGEST_SIZE];
 
-        for (KinesisClientRecord r : records) {
-            boolean isAggregated = true;
-            long subSeqNum = 0;
-            ByteBuffer bb = r.data();
-
-            if (bb.remaining() >= magic.length) {
-                bb.get(magic);
-            } else {
-                isAggregated = false;
-            }
+        if (bb.remaining() >= magic.length) {
+            bb.get(magic);
+        }
 
-            if (!Arrays.equals(AGGREGATED_RECORD_MAGIC, magic) || bb.remaining() <= DIGEST_SIZE) {
-                isAggregated = false;
-            }
+        if (Arrays.equals(AGGREGATED_RECORD_MAGIC, magic) && bb.remaining() > DIGEST_SIZE) {
+            int oldLimit = bb.limit();
+            bb.limit(oldLimit - DIGEST_SIZE);
+            byte[] messageData = new byte[bb.remaining()];
+            bb.get(messageData);
+            bb.limit(oldLimit);
+            bb.get(digest);
 
-            if (isAggregated) {
-                int oldLimit = bb.limit();
-                bb.limit(oldLimit - DIGEST_SIZE);
-                byte[] messageData = new byte[bb.remaining()];
-                bb.get(messageData);
-                bb.limit(oldLimit);
-                bb.get(digest);
-                byte[] calculatedDigest = calculateTailCheck(messageData);
-
-                if (!Arrays.equals(digest, calculatedDigest)) {
-                    isAggregated = false;
-                } else {
-                    try {
-                        Messages.AggregatedRecord ar = Messages.AggregatedRecord.parseFrom(messageData);
-                        List<String> pks = ar.getPartitionKeyTableList();
-                        List<String> ehks = ar.getExplicitHashKeyTableList();
-                        long aat = r.approximateArrivalTimestamp() == null
-                                ? -1
-                                : r.approximateArrivalTimestamp().toEpochMilli();
-                        try {
-                            int recordsInCurrRecord = 0;
-                            for (Messages.Record mr : ar.getRecordsList()) {
-                                String explicitHashKey = null;
-                                String partitionKey = pks.get((int) mr.getPartitionKeyIndex());
-                                if (mr.hasExplicitHashKeyIndex()) {
-                                    explicitHashKey = ehks.get((int) mr.getExplicitHashKeyIndex());
-                                }
-
-                                BigInteger effectiveHashKey = effectiveHashKey(partitionKey, explicitHashKey);
-
-                                if (effectiveHashKey.compareTo(startingHashKey) < 0
-                                        || effectiveHashKey.compareTo(endingHashKey) > 0) {
-                                    for (int toRemove = 0; toRemove < recordsInCurrRecord; ++toRemove) {
-                                        result.remove(result.size() - 1);
-                                    }
-                                    break;
-                                }
-
-                                ++recordsInCurrRecord;
-
-                                KinesisClientRecord record = r.toBuilder()
-                                        .data(ByteBuffer.wrap(mr.getData().toByteArray()))
-                                        .partitionKey(partitionKey)
-                                        .explicitHashKey(explicitHashKey)
-                                        .build();
-                                result.add(
-                                        convertRecordToKinesisClientRecord(record, true, subSeqNum++, explicitHashKey));
-                            }
-                        } catch (Exception e) {
-                            StringBuilder sb = new StringBuilder();
-                            sb.append("Unexpected exception during deaggregation, record was:\n");
-                            sb.append("PKS:\n");
-                            for (String s : pks) {
-                                sb.append(s).append("\n");
-                            }
-                            sb.append("EHKS: \n");
-                            for (String s : ehks) {
-                                sb.append(s).append("\n");
-                            }
-                            for (Messages.Record mr : ar.getRecordsList()) {
-                                sb.append("Record: [hasEhk=")
-                                        .append(mr.hasExplicitHashKeyIndex())
-                                        .append(", ")
-                                        .append("ehkIdx=")
-                                        .append(mr.getExplicitHashKeyIndex())
-                                        .append(", ")
-                                        .append("pkIdx=")
-                                        .append(mr.getPartitionKeyIndex())
-                                        .append(", ")
-                                        .append("dataLen=")
-                                        .append(mr.getData().toByteArray().length)
-                                        .append("]\n");
-                            }
-                            sb.append("Sequence number: ")
-                                    .append(r.sequenceNumber())
-                                    .append("\n")
-                                    .append("Raw data: ")
-                                    .append(javax.xml.bind.DatatypeConverter.printBase64Binary(messageData))
-                                    .append("\n");
-                            log.error(sb.toString(), e);
-                        }
-                    } catch (InvalidProtocolBufferException e) {
-                        isAggregated = false;
-                    }
+            if (Arrays.equals(digest, calculateTailCheck(messageData))) {
+                try {
+                    return Messages.AggregatedRecord.parseFrom(messageData);
+                } catch (InvalidProtocolBufferException e) {
+                    // not an aggregated record after all
                 }
             }
+        }
+
+        bb.rewind();
+        return null;
+    }
+
+    /**
+     * Parses the KPL aggregated record held in the given buffer without copying it. The user record data of the
+     * returned record are read-only views of the given buffer, and the position of the buffer is not changed.
+     *
+     * @param bb the data of a Kinesis record
+     * @return the aggregated record, or null if the buffer does not hold one
+     */
+    private Messages.AggregatedRecord parseAggregatedRecordInPlace(ByteBuffer bb) {
+        if (bb.remaining() <= AGGREGATED_RECORD_MAGIC.length + DIGEST_SIZE) {
+            return null;
+        }
+        for (int i = 0; i < AGGREGATED_RECORD_MAGIC.length; i++) {
+            if (bb.get(bb.position() + i) != AGGREGATED_RECORD_MAGIC[i]) {
+                return null;
+            }
+        }
 
-            if (!isAggregated) {
-                bb.rewind();
-                result.add(r);
+        ByteBuffer message = bb.duplicate();
+        message.position(bb.position() + AGGREGATED_RECORD_MAGIC.length);
+        message.limit(bb.limit() - DIGEST_SIZE);
+
+        byte[] calculatedDigest = calculateTailCheck(message.duplicate());
+        for (int i = 0; i < DIGEST_SIZE; i++) {
+            if (bb.get(message.limit() + i) != calculatedDigest[i]) {
+                return null;
             }
         }
-        return result;
+
+        try {
+            return AggregatedRecordParser.parse(message);
+        } catch (InvalidProtocolBufferException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies the protobuf message out of the aggregated record held between the position and the limit of the given
+     * buffer, for logging. The buffer itself is left untouched.
+     */
+    @VisibleForTesting
+    static byte[] messageData(ByteBuffer bb) {
+        ByteBuffer message = bb.duplicate();
+        message.limit(bb.limit() - DIGEST_SIZE);
+        message.position(bb.position() + AGGREGATED_RECORD_MAGIC.length);
+        byte[] messageData = new byte[message.remaining()];
+        message.get(messageData);
+        return messageData;
     }
 
     protected byte[] calculateTailCheck(byte[] data) {
@@ -217,10 +396,57 @@ public class AggregatorUtil {
         return new BigInteger(explicitHashKey);
     }
 
+    private boolean isInRange(
+            String partitionKey, String explicitHashKey, ShardHashKeyRange hashKeyRange, HashKeyCache hashKeys)
+            throws UnsupportedEncodingException {
+        if (!usesDefaultHashing()) {
+            return hashKeyRange.contains(effectiveHashKey(partitionKey, explicitHashKey));
+        }
+        long[] hashKey = hashKeys.hashKey(partitionKey, explicitHashKey);
+        return hashKey != HashKeyCache.NOT_A_HASH_KEY && hashKeyRange.contains(hashKey[0], hashKey[1]);
+    }
+
+    /**
+     * Whether hash keys and tail checks are the MD5 hashes computed by this class, which lets them be cached and
+     * computed without allocating. Otherwise every hash key goes through {@link #effectiveHashKey(String, String)}, and
+     * every tail check through {@link #calculateTailCheck(byte[])}. Subclasses may override those methods, so they only
+     * get the allocation free paths if they override this method to return true.
+     *
+     * @return true if neither {@link #effectiveHashKey(String, String)} nor {@link #calculateTailCheck(byte[])} is
+     *         overridden
+     */
+    protected boolean usesDefaultHashing() {
+        return getClass() == AggregatorUtil.class;
+    }
+
+    /**
+     * Calculates the tail check of the bytes between the position and the limit of the given buffer, without copying
+     * them unless {@link #calculateTailCheck(byte[])} may be overridden.
+     */
+    protected byte[] calculateTailCheck(ByteBuffer data) {
+        if (!usesDefaultHashing()) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            return calculateTailCheck(bytes);
+        }
+        MessageDigest d = md5Digest();
+        d.update(data);
+        return d.digest();
+    }
+
     private byte[] md5(byte[] data) {
+        return md5Digest().digest(data);
+    }
+
+    private static MessageDigest md5Digest() {
+        MessageDigest digest = MD5_DIGEST.get();
+        digest.reset();
+        return digest;
+    }
+
+    private static MessageDigest newMd5Digest() {
         try {
-            MessageDigest d = MessageDigest.getInstance("MD5");
-            return d.digest(data);
+            return MessageDigest.getInstance("MD5");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
@@ -242,4 +468,83 @@ public class AggregatorUtil {
                 .explicitHashKey(explicitHashKey)
                 .build();
     }
+
+    /**
+     * Deaggregates one Amazon Kinesis record at a time, buffering only the KPL user records of the record currently
+     * being iterated over.
+     */
+    private class DeaggregatingIterator implements Iterator<KinesisClientRecord> {
+        private final Iterator<KinesisClientRecord> records;
+        private final ShardHashKeyRange hashKeyRange;
+        private final HashKeyCache hashKeys = new HashKeyCache();
+        private final List<KinesisClientRecord> userRecords = new ArrayList<>();
+        private int next = 0;
+
+        DeaggregatingIterator(Iterator<KinesisClientRecord> records, ShardHashKeyRange hashKeyRange) {
+            this.records = records;
+            this.hashKeyRange = hashKeyRange;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == userRecords.size()) {
+                if (!records.hasNext()) {
+                    return false;
+                }
+                userRecords.clear();
+                next = 0;
+                deaggregate(records.next(), hashKeyRange, hashKeys, userRecords);
+            }
+            return true;
+        }
+
+        @Override
+        public KinesisClientRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            // drop the reference so records already handed out can be collected while the aggregate is iterated
+            return userRecords.set(next++, null);
+        }
+    }
+
+    /**
+     * Hash keys of the partition keys and explicit hash keys seen while deaggregating one batch, as the high and low
+     * 64 bits of an unsigned 128 bit value.
+     */
+    private static final class HashKeyCache {
+        /**
+         * Marks explicit hash keys that are negative or wider than 128 bits, and so lie outside every shard.
+         */
+        static final long[] NOT_A_HASH_KEY = new long[0];
+
+        private final Map<String, long[]> partitionKeyHashes = new HashMap<>();
+        private final Map<String, long[]> explicitHashKeys = new HashMap<>();
+
+        long[] hashKey(String partitionKey, String explicitHashKey) {
+            if (explicitHashKey == null) {
+                return partitionKeyHashes.computeIfAbsent(partitionKey, HashKeyCache::hashPartitionKey);
+            }
+            return explicitHashKeys.computeIfAbsent(explicitHashKey, HashKeyCache::parseExplicitHashKey);
+        }
+
+        private static long[] hashPartitionKey(String partitionKey) {
+            byte[] md5 = md5Digest().digest(partitionKey.getBytes(StandardCharsets.UTF_8));
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                high = (high << 8) | (md5[i] & 0xFF);
+                low = (low << 8) | (md5[i + Long.BYTES] & 0xFF);
+            }
+            return new long[] {high, low};
+        }
+
+        private static long[] parseExplicitHashKey(String explicitHashKey) {
+            BigInteger hashKey = new BigInteger(explicitHashKey);
+            if (hashKey.signum() < 0 || hashKey.bitLength() > 128) {
+                return NOT_A_HASH_KEY;
+            }
+            return new long[] {hashKey.shiftRight(64).longValue(), hashKey.longValue()};
+        }
+    }
 }
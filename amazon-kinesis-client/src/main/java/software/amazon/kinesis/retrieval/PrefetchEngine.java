@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.retrieval;
+
+/**
+ * How the prefetch loops of polling {@link RecordsPublisher}s are run.
+ */
+public enum PrefetchEngine {
+    /**
+     * Every shard's prefetch loop runs on a thread of its own, which sleeps between GetRecords calls and while waiting
+     * for the record processor to catch up.
+     */
+    DEDICATED_THREAD,
+
+    /**
+     * The prefetch loops of all shards run as short tasks on a small scheduled thread pool shared by the shards.
+     * Waiting between GetRecords calls and for the record processor doesn't hold a thread, so a worker can hold many
+     * more leases than it has threads. A thread of the pool is only held while a GetRecords call is in flight.
+     */
+    SHARED_SCHEDULED_POOL;
+}
@@ -85,4 +85,35 @@ public interface RecordsFetcherFactory {
     void idleMillisBetweenCalls(long idleMillisBetweenCalls);
 
     long idleMillisBetweenCalls();
+
+    /**
+     * Sets how the prefetch loops of the created RecordsPublishers are run. Factories that only support
+     * {@link PrefetchEngine#DEDICATED_THREAD} ignore any other engine, keep running the prefetch loop of each shard on
+     * an executor of its own, and keep reporting {@link PrefetchEngine#DEDICATED_THREAD} from {@link #prefetchEngine()}.
+     *
+     * @param prefetchEngine Engine that runs the prefetch loops.
+     */
+    default void prefetchEngine(PrefetchEngine prefetchEngine) {}
+
+    default PrefetchEngine prefetchEngine() {
+        return PrefetchEngine.DEDICATED_THREAD;
+    }
+
+    /**
+     * Sets the number of threads shared by the prefetch loops of all shards when using
+     * {@link PrefetchEngine#SHARED_SCHEDULED_POOL}.
+     *
+     * @param sharedPrefetchPoolSize Number of threads in the shared pool.
+     */
+    default void sharedPrefetchPoolSize(int sharedPrefetchPoolSize) {}
+
+    default int sharedPrefetchPoolSize() {
+        return 0;
+    }
+
+    /**
+     * Releases the resources shared by the RecordsPublishers created by this factory, such as the shared prefetch
+     * pool. Called once the Scheduler has shut down all of its shard consumers.
+     */
+    default void shutdown() {}
 }
@@ -55,4 +55,10 @@ public interface RetrievalFactory {
             ShardInfo shardInfo, StreamConfig streamConfig, MetricsFactory metricsFactory) {
         return createGetRecordsCache(shardInfo, metricsFactory);
     }
+
+    /**
+     * Releases the resources shared by the RecordsPublishers created by this factory. Called once the Scheduler has
+     * shut down all of its shard consumers.
+     */
+    default void shutdown() {}
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.retrieval;
+
+import java.math.BigInteger;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+
+/**
+ * The inclusive hash key range of a shard, held as unsigned 128 bit values split into their high and low 64 bits, so
+ * that hash keys can be checked against it without allocating.
+ */
+@Accessors(fluent = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@ToString(onlyExplicitlyIncluded = true)
+@KinesisClientInternalApi
+public final class ShardHashKeyRange {
+    private static final BigInteger MAX_HASH_KEY = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+    private static final BigInteger LOW_BITS = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    /**
+     * The range of all possible hash keys, 0 to 2^128 - 1.
+     */
+    public static final ShardHashKeyRange FULL = new ShardHashKeyRange(BigInteger.ZERO, MAX_HASH_KEY);
+
+    @Getter
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private final BigInteger startingHashKey;
+
+    @Getter
+    @EqualsAndHashCode.Include
+    @ToString.Include
+    private final BigInteger endingHashKey;
+
+    private final boolean empty;
+    private final long startingHashKeyHigh;
+    private final long startingHashKeyLow;
+    private final long endingHashKeyHigh;
+    private final long endingHashKeyLow;
+
+    private ShardHashKeyRange(BigInteger startingHashKey, BigInteger endingHashKey) {
+        this.startingHashKey = startingHashKey;
+        this.endingHashKey = endingHashKey;
+        this.empty = startingHashKey.compareTo(endingHashKey) > 0
+                || startingHashKey.compareTo(MAX_HASH_KEY) > 0
+                || endingHashKey.signum() < 0;
+        final BigInteger start = startingHashKey.max(BigInteger.ZERO);
+        final BigInteger end = endingHashKey.min(MAX_HASH_KEY);
+        this.startingHashKeyHigh = start.shiftRight(64).longValue();
+        this.startingHashKeyLow = start.and(LOW_BITS).longValue();
+        this.endingHashKeyHigh = end.shiftRight(64).longValue();
+        this.endingHashKeyLow = end.and(LOW_BITS).longValue();
+    }
+
+    /**
+     * @param startingHashKey the smallest hash key in the range
+     * @param endingHashKey the largest hash key in the range
+     * @return the range of hash keys between the given hash keys, inclusive
+     */
+    public static ShardHashKeyRange of(@NonNull BigInteger startingHashKey, @NonNull BigInteger endingHashKey) {
+        return new ShardHashKeyRange(startingHashKey, endingHashKey);
+    }
+
+    /**
+     * @param startingHashKey the smallest hash key in the range, as a decimal string
+     * @param endingHashKey the largest hash key in the range, as a decimal string
+     * @return the range of hash keys between the given hash keys, inclusive
+     */
+    public static ShardHashKeyRange of(@NonNull String startingHashKey, @NonNull String endingHashKey) {
+        return of(new BigInteger(startingHashKey), new BigInteger(endingHashKey));
+    }
+
+    /**
+     * @param hashKeyRange the hash key range of a shard
+     * @return the same range of hash keys
+     */
+    public static ShardHashKeyRange of(@NonNull HashKeyRange hashKeyRange) {
+        return of(hashKeyRange.startingHashKey(), hashKeyRange.endingHashKey());
+    }
+
+    /**
+     * Checks whether an unsigned 128 bit hash key lies within this range.
+     *
+     * @param hashKeyHigh the high 64 bits of the hash key
+     * @param hashKeyLow the low 64 bits of the hash key
+     * @return true if the hash key lies within this range
+     */
+    public boolean contains(long hashKeyHigh, long hashKeyLow) {
+        return !empty
+                && compare(hashKeyHigh, hashKeyLow, startingHashKeyHigh, startingHashKeyLow) >= 0
+                && compare(hashKeyHigh, hashKeyLow, endingHashKeyHigh, endingHashKeyLow) <= 0;
+    }
+
+    /**
+     * @param hashKey a hash key
+     * @return true if the hash key lies within this range
+     */
+    public boolean contains(@NonNull BigInteger hashKey) {
+        return hashKey.compareTo(startingHashKey) >= 0 && hashKey.compareTo(endingHashKey) <= 0;
+    }
+
+    private static int compare(long high, long low, long otherHigh, long otherLow) {
+        final int result = Long.compareUnsigned(high, otherHigh);
+        return result != 0 ? result : Long.compareUnsigned(low, otherLow);
+    }
+}
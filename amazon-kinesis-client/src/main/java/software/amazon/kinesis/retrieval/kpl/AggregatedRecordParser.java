@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.retrieval.kpl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import software.amazon.kinesis.annotations.KinesisClientInternalApi;
+
+/**
+ * Parses a serialized {@link Messages.AggregatedRecord} directly from a {@link ByteBuffer} without copying the user
+ * record payloads.
+ *
+ * <p>
+ * The data of every parsed {@link Messages.Record} is a read-only view of the source buffer, so the source buffer must
+ * not be modified while the parsed records are in use. Protobuf's own {@code CodedInputStream} copies buffers that are
+ * read-only and not direct, which is exactly what {@code SdkBytes#asByteBuffer()} hands out, so the wire format is
+ * walked here with absolute reads instead.
+ * </p>
+ *
+ * <p>
+ * Tags attached to user records are skipped, since deaggregation never uses them.
+ * </p>
+ */
+@KinesisClientInternalApi
+public final class AggregatedRecordParser {
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_FIXED64 = 1;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRETYPE_FIXED32 = 5;
+
+    private static final int PARTITION_KEY_TABLE_FIELD = 1;
+    private static final int EXPLICIT_HASH_KEY_TABLE_FIELD = 2;
+    private static final int RECORDS_FIELD = 3;
+
+    private static final int PARTITION_KEY_INDEX_FIELD = 1;
+    private static final int EXPLICIT_HASH_KEY_INDEX_FIELD = 2;
+    private static final int DATA_FIELD = 3;
+
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final String TRUNCATED_MESSAGE = "Aggregated record ended in the middle of a field";
+
+    private AggregatedRecordParser() {}
+
+    /**
+     * Parses the aggregated record held between the position and the limit of the given buffer. The position and limit
+     * of the buffer are not changed.
+     *
+     * @param message buffer holding the serialized aggregated record, without the KPL magic and checksum
+     * @return the parsed aggregated record, whose user record data are views of {@code message}
+     * @throws InvalidProtocolBufferException if the buffer does not hold a valid aggregated record
+     */
+    public static Messages.AggregatedRecord parse(final ByteBuffer message) throws InvalidProtocolBufferException {
+        final Reader reader = new Reader(message.asReadOnlyBuffer(), message.position(), message.limit());
+        final Messages.AggregatedRecord.Builder builder = Messages.AggregatedRecord.newBuilder();
+        while (reader.hasRemaining()) {
+            final int tag = reader.readTag();
+            final int fieldNumber = tag >>> 3;
+            final int wireType = tag & 0x7;
+            if (wireType == WIRETYPE_LENGTH_DELIMITED && fieldNumber == PARTITION_KEY_TABLE_FIELD) {
+                builder.addPartitionKeyTable(reader.readString());
+            } else if (wireType == WIRETYPE_LENGTH_DELIMITED && fieldNumber == EXPLICIT_HASH_KEY_TABLE_FIELD) {
+                builder.addExplicitHashKeyTable(reader.readString());
+            } else if (wireType == WIRETYPE_LENGTH_DELIMITED && fieldNumber == RECORDS_FIELD) {
+                final int length = reader.readLength();
+                builder.addRecords(parseRecord(reader.limited(length)));
+                reader.skip(length);
+            } else {
+                reader.skipField(wireType);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Messages.Record parseRecord(final Reader reader) throws InvalidProtocolBufferException {
+        final Messages.Record.Builder builder = Messages.Record.newBuilder();
+        while (reader.hasRemaining()) {
+            final int tag = reader.readTag();
+            final int fieldNumber = tag >>> 3;
+            final int wireType = tag & 0x7;
+            if (wireType == WIRETYPE_VARINT && fieldNumber == PARTITION_KEY_INDEX_FIELD) {
+                builder.setPartitionKeyIndex(reader.readVarint());
+            } else if (wireType == WIRETYPE_VARINT && fieldNumber == EXPLICIT_HASH_KEY_INDEX_FIELD) {
+                builder.setExplicitHashKeyIndex(reader.readVarint());
+            } else if (wireType == WIRETYPE_LENGTH_DELIMITED && fieldNumber == DATA_FIELD) {
+                builder.setData(UnsafeByteOperations.unsafeWrap(reader.readSlice()));
+            } else {
+                reader.skipField(wireType);
+            }
+        }
+        if (!builder.isInitialized()) {
+            throw new InvalidProtocolBufferException(
+                    "Aggregated user record is missing its partition key index or data");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads protobuf wire format values from a region of a buffer using absolute reads only.
+     */
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position;
+
+        private Reader(final ByteBuffer buffer, final int position, final int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+
+        Reader limited(final int length) {
+            return new Reader(buffer, position, position + length);
+        }
+
+        int readTag() throws InvalidProtocolBufferException {
+            final long tag = readVarint();
+            if ((tag >>> 3) == 0 || tag > Integer.MAX_VALUE) {
+                throw new InvalidProtocolBufferException("Invalid tag " + tag);
+            }
+            return (int) tag;
+        }
+
+        long readVarint() throws InvalidProtocolBufferException {
+            long result = 0;
+            for (int shift = 0, i = 0; i < MAX_VARINT_BYTES; shift += 7, i++) {
+                if (position >= limit) {
+                    throw new InvalidProtocolBufferException(TRUNCATED_MESSAGE);
+                }
+                final byte b = buffer.get(position++);
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new InvalidProtocolBufferException("Malformed varint");
+        }
+
+        int readLength() throws InvalidProtocolBufferException {
+            final long length = readVarint();
+            if (length < 0 || length > limit - position) {
+                throw new InvalidProtocolBufferException(TRUNCATED_MESSAGE);
+            }
+            return (int) length;
+        }
+
+        ByteBuffer readSlice() throws InvalidProtocolBufferException {
+            final int length = readLength();
+            final ByteBuffer slice = buffer.duplicate();
+            slice.limit(position + length).position(position);
+            position += length;
+            return slice.slice();
+        }
+
+        String readString() throws InvalidProtocolBufferException {
+            final ByteBuffer slice = readSlice();
+            final byte[] bytes = new byte[slice.remaining()];
+            slice.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void skip(final int length) throws InvalidProtocolBufferException {
+            if (length > limit - position) {
+                throw new InvalidProtocolBufferException(TRUNCATED_MESSAGE);
+            }
+            position += length;
+        }
+
+        void skipField(final int wireType) throws InvalidProtocolBufferException {
+            switch (wireType) {
+                case WIRETYPE_VARINT:
+                    readVarint();
+                    break;
+                case WIRETYPE_FIXED64:
+                    skip(Long.BYTES);
+                    break;
+                case WIRETYPE_LENGTH_DELIMITED:
+                    skip(readLength());
+                    break;
+                case WIRETYPE_FIXED32:
+                    skip(Integer.BYTES);
+                    break;
+                default:
+                    // groups are never produced by the KPL
+                    throw new InvalidProtocolBufferException("Unsupported wire type " + wireType);
+            }
+        }
+    }
+}
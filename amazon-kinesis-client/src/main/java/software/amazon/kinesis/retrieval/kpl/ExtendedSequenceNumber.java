@@ -14,12 +14,6 @@
  */
 package software.amazon.kinesis.retrieval.kpl;
 
-import java.math.BigInteger;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Set;
-import java.util.stream.Collectors;
-
 import lombok.EqualsAndHashCode;
 import software.amazon.kinesis.checkpoint.SentinelCheckpoint;
 
@@ -32,16 +26,36 @@ import software.amazon.kinesis.checkpoint.SentinelCheckpoint;
  * user record therefore has an integer sub-sequence number, in addition to the
  * regular sequence number of the Kinesis record. The sub-sequence number is
  * used to checkpoint within an aggregated record.
+ *
+ * <p>
+ * Whether the sequence number is a string of digits or a sentinel value is determined once on construction, so that
+ * comparisons don't need to parse the sequence numbers or allocate.
  */
 @EqualsAndHashCode
 public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber> {
+    // Define TRIM_HORIZON, LATEST, and AT_TIMESTAMP to be less than all sequence numbers, and SHARD_END to be greater
+    private static final int AT_TIMESTAMP_RANK = -3;
+    private static final int TRIM_HORIZON_RANK = -2;
+    private static final int LATEST_RANK = -1;
+    private static final int SEQUENCE_NUMBER_RANK = 0;
+    private static final int SHARD_END_RANK = 1;
+    private static final int INVALID_RANK = Integer.MIN_VALUE;
+
     private final String sequenceNumber;
     private final long subSequenceNumber;
 
-    // Define TRIM_HORIZON, LATEST, and AT_TIMESTAMP to be less than all sequence numbers
-    private static final BigInteger TRIM_HORIZON_BIG_INTEGER_VALUE = BigInteger.valueOf(-2);
-    private static final BigInteger LATEST_BIG_INTEGER_VALUE = BigInteger.valueOf(-1);
-    private static final BigInteger AT_TIMESTAMP_BIG_INTEGER_VALUE = BigInteger.valueOf(-3);
+    /**
+     * Where this sorts relative to the sentinel values, or {@link #INVALID_RANK} if the sequence number is neither a
+     * string of digits nor a sentinel value.
+     */
+    @EqualsAndHashCode.Exclude
+    private final int rank;
+
+    /**
+     * Index of the first digit of the sequence number that isn't a leading zero.
+     */
+    @EqualsAndHashCode.Exclude
+    private final int significantDigitsOffset;
 
     /**
      * Special value for LATEST.
@@ -67,17 +81,6 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
     public static final ExtendedSequenceNumber AT_TIMESTAMP =
             new ExtendedSequenceNumber(SentinelCheckpoint.AT_TIMESTAMP.toString());
 
-    /**
-     * Cache of {@link SentinelCheckpoint} values that avoids expensive
-     * try-catch and Exception handling.
-     *
-     * @see #isSentinelCheckpoint()
-     */
-    private static final Set<String> SENTINEL_VALUES =
-            Collections.unmodifiableSet(Arrays.stream(SentinelCheckpoint.values())
-                    .map(SentinelCheckpoint::name)
-                    .collect(Collectors.toSet()));
-
     /**
      * Construct an ExtendedSequenceNumber. The sub-sequence number defaults to
      * 0.
@@ -101,6 +104,8 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
     public ExtendedSequenceNumber(String sequenceNumber, Long subSequenceNumber) {
         this.sequenceNumber = sequenceNumber;
         this.subSequenceNumber = subSequenceNumber == null ? 0L : subSequenceNumber;
+        this.rank = rank(sequenceNumber);
+        this.significantDigitsOffset = rank == SEQUENCE_NUMBER_RANK ? significantDigitsOffset(sequenceNumber) : 0;
     }
 
     /**
@@ -108,35 +113,51 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
      *
      * SHARD_END is considered greatest
      * TRIM_HORIZON, LATEST and AT_TIMESTAMP are considered less than sequence numbers
-     * sequence numbers are given their big integer value
+     * sequence numbers are compared by their numeric value
      *
      * @param extendedSequenceNumber The ExtendedSequenceNumber to compare against
      * @return returns negative/0/positive if this is less than/equal to/greater than extendedSequenceNumber
      */
     @Override
     public int compareTo(ExtendedSequenceNumber extendedSequenceNumber) {
-        String secondSequenceNumber = extendedSequenceNumber.sequenceNumber();
-
-        if (!isDigitsOrSentinelValue(this) || !isDigitsOrSentinelValue(extendedSequenceNumber)) {
+        if (rank == INVALID_RANK || extendedSequenceNumber.rank == INVALID_RANK) {
             throw new IllegalArgumentException("Expected a sequence number or a sentinel checkpoint value but "
-                    + "received: first=" + sequenceNumber + " and second=" + secondSequenceNumber);
+                    + "received: first=" + sequenceNumber + " and second=" + extendedSequenceNumber.sequenceNumber());
         }
 
-        // SHARD_END is the greatest
-        if (SentinelCheckpoint.SHARD_END.toString().equals(sequenceNumber)
-                && SentinelCheckpoint.SHARD_END.toString().equals(secondSequenceNumber)) {
-            return 0;
-        } else if (SentinelCheckpoint.SHARD_END.toString().equals(secondSequenceNumber)) {
-            return -1;
-        } else if (SentinelCheckpoint.SHARD_END.toString().equals(sequenceNumber)) {
-            return 1;
+        // SHARD_END is the greatest, regardless of sub-sequence numbers
+        if (rank == SHARD_END_RANK || extendedSequenceNumber.rank == SHARD_END_RANK) {
+            return Integer.compare(rank, extendedSequenceNumber.rank);
         }
 
-        // Compare other sentinel values and serial numbers after converting them to a big integer value
-        int result = bigIntegerValue(sequenceNumber).compareTo(bigIntegerValue(secondSequenceNumber));
+        // Compare other sentinel values by their rank and sequence numbers by their numeric value
+        int result = Integer.compare(rank, extendedSequenceNumber.rank);
+        if (result == 0 && rank == SEQUENCE_NUMBER_RANK) {
+            result = compareDigits(extendedSequenceNumber);
+        }
         return result == 0 ? Long.compare(subSequenceNumber, extendedSequenceNumber.subSequenceNumber) : result;
     }
 
+    /**
+     * Compares the numeric values of two sequence numbers, digit by digit, ignoring leading zeros.
+     */
+    private int compareDigits(ExtendedSequenceNumber extendedSequenceNumber) {
+        final String secondSequenceNumber = extendedSequenceNumber.sequenceNumber;
+        final int length = sequenceNumber.length() - significantDigitsOffset;
+        final int secondLength = secondSequenceNumber.length() - extendedSequenceNumber.significantDigitsOffset;
+        if (length != secondLength) {
+            return Integer.compare(length, secondLength);
+        }
+        for (int i = 0; i < length; ++i) {
+            final char digit = sequenceNumber.charAt(significantDigitsOffset + i);
+            final char secondDigit = secondSequenceNumber.charAt(extendedSequenceNumber.significantDigitsOffset + i);
+            if (digit != secondDigit) {
+                return Integer.compare(Character.digit(digit, 10), Character.digit(secondDigit, 10));
+            }
+        }
+        return 0;
+    }
+
     /**
      *
      * @return The sequence number of the Kinesis record.
@@ -155,7 +176,7 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
     }
 
     public boolean isShardEnd() {
-        return sequenceNumber.equals(SentinelCheckpoint.SHARD_END.toString());
+        return rank == SHARD_END_RANK;
     }
 
     @Override
@@ -173,37 +194,35 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
     }
 
     /**
-     * Sequence numbers are converted, sentinels are given a value of -1. Note this method is only used after special
-     * logic associated with SHARD_END and the case of comparing two sentinel values has already passed, so we map
-     * sentinel values LATEST, TRIM_HORIZON and AT_TIMESTAMP to negative numbers so that they are considered less than
-     * sequence numbers.
+     * Sequence numbers are given a rank of 0. The sentinel values LATEST, TRIM_HORIZON and AT_TIMESTAMP are given
+     * negative ranks so that they are considered less than sequence numbers, and SHARD_END a positive rank so that it
+     * is considered greater.
      *
-     * @param sequenceNumber The string to convert to big integer value
-     * @return a BigInteger value representation of the sequenceNumber
+     * @param sequenceNumber The string to rank
+     * @return the rank of the sequenceNumber, or {@link #INVALID_RANK} if it is neither a sequence number nor a
+     *         sentinel value
      */
-    private static BigInteger bigIntegerValue(String sequenceNumber) {
+    private static int rank(String sequenceNumber) {
         if (isDigits(sequenceNumber)) {
-            return new BigInteger(sequenceNumber);
+            return SEQUENCE_NUMBER_RANK;
         } else if (SentinelCheckpoint.LATEST.toString().equals(sequenceNumber)) {
-            return LATEST_BIG_INTEGER_VALUE;
+            return LATEST_RANK;
         } else if (SentinelCheckpoint.TRIM_HORIZON.toString().equals(sequenceNumber)) {
-            return TRIM_HORIZON_BIG_INTEGER_VALUE;
+            return TRIM_HORIZON_RANK;
         } else if (SentinelCheckpoint.AT_TIMESTAMP.toString().equals(sequenceNumber)) {
-            return AT_TIMESTAMP_BIG_INTEGER_VALUE;
-        } else {
-            throw new IllegalArgumentException("Expected a string of digits, TRIM_HORIZON, LATEST or AT_TIMESTAMP but "
-                    + "received " + sequenceNumber);
+            return AT_TIMESTAMP_RANK;
+        } else if (SentinelCheckpoint.SHARD_END.toString().equals(sequenceNumber)) {
+            return SHARD_END_RANK;
         }
+        return INVALID_RANK;
     }
 
-    /**
-     * Checks if a sequence number is all digits or a {@link SentinelCheckpoint}.
-     *
-     * @param esn {@code ExtendedSequenceNumber} to validate its sequence number
-     * @return true if and only if the string is all digits or one of the SentinelCheckpoint values
-     */
-    private static boolean isDigitsOrSentinelValue(final ExtendedSequenceNumber esn) {
-        return isDigits(esn.sequenceNumber()) || esn.isSentinelCheckpoint();
+    private static int significantDigitsOffset(String digits) {
+        int offset = 0;
+        while (offset < digits.length() && Character.digit(digits.charAt(offset), 10) == 0) {
+            ++offset;
+        }
+        return offset;
     }
 
     /**
@@ -211,7 +230,7 @@ public class ExtendedSequenceNumber implements Comparable<ExtendedSequenceNumber
      * Subsequence numbers are ignored when making this determination.
      */
     public boolean isSentinelCheckpoint() {
-        return SENTINEL_VALUES.contains(sequenceNumber);
+        return rank != SEQUENCE_NUMBER_RANK && rank != INVALID_RANK;
     }
 
     /**
@@ -26,9 +26,11 @@ import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
 import software.amazon.awssdk.services.kinesis.model.GetRecordsRequest;
 import software.amazon.kinesis.retrieval.DataFetcherProviderConfig;
+import software.amazon.kinesis.retrieval.PrefetchEngine;
 import software.amazon.kinesis.retrieval.RecordsFetcherFactory;
 import software.amazon.kinesis.retrieval.RetrievalFactory;
 import software.amazon.kinesis.retrieval.RetrievalSpecificConfig;
@@ -38,12 +40,15 @@ import software.amazon.kinesis.retrieval.RetrievalSpecificConfig;
 @Setter
 @ToString
 @EqualsAndHashCode
+@Slf4j
 public class PollingConfig implements RetrievalSpecificConfig {
 
     public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
 
     public static final int DEFAULT_MAX_RECORDS = 10000;
 
+    public static final int DEFAULT_SHARED_PREFETCH_POOL_SIZE = 8;
+
     /**
      * Configurable functional interface to override the existing DataFetcher.
      */
@@ -127,6 +132,27 @@ public class PollingConfig implements RetrievalSpecificConfig {
      */
     private RecordsFetcherFactory recordsFetcherFactory = new SimpleRecordsFetcherFactory();
 
+    /**
+     * How the prefetch loops of the shards are run. With {@link PrefetchEngine#SHARED_SCHEDULED_POOL} the prefetch
+     * loops of all shards share a pool of {@link PollingConfig#sharedPrefetchPoolSize} threads, instead of each shard
+     * holding a thread of its own.
+     *
+     * <p>
+     * Default value: {@link PrefetchEngine#DEDICATED_THREAD}
+     * </p>
+     */
+    private PrefetchEngine prefetchEngine = PrefetchEngine.DEDICATED_THREAD;
+
+    /**
+     * The number of threads shared by the prefetch loops of all shards when using
+     * {@link PrefetchEngine#SHARED_SCHEDULED_POOL}. A thread is held for the duration of each GetRecords call.
+     *
+     * <p>
+     * Default value: {@value #DEFAULT_SHARED_PREFETCH_POOL_SIZE}
+     * </p>
+     */
+    private int sharedPrefetchPoolSize = DEFAULT_SHARED_PREFETCH_POOL_SIZE;
+
     /**
      * @Deprecated Use {@link PollingConfig#idleTimeBetweenReadsInMillis} instead
      */
@@ -166,6 +192,18 @@ public class PollingConfig implements RetrievalSpecificConfig {
         if (usePollingConfigIdleTimeValue) {
             recordsFetcherFactory.idleMillisBetweenCalls(idleTimeBetweenReadsInMillis);
         }
+        if (prefetchEngine != PrefetchEngine.DEDICATED_THREAD) {
+            recordsFetcherFactory.prefetchEngine(prefetchEngine);
+            if (recordsFetcherFactory.prefetchEngine() == prefetchEngine) {
+                recordsFetcherFactory.sharedPrefetchPoolSize(sharedPrefetchPoolSize);
+            } else {
+                log.warn(
+                        "{} does not support prefetch engine {}, using {}",
+                        recordsFetcherFactory.getClass().getSimpleName(),
+                        prefetchEngine,
+                        recordsFetcherFactory.prefetchEngine());
+            }
+        }
         return new SynchronousBlockingRetrievalFactory(
                 streamName(),
                 kinesisClient(),
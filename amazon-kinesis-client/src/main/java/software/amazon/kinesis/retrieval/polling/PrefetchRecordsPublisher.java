@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -75,6 +77,9 @@ import static software.amazon.kinesis.common.DiagnosticUtils.takeDelayedDelivery
  * <br/><br/>
  * There are three threads namely publisher, demand-notifier and ack-notifier which will contend to drain the events
  * to the Subscriber (ShardConsumer in KCL).
+ * <br/><br/>
+ * When created with a scheduler shared with other publishers, the prefetching runs as a series of short tasks on that
+ * scheduler instead of on a thread of its own. See {@link software.amazon.kinesis.retrieval.PrefetchEngine}.
  */
 @Slf4j
 @KinesisClientInternalApi
@@ -94,6 +99,7 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
     private Instant lastSuccessfulCall;
     private boolean isFirstGetCallTry = true;
     private final DefaultGetRecordsCacheDaemon defaultGetRecordsCacheDaemon;
+    private final ScheduledGetRecordsCacheTask scheduledGetRecordsCacheTask;
     private boolean started = false;
     private final String operation;
     private final StreamIdentifier streamId;
@@ -234,24 +240,19 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
             @NonNull final String operation,
             @NonNull final String shardId,
             final long awaitTerminationTimeoutMillis) {
-        this.getRecordsRetrievalStrategy = getRecordsRetrievalStrategy;
-        this.maxRecordsPerCall = maxRecordsPerCall;
-        this.maxPendingProcessRecordsInput = maxPendingProcessRecordsInput;
-        this.maxByteSize = maxByteSize;
-        this.maxRecordsCount = maxRecordsCount;
-        this.publisherSession = new PublisherSession(
-                new LinkedBlockingQueue<>(this.maxPendingProcessRecordsInput),
-                new PrefetchCounters(),
-                this.getRecordsRetrievalStrategy.dataFetcher());
-        this.executorService = executorService;
-        this.metricsFactory = new ThreadSafeMetricsDelegatingFactory(metricsFactory);
-        this.idleMillisBetweenCalls = idleMillisBetweenCalls;
-        this.defaultGetRecordsCacheDaemon = new DefaultGetRecordsCacheDaemon();
-        Validate.notEmpty(operation, "Operation cannot be empty");
-        this.operation = operation;
-        this.streamId = this.getRecordsRetrievalStrategy.dataFetcher().getStreamIdentifier();
-        this.streamAndShardId = this.streamId.serialize() + ":" + shardId;
-        this.awaitTerminationTimeoutMillis = awaitTerminationTimeoutMillis;
+        this(
+                maxPendingProcessRecordsInput,
+                maxByteSize,
+                maxRecordsCount,
+                maxRecordsPerCall,
+                getRecordsRetrievalStrategy,
+                executorService,
+                null,
+                idleMillisBetweenCalls,
+                metricsFactory,
+                operation,
+                shardId,
+                awaitTerminationTimeoutMillis);
     }
 
     /**
@@ -294,25 +295,120 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
                 DEFAULT_AWAIT_TERMINATION_TIMEOUT_MILLIS);
     }
 
+    /**
+     * Constructor for a PrefetchRecordsPublisher that prefetches on a scheduler shared with other publishers. Instead of
+     * sleeping between calls or while the cache is full, the prefetching schedules its next attempt on the scheduler,
+     * so it only holds a thread of the scheduler while a get records call is in flight. The scheduler is not shut down
+     * when this publisher is.
+     *
+     * @see PrefetchRecordsPublisher
+     *
+     * @param maxPendingProcessRecordsInput Max number of ProcessRecordsInput that can be held in the cache before
+     *                                     blocking
+     * @param maxByteSize Max byte size of the queue before blocking next get records call
+     * @param maxRecordsCount Max number of records in the queue across all ProcessRecordInput objects
+     * @param maxRecordsPerCall Max records to be returned per call
+     * @param getRecordsRetrievalStrategy Retrieval strategy for the get records call
+     * @param idleMillisBetweenCalls maximum time to wait before dispatching the next get records call
+     * @param metricsFactory MetricsFactory used to create metricScope
+     * @param operation Operation name of the metrics
+     * @param shardId ShardId of the shard that the publisher retrieves records for
+     * @param sharedScheduler Scheduler shared by the publishers of many shards
+     */
+    public PrefetchRecordsPublisher(
+            final int maxPendingProcessRecordsInput,
+            final int maxByteSize,
+            final int maxRecordsCount,
+            final int maxRecordsPerCall,
+            @NonNull final GetRecordsRetrievalStrategy getRecordsRetrievalStrategy,
+            final long idleMillisBetweenCalls,
+            @NonNull final MetricsFactory metricsFactory,
+            @NonNull final String operation,
+            @NonNull final String shardId,
+            @NonNull final ScheduledExecutorService sharedScheduler) {
+        this(
+                maxPendingProcessRecordsInput,
+                maxByteSize,
+                maxRecordsCount,
+                maxRecordsPerCall,
+                getRecordsRetrievalStrategy,
+                null,
+                sharedScheduler,
+                idleMillisBetweenCalls,
+                metricsFactory,
+                operation,
+                shardId,
+                DEFAULT_AWAIT_TERMINATION_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Prefetches on the executor service if it is given, or else on the shared scheduler.
+     */
+    private PrefetchRecordsPublisher(
+            final int maxPendingProcessRecordsInput,
+            final int maxByteSize,
+            final int maxRecordsCount,
+            final int maxRecordsPerCall,
+            final GetRecordsRetrievalStrategy getRecordsRetrievalStrategy,
+            final ExecutorService executorService,
+            final ScheduledExecutorService sharedScheduler,
+            final long idleMillisBetweenCalls,
+            final MetricsFactory metricsFactory,
+            final String operation,
+            final String shardId,
+            final long awaitTerminationTimeoutMillis) {
+        this.getRecordsRetrievalStrategy = getRecordsRetrievalStrategy;
+        this.maxRecordsPerCall = maxRecordsPerCall;
+        this.maxPendingProcessRecordsInput = maxPendingProcessRecordsInput;
+        this.maxByteSize = maxByteSize;
+        this.maxRecordsCount = maxRecordsCount;
+        this.publisherSession = new PublisherSession(
+                new LinkedBlockingQueue<>(this.maxPendingProcessRecordsInput),
+                new PrefetchCounters(),
+                this.getRecordsRetrievalStrategy.dataFetcher());
+        this.executorService = executorService;
+        this.metricsFactory = new ThreadSafeMetricsDelegatingFactory(metricsFactory);
+        this.idleMillisBetweenCalls = idleMillisBetweenCalls;
+        this.defaultGetRecordsCacheDaemon = executorService != null ? new DefaultGetRecordsCacheDaemon() : null;
+        this.scheduledGetRecordsCacheTask =
+                executorService != null ? null : new ScheduledGetRecordsCacheTask(sharedScheduler);
+        Validate.notEmpty(operation, "Operation cannot be empty");
+        this.operation = operation;
+        this.streamId = this.getRecordsRetrievalStrategy.dataFetcher().getStreamIdentifier();
+        this.streamAndShardId = this.streamId.serialize() + ":" + shardId;
+        this.awaitTerminationTimeoutMillis = awaitTerminationTimeoutMillis;
+    }
+
     @Override
     public void start(
             ExtendedSequenceNumber extendedSequenceNumber,
             InitialPositionInStreamExtended initialPositionInStreamExtended) {
-        if (executorService.isShutdown()) {
+        if (isExecutorShutdown()) {
             throw new IllegalStateException("ExecutorService has been shutdown.");
         }
         if (!started) {
             log.info("{} : Starting Prefetching thread and initializing publisher session.", streamAndShardId);
             publisherSession.init(extendedSequenceNumber, initialPositionInStreamExtended);
-            executorService.execute(defaultGetRecordsCacheDaemon);
+            if (scheduledGetRecordsCacheTask != null) {
+                scheduledGetRecordsCacheTask.schedule(0L);
+            } else {
+                executorService.execute(defaultGetRecordsCacheDaemon);
+            }
         } else {
             log.info("{} : Skipping publisher start as it was already started.", streamAndShardId);
         }
         started = true;
     }
 
+    private boolean isExecutorShutdown() {
+        if (scheduledGetRecordsCacheTask != null) {
+            return scheduledGetRecordsCacheTask.isShutdown();
+        }
+        return executorService.isShutdown();
+    }
+
     private void throwOnIllegalState() {
-        if (executorService.isShutdown()) {
+        if (isExecutorShutdown()) {
             throw new IllegalStateException("Shutdown has been called on the cache, can't accept new requests.");
         }
 
@@ -327,6 +423,11 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
 
     @Override
     public void shutdown() {
+        if (scheduledGetRecordsCacheTask != null) {
+            scheduledGetRecordsCacheTask.shutdown();
+            started = false;
+            return;
+        }
         defaultGetRecordsCacheDaemon.isShutdown = true;
         executorService.shutdown();
         try {
@@ -364,6 +465,7 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
         } finally {
             resetLock.writeLock().unlock();
         }
+        wakeUpScheduledTask();
     }
 
     @Override
@@ -487,6 +589,118 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
         return result;
     }
 
+    /**
+     * Makes a single get records call and wraps its result for the cache, handling any failure of the call.
+     *
+     * @return the retrieved records, or null if the call failed
+     */
+    private PrefetchRecordsRetrieved retrieveRecords() {
+        MetricsScope scope = MetricsUtil.createMetricsWithOperation(metricsFactory, operation);
+        try {
+            GetRecordsResponse getRecordsResult = getRecordsRetrievalStrategy.getRecords(maxRecordsPerCall);
+            lastSuccessfulCall = Instant.now();
+
+            final List<KinesisClientRecord> records = getRecordsResult.records().stream()
+                    .map(KinesisClientRecord::fromRecord)
+                    .collect(Collectors.toList());
+            ProcessRecordsInput processRecordsInput = ProcessRecordsInput.builder()
+                    .records(records)
+                    .millisBehindLatest(getRecordsResult.millisBehindLatest())
+                    .cacheEntryTime(lastSuccessfulCall)
+                    .isAtShardEnd(getRecordsRetrievalStrategy.dataFetcher().isShardEndReached())
+                    .childShards(getRecordsResult.childShards())
+                    .build();
+
+            PrefetchRecordsRetrieved recordsRetrieved = new PrefetchRecordsRetrieved(
+                    processRecordsInput,
+                    calculateHighestSequenceNumber(processRecordsInput),
+                    getRecordsResult.nextShardIterator(),
+                    PrefetchRecordsRetrieved.generateBatchUniqueIdentifier());
+            publisherSession.highestSequenceNumber(recordsRetrieved.lastBatchSequenceNumber);
+            log.debug(
+                    "Last sequence number retrieved for streamAndShardId {} is {}",
+                    streamAndShardId,
+                    recordsRetrieved.lastBatchSequenceNumber);
+            return recordsRetrieved;
+        } catch (RetryableRetrievalException rre) {
+            log.info(
+                    "{} :  Timeout occurred while waiting for response from Kinesis.  Will retry the request.",
+                    streamAndShardId);
+        } catch (InvalidArgumentException e) {
+            log.info(
+                    "{} :  records threw InvalidArgumentException - iterator will be refreshed before retrying",
+                    streamAndShardId,
+                    e);
+            publisherSession.dataFetcher().restartIterator();
+        } catch (ExpiredIteratorException e) {
+            log.info(
+                    "{} :  records threw ExpiredIteratorException - restarting"
+                            + " after greatest seqNum passed to customer",
+                    streamAndShardId,
+                    e);
+
+            MetricsUtil.addStreamId(scope, streamId);
+            scope.addData(EXPIRED_ITERATOR_METRIC, 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+
+            publisherSession.dataFetcher().restartIterator();
+        } catch (ProvisionedThroughputExceededException e) {
+            // Update the lastSuccessfulCall if we get a throttling exception so that we back off idleMillis
+            // for the next call
+            lastSuccessfulCall = Instant.now();
+            log.error("{} :  Exception thrown while fetching records from Kinesis", streamAndShardId, e);
+        } catch (SdkException e) {
+            log.error("{} :  Exception thrown while fetching records from Kinesis", streamAndShardId, e);
+        } finally {
+            MetricsUtil.endScope(scope);
+        }
+        return null;
+    }
+
+    /**
+     * Works out how long to wait before the next get records call, so that calls are spaced at least
+     * idleMillisBetweenCalls apart.
+     *
+     * @return the time to wait in milliseconds, 0 to call right away
+     */
+    private long millisUntilNextCall() {
+        if (lastSuccessfulCall == null && isFirstGetCallTry) {
+            isFirstGetCallTry = false;
+            return 0L;
+        }
+        // Add a sleep if lastSuccessfulCall is still null but this is not the first try to avoid retry storm
+        if (lastSuccessfulCall == null) {
+            return idleMillisBetweenCalls;
+        }
+        long timeSinceLastCall =
+                Duration.between(lastSuccessfulCall, Instant.now()).abs().toMillis();
+
+        // avoid immediate-retry storms
+        lastSuccessfulCall = null;
+        return Math.max(0L, idleMillisBetweenCalls - timeSinceLastCall);
+    }
+
+    private void callShutdownOnStrategy() {
+        if (!getRecordsRetrievalStrategy.isShutdown()) {
+            getRecordsRetrievalStrategy.shutdown();
+        }
+    }
+
+    private void logUnexpectedException(Throwable e) {
+        log.error(
+                "{} :  Unexpected exception was thrown. This could probably be an issue or a bug."
+                        + " Please search for the exception/error online to check what is going on. If the "
+                        + "issue persists or is a recurring problem, feel free to open an issue on, "
+                        + "https://github.com/awslabs/amazon-kinesis-client.",
+                streamAndShardId,
+                e);
+    }
+
+    private void wakeUpScheduledTask() {
+        if (scheduledGetRecordsCacheTask != null) {
+            scheduledGetRecordsCacheTask.wakeUp();
+        }
+    }
+
     private static class PositionResetException extends RuntimeException {}
 
     private class DefaultGetRecordsCacheDaemon implements Runnable {
@@ -509,13 +723,7 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
                     if (e instanceof InterruptedException) {
                         Thread.currentThread().interrupt();
                     }
-                    log.error(
-                            "{} :  Unexpected exception was thrown. This could probably be an issue or a bug."
-                                    + " Please search for the exception/error online to check what is going on. If the "
-                                    + "issue persists or is a recurring problem, feel free to open an issue on, "
-                                    + "https://github.com/awslabs/amazon-kinesis-client.",
-                            streamAndShardId,
-                            e);
+                    logUnexpectedException(e);
                 } finally {
                     resetLock.readLock().unlock();
                 }
@@ -524,74 +732,19 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
         }
 
         private void makeRetrievalAttempt() {
-            MetricsScope scope = MetricsUtil.createMetricsWithOperation(metricsFactory, operation);
             if (publisherSession.prefetchCounters().shouldGetNewRecords()) {
                 try {
                     sleepBeforeNextCall();
-                    GetRecordsResponse getRecordsResult = getRecordsRetrievalStrategy.getRecords(maxRecordsPerCall);
-                    lastSuccessfulCall = Instant.now();
-
-                    final List<KinesisClientRecord> records = getRecordsResult.records().stream()
-                            .map(KinesisClientRecord::fromRecord)
-                            .collect(Collectors.toList());
-                    ProcessRecordsInput processRecordsInput = ProcessRecordsInput.builder()
-                            .records(records)
-                            .millisBehindLatest(getRecordsResult.millisBehindLatest())
-                            .cacheEntryTime(lastSuccessfulCall)
-                            .isAtShardEnd(
-                                    getRecordsRetrievalStrategy.dataFetcher().isShardEndReached())
-                            .childShards(getRecordsResult.childShards())
-                            .build();
-
-                    PrefetchRecordsRetrieved recordsRetrieved = new PrefetchRecordsRetrieved(
-                            processRecordsInput,
-                            calculateHighestSequenceNumber(processRecordsInput),
-                            getRecordsResult.nextShardIterator(),
-                            PrefetchRecordsRetrieved.generateBatchUniqueIdentifier());
-                    publisherSession.highestSequenceNumber(recordsRetrieved.lastBatchSequenceNumber);
-                    log.debug(
-                            "Last sequence number retrieved for streamAndShardId {} is {}",
-                            streamAndShardId,
-                            recordsRetrieved.lastBatchSequenceNumber);
-                    addArrivedRecordsInput(recordsRetrieved);
-                    drainQueueForRequests();
-                } catch (PositionResetException pse) {
-                    throw pse;
-                } catch (RetryableRetrievalException rre) {
-                    log.info(
-                            "{} :  Timeout occurred while waiting for response from Kinesis.  Will retry the request.",
-                            streamAndShardId);
+                    PrefetchRecordsRetrieved recordsRetrieved = retrieveRecords();
+                    if (recordsRetrieved != null) {
+                        addArrivedRecordsInput(recordsRetrieved);
+                        drainQueueForRequests();
+                    }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     log.info(
                             "{} :  Thread was interrupted, indicating shutdown was called on the cache.",
                             streamAndShardId);
-                } catch (InvalidArgumentException e) {
-                    log.info(
-                            "{} :  records threw InvalidArgumentException - iterator will be refreshed before retrying",
-                            streamAndShardId,
-                            e);
-                    publisherSession.dataFetcher().restartIterator();
-                } catch (ExpiredIteratorException e) {
-                    log.info(
-                            "{} :  records threw ExpiredIteratorException - restarting"
-                                    + " after greatest seqNum passed to customer",
-                            streamAndShardId,
-                            e);
-
-                    MetricsUtil.addStreamId(scope, streamId);
-                    scope.addData(EXPIRED_ITERATOR_METRIC, 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
-
-                    publisherSession.dataFetcher().restartIterator();
-                } catch (ProvisionedThroughputExceededException e) {
-                    // Update the lastSuccessfulCall if we get a throttling exception so that we back off idleMillis
-                    // for the next call
-                    lastSuccessfulCall = Instant.now();
-                    log.error("{} :  Exception thrown while fetching records from Kinesis", streamAndShardId, e);
-                } catch (SdkException e) {
-                    log.error("{} :  Exception thrown while fetching records from Kinesis", streamAndShardId, e);
-                } finally {
-                    MetricsUtil.endScope(scope);
                 }
             } else {
                 //
@@ -609,30 +762,178 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
             }
         }
 
-        private void callShutdownOnStrategy() {
-            if (!getRecordsRetrievalStrategy.isShutdown()) {
-                getRecordsRetrievalStrategy.shutdown();
+        private void sleepBeforeNextCall() throws InterruptedException {
+            final long millisUntilNextCall = millisUntilNextCall();
+            if (millisUntilNextCall > 0) {
+                Thread.sleep(millisUntilNextCall);
             }
         }
+    }
 
-        private void sleepBeforeNextCall() throws InterruptedException {
-            if (lastSuccessfulCall == null && isFirstGetCallTry) {
-                isFirstGetCallTry = false;
-                return;
+    /**
+     * Runs the prefetching as a series of short tasks on a scheduler shared with other publishers. Each task makes at
+     * most one get records call and then schedules the next task, delayed by the time the daemon would have slept or
+     * waited for the consumer. A task waiting for the consumer is brought forward as soon as the consumer takes records
+     * from the cache.
+     */
+    private class ScheduledGetRecordsCacheTask {
+        private final ScheduledExecutorService scheduler;
+        private volatile boolean isShutdown = false;
+
+        // Guarded by this. Only the most recently scheduled task runs, any earlier one has been superseded. A task is
+        // only scheduled while no task is running, so that runs never overlap.
+        private long generation = 0L;
+        private boolean running = false;
+        private boolean waitingForConsumer = false;
+        private boolean wokenUp = false;
+
+        // Only used by the running task.
+        private boolean waitedBeforeNextCall = false;
+        private boolean waitForConsumer = false;
+        private PrefetchRecordsRetrieved pendingRecordsRetrieved;
+
+        ScheduledGetRecordsCacheTask(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        boolean isShutdown() {
+            return isShutdown || scheduler.isShutdown();
+        }
+
+        void shutdown() {
+            final boolean scheduled;
+            synchronized (this) {
+                isShutdown = true;
+                // a running task shuts down the retrieval strategy once it completes, otherwise the next task does
+                scheduled = running || trySchedule(0L);
+            }
+            if (!scheduled) {
+                callShutdownOnStrategy();
+            }
+        }
+
+        synchronized void wakeUp() {
+            if (running) {
+                // the running task may be about to wait for the consumer, so it tries again instead
+                wokenUp = true;
+            } else if (waitingForConsumer) {
+                waitingForConsumer = false;
+                if (!trySchedule(0L)) {
+                    log.warn("{} : Shared prefetch scheduler rejected the next retrieval attempt.", streamAndShardId);
+                }
+            }
+        }
+
+        synchronized void schedule(long delayMillis) {
+            final long scheduledGeneration = ++generation;
+            scheduler.schedule(() -> run(scheduledGeneration), delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized boolean trySchedule(long delayMillis) {
+            try {
+                schedule(delayMillis);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        private void run(long scheduledGeneration) {
+            synchronized (this) {
+                if (scheduledGeneration != generation) {
+                    return;
+                }
+                running = true;
+                waitingForConsumer = false;
+                wokenUp = false;
+            }
+
+            long delayMillis = idleMillisBetweenCalls;
+            waitForConsumer = false;
+            if (!isShutdown) {
+                resetLock.readLock().lock();
+                try {
+                    delayMillis = makeRetrievalAttempt();
+                } catch (Throwable e) {
+                    logUnexpectedException(e);
+                } finally {
+                    resetLock.readLock().unlock();
+                }
             }
-            // Add a sleep if lastSuccessfulCall is still null but this is not the first try to avoid retry storm
-            if (lastSuccessfulCall == null) {
-                Thread.sleep(idleMillisBetweenCalls);
-                return;
+
+            final boolean stopped;
+            synchronized (this) {
+                running = false;
+                if (isShutdown) {
+                    stopped = true;
+                } else if (waitForConsumer && wokenUp) {
+                    // the consumer took records while this attempt ran, so there may be room for them now
+                    stopped = !trySchedule(0L);
+                } else {
+                    stopped = !trySchedule(delayMillis);
+                    waitingForConsumer = waitForConsumer;
+                }
+                if (stopped && !isShutdown) {
+                    log.error(
+                            "{} : Shared prefetch scheduler rejected the next retrieval attempt, stopping prefetching.",
+                            streamAndShardId);
+                }
             }
-            long timeSinceLastCall =
-                    Duration.between(lastSuccessfulCall, Instant.now()).abs().toMillis();
-            if (timeSinceLastCall < idleMillisBetweenCalls) {
-                Thread.sleep(idleMillisBetweenCalls - timeSinceLastCall);
+            if (stopped) {
+                callShutdownOnStrategy();
             }
+        }
+
+        /**
+         * @return the time to wait before the next attempt in milliseconds
+         */
+        private long makeRetrievalAttempt() {
+            if (pendingRecordsRetrieved != null) {
+                if (wasReset) {
+                    log.debug("{} : Position was reset while attempting to add item to queue.", streamAndShardId);
+                    pendingRecordsRetrieved = null;
+                } else if (!offerPendingRecords()) {
+                    return waitForConsumer();
+                }
+                return 0L;
+            }
+            if (!publisherSession.prefetchCounters().shouldGetNewRecords()) {
+                return waitForConsumer();
+            }
+            if (!waitedBeforeNextCall) {
+                final long millisUntilNextCall = millisUntilNextCall();
+                if (millisUntilNextCall > 0) {
+                    waitedBeforeNextCall = true;
+                    return millisUntilNextCall;
+                }
+            }
+            waitedBeforeNextCall = false;
+
+            final PrefetchRecordsRetrieved recordsRetrieved = retrieveRecords();
+            if (recordsRetrieved != null) {
+                wasReset = false;
+                pendingRecordsRetrieved = recordsRetrieved;
+                if (!offerPendingRecords()) {
+                    return waitForConsumer();
+                }
+            }
+            return 0L;
+        }
+
+        private boolean offerPendingRecords() {
+            if (!publisherSession.prefetchRecordsQueue().offer(pendingRecordsRetrieved)) {
+                return false;
+            }
+            publisherSession.prefetchCounters().added(pendingRecordsRetrieved.processRecordsInput);
+            pendingRecordsRetrieved = null;
+            drainQueueForRequests();
+            return true;
+        }
 
-            // avoid immediate-retry storms
-            lastSuccessfulCall = null;
+        private long waitForConsumer() {
+            log.debug("{} : Queue is full waiting for consumer for {} ms", streamAndShardId, idleMillisBetweenCalls);
+            waitForConsumer = true;
+            return idleMillisBetweenCalls;
         }
     }
 
@@ -649,6 +950,7 @@ public class PrefetchRecordsPublisher implements RecordsPublisher {
             size -= getSize(result);
             byteSize -= getByteSize(result);
             this.notifyAll();
+            wakeUpScheduledTask();
         }
 
         private long getSize(final ProcessRecordsInput result) {
@@ -15,6 +15,9 @@
 package software.amazon.kinesis.retrieval.polling;
 
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
@@ -22,17 +25,23 @@ import software.amazon.kinesis.annotations.KinesisClientInternalApi;
 import software.amazon.kinesis.metrics.MetricsFactory;
 import software.amazon.kinesis.retrieval.DataFetchingStrategy;
 import software.amazon.kinesis.retrieval.GetRecordsRetrievalStrategy;
+import software.amazon.kinesis.retrieval.PrefetchEngine;
 import software.amazon.kinesis.retrieval.RecordsFetcherFactory;
 import software.amazon.kinesis.retrieval.RecordsPublisher;
 
 @Slf4j
 @KinesisClientInternalApi
 public class SimpleRecordsFetcherFactory implements RecordsFetcherFactory {
+    private static final long SHARED_PREFETCH_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
     private int maxPendingProcessRecordsInput = 3;
     private int maxByteSize = 8 * 1024 * 1024;
     private int maxRecordsCount = 30000;
     private long idleMillisBetweenCalls = 1500L;
     private DataFetchingStrategy dataFetchingStrategy = DataFetchingStrategy.DEFAULT;
+    private PrefetchEngine prefetchEngine = PrefetchEngine.DEDICATED_THREAD;
+    private int sharedPrefetchPoolSize = PollingConfig.DEFAULT_SHARED_PREFETCH_POOL_SIZE;
+    private ScheduledExecutorService sharedPrefetchScheduler;
 
     @Override
     public RecordsPublisher createRecordsFetcher(
@@ -40,6 +49,19 @@ public class SimpleRecordsFetcherFactory implements RecordsFetcherFactory {
             String shardId,
             MetricsFactory metricsFactory,
             int maxRecords) {
+        if (prefetchEngine == PrefetchEngine.SHARED_SCHEDULED_POOL) {
+            return new PrefetchRecordsPublisher(
+                    maxPendingProcessRecordsInput,
+                    maxByteSize,
+                    maxRecordsCount,
+                    maxRecords,
+                    getRecordsRetrievalStrategy,
+                    idleMillisBetweenCalls,
+                    metricsFactory,
+                    "ProcessTask",
+                    shardId,
+                    sharedPrefetchScheduler());
+        }
 
         return new PrefetchRecordsPublisher(
                 maxPendingProcessRecordsInput,
@@ -59,6 +81,35 @@ public class SimpleRecordsFetcherFactory implements RecordsFetcherFactory {
                 shardId);
     }
 
+    /**
+     * The scheduler is created on first use and shared by all publishers created by this factory, until the factory is
+     * shut down.
+     */
+    private synchronized ScheduledExecutorService sharedPrefetchScheduler() {
+        if (sharedPrefetchScheduler == null) {
+            final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                    sharedPrefetchPoolSize,
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("prefetch-shared-%04d")
+                            .build());
+            scheduler.setKeepAliveTime(SHARED_PREFETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            scheduler.setRemoveOnCancelPolicy(true);
+            sharedPrefetchScheduler = scheduler;
+        }
+        return sharedPrefetchScheduler;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (sharedPrefetchScheduler != null) {
+            log.info("Shutting down shared prefetch pool");
+            sharedPrefetchScheduler.shutdownNow();
+            sharedPrefetchScheduler = null;
+        }
+    }
+
     @Override
     public void maxPendingProcessRecordsInput(int maxPendingProcessRecordsInput) {
         this.maxPendingProcessRecordsInput = maxPendingProcessRecordsInput;
@@ -84,6 +135,23 @@ public class SimpleRecordsFetcherFactory implements RecordsFetcherFactory {
         this.idleMillisBetweenCalls = idleMillisBetweenCalls;
     }
 
+    @Override
+    public void prefetchEngine(final PrefetchEngine prefetchEngine) {
+        this.prefetchEngine = prefetchEngine;
+    }
+
+    @Override
+    public synchronized void sharedPrefetchPoolSize(final int sharedPrefetchPoolSize) {
+        if (sharedPrefetchPoolSize < 1) {
+            throw new IllegalArgumentException(
+                    "sharedPrefetchPoolSize must be at least 1 but was " + sharedPrefetchPoolSize);
+        }
+        if (sharedPrefetchScheduler != null && sharedPrefetchPoolSize != this.sharedPrefetchPoolSize) {
+            throw new IllegalStateException("sharedPrefetchPoolSize cannot be changed once the shared pool is in use");
+        }
+        this.sharedPrefetchPoolSize = sharedPrefetchPoolSize;
+    }
+
     @Override
     public int maxPendingProcessRecordsInput() {
         return maxPendingProcessRecordsInput;
@@ -108,4 +176,14 @@ public class SimpleRecordsFetcherFactory implements RecordsFetcherFactory {
     public long idleMillisBetweenCalls() {
         return idleMillisBetweenCalls;
     }
+
+    @Override
+    public PrefetchEngine prefetchEngine() {
+        return prefetchEngine;
+    }
+
+    @Override
+    public synchronized int sharedPrefetchPoolSize() {
+        return sharedPrefetchPoolSize;
+    }
 }
@@ -98,4 +98,9 @@ public class SynchronousBlockingRetrievalFactory implements RetrievalFactory {
                 metricsFactory,
                 maxRecords);
     }
+
+    @Override
+    public void shutdown() {
+        recordsFetcherFactory.shutdown();
+    }
 }
@@ -32,14 +32,20 @@ public class SchemaRegistryDecoder {
         final List<KinesisClientRecord> decodedRecords = new ArrayList<>();
 
         for (final KinesisClientRecord record : records) {
-            final KinesisClientRecord decodedRecord = decodeRecord(record);
+            final KinesisClientRecord decodedRecord = decode(record);
             decodedRecords.add(decodedRecord);
         }
 
         return decodedRecords;
     }
 
-    private KinesisClientRecord decodeRecord(final KinesisClientRecord record) {
+    /**
+     * Process the record and return the record with the decoded schema, or the record itself if it is not schema
+     * encoded.
+     * @param record KinesisClientRecord
+     * @return KinesisClientRecord
+     */
+    public KinesisClientRecord decode(final KinesisClientRecord record) {
         if (record.data() == null) {
             return record;
         }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.checkpoint;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.kinesis.exceptions.KinesisClientLibException;
+import software.amazon.kinesis.exceptions.ShutdownException;
+import software.amazon.kinesis.processor.Checkpointer;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CoalescingCheckpointWriterTest {
+    private static final String LEASE_KEY = "shardId-000000000000";
+    private static final String TOKEN = "token";
+
+    @Mock
+    private Checkpointer checkpointer;
+
+    private final Queue<Runnable> tasks = new LinkedList<>();
+    private CoalescingCheckpointWriter writer;
+
+    @Before
+    public void setup() {
+        final Executor executor = tasks::add;
+        writer = new CoalescingCheckpointWriter(checkpointer, executor);
+    }
+
+    @Test
+    public void testCheckpointsDuringWriteAreCoalesced() throws Exception {
+        final CompletableFuture<Void> first = writer.write(LEASE_KEY, checkpoint("1"), TOKEN);
+        final CompletableFuture<Void> second = writer.write(LEASE_KEY, checkpoint("3"), TOKEN);
+        final CompletableFuture<Void> third = writer.write(LEASE_KEY, checkpoint("2"), TOKEN);
+
+        assertThat(tasks.size(), equalTo(1));
+        tasks.poll().run();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+
+        assertThat(tasks.size(), equalTo(1));
+        tasks.poll().run();
+        assertTrue(second.isDone());
+        assertTrue(third.isDone());
+        assertTrue(tasks.isEmpty());
+
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("1"), TOKEN);
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("3"), TOKEN);
+        verifyNoMoreInteractions(checkpointer);
+    }
+
+    @Test
+    public void testWriteAfterCompletedWriteIsNotDelayed() throws Exception {
+        writer.write(LEASE_KEY, checkpoint("1"), TOKEN);
+        tasks.poll().run();
+
+        final CompletableFuture<Void> next = writer.write(LEASE_KEY, checkpoint("2"), TOKEN);
+        assertThat(tasks.size(), equalTo(1));
+        tasks.poll().run();
+
+        next.get();
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("2"), TOKEN);
+    }
+
+    @Test
+    public void testDifferentConcurrencyTokensAreNotCoalesced() throws Exception {
+        writer.write(LEASE_KEY, checkpoint("1"), TOKEN);
+        writer.write(LEASE_KEY, checkpoint("2"), "otherToken");
+
+        assertThat(tasks.size(), equalTo(2));
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("1"), TOKEN);
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("2"), "otherToken");
+    }
+
+    @Test
+    public void testFailedWriteCompletesCoalescedFuturesExceptionally() throws Exception {
+        final ShutdownException exception = new ShutdownException("Lease lost");
+        doThrow(exception).when(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("3"), TOKEN);
+
+        writer.write(LEASE_KEY, checkpoint("1"), TOKEN);
+        final CompletableFuture<Void> second = writer.write(LEASE_KEY, checkpoint("2"), TOKEN);
+        final CompletableFuture<Void> third = writer.write(LEASE_KEY, checkpoint("3"), TOKEN);
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        for (CompletableFuture<Void> future : new CompletableFuture[] {second, third}) {
+            try {
+                future.get();
+                fail("Should have failed with the exception of the write");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(ShutdownException.class));
+            }
+        }
+    }
+
+    @Test
+    public void testInlineWriteWaitsForWriteInFlight() throws Exception {
+        final CompletableFuture<Void> asyncWrite = writer.write(LEASE_KEY, checkpoint("1"), TOKEN);
+        final CompletableFuture<Void> inlineWrite = CompletableFuture.runAsync(() -> {
+            try {
+                writer.writeInline(LEASE_KEY, checkpoint("2"), TOKEN);
+            } catch (KinesisClientLibException e) {
+                throw new CompletionException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(inlineWrite.isDone());
+
+        tasks.poll().run();
+        inlineWrite.get(5, TimeUnit.SECONDS);
+
+        assertTrue(asyncWrite.isDone());
+        assertTrue(tasks.isEmpty());
+        final InOrder inOrder = inOrder(checkpointer);
+        inOrder.verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("1"), TOKEN);
+        inOrder.verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("2"), TOKEN);
+    }
+
+    @Test
+    public void testWriteDuringInlineWriteFollowsIt() throws Exception {
+        doAnswer(invocation -> {
+                    writer.write(LEASE_KEY, checkpoint("3"), TOKEN);
+                    assertTrue(tasks.isEmpty());
+                    return null;
+                })
+                .when(checkpointer)
+                .setCheckpoint(LEASE_KEY, checkpoint("2"), TOKEN);
+
+        writer.writeInline(LEASE_KEY, checkpoint("2"), TOKEN);
+
+        assertThat(tasks.size(), equalTo(1));
+        tasks.poll().run();
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("3"), TOKEN);
+    }
+
+    @Test
+    public void testRejectedWriteFailsWithShutdownException() throws Exception {
+        writer = new CoalescingCheckpointWriter(checkpointer, command -> {
+            throw new RejectedExecutionException("shut down");
+        });
+
+        try {
+            writer.write(LEASE_KEY, checkpoint("1"), TOKEN).get();
+            fail("The rejected write should have failed");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ShutdownException.class));
+        }
+        // the lease isn't left with a write in flight
+        writer.writeInline(LEASE_KEY, checkpoint("2"), TOKEN);
+        verify(checkpointer).setCheckpoint(LEASE_KEY, checkpoint("2"), TOKEN);
+    }
+
+    private static ExtendedSequenceNumber checkpoint(String sequenceNumber) {
+        return new ExtendedSequenceNumber(sequenceNumber);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.checkpoint;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.kinesis.exceptions.ShutdownException;
+import software.amazon.kinesis.leases.ShardInfo;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PolicyCheckpointerTest {
+    private final ShardInfo shardInfo =
+            new ShardInfo("shardId-000000000000", "token", null, ExtendedSequenceNumber.TRIM_HORIZON);
+
+    private static final ExtendedSequenceNumber FIRST_BATCH_END = new ExtendedSequenceNumber("100");
+
+    @Mock
+    private ShardRecordProcessorCheckpointer recordProcessorCheckpointer;
+
+    @Before
+    public void setup() {
+        when(recordProcessorCheckpointer.largestPermittedCheckpointValue()).thenReturn(FIRST_BATCH_END);
+        when(recordProcessorCheckpointer.checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    public void testCheckpointsOncePolicyIsMet() {
+        final PolicyCheckpointer policyCheckpointer =
+                new PolicyCheckpointer(shardInfo, CheckpointPolicy.everyRecords(10), recordProcessorCheckpointer);
+
+        policyCheckpointer.recordsProcessed(6, 600);
+        verify(recordProcessorCheckpointer, never()).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+
+        policyCheckpointer.recordsProcessed(6, 600);
+        verify(recordProcessorCheckpointer).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+
+        // the counts start again from the checkpoint
+        policyCheckpointer.recordsProcessed(6, 600);
+        verify(recordProcessorCheckpointer).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+    }
+
+    @Test
+    public void testCheckpointIfDueCheckpointsWithoutNewRecords() {
+        final AtomicBoolean intervalElapsed = new AtomicBoolean(false);
+        final PolicyCheckpointer policyCheckpointer = new PolicyCheckpointer(
+                shardInfo, (records, bytes, time) -> records > 0 && intervalElapsed.get(), recordProcessorCheckpointer);
+
+        policyCheckpointer.checkpointIfDue();
+        policyCheckpointer.recordsProcessed(6, 600);
+        verify(recordProcessorCheckpointer, never()).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+
+        intervalElapsed.set(true);
+        policyCheckpointer.checkpointIfDue();
+        verify(recordProcessorCheckpointer).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+
+        // nothing was processed since the checkpoint
+        policyCheckpointer.checkpointIfDue();
+        verify(recordProcessorCheckpointer).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+    }
+
+    @Test
+    public void testCheckpointIfDueOnlyCheckpointsProcessedBatches() {
+        final AtomicBoolean intervalElapsed = new AtomicBoolean(false);
+        final PolicyCheckpointer policyCheckpointer = new PolicyCheckpointer(
+                shardInfo, (records, bytes, time) -> records > 0 && intervalElapsed.get(), recordProcessorCheckpointer);
+        policyCheckpointer.recordsProcessed(6, 600);
+
+        // the next batch is handed to the record processor, but isn't processed yet
+        when(recordProcessorCheckpointer.largestPermittedCheckpointValue())
+                .thenReturn(new ExtendedSequenceNumber("200"));
+        intervalElapsed.set(true);
+        policyCheckpointer.checkpointIfDue();
+
+        verify(recordProcessorCheckpointer).checkpointAsyncIfAhead(FIRST_BATCH_END);
+    }
+
+    @Test
+    public void testNothingIsCheckpointedBeforeABatchIsProcessed() {
+        final PolicyCheckpointer policyCheckpointer =
+                new PolicyCheckpointer(shardInfo, (records, bytes, time) -> true, recordProcessorCheckpointer);
+
+        policyCheckpointer.checkpointIfDue();
+        policyCheckpointer.recordsProcessed(0, 0);
+
+        verify(recordProcessorCheckpointer, never()).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+    }
+
+    @Test
+    public void testFailedCheckpointDoesNotThrow() {
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new ShutdownException("Lease lost"));
+        when(recordProcessorCheckpointer.checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class)))
+                .thenReturn(failed);
+        final PolicyCheckpointer policyCheckpointer =
+                new PolicyCheckpointer(shardInfo, CheckpointPolicy.everyBytes(1), recordProcessorCheckpointer);
+
+        policyCheckpointer.recordsProcessed(1, 1);
+        policyCheckpointer.recordsProcessed(1, 1);
+
+        verify(recordProcessorCheckpointer, times(2)).checkpointAsyncIfAhead(any(ExtendedSequenceNumber.class));
+    }
+
+    @Test
+    public void testPolicies() {
+        final CheckpointPolicy interval = CheckpointPolicy.everyInterval(Duration.ofSeconds(30));
+        assertFalse(interval.shouldCheckpoint(1, 1, Duration.ofSeconds(29)));
+        assertTrue(interval.shouldCheckpoint(1, 1, Duration.ofSeconds(30)));
+        assertFalse(interval.shouldCheckpoint(0, 0, Duration.ofSeconds(30)));
+
+        final CheckpointPolicy recordsOrBytes =
+                CheckpointPolicy.everyRecords(100).or(CheckpointPolicy.everyBytes(1024));
+        assertFalse(recordsOrBytes.shouldCheckpoint(99, 1023, Duration.ZERO));
+        assertTrue(recordsOrBytes.shouldCheckpoint(100, 0, Duration.ZERO));
+        assertTrue(recordsOrBytes.shouldCheckpoint(1, 1024, Duration.ZERO));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIntervalMustBePositive() {
+        CheckpointPolicy.everyInterval(Duration.ZERO);
+    }
+}
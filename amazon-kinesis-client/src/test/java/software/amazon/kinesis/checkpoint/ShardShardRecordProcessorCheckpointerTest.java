@@ -161,6 +161,49 @@ public class ShardShardRecordProcessorCheckpointerTest {
         assertThat(checkpoint.getCheckpoint(shardId), equalTo(extendedSequenceNumber));
     }
 
+    /**
+     * Test method for
+     * {@link ShardRecordProcessorCheckpointer#checkpointAsync(String sequenceNumber, long subSequenceNumber)}.
+     */
+    @Test
+    public final void testCheckpointAsync() throws Exception {
+        ShardRecordProcessorCheckpointer processingCheckpointer =
+                new ShardRecordProcessorCheckpointer(shardInfo, checkpoint);
+        processingCheckpointer.setInitialCheckpointValue(startingExtendedSequenceNumber);
+        ExtendedSequenceNumber extendedSequenceNumber = new ExtendedSequenceNumber("5045", 2L);
+        processingCheckpointer.largestPermittedCheckpointValue(extendedSequenceNumber);
+        processingCheckpointer.checkpointAsync("5045", 2).get();
+        assertThat(checkpoint.getCheckpoint(shardId), equalTo(extendedSequenceNumber));
+        assertThat(processingCheckpointer.lastCheckpointValue(), equalTo(extendedSequenceNumber));
+
+        try {
+            processingCheckpointer.checkpointAsync("5045", 1);
+            fail("Should have thrown for a checkpoint before the last checkpoint");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test method for {@link ShardRecordProcessorCheckpointer#checkpointAsyncIfAhead(ExtendedSequenceNumber)}.
+     */
+    @Test
+    public final void testCheckpointAsyncIfAheadNeverMovesBack() throws Exception {
+        ShardRecordProcessorCheckpointer processingCheckpointer =
+                new ShardRecordProcessorCheckpointer(shardInfo, checkpoint);
+        processingCheckpointer.setInitialCheckpointValue(startingExtendedSequenceNumber);
+        ExtendedSequenceNumber processed = new ExtendedSequenceNumber("5020");
+        ExtendedSequenceNumber checkpointed = new ExtendedSequenceNumber("5030");
+        processingCheckpointer.largestPermittedCheckpointValue(new ExtendedSequenceNumber("5040"));
+        processingCheckpointer.checkpointAsyncIfAhead(processed).get();
+        assertThat(checkpoint.getCheckpoint(shardId), equalTo(processed));
+
+        processingCheckpointer.checkpoint("5030");
+        processingCheckpointer.checkpointAsyncIfAhead(processed).get();
+        assertThat(checkpoint.getCheckpoint(shardId), equalTo(checkpointed));
+        assertThat(processingCheckpointer.lastCheckpointValue(), equalTo(checkpointed));
+    }
+
     /**
      * Test method for
      * {@link ShardRecordProcessorCheckpointer#prepareCheckpoint()}.
@@ -85,6 +85,7 @@ public class PeriodicShardSyncManagerTest {
                 "worker",
                 leaderDecider,
                 leaseRefresher,
+                null,
                 currentStreamConfigMap,
                 shardSyncTaskManagerProvider,
                 streamToShardSyncTaskManagerMap,
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -115,6 +116,7 @@ import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -345,6 +347,56 @@ public class SchedulerTest {
         assertFalse(shardConsumer1.isShutdownRequested());
     }
 
+    @Test
+    public final void testEventDrivenDispatchOnlyDispatchesChangedShardConsumers() {
+        coordinatorConfig
+                .shardConsumerDispatchMode(ShardConsumerDispatchMode.EVENT_DRIVEN)
+                .shardConsumerFullDispatchIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        scheduler = new Scheduler(
+                checkpointConfig,
+                coordinatorConfig,
+                leaseManagementConfig,
+                lifecycleConfig,
+                metricsConfig,
+                processorConfig,
+                retrievalConfig);
+        final ArgumentCaptor<Runnable> assignmentChangeListener = ArgumentCaptor.forClass(Runnable.class);
+        verify(leaseCoordinator).addAssignmentChangeListener(assignmentChangeListener.capture());
+
+        final ShardInfo shardInfo0 =
+                new ShardInfo("shardId-000000000000", "concurrencyToken", null, ExtendedSequenceNumber.TRIM_HORIZON);
+        final ShardInfo shardInfo1 =
+                new ShardInfo("shardId-000000000001", "concurrencyToken", null, ExtendedSequenceNumber.TRIM_HORIZON);
+        when(leaseCoordinator.getCurrentAssignments()).thenReturn(Arrays.asList(shardInfo0, shardInfo1));
+
+        final Scheduler schedulerSpy = spy(scheduler);
+        final ShardConsumer shardConsumer0 = mock(ShardConsumer.class);
+        final ShardConsumer shardConsumer1 = mock(ShardConsumer.class);
+        doReturn(shardConsumer0).when(schedulerSpy).buildConsumer(same(shardInfo0), any(), any());
+        doReturn(shardConsumer1).when(schedulerSpy).buildConsumer(same(shardInfo1), any(), any());
+
+        // the first pass dispatches all shard consumers
+        schedulerSpy.runProcessLoop();
+        verify(shardConsumer0).executeLifecycle();
+        verify(shardConsumer1).executeLifecycle();
+        final ArgumentCaptor<Runnable> lifecycleEventListener = ArgumentCaptor.forClass(Runnable.class);
+        verify(shardConsumer0).lifecycleEventListener(lifecycleEventListener.capture());
+
+        // a lifecycle event only dispatches the shard consumer it came from
+        lifecycleEventListener.getValue().run();
+        schedulerSpy.runProcessLoop();
+        verify(shardConsumer0, times(2)).executeLifecycle();
+        verify(shardConsumer1, times(1)).executeLifecycle();
+        verify(leaseCoordinator, times(1)).getCurrentAssignments();
+
+        // an assignment change dispatches all shard consumers again
+        assignmentChangeListener.getValue().run();
+        schedulerSpy.runProcessLoop();
+        verify(shardConsumer0, times(3)).executeLifecycle();
+        verify(shardConsumer1, times(2)).executeLifecycle();
+        verify(leaseCoordinator, times(2)).getCurrentAssignments();
+    }
+
     @Test
     public final void testInitializationFailureWithRetries() throws Exception {
         doNothing().when(leaseCoordinator).initialize();
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.coordinator;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import software.amazon.kinesis.leases.ShardInfo;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardConsumerDispatchQueueTest {
+    private static final ShardInfo SHARD_INFO_0 =
+            new ShardInfo("shardId-000000000000", "concurrencyToken", null, ExtendedSequenceNumber.TRIM_HORIZON);
+    private static final ShardInfo SHARD_INFO_1 =
+            new ShardInfo("shardId-000000000001", "concurrencyToken", null, ExtendedSequenceNumber.TRIM_HORIZON);
+
+    private final ShardConsumerDispatchQueue queue = new ShardConsumerDispatchQueue();
+
+    @Test
+    public void testEventsForTheSameShardConsumerAreMerged() throws Exception {
+        queue.shardConsumerChanged(SHARD_INFO_0);
+        queue.shardConsumerChanged(SHARD_INFO_1);
+        queue.shardConsumerChanged(SHARD_INFO_0);
+
+        final ShardConsumerDispatchQueue.Events events = queue.take(0L);
+        assertFalse(events.assignmentsChanged());
+        assertEquals(Arrays.asList(SHARD_INFO_0, SHARD_INFO_1), events.changedShardConsumers());
+
+        assertTrue(queue.take(0L).changedShardConsumers().isEmpty());
+    }
+
+    @Test
+    public void testAssignmentChangeIsTakenOnce() throws Exception {
+        queue.assignmentsChanged();
+
+        assertTrue(queue.take(0L).assignmentsChanged());
+        assertFalse(queue.take(0L).assignmentsChanged());
+    }
+
+    @Test(timeout = 5000L)
+    public void testTakeWaitsForEvents() throws Exception {
+        final Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.shardConsumerChanged(SHARD_INFO_0);
+        });
+        producer.start();
+
+        final ShardConsumerDispatchQueue.Events events = queue.take(10000L);
+        assertEquals(Arrays.asList(SHARD_INFO_0), events.changedShardConsumers());
+        producer.join();
+    }
+
+    @Test
+    public void testTakeTimesOutWithoutEvents() throws Exception {
+        final ShardConsumerDispatchQueue.Events events = queue.take(50L);
+        assertFalse(events.assignmentsChanged());
+        assertTrue(events.changedShardConsumers().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.experimental.Accessors;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+
+/**
+ * A {@link LeaseChangeSource} for tests, which returns the changes it was given.
+ */
+@Accessors(fluent = true)
+public class InMemoryLeaseChangeSource implements LeaseChangeSource {
+    private final List<LeaseChange> pendingChanges = new ArrayList<>();
+
+    @Getter
+    private int starts = 0;
+
+    @Getter
+    private boolean started = false;
+
+    private boolean failNextPoll = false;
+
+    private boolean lagging = false;
+
+    @Override
+    public void start() {
+        pendingChanges.clear();
+        starts++;
+        started = true;
+    }
+
+    @Override
+    public List<LeaseChange> poll() throws DependencyException {
+        if (!started) {
+            throw new IllegalStateException("The change source has not been started.");
+        }
+        if (failNextPoll) {
+            failNextPoll = false;
+            started = false;
+            throw new DependencyException(new RuntimeException("Changes were lost"));
+        }
+        final List<LeaseChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        return changes;
+    }
+
+    @Override
+    public boolean isLagging() {
+        return lagging;
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+    }
+
+    public void leaseUpdated(final Lease lease) {
+        pendingChanges.add(LeaseChange.leaseUpdated(lease.copy()));
+    }
+
+    public void leaseDeleted(final String leaseKey) {
+        pendingChanges.add(LeaseChange.leaseDeleted(leaseKey));
+    }
+
+    /**
+     * Makes the next poll fail, as if changes had been lost.
+     */
+    public void failNextPoll() {
+        failNextPoll = true;
+    }
+
+    /**
+     * Makes the change source report whether it lags behind the lease table.
+     */
+    public void lagging(final boolean lagging) {
+        this.lagging = lagging;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LeaseCacheTest {
+    private static final long FULL_SCAN_INTERVAL_MILLIS = 60000L;
+
+    @Mock
+    private LeaseRefresher leaseRefresher;
+
+    private InMemoryLeaseChangeSource leaseChangeSource;
+    private LeaseCache leaseCache;
+
+    @Before
+    public void setup() throws Exception {
+        leaseChangeSource = new InMemoryLeaseChangeSource();
+        leaseCache = new LeaseCache(leaseRefresher, leaseChangeSource, FULL_SCAN_INTERVAL_MILLIS);
+        when(leaseRefresher.listLeases()).thenReturn(Arrays.asList(lease("1", 1L), lease("2", 1L)));
+    }
+
+    @Test
+    public void testFirstListScansLeaseTableAfterStartingChangeSource() throws Exception {
+        assertThat(leaseKeys(leaseCache.listLeases()), equalTo(Arrays.asList("1", "2")));
+
+        assertThat(leaseChangeSource.starts(), equalTo(1));
+        verify(leaseRefresher).listLeases();
+        assertThat(leaseCache.version(), equalTo(1L));
+    }
+
+    @Test
+    public void testChangesAreAppliedWithoutScanning() throws Exception {
+        leaseCache.listLeases();
+
+        leaseChangeSource.leaseUpdated(lease("1", 2L));
+        leaseChangeSource.leaseUpdated(lease("3", 1L));
+        leaseChangeSource.leaseDeleted("2");
+        final List<Lease> leases = leaseCache.listLeases();
+
+        assertThat(leaseKeys(leases), equalTo(Arrays.asList("1", "3")));
+        assertThat(
+                leases.stream()
+                        .filter(lease -> "1".equals(lease.leaseKey()))
+                        .findFirst()
+                        .get()
+                        .leaseCounter(),
+                equalTo(2L));
+        verify(leaseRefresher).listLeases();
+        assertThat(leaseCache.version(), equalTo(2L));
+    }
+
+    @Test
+    public void testVersionIsUnchangedWithoutChanges() throws Exception {
+        leaseCache.listLeases();
+        leaseCache.listLeases();
+
+        assertThat(leaseCache.version(), equalTo(1L));
+    }
+
+    @Test
+    public void testListedLeasesAreCopies() throws Exception {
+        leaseCache.listLeases().get(0).leaseOwner("owner");
+
+        assertThat(leaseCache.listLeases().get(0).leaseOwner(), equalTo(null));
+    }
+
+    @Test
+    public void testUpdatesOlderThanCachedLeasesAreDropped() throws Exception {
+        leaseCache.listLeases();
+
+        leaseChangeSource.leaseUpdated(lease("1", 0L));
+        leaseChangeSource.leaseUpdated(lease("2", 3L));
+        final List<Lease> leases = leaseCache.listLeases();
+
+        assertThat(
+                leases.stream().map(Lease::leaseCounter).sorted().collect(Collectors.toList()),
+                equalTo(Arrays.asList(1L, 3L)));
+        assertThat(leaseCache.version(), equalTo(2L));
+    }
+
+    @Test
+    public void testVersionIsUnchangedIfAllChangesAreDropped() throws Exception {
+        leaseCache.listLeases();
+
+        leaseChangeSource.leaseUpdated(lease("1", 0L));
+        leaseCache.listLeases();
+
+        assertThat(leaseCache.version(), equalTo(1L));
+    }
+
+    @Test
+    public void testFailedPollRescansWithoutRestartingChangeSourceUntilBackoffPasses() throws Exception {
+        leaseCache.listLeases();
+
+        leaseChangeSource.failNextPoll();
+        leaseCache.listLeases();
+        leaseCache.listLeases();
+
+        assertThat(leaseChangeSource.starts(), equalTo(1));
+        verify(leaseRefresher, times(3)).listLeases();
+    }
+
+    @Test
+    public void testChangeSourceIsRestartedAfterBackoff() throws Exception {
+        leaseCache = new LeaseCache(leaseRefresher, leaseChangeSource, 1L);
+        leaseCache.listLeases();
+
+        leaseChangeSource.failNextPoll();
+        leaseCache.listLeases();
+        Thread.sleep(5);
+        leaseCache.listLeases();
+
+        assertThat(leaseChangeSource.starts(), equalTo(2));
+        verify(leaseRefresher, times(3)).listLeases();
+    }
+
+    @Test
+    public void testLeaseTableIsRescannedAfterFullScanInterval() throws Exception {
+        leaseCache = new LeaseCache(leaseRefresher, leaseChangeSource, 1L);
+        leaseCache.listLeases();
+        Thread.sleep(5);
+
+        leaseChangeSource.leaseDeleted("1");
+        assertThat(leaseKeys(leaseCache.listLeases()), equalTo(Arrays.asList("1", "2")));
+
+        assertThat(leaseChangeSource.starts(), equalTo(1));
+        verify(leaseRefresher, times(2)).listLeases();
+    }
+
+    @Test
+    public void testLeaseTableIsScannedIfChangeSourceFailsToStart() throws Exception {
+        final LeaseChangeSource failingChangeSource = mock(LeaseChangeSource.class);
+        doThrow(new DependencyException(new RuntimeException("no stream")))
+                .when(failingChangeSource)
+                .start();
+        leaseCache = new LeaseCache(leaseRefresher, failingChangeSource, FULL_SCAN_INTERVAL_MILLIS);
+
+        leaseCache.listLeases();
+        leaseCache.listLeases();
+
+        verify(failingChangeSource, times(1)).start();
+        verify(leaseRefresher, times(2)).listLeases();
+    }
+
+    @Test
+    public void testStopStopsChangeSource() throws Exception {
+        leaseCache.listLeases();
+
+        leaseCache.stop();
+
+        assertThat(leaseChangeSource.started(), equalTo(false));
+    }
+
+    @Test
+    public void testLeaseTableIsScannedWhileChangeSourceLags() throws Exception {
+        leaseCache.listLeases();
+
+        leaseChangeSource.lagging(true);
+        leaseCache.listLeases();
+        leaseChangeSource.lagging(false);
+        leaseCache.listLeases();
+
+        assertThat(leaseChangeSource.starts(), equalTo(1));
+        verify(leaseRefresher, times(2)).listLeases();
+    }
+
+    @Test
+    public void testChangeSourceIsStoppedWhileTooManyWorkersHoldLeases() throws Exception {
+        leaseCache = new LeaseCache(leaseRefresher, leaseChangeSource, FULL_SCAN_INTERVAL_MILLIS, 1);
+        when(leaseRefresher.listLeases())
+                .thenReturn(Arrays.asList(lease("1", 1L, "worker-1"), lease("2", 1L, "worker-2")));
+
+        leaseCache.listLeases();
+        leaseCache.listLeases();
+
+        assertThat(leaseChangeSource.starts(), equalTo(1));
+        assertThat(leaseChangeSource.started(), equalTo(false));
+        verify(leaseRefresher, times(2)).listLeases();
+
+        when(leaseRefresher.listLeases())
+                .thenReturn(Arrays.asList(lease("1", 2L, "worker-1"), lease("2", 2L, "worker-1")));
+        leaseCache.listLeases();
+        leaseCache.listLeases();
+
+        assertThat(leaseChangeSource.starts(), equalTo(2));
+        assertThat(leaseChangeSource.started(), equalTo(true));
+        verify(leaseRefresher, times(4)).listLeases();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxWorkersMustBePositive() {
+        new LeaseCache(leaseRefresher, leaseChangeSource, FULL_SCAN_INTERVAL_MILLIS, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFullScanIntervalMustBePositive() {
+        new LeaseCache(leaseRefresher, leaseChangeSource, 0L);
+    }
+
+    private static Lease lease(final String leaseKey, final long leaseCounter) {
+        return lease(leaseKey, leaseCounter, null);
+    }
+
+    private static Lease lease(final String leaseKey, final long leaseCounter, final String leaseOwner) {
+        final Lease lease = new Lease();
+        lease.leaseKey(leaseKey);
+        lease.leaseCounter(leaseCounter);
+        lease.leaseOwner(leaseOwner);
+        lease.parentShardIds(Collections.emptySet());
+        return lease;
+    }
+
+    private static List<String> leaseKeys(final List<Lease> leases) {
+        return leases.stream().map(Lease::leaseKey).sorted().collect(Collectors.toList());
+    }
+}
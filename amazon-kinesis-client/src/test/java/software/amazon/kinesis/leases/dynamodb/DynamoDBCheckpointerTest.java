@@ -14,7 +14,16 @@
  */
 package software.amazon.kinesis.leases.dynamodb;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +41,11 @@ import software.amazon.kinesis.leases.exceptions.InvalidStateException;
 import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -73,6 +87,76 @@ public class DynamoDBCheckpointerTest {
         }
     }
 
+    @Test
+    public void testSetCheckpointIsWrittenAfterAsyncCheckpointInFlight() throws Exception {
+        final Lease lease = new Lease();
+        final CountDownLatch asyncWriteStarted = new CountDownLatch(1);
+        final CountDownLatch asyncWriteReleased = new CountDownLatch(1);
+        final List<ExtendedSequenceNumber> writtenCheckpoints = Collections.synchronizedList(new ArrayList<>());
+        when(leaseCoordinator.getCurrentlyHeldLease(eq(SHARD_ID))).thenReturn(lease);
+        when(leaseCoordinator.updateLease(eq(lease), eq(TEST_UUID), eq(OPERATION), eq(SHARD_ID)))
+                .thenAnswer(invocation -> {
+                    if (writtenCheckpoints.isEmpty()) {
+                        asyncWriteStarted.countDown();
+                        asyncWriteReleased.await();
+                    }
+                    writtenCheckpoints.add(lease.checkpoint());
+                    return true;
+                });
+
+        final CompletableFuture<Void> asyncWrite = dynamoDBCheckpointer.setCheckpointAsync(
+                SHARD_ID, new ExtendedSequenceNumber("1"), TEST_UUID.toString());
+        asyncWriteStarted.await();
+        final CompletableFuture<Void> syncWrite = CompletableFuture.runAsync(() -> {
+            try {
+                dynamoDBCheckpointer.setCheckpoint(SHARD_ID, new ExtendedSequenceNumber("2"), TEST_UUID.toString());
+            } catch (KinesisClientLibException e) {
+                throw new CompletionException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(syncWrite.isDone());
+        asyncWriteReleased.countDown();
+
+        syncWrite.get(5, TimeUnit.SECONDS);
+        asyncWrite.get(5, TimeUnit.SECONDS);
+        assertThat(
+                writtenCheckpoints,
+                equalTo(Arrays.asList(new ExtendedSequenceNumber("1"), new ExtendedSequenceNumber("2"))));
+    }
+
+    @Test
+    public void testAsyncCheckpointFailsAfterShutdown() throws Exception {
+        dynamoDBCheckpointer.shutdown();
+
+        try {
+            dynamoDBCheckpointer
+                    .setCheckpointAsync(SHARD_ID, TEST_CHKPT, TEST_UUID.toString())
+                    .get(5, TimeUnit.SECONDS);
+            fail("Checkpoints should fail once the checkpointer is shut down");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(ShutdownException.class));
+        }
+    }
+
+    @Test
+    public void testSetCheckpointIsWrittenOnCallingThreadAfterShutdown() throws Exception {
+        final Lease lease = new Lease();
+        final List<Thread> writingThreads = new ArrayList<>();
+        when(leaseCoordinator.getCurrentlyHeldLease(eq(SHARD_ID))).thenReturn(lease);
+        when(leaseCoordinator.updateLease(eq(lease), eq(TEST_UUID), eq(OPERATION), eq(SHARD_ID)))
+                .thenAnswer(invocation -> {
+                    writingThreads.add(Thread.currentThread());
+                    return true;
+                });
+        dynamoDBCheckpointer.shutdown();
+
+        dynamoDBCheckpointer.setCheckpoint(SHARD_ID, TEST_CHKPT, TEST_UUID.toString());
+
+        assertThat(writingThreads, equalTo(Collections.singletonList(Thread.currentThread())));
+        assertThat(lease.checkpoint(), equalTo(TEST_CHKPT));
+    }
+
     //    @Test(expected = DependencyException.class)
     //    public void testWaitLeaseTableTimeout()
     //        throws DependencyException, ProvisionedThroughputException, IllegalStateException {
@@ -1,16 +1,19 @@
 package software.amazon.kinesis.leases.dynamodb;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.kinesis.leases.Lease;
 import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.exceptions.DependencyException;
 import software.amazon.kinesis.metrics.MetricsFactory;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -92,4 +95,18 @@ public class DynamoDBLeaseCoordinatorTest {
         leaseCoordinator.stopLeaseTaker();
         assertTrue(leaseCoordinator.getAssignments().isEmpty());
     }
+
+    @Test
+    public void testAssignmentChangeListenerIsRunWhenLeasesAreDroppedOrReleased() {
+        final AtomicInteger assignmentChanges = new AtomicInteger();
+        leaseCoordinator.addAssignmentChangeListener(assignmentChanges::incrementAndGet);
+
+        final Lease lease = new Lease();
+        lease.leaseKey("shardId-000000000000");
+        leaseCoordinator.dropLease(lease);
+        assertEquals(1, assignmentChanges.get());
+
+        leaseCoordinator.stop();
+        assertEquals(2, assignmentChanges.get());
+    }
 }
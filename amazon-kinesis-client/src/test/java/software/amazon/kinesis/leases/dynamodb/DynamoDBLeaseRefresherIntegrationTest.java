@@ -14,9 +14,11 @@
  */
 package software.amazon.kinesis.leases.dynamodb;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -25,10 +27,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.awssdk.core.util.DefaultSdkAutoConstructList;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
 import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
 import software.amazon.kinesis.common.HashKeyRangeForLease;
 import software.amazon.kinesis.leases.Lease;
 import software.amazon.kinesis.leases.LeaseIntegrationTest;
+import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.UpdateField;
 import software.amazon.kinesis.leases.exceptions.LeasingException;
 
@@ -88,6 +93,44 @@ public class DynamoDBLeaseRefresherIntegrationTest extends LeaseIntegrationTest
         assertTrue(expected.isEmpty());
     }
 
+    /**
+     * Tests listLeases with a parallel segmented scan. Like the other tests in this class, this can be run against
+     * DynamoDB Local by pointing AWS_ENDPOINT_URL_DYNAMODB at it.
+     */
+    @Test
+    public void testListWithRecordsInParallelSegments() throws LeasingException {
+        TestHarnessBuilder builder = new TestHarnessBuilder(leaseRefresher);
+
+        int numRecordsToPut = 10;
+
+        for (int i = 0; i < numRecordsToPut; i++) {
+            builder.withLease(Integer.toString(i));
+        }
+
+        Collection<Lease> expected = builder.build().values();
+
+        DynamoDBLeaseRefresher segmentedLeaseRefresher = new DynamoDBLeaseRefresher(
+                tableName,
+                ddbClient,
+                leaseSerializer,
+                true,
+                tableCreatorCallback,
+                LeaseManagementConfig.DEFAULT_REQUEST_TIMEOUT,
+                BillingMode.PAY_PER_REQUEST,
+                false,
+                LeaseManagementConfig.DEFAULT_LEASE_TABLE_PITR_ENABLED,
+                DefaultSdkAutoConstructList.getInstance(),
+                4);
+        List<Lease> actual = segmentedLeaseRefresher.listLeases();
+
+        assertEquals(numRecordsToPut, actual.size());
+        for (Lease lease : actual) {
+            assertNotNull(expected.remove(lease));
+        }
+
+        assertTrue(expected.isEmpty());
+    }
+
     /**
      * Tests getLease when a record is present.
      */
@@ -172,6 +215,63 @@ public class DynamoDBLeaseRefresherIntegrationTest extends LeaseIntegrationTest
         assertFalse(leaseRefresher.renewLease(leaseCopy));
     }
 
+    /**
+     * Tests leaseRefresher.renewLeases' success scenario.
+     */
+    @Test
+    public void testRenewLeases() throws LeasingException {
+        TestHarnessBuilder builder = new TestHarnessBuilder(leaseRefresher);
+        Map<String, Lease> leases = builder.withLease("1").withLease("2").build();
+        Lease lease1 = leases.get("1");
+        Lease lease2 = leases.get("2");
+        Long originalLeaseCounter = lease1.leaseCounter();
+
+        assertTrue(leaseRefresher.renewLeases(Arrays.asList(lease1, lease2)));
+        assertTrue(originalLeaseCounter + 1 == lease1.leaseCounter());
+
+        assertEquals(lease1, leaseRefresher.getLease(lease1.leaseKey()));
+        assertEquals(lease2, leaseRefresher.getLease(lease2.leaseKey()));
+    }
+
+    /**
+     * Tests that the asynchronous lease operations compose against the same table as their synchronous counterparts.
+     */
+    @Test
+    public void testAsyncLeaseOperations() throws LeasingException {
+        TestHarnessBuilder builder = new TestHarnessBuilder(leaseRefresher);
+        Map<String, Lease> leases = builder.withLease("1", "foo").withLease("2").build();
+        Lease lease1 = leases.get("1");
+        Lease lease2Copy = leaseRefresher.getLease("2");
+
+        assertTrue(leaseRefresher.renewLeaseAsync(lease1).join());
+        assertTrue(leaseRefresher.takeLeaseAsync(leases.get("2"), "bar").join());
+        assertFalse(leaseRefresher.takeLeaseAsync(lease2Copy, "baz").join());
+        assertTrue(leaseRefresher.evictLeaseAsync(lease1).join());
+
+        assertEquals(lease1, leaseRefresher.getLeaseAsync("1").join());
+        assertEquals(leases.get("2"), leaseRefresher.getLease("2"));
+        assertEquals(2, leaseRefresher.listLeasesAsync().join().size());
+    }
+
+    /**
+     * Tests leaseRefresher.renewLeases when one of the leases has changed out from under us.
+     */
+    @Test
+    public void testRenewLeasesWithUpdatedLease() throws LeasingException {
+        TestHarnessBuilder builder = new TestHarnessBuilder(leaseRefresher);
+        Map<String, Lease> leases = builder.withLease("1").withLease("2").build();
+        Lease lease1 = leases.get("1");
+        Lease lease2Copy = leaseRefresher.getLease(leases.get("2").leaseKey());
+        Long originalLeaseCounter = lease1.leaseCounter();
+
+        // lose lease
+        leaseRefresher.takeLease(leases.get("2"), "bar");
+
+        assertFalse(leaseRefresher.renewLeases(Arrays.asList(lease1, lease2Copy)));
+        assertEquals(originalLeaseCounter, lease1.leaseCounter());
+        assertEquals(lease1, leaseRefresher.getLease(lease1.leaseKey()));
+    }
+
     /**
      * Tests takeLease when the lease is not already owned.
      */
@@ -14,14 +14,19 @@
  */
 package software.amazon.kinesis.leases.dynamodb;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -29,12 +34,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import software.amazon.awssdk.core.util.DefaultSdkAutoConstructList;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
@@ -46,6 +54,7 @@ import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.LimitExceededException;
 import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
@@ -55,6 +64,11 @@ import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.TableDescription;
 import software.amazon.awssdk.services.dynamodb.model.TableStatus;
 import software.amazon.awssdk.services.dynamodb.model.Tag;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
 import software.amazon.awssdk.services.dynamodb.model.UpdateContinuousBackupsRequest;
 import software.amazon.awssdk.services.dynamodb.model.UpdateContinuousBackupsResponse;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
@@ -63,10 +77,13 @@ import software.amazon.kinesis.leases.Lease;
 import software.amazon.kinesis.leases.LeaseManagementConfig;
 import software.amazon.kinesis.leases.LeaseSerializer;
 import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
 import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
@@ -84,6 +101,7 @@ public class DynamoDBLeaseRefresherTest {
     private static final boolean CONSISTENT_READS = true;
     private static final boolean DELETION_PROTECTION_ENABLED = false;
     private static final boolean PITR_ENABLED = true;
+    private static final int SCAN_SEGMENTS = 3;
     private static final Collection<Tag> EMPTY_TAGS = DefaultSdkAutoConstructList.getInstance();
     private static final Collection<Tag> TAGS =
             Collections.singletonList(Tag.builder().key("foo").value("bar").build());
@@ -185,6 +203,299 @@ public class DynamoDBLeaseRefresherTest {
         verify(dynamoDbClient, times(2)).scan(any(ScanRequest.class));
     }
 
+    @Test
+    public void testListLeasesScansAllSegmentsBeforePaging() throws Exception {
+        leaseRefresher = createSegmentedLeaseRefresher(SCAN_SEGMENTS);
+
+        Map<String, AttributeValue> lastEvaluatedKey = new HashMap<>();
+        lastEvaluatedKey.put("leaseKey", AttributeValue.builder().s("shard-0a").build());
+
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+            ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+            if (request.segment() == 0 && request.exclusiveStartKey().isEmpty()) {
+                return CompletableFuture.completedFuture(ScanResponse.builder()
+                        .items(leaseItem("shard-0a"))
+                        .lastEvaluatedKey(lastEvaluatedKey)
+                        .build());
+            }
+            String leaseKey = "shard-" + request.segment() + (request.segment() == 0 ? "b" : "a");
+            return CompletableFuture.completedFuture(
+                    ScanResponse.builder().items(leaseItem(leaseKey)).build());
+        });
+        setupFromDynamoRecord();
+
+        List<Lease> leases = leaseRefresher.listLeases();
+
+        // Pages are added as they resolve, so the second page of segment 0 comes after the other segments.
+        assertThat(
+                leases.stream().map(Lease::leaseKey).collect(Collectors.toList()),
+                equalTo(Arrays.asList("shard-0a", "shard-1a", "shard-2a", "shard-0b")));
+
+        ArgumentCaptor<ScanRequest> requestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(SCAN_SEGMENTS + 1)).scan(requestCaptor.capture());
+        List<ScanRequest> requests = requestCaptor.getAllValues();
+        for (int segment = 0; segment < SCAN_SEGMENTS; segment++) {
+            assertThat(requests.get(segment).segment(), equalTo(segment));
+            assertThat(requests.get(segment).totalSegments(), equalTo(SCAN_SEGMENTS));
+            assertTrue(requests.get(segment).exclusiveStartKey().isEmpty());
+        }
+        assertThat(requests.get(SCAN_SEGMENTS).segment(), equalTo(0));
+        assertThat(requests.get(SCAN_SEGMENTS).exclusiveStartKey(), equalTo(lastEvaluatedKey));
+    }
+
+    @Test
+    public void testListLeasesCancelsPendingSegmentsOnTimeout() throws Exception {
+        TimeoutException te = setRuleForDependencyTimeout();
+        leaseRefresher = createSegmentedLeaseRefresher(SCAN_SEGMENTS);
+
+        CompletableFuture<ScanResponse> pendingScan = new CompletableFuture<>();
+        when(mockScanFuture.get(anyLong(), any(TimeUnit.class))).thenThrow(te);
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(mockScanFuture)
+                .thenReturn(pendingScan);
+
+        try {
+            verifyCancel(mockScanFuture, () -> leaseRefresher.listLeases());
+        } finally {
+            assertTrue(pendingScan.isCancelled());
+        }
+    }
+
+    @Test
+    public void testIsLeaseTableEmptyDoesNotScanSegments() throws Exception {
+        leaseRefresher = createSegmentedLeaseRefresher(SCAN_SEGMENTS);
+
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(
+                        CompletableFuture.completedFuture(ScanResponse.builder().build()));
+
+        assertTrue(leaseRefresher.isLeaseTableEmpty());
+
+        ArgumentCaptor<ScanRequest> requestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient).scan(requestCaptor.capture());
+        assertNull(requestCaptor.getValue().segment());
+        assertNull(requestCaptor.getValue().totalSegments());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLeaseTableScanSegmentsMustBePositive() {
+        createSegmentedLeaseRefresher(0);
+    }
+
+    @Test
+    public void testRenewLeasesUsesOneTransaction() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseCounter(3L);
+        Lease lease2 = new Lease();
+        lease2.leaseKey("shard-2");
+        lease2.leaseCounter(7L);
+        setupRenewLeasesTest();
+        when(dynamoDbClient.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        TransactWriteItemsResponse.builder().build()));
+
+        assertTrue(leaseRefresher.renewLeases(Arrays.asList(lease1, lease2)));
+
+        ArgumentCaptor<TransactWriteItemsRequest> requestCaptor =
+                ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDbClient).transactWriteItems(requestCaptor.capture());
+        List<TransactWriteItem> items = requestCaptor.getValue().transactItems();
+        assertThat(items.size(), equalTo(2));
+        Update update = items.get(0).update();
+        assertThat(update.tableName(), equalTo(TABLE_NAME));
+        assertThat(update.conditionExpression(), equalTo("#a0 = :v0"));
+        assertThat(update.updateExpression(), equalTo("SET #a1 = :v1"));
+        assertThat(update.expressionAttributeNames().get("#a0"), equalTo("leaseCounter"));
+        assertThat(update.expressionAttributeValues().get(":v0").n(), equalTo("3"));
+        assertThat(update.expressionAttributeValues().get(":v1").n(), equalTo("4"));
+        assertThat(lease1.leaseCounter(), equalTo(4L));
+        assertThat(lease2.leaseCounter(), equalTo(8L));
+    }
+
+    @Test
+    public void testRenewLeasesReturnsFalseIfConditionFails() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseCounter(3L);
+        setupRenewLeasesTest();
+        CompletableFuture<TransactWriteItemsResponse> failedTransaction = new CompletableFuture<>();
+        failedTransaction.completeExceptionally(TransactionCanceledException.builder()
+                .cancellationReasons(CancellationReason.builder()
+                        .code("ConditionalCheckFailed")
+                        .build())
+                .build());
+        when(dynamoDbClient.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenReturn(failedTransaction);
+
+        assertFalse(leaseRefresher.renewLeases(Collections.singletonList(lease1)));
+        assertThat(lease1.leaseCounter(), equalTo(3L));
+    }
+
+    @Test(expected = ProvisionedThroughputException.class)
+    public void testRenewLeasesThrowsIfThrottled() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseCounter(3L);
+        setupRenewLeasesTest();
+        CompletableFuture<TransactWriteItemsResponse> failedTransaction = new CompletableFuture<>();
+        failedTransaction.completeExceptionally(TransactionCanceledException.builder()
+                .cancellationReasons(
+                        CancellationReason.builder().code("None").build(),
+                        CancellationReason.builder().code("ThrottlingError").build())
+                .build());
+        when(dynamoDbClient.transactWriteItems(any(TransactWriteItemsRequest.class)))
+                .thenReturn(failedTransaction);
+
+        leaseRefresher.renewLeases(Collections.singletonList(lease1));
+    }
+
+    @Test
+    public void testListLeasesAsyncScansAllPages() throws Exception {
+        Map<String, AttributeValue> lastEvaluatedKey = leaseItem("shard-1");
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+            ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+            if (request.exclusiveStartKey().isEmpty()) {
+                return CompletableFuture.completedFuture(ScanResponse.builder()
+                        .items(leaseItem("shard-1"))
+                        .lastEvaluatedKey(lastEvaluatedKey)
+                        .build());
+            }
+            return CompletableFuture.completedFuture(
+                    ScanResponse.builder().items(leaseItem("shard-2")).build());
+        });
+        setupFromDynamoRecord();
+
+        List<Lease> leases = leaseRefresher.listLeasesAsync().join();
+
+        assertThat(
+                leases.stream().map(Lease::leaseKey).collect(Collectors.toList()),
+                equalTo(Arrays.asList("shard-1", "shard-2")));
+        ArgumentCaptor<ScanRequest> requestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(requestCaptor.capture());
+        assertThat(requestCaptor.getAllValues().get(1).exclusiveStartKey(), equalTo(lastEvaluatedKey));
+        assertThat(
+                requestCaptor.getValue().overrideConfiguration().get().apiCallTimeout(),
+                equalTo(Optional.of(LeaseManagementConfig.DEFAULT_REQUEST_TIMEOUT)));
+    }
+
+    @Test
+    public void testListLeasesAsyncScansAllSegments() throws Exception {
+        leaseRefresher = createSegmentedLeaseRefresher(SCAN_SEGMENTS);
+        when(dynamoDbClient.scan(any(ScanRequest.class))).thenAnswer(invocation -> {
+            ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+            return CompletableFuture.completedFuture(ScanResponse.builder()
+                    .items(leaseItem("shard-" + request.segment()))
+                    .build());
+        });
+        setupFromDynamoRecord();
+
+        List<Lease> leases = leaseRefresher.listLeasesAsync().join();
+
+        assertThat(
+                leases.stream().map(Lease::leaseKey).collect(Collectors.toList()),
+                equalTo(Arrays.asList("shard-0", "shard-1", "shard-2")));
+        verify(dynamoDbClient, times(SCAN_SEGMENTS)).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    public void testListLeasesAsyncFailsWithInvalidStateIfTableDoesNotExist() throws Exception {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(failedFuture(ResourceNotFoundException.builder().build()));
+
+        assertAsyncFailure(leaseRefresher.listLeasesAsync(), InvalidStateException.class);
+    }
+
+    @Test
+    public void testTakeLeaseAsync() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseCounter(3L);
+        lease1.ownerSwitchesSinceCheckpoint(0L);
+        setupRenewLeasesTest();
+        when(leaseSerializer.getDynamoTakeLeaseUpdate(any(Lease.class), anyString()))
+                .thenReturn(Collections.emptyMap());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        UpdateItemResponse.builder().build()));
+
+        assertTrue(leaseRefresher.takeLeaseAsync(lease1, "owner").join());
+
+        assertThat(lease1.leaseOwner(), equalTo("owner"));
+        assertThat(lease1.leaseCounter(), equalTo(4L));
+        ArgumentCaptor<UpdateItemRequest> requestCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(requestCaptor.capture());
+        assertThat(
+                requestCaptor.getValue().overrideConfiguration().get().apiCallTimeout(),
+                equalTo(Optional.of(LeaseManagementConfig.DEFAULT_REQUEST_TIMEOUT)));
+    }
+
+    @Test
+    public void testTakeLeaseAsyncReturnsFalseIfConditionFails() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseCounter(3L);
+        setupRenewLeasesTest();
+        when(leaseSerializer.getDynamoTakeLeaseUpdate(any(Lease.class), anyString()))
+                .thenReturn(Collections.emptyMap());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(
+                        failedFuture(ConditionalCheckFailedException.builder().build()));
+
+        assertFalse(leaseRefresher.takeLeaseAsync(lease1, "owner").join());
+
+        assertNull(lease1.leaseOwner());
+        assertThat(lease1.leaseCounter(), equalTo(3L));
+    }
+
+    @Test
+    public void testRenewLeaseAsyncRecoversFromSpuriousFailure() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseOwner("owner");
+        lease1.leaseCounter(3L);
+        Lease renewedLease = lease1.copy();
+        renewedLease.leaseCounter(4L);
+        setupRenewLeasesTest();
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(
+                        failedFuture(ConditionalCheckFailedException.builder().build()));
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        GetItemResponse.builder().item(leaseItem("shard-1")).build()));
+        when(leaseSerializer.fromDynamoRecord(any())).thenReturn(renewedLease);
+
+        assertTrue(leaseRefresher.renewLeaseAsync(lease1).join());
+
+        assertThat(lease1.leaseCounter(), equalTo(4L));
+    }
+
+    @Test
+    public void testEvictLeaseAsyncFailsWithProvisionedThroughputException() throws Exception {
+        Lease lease1 = new Lease();
+        lease1.leaseKey("shard-1");
+        lease1.leaseOwner("owner");
+        lease1.leaseCounter(3L);
+        setupRenewLeasesTest();
+        when(leaseSerializer.getDynamoLeaseOwnerExpectation(any(Lease.class))).thenReturn(Collections.emptyMap());
+        when(leaseSerializer.getDynamoEvictLeaseUpdate(any(Lease.class))).thenReturn(Collections.emptyMap());
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(failedFuture(
+                        ProvisionedThroughputExceededException.builder().build()));
+
+        assertAsyncFailure(leaseRefresher.evictLeaseAsync(lease1), ProvisionedThroughputException.class);
+        assertThat(lease1.leaseOwner(), equalTo("owner"));
+    }
+
+    @Test
+    public void testGetCheckpointAsyncOfMissingLease() throws Exception {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        GetItemResponse.builder().build()));
+
+        assertNull(leaseRefresher.getCheckpointAsync("shard-1").join());
+    }
+
     @Test
     public void testCreateLeaseIfNotExistsTimesOut() throws Exception {
         TimeoutException te = setRuleForDependencyTimeout();
@@ -681,6 +992,26 @@ public class DynamoDBLeaseRefresherTest {
         void call() throws Exception;
     }
 
+    private DynamoDBLeaseRefresher createSegmentedLeaseRefresher(final int leaseTableScanSegments) {
+        return new DynamoDBLeaseRefresher(
+                TABLE_NAME,
+                dynamoDbClient,
+                leaseSerializer,
+                CONSISTENT_READS,
+                tableCreatorCallback,
+                LeaseManagementConfig.DEFAULT_REQUEST_TIMEOUT,
+                BillingMode.PAY_PER_REQUEST,
+                DELETION_PROTECTION_ENABLED,
+                PITR_ENABLED,
+                EMPTY_TAGS,
+                leaseTableScanSegments);
+    }
+
+    private static Map<String, AttributeValue> leaseItem(final String leaseKey) {
+        return Collections.singletonMap(
+                "leaseKey", AttributeValue.builder().s(leaseKey).build());
+    }
+
     private void verifyCancel(Future<?> future, TestCaller toExecute) throws Exception {
         try {
             toExecute.call();
@@ -689,6 +1020,46 @@ public class DynamoDBLeaseRefresherTest {
         }
     }
 
+    private void setupRenewLeasesTest() {
+        DynamoDBLeaseSerializer serializer = new DynamoDBLeaseSerializer();
+        when(leaseSerializer.getDynamoHashKey(any(Lease.class)))
+                .thenAnswer(invocation ->
+                        serializer.getDynamoHashKey((Lease) invocation.getArguments()[0]));
+        when(leaseSerializer.getDynamoLeaseCounterExpectation(any(Lease.class)))
+                .thenAnswer(invocation -> serializer.getDynamoLeaseCounterExpectation(
+                        (Lease) invocation.getArguments()[0]));
+        when(leaseSerializer.getDynamoLeaseCounterUpdate(any(Lease.class)))
+                .thenAnswer(invocation -> serializer.getDynamoLeaseCounterUpdate(
+                        (Lease) invocation.getArguments()[0]));
+    }
+
+    private void setupFromDynamoRecord() {
+        when(leaseSerializer.fromDynamoRecord(any())).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Map<String, AttributeValue> item =
+                    (Map<String, AttributeValue>) invocation.getArguments()[0];
+            Lease result = new Lease();
+            result.leaseKey(item.get("leaseKey").s());
+            return result;
+        });
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(final Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    private static void assertAsyncFailure(
+            final CompletableFuture<?> future, final Class<? extends Exception> expectedCause) {
+        try {
+            future.join();
+            Assert.fail("Expected the future to fail with " + expectedCause.getSimpleName());
+        } catch (CompletionException e) {
+            assertThat(e.getCause().getClass(), equalTo(expectedCause));
+        }
+    }
+
     private void setupUpdateItemTest() throws Exception {
         TimeoutException te = setRuleForDependencyTimeout();
 
@@ -16,10 +16,17 @@ package software.amazon.kinesis.leases.dynamodb;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -28,6 +35,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import software.amazon.kinesis.common.HashKeyRangeForLease;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
 import software.amazon.kinesis.leases.LeaseRefresher;
 import software.amazon.kinesis.leases.exceptions.DependencyException;
@@ -41,11 +49,18 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DynamoDBLeaseRenewerTest {
@@ -138,6 +153,94 @@ public class DynamoDBLeaseRenewerTest {
         leasesToRenew.clear();
     }
 
+    @Test
+    public void testLeaseRenewerRenewsLeasesInBatches()
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        renewer = new DynamoDBLeaseRenewer(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory(),
+                2);
+        Lease lease1 = newLease("1");
+        Lease lease2 = newLease("2");
+        Lease lease3 = newLease("3");
+        renewer.addLeasesToRenew(Arrays.asList(lease1, lease2, lease3));
+
+        doReturn(true).when(leaseRefresher).renewLeases(anyCollectionOf(Lease.class));
+
+        renewer.renewLeases();
+
+        assertEquals(3, renewer.getCurrentlyHeldLeases().size());
+        // Leases are renewed in descending order of their keys.
+        verify(leaseRefresher).renewLeases(eq(Arrays.asList(lease3, lease2)));
+        verify(leaseRefresher).renewLeases(eq(Collections.singletonList(lease1)));
+        verify(leaseRefresher, never()).renewLease(any(Lease.class));
+    }
+
+    @Test
+    public void testLeaseRenewerRenewsLeasesOneAtATimeIfBatchFails()
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        renewer = new DynamoDBLeaseRenewer(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory(),
+                2);
+        Lease lease1 = newLease("1");
+        Lease lease2 = newLease("2");
+        leasesToRenew = Arrays.asList(lease1, lease2);
+        renewer.addLeasesToRenew(leasesToRenew);
+
+        doReturn(false).when(leaseRefresher).renewLeases(anyCollectionOf(Lease.class));
+        doReturn(true).when(leaseRefresher).renewLease(lease1);
+        doReturn(false).when(leaseRefresher).renewLease(lease2);
+
+        renewer.renewLeases();
+
+        assertEquals(
+                Collections.singleton("1"), renewer.getCurrentlyHeldLeases().keySet());
+    }
+
+    @Test
+    public void testLeaseRenewerRetriesThrottledBatchWithoutRenewingOneAtATime()
+            throws DependencyException, InvalidStateException, ProvisionedThroughputException {
+        renewer = new DynamoDBLeaseRenewer(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory(),
+                2);
+        Lease lease1 = newLease("1");
+        Lease lease2 = newLease("2");
+        renewer.addLeasesToRenew(Arrays.asList(lease1, lease2));
+
+        doThrow(new ProvisionedThroughputException(new RuntimeException("throttled")))
+                .when(leaseRefresher)
+                .renewLeases(anyCollectionOf(Lease.class));
+
+        renewer.renewLeases();
+
+        verify(leaseRefresher, times(2)).renewLeases(anyCollectionOf(Lease.class));
+        verify(leaseRefresher, never()).renewLease(any(Lease.class));
+        // Throttled leases are not dropped, they are retried on the next renewal.
+        assertEquals(2, renewer.getCurrentlyHeldLeases().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLeaseRenewalBatchSizeCannotExceedTransactionSize() {
+        new DynamoDBLeaseRenewer(
+                leaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory(),
+                DynamoDBLeaseRefresher.MAX_LEASES_PER_TRANSACTION + 1);
+    }
+
     @Test
     public void testLeaseRenewerDoesNotUpdateInMemoryLeaseIfDDBFailsUpdate()
             throws DependencyException, InvalidStateException, ProvisionedThroughputException {
@@ -168,4 +271,133 @@ public class DynamoDBLeaseRenewerTest {
         assertEquals(0L, (long) lease.leaseCounter()); // leaseCounter should not be incremented due to DDB failure
         assertEquals(ExtendedSequenceNumber.LATEST, lease.checkpoint());
     }
+
+    @Test
+    public void testLeaseRenewerComposesRenewalsOnAsyncLeaseRefresher() throws Exception {
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        renewer = new DynamoDBLeaseRenewer(
+                asyncLeaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory());
+        renewer.addLeasesToRenew(Arrays.asList(newLease("1"), newLease("2")));
+
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).renewLeaseAsync(any(Lease.class)))
+                .thenAnswer(invocation -> {
+                    final Lease lease = (Lease) invocation.getArguments()[0];
+                    if (!"1".equals(lease.leaseKey())) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    lease.leaseCounter(lease.leaseCounter() + 1);
+                    return CompletableFuture.completedFuture(true);
+                });
+
+        renewer.renewLeases();
+
+        assertEquals(
+                Collections.singleton("1"), renewer.getCurrentlyHeldLeases().keySet());
+        assertEquals(1L, (long) renewer.getCurrentlyHeldLease("1").leaseCounter());
+        verify(asyncLeaseRefresher, never()).renewLease(any(Lease.class));
+    }
+
+    @Test
+    public void testLeaseRenewerCapsAsyncRenewalsInFlight() throws Exception {
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        renewer = new DynamoDBLeaseRenewer(
+                asyncLeaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory(),
+                1,
+                2);
+        renewer.addLeasesToRenew(
+                Arrays.asList(newLease("1"), newLease("2"), newLease("3"), newLease("4"), newLease("5")));
+
+        final BlockingQueue<CompletableFuture<Boolean>> renewalsInFlight = new LinkedBlockingQueue<>();
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).renewLeaseAsync(any(Lease.class)))
+                .thenAnswer(invocation -> {
+                    final CompletableFuture<Boolean> renewal = new CompletableFuture<>();
+                    renewalsInFlight.add(renewal);
+                    return renewal;
+                });
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            final Future<?> renewals = executorService.submit(() -> {
+                renewer.renewLeases();
+                return null;
+            });
+            for (int renewed = 0; renewed < 5; renewed++) {
+                final CompletableFuture<Boolean> renewal = renewalsInFlight.poll(1, TimeUnit.SECONDS);
+                assertTrue(renewalsInFlight.size() <= 1);
+                renewal.complete(true);
+            }
+            renewals.get(1, TimeUnit.SECONDS);
+            verify((AsyncLeaseRefresher) asyncLeaseRefresher, times(5)).renewLeaseAsync(any(Lease.class));
+            assertEquals(5, renewer.getCurrentlyHeldLeases().size());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLeaseRenewerUpdatesLeaseAfterAsyncRenewalCompletes() throws Exception {
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        renewer = new DynamoDBLeaseRenewer(
+                asyncLeaseRefresher,
+                workerIdentifier,
+                leaseDurationMillis,
+                Executors.newCachedThreadPool(),
+                new NullMetricsFactory());
+        final String leaseKey = "leaseToUpdate";
+        renewer.addLeasesToRenew(Collections.singletonList(newLease(leaseKey)));
+        final UUID concurrencyToken = renewer.getCurrentlyHeldLease(leaseKey).concurrencyToken();
+
+        final CompletableFuture<Boolean> renewal = new CompletableFuture<>();
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).renewLeaseAsync(any(Lease.class)))
+                .thenAnswer(invocation -> {
+                    final Lease lease = (Lease) invocation.getArguments()[0];
+                    return renewal.thenApply(renewed -> {
+                        lease.leaseCounter(lease.leaseCounter() + 1);
+                        return renewed;
+                    });
+                });
+        when(asyncLeaseRefresher.updateLease(any(Lease.class))).thenAnswer(invocation -> {
+            final Lease lease = (Lease) invocation.getArguments()[0];
+            // The update must see the lease counter of the renewal, or its conditional write would fail.
+            return lease.leaseCounter() == 1L;
+        });
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> renewals = executorService.submit(() -> {
+                renewer.renewLeases();
+                return null;
+            });
+            verify((AsyncLeaseRefresher) asyncLeaseRefresher, timeout(1000)).renewLeaseAsync(any(Lease.class));
+
+            final Lease updatedLease = newLease(leaseKey);
+            updatedLease.checkpoint(ExtendedSequenceNumber.TRIM_HORIZON);
+            final Future<Boolean> update = executorService.submit(
+                    () -> renewer.updateLease(updatedLease, concurrencyToken, "test", "dummyShardId"));
+            Thread.sleep(100);
+            assertFalse(update.isDone());
+            verify(asyncLeaseRefresher, never()).updateLease(any(Lease.class));
+
+            renewal.complete(true);
+
+            assertTrue(update.get(1, TimeUnit.SECONDS));
+            renewals.get(1, TimeUnit.SECONDS);
+            assertEquals(
+                    ExtendedSequenceNumber.TRIM_HORIZON,
+                    renewer.getCurrentlyHeldLease(leaseKey).checkpoint());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
@@ -22,7 +22,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -33,14 +40,29 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.kinesis.leases.AsyncLeaseRefresher;
 import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseCache;
 import software.amazon.kinesis.leases.LeaseRefresher;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.ProvisionedThroughputException;
 import software.amazon.kinesis.metrics.MetricsFactory;
 import software.amazon.kinesis.metrics.NullMetricsScope;
 import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DynamoDBLeaseTakerTest {
@@ -50,6 +72,7 @@ public class DynamoDBLeaseTakerTest {
     private static final int DEFAULT_VERY_OLD_LEASE_DURATION_MULTIPLIER = 3;
     private static final int VERY_OLD_LEASE_DURATION_MULTIPLIER = 5;
     private static final long MOCK_CURRENT_TIME = 10000000000L;
+    private static final int MAX_CONCURRENT_LEASE_TAKES = 4;
 
     private DynamoDBLeaseTaker dynamoDBLeaseTaker;
 
@@ -185,6 +208,265 @@ public class DynamoDBLeaseTakerTest {
         assertEquals(expectedOutput, output);
     }
 
+    @Test
+    public void test_takeLeasesInParallel() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        for (int i = 1; i <= MAX_CONCURRENT_LEASE_TAKES; i++) {
+            allLeases.add(createLease(null, Integer.toString(i)));
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_LEASE_TAKES);
+        final DynamoDBLeaseTaker parallelLeaseTaker = new DynamoDBLeaseTaker(
+                        leaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withLeaseTakerExecutorService(executorService);
+
+        // Every take waits for all others to be in flight, so taking the leases one at a time would fail them.
+        final CountDownLatch takesInFlight = new CountDownLatch(MAX_CONCURRENT_LEASE_TAKES);
+        when(leaseRefresher.listLeases()).thenReturn(allLeases);
+        when(leaseRefresher.takeLease(any(Lease.class), eq(WORKER_IDENTIFIER))).thenAnswer(invocation -> {
+            takesInFlight.countDown();
+            return takesInFlight.await(5, TimeUnit.SECONDS);
+        });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            final Map<String, Lease> takenLeases = parallelLeaseTaker.takeLeases(timeProvider);
+
+            assertEquals(allLeases.stream().map(Lease::leaseKey).collect(Collectors.toSet()), takenLeases.keySet());
+            verify(leaseRefresher, times(MAX_CONCURRENT_LEASE_TAKES)).takeLease(any(Lease.class), anyString());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_takeLeasesInParallelPropagatesDependencyException() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        allLeases.add(createLease(null, "1"));
+        allLeases.add(createLease(null, "2"));
+        final ExecutorService executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_LEASE_TAKES);
+        final DynamoDBLeaseTaker parallelLeaseTaker = new DynamoDBLeaseTaker(
+                        leaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withLeaseTakerExecutorService(executorService);
+
+        final DependencyException takeFailure = new DependencyException(new RuntimeException("take failed"));
+        when(leaseRefresher.listLeases()).thenReturn(allLeases);
+        when(leaseRefresher.takeLease(any(Lease.class), eq(WORKER_IDENTIFIER))).thenAnswer(invocation -> {
+            final Lease lease = (Lease) invocation.getArguments()[0];
+            if ("1".equals(lease.leaseKey())) {
+                throw takeFailure;
+            }
+            return true;
+        });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            parallelLeaseTaker.takeLeases(timeProvider);
+            fail("Expected the DependencyException of the failed take");
+        } catch (DependencyException e) {
+            assertSame(takeFailure, e);
+            // the other lease was still taken before the exception was thrown
+            verify(leaseRefresher, times(2)).takeLease(any(Lease.class), anyString());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_takeLeasesInParallelKeepsTakenLeasesWhenInterrupted() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        for (int i = 1; i <= MAX_CONCURRENT_LEASE_TAKES; i++) {
+            allLeases.add(createLease(null, Integer.toString(i)));
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_LEASE_TAKES);
+        final DynamoDBLeaseTaker parallelLeaseTaker = new DynamoDBLeaseTaker(
+                        leaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withLeaseTakerExecutorService(executorService);
+
+        when(leaseRefresher.listLeases()).thenReturn(allLeases);
+        when(leaseRefresher.takeLease(any(Lease.class), eq(WORKER_IDENTIFIER))).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return true;
+        });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            Thread.currentThread().interrupt();
+            final Map<String, Lease> takenLeases = parallelLeaseTaker.takeLeases(timeProvider);
+
+            assertTrue(Thread.interrupted());
+            assertEquals(allLeases.stream().map(Lease::leaseKey).collect(Collectors.toSet()), takenLeases.keySet());
+        } finally {
+            Thread.interrupted();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_takeLeasesAsyncBoundsTakesInFlight() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        for (int i = 1; i <= 3 * MAX_CONCURRENT_LEASE_TAKES; i++) {
+            allLeases.add(createLease(null, Integer.toString(i)));
+        }
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        final DynamoDBLeaseTaker asyncLeaseTaker = new DynamoDBLeaseTaker(
+                        asyncLeaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withMaxConcurrentLeaseTakes(MAX_CONCURRENT_LEASE_TAKES);
+
+        // Takes complete from a scheduler thread, so that the taker has to chain them rather than take them in turn.
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final AtomicInteger takesInFlight = new AtomicInteger();
+        final AtomicInteger maxTakesInFlight = new AtomicInteger();
+        when(asyncLeaseRefresher.listLeases()).thenReturn(allLeases);
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).takeLeaseAsync(any(Lease.class), eq(WORKER_IDENTIFIER)))
+                .thenAnswer(invocation -> {
+                    maxTakesInFlight.accumulateAndGet(takesInFlight.incrementAndGet(), Math::max);
+                    final CompletableFuture<Boolean> take = new CompletableFuture<>();
+                    scheduler.schedule(
+                            () -> {
+                                takesInFlight.decrementAndGet();
+                                take.complete(true);
+                            },
+                            10,
+                            TimeUnit.MILLISECONDS);
+                    return take;
+                });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            final Map<String, Lease> takenLeases = asyncLeaseTaker.takeLeases(timeProvider);
+
+            assertEquals(allLeases.stream().map(Lease::leaseKey).collect(Collectors.toSet()), takenLeases.keySet());
+            assertTrue(maxTakesInFlight.get() <= MAX_CONCURRENT_LEASE_TAKES);
+            verify(asyncLeaseRefresher, never()).takeLease(any(Lease.class), anyString());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_takeLeasesAsyncRetriesThrottledTakes() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        allLeases.add(createLease(null, "1"));
+        allLeases.add(createLease(null, "2"));
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        final DynamoDBLeaseTaker asyncLeaseTaker = new DynamoDBLeaseTaker(
+                        asyncLeaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withMaxConcurrentLeaseTakes(MAX_CONCURRENT_LEASE_TAKES);
+
+        final CompletableFuture<Boolean> throttledTake = new CompletableFuture<>();
+        throttledTake.completeExceptionally(
+                new CompletionException(new ProvisionedThroughputException(new RuntimeException("throttled"))));
+        final AtomicInteger throttledTakes = new AtomicInteger();
+        when(asyncLeaseRefresher.listLeases()).thenReturn(allLeases);
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).takeLeaseAsync(any(Lease.class), eq(WORKER_IDENTIFIER)))
+                .thenAnswer(invocation -> {
+                    final Lease lease = (Lease) invocation.getArguments()[0];
+                    if ("1".equals(lease.leaseKey())) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return throttledTakes.getAndIncrement() == 0
+                            ? throttledTake
+                            : CompletableFuture.completedFuture(true);
+                });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        final Map<String, Lease> takenLeases = asyncLeaseTaker.takeLeases(timeProvider);
+
+        assertEquals(Collections.singleton("2"), takenLeases.keySet());
+        verify((AsyncLeaseRefresher) asyncLeaseRefresher, times(2)).takeLeaseAsync(allLeases.get(1), WORKER_IDENTIFIER);
+    }
+
+    @Test
+    public void test_takeLeasesAsyncKeepsTakenLeasesWhenInterrupted() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        allLeases.add(createLease(null, "1"));
+        allLeases.add(createLease(null, "2"));
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        final DynamoDBLeaseTaker asyncLeaseTaker = new DynamoDBLeaseTaker(
+                        asyncLeaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withMaxConcurrentLeaseTakes(MAX_CONCURRENT_LEASE_TAKES);
+
+        final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+        when(asyncLeaseRefresher.listLeases()).thenReturn(allLeases);
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).takeLeaseAsync(any(Lease.class), eq(WORKER_IDENTIFIER)))
+                .thenAnswer(invocation -> {
+                    final CompletableFuture<Boolean> take = new CompletableFuture<>();
+                    executorService.schedule(() -> take.complete(true), 50, TimeUnit.MILLISECONDS);
+                    return take;
+                });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            Thread.currentThread().interrupt();
+            final Map<String, Lease> takenLeases = asyncLeaseTaker.takeLeases(timeProvider);
+
+            assertTrue(Thread.interrupted());
+            assertEquals(new HashSet<>(ImmutableList.of("1", "2")), takenLeases.keySet());
+        } finally {
+            Thread.interrupted();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_takeLeasesAsyncPropagatesDependencyException() throws Exception {
+        final List<Lease> allLeases = new ArrayList<>();
+        allLeases.add(createLease(null, "1"));
+        allLeases.add(createLease(null, "2"));
+        final LeaseRefresher asyncLeaseRefresher =
+                mock(LeaseRefresher.class, withSettings().extraInterfaces(AsyncLeaseRefresher.class));
+        final DynamoDBLeaseTaker asyncLeaseTaker = new DynamoDBLeaseTaker(
+                        asyncLeaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withMaxConcurrentLeaseTakes(MAX_CONCURRENT_LEASE_TAKES);
+
+        final DependencyException takeFailure = new DependencyException(new RuntimeException("take failed"));
+        final CompletableFuture<Boolean> failedTake = new CompletableFuture<>();
+        failedTake.completeExceptionally(new CompletionException(takeFailure));
+        when(asyncLeaseRefresher.listLeases()).thenReturn(allLeases);
+        when(((AsyncLeaseRefresher) asyncLeaseRefresher).takeLeaseAsync(any(Lease.class), eq(WORKER_IDENTIFIER)))
+                .thenAnswer(invocation -> {
+                    final Lease lease = (Lease) invocation.getArguments()[0];
+                    return "1".equals(lease.leaseKey()) ? failedTake : CompletableFuture.completedFuture(true);
+                });
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        try {
+            asyncLeaseTaker.takeLeases(timeProvider);
+            fail("Expected the DependencyException of the failed take");
+        } catch (DependencyException e) {
+            assertSame(takeFailure, e);
+            verify((AsyncLeaseRefresher) asyncLeaseRefresher).takeLeaseAsync(allLeases.get(1), WORKER_IDENTIFIER);
+        }
+    }
+
+    @Test
+    public void test_takeLeasesReadsLeasesFromLeaseCache() throws Exception {
+        final LeaseCache leaseCache = mock(LeaseCache.class);
+        final DynamoDBLeaseTaker cachingLeaseTaker = new DynamoDBLeaseTaker(
+                        leaseRefresher, WORKER_IDENTIFIER, LEASE_DURATION_MILLIS, metricsFactory)
+                .withLeaseCache(leaseCache);
+
+        when(leaseCache.listLeases()).thenReturn(Collections.singletonList(createLease(null, "1")));
+        when(leaseRefresher.takeLease(any(Lease.class), eq(WORKER_IDENTIFIER))).thenReturn(true);
+        when(metricsFactory.createMetrics()).thenReturn(new NullMetricsScope());
+        when(timeProvider.call()).thenReturn(MOCK_CURRENT_TIME);
+
+        final Map<String, Lease> takenLeases = cachingLeaseTaker.takeLeases(timeProvider);
+
+        assertEquals(Collections.singleton("1"), takenLeases.keySet());
+        verify(leaseRefresher, never()).listLeases();
+    }
+
     private Lease createLease(String leaseOwner, String leaseKey) {
         final Lease lease = new Lease();
         lease.checkpoint(new ExtendedSequenceNumber("checkpoint"));
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.leases.dynamodb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.ExpiredIteratorException;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorResponse;
+import software.amazon.awssdk.services.dynamodb.model.LimitExceededException;
+import software.amazon.awssdk.services.dynamodb.model.OperationType;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.SequenceNumberRange;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.StreamDescription;
+import software.amazon.awssdk.services.dynamodb.model.StreamRecord;
+import software.amazon.awssdk.services.dynamodb.model.StreamViewType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsAsyncClient;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseChange;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDBStreamsLeaseChangeSourceTest {
+    private static final String TABLE_NAME = "test";
+    private static final String STREAM_ARN = "arn:aws:dynamodb:us-east-1:123456789012:table/test/stream/1";
+
+    @Mock
+    private DynamoDbStreamsAsyncClient dynamoDBStreamsClient;
+
+    @Mock
+    private DynamoDbAsyncClient dynamoDBClient;
+
+    private final DynamoDBLeaseSerializer serializer = new DynamoDBLeaseSerializer();
+    private final Map<String, GetRecordsResponse> recordsByIterator = new HashMap<>();
+    private final Set<String> throttledIterators = new HashSet<>();
+    private List<Shard> shards;
+    private DynamoDBStreamsLeaseChangeSource leaseChangeSource;
+
+    @Before
+    public void setup() {
+        leaseChangeSource =
+                new DynamoDBStreamsLeaseChangeSource(dynamoDBStreamsClient, dynamoDBClient, TABLE_NAME, serializer);
+        shards = Arrays.asList(shard("closed", null, true), shard("open", null, false));
+        mockTable(StreamViewType.NEW_IMAGE);
+        when(dynamoDBStreamsClient.describeStream(any(DescribeStreamRequest.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(DescribeStreamResponse.builder()
+                        .streamDescription(
+                                StreamDescription.builder().shards(shards).build())
+                        .build()));
+        when(dynamoDBStreamsClient.getShardIterator(any(GetShardIteratorRequest.class)))
+                .thenAnswer(invocation -> {
+                    final GetShardIteratorRequest request =
+                            (GetShardIteratorRequest) invocation.getArguments()[0];
+                    return CompletableFuture.completedFuture(GetShardIteratorResponse.builder()
+                            .shardIterator(request.shardId() + "-0")
+                            .build());
+                });
+        when(dynamoDBStreamsClient.getRecords(any(GetRecordsRequest.class))).thenAnswer(invocation -> {
+            final GetRecordsRequest request = (GetRecordsRequest) invocation.getArguments()[0];
+            if (throttledIterators.contains(request.shardIterator())) {
+                final CompletableFuture<GetRecordsResponse> throttled = new CompletableFuture<>();
+                throttled.completeExceptionally(LimitExceededException.builder().build());
+                return throttled;
+            }
+            final GetRecordsResponse response = recordsByIterator.get(request.shardIterator());
+            if (response != null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            // Shards without records for the iterator have been read up to their latest record.
+            return CompletableFuture.completedFuture(GetRecordsResponse.builder()
+                    .nextShardIterator(request.shardIterator())
+                    .build());
+        });
+    }
+
+    @Test
+    public void testStartReadsOpenShardsFromLatestRecord() throws Exception {
+        leaseChangeSource.start();
+
+        final ArgumentCaptor<GetShardIteratorRequest> requestCaptor =
+                ArgumentCaptor.forClass(GetShardIteratorRequest.class);
+        verify(dynamoDBStreamsClient).getShardIterator(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().streamArn(), equalTo(STREAM_ARN));
+        assertThat(requestCaptor.getValue().shardId(), equalTo("open"));
+        assertThat(requestCaptor.getValue().shardIteratorType(), equalTo(ShardIteratorType.LATEST));
+    }
+
+    @Test
+    public void testPollReturnsChangesInOrder() throws Exception {
+        recordsByIterator.put(
+                "open-0",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 1L)), remove("shardId-2"))
+                        .nextShardIterator("open-1")
+                        .build());
+        recordsByIterator.put(
+                "open-1",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 2L)))
+                        .nextShardIterator("open-2")
+                        .build());
+        leaseChangeSource.start();
+
+        final List<LeaseChange> changes = leaseChangeSource.poll();
+
+        assertThat(changes.size(), equalTo(3));
+        assertThat(changes.get(0).lease().leaseKey(), equalTo("shardId-1"));
+        assertThat(changes.get(0).lease().leaseCounter(), equalTo(1L));
+        assertTrue(changes.get(1).isDeletion());
+        assertThat(changes.get(1).leaseKey(), equalTo("shardId-2"));
+        assertThat(changes.get(2).lease().leaseCounter(), equalTo(2L));
+        assertTrue(leaseChangeSource.poll().isEmpty());
+        verify(dynamoDBStreamsClient, times(1)).describeStream(any(DescribeStreamRequest.class));
+    }
+
+    @Test
+    public void testChildShardIsReadFromOldestRecordOnceParentIsFinished() throws Exception {
+        recordsByIterator.put(
+                "open-0",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 1L)))
+                        .build());
+        recordsByIterator.put(
+                "child-0",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 2L)))
+                        .nextShardIterator("child-1")
+                        .build());
+        leaseChangeSource.start();
+
+        assertThat(leaseChangeSource.poll().size(), equalTo(1));
+        shards = Arrays.asList(shard("closed", null, true), shard("open", null, true), shard("child", "open", false));
+        final List<LeaseChange> changes = leaseChangeSource.poll();
+
+        assertThat(changes.size(), equalTo(1));
+        assertThat(changes.get(0).lease().leaseCounter(), equalTo(2L));
+        final ArgumentCaptor<GetShardIteratorRequest> requestCaptor =
+                ArgumentCaptor.forClass(GetShardIteratorRequest.class);
+        verify(dynamoDBStreamsClient, times(2)).getShardIterator(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().shardId(), equalTo("child"));
+        assertThat(requestCaptor.getValue().shardIteratorType(), equalTo(ShardIteratorType.TRIM_HORIZON));
+    }
+
+    @Test
+    public void testThrottledPollReturnsChangesReadSoFarAndResumesAfterBackoff() throws Exception {
+        recordsByIterator.put(
+                "open-0",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 1L)))
+                        .nextShardIterator("open-1")
+                        .build());
+        recordsByIterator.put(
+                "open-1",
+                GetRecordsResponse.builder()
+                        .records(insert(lease("shardId-1", 2L)))
+                        .nextShardIterator("open-2")
+                        .build());
+        throttledIterators.add("open-1");
+        leaseChangeSource.start();
+
+        final List<LeaseChange> changes = leaseChangeSource.poll();
+        throttledIterators.clear();
+        final List<LeaseChange> changesDuringBackoff = leaseChangeSource.poll();
+
+        assertThat(changes.size(), equalTo(1));
+        assertThat(changes.get(0).lease().leaseCounter(), equalTo(1L));
+        assertTrue(changesDuringBackoff.isEmpty());
+        assertTrue(leaseChangeSource.isLagging());
+        verify(dynamoDBStreamsClient, times(2)).getRecords(any(GetRecordsRequest.class));
+
+        // The first backoff is at most twice the initial backoff of 500 ms.
+        Thread.sleep(1100);
+        final List<LeaseChange> changesAfterBackoff = leaseChangeSource.poll();
+
+        assertThat(changesAfterBackoff.size(), equalTo(1));
+        assertThat(changesAfterBackoff.get(0).lease().leaseCounter(), equalTo(2L));
+        assertFalse(leaseChangeSource.isLagging());
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testStartFailsWithoutStreamOfNewImages() throws Exception {
+        mockTable(StreamViewType.KEYS_ONLY);
+
+        leaseChangeSource.start();
+    }
+
+    @Test(expected = DependencyException.class)
+    public void testPollFailsIfIteratorExpired() throws Exception {
+        final CompletableFuture<GetRecordsResponse> expired = new CompletableFuture<>();
+        expired.completeExceptionally(ExpiredIteratorException.builder().build());
+        doReturn(expired).when(dynamoDBStreamsClient).getRecords(any(GetRecordsRequest.class));
+        leaseChangeSource.start();
+
+        leaseChangeSource.poll();
+    }
+
+    private void mockTable(final StreamViewType streamViewType) {
+        when(dynamoDBClient.describeTable(any(DescribeTableRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DescribeTableResponse.builder()
+                        .table(TableDescription.builder()
+                                .tableName(TABLE_NAME)
+                                .latestStreamArn(STREAM_ARN)
+                                .streamSpecification(s -> s.streamEnabled(true).streamViewType(streamViewType))
+                                .build())
+                        .build()));
+    }
+
+    private static Shard shard(final String shardId, final String parentShardId, final boolean closed) {
+        return Shard.builder()
+                .shardId(shardId)
+                .parentShardId(parentShardId)
+                .sequenceNumberRange(SequenceNumberRange.builder()
+                        .startingSequenceNumber("1")
+                        .endingSequenceNumber(closed ? "2" : null)
+                        .build())
+                .build();
+    }
+
+    private Record insert(final Lease lease) {
+        return Record.builder()
+                .eventName(OperationType.INSERT)
+                .dynamodb(StreamRecord.builder()
+                        .keys(serializer.getDynamoHashKey(lease))
+                        .newImage(serializer.toDynamoRecord(lease))
+                        .build())
+                .build();
+    }
+
+    private Record remove(final String leaseKey) {
+        return Record.builder()
+                .eventName(OperationType.REMOVE)
+                .dynamodb(StreamRecord.builder()
+                        .keys(serializer.getDynamoHashKey(leaseKey))
+                        .build())
+                .build();
+    }
+
+    private static Lease lease(final String leaseKey, final long leaseCounter) {
+        final Lease lease = new Lease();
+        lease.leaseKey(leaseKey);
+        lease.leaseCounter(leaseCounter);
+        lease.checkpoint(ExtendedSequenceNumber.TRIM_HORIZON);
+        lease.ownerSwitchesSinceCheckpoint(0L);
+        lease.parentShardIds(Collections.emptySet());
+        return lease;
+    }
+}
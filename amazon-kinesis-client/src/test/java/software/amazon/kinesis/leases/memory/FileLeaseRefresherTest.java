@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.leases.memory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import software.amazon.kinesis.common.HashKeyRangeForLease;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.MultiStreamLease;
+import software.amazon.kinesis.leases.exceptions.DependencyException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static software.amazon.kinesis.leases.memory.InMemoryLeaseRefresherTest.lease;
+import static software.amazon.kinesis.leases.memory.InMemoryLeaseRefresherTest.multiStreamLease;
+
+public class FileLeaseRefresherTest {
+    private static final String OWNER = "worker-1";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private FileLeaseRefresher leaseRefresher;
+    private boolean failWrites = false;
+
+    @Before
+    public void setup() throws Exception {
+        file = folder.getRoot().toPath().resolve("leases");
+        leaseRefresher = new FileLeaseRefresher(file, false);
+    }
+
+    @After
+    public void teardown() throws Exception {
+        leaseRefresher.close();
+    }
+
+    @Test
+    public void testLeaseTableExistsWithItsFile() throws Exception {
+        assertFalse(leaseRefresher.leaseTableExists());
+
+        assertTrue(leaseRefresher.createLeaseTableIfNotExists());
+
+        assertTrue(Files.exists(file));
+        assertTrue(reopen().leaseTableExists());
+        assertFalse(leaseRefresher.createLeaseTableIfNotExists());
+    }
+
+    @Test
+    public void testLeasesAreReplayedFromFile() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        final Lease lease = lease("1", null);
+        lease.pendingCheckpoint(new ExtendedSequenceNumber("7", 1L));
+        lease.pendingCheckpointState(new byte[] {1, 2, 3});
+        lease.parentShardIds(Collections.singleton("0"));
+        lease.hashKeyRange(new HashKeyRangeForLease(BigInteger.ZERO, BigInteger.TEN));
+        leaseRefresher.createLeaseIfNotExists(lease);
+        leaseRefresher.createLeaseIfNotExists(multiStreamLease("123456789012:stream-1:1", "shardId-0"));
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+        leaseRefresher.takeLease(lease, OWNER);
+        leaseRefresher.renewLeases(Arrays.asList(lease, leaseRefresher.getLease("2")));
+        leaseRefresher.deleteLease(lease("2", OWNER));
+
+        final FileLeaseRefresher reopened = reopen();
+
+        assertThat(reopened.listLeases().size(), equalTo(2));
+        final Lease replayedLease = reopened.getLease("1");
+        assertThat(replayedLease, equalTo(leaseRefresher.getLease("1")));
+        assertThat(replayedLease.leaseCounter(), equalTo(2L));
+        assertThat(replayedLease.pendingCheckpointState(), equalTo(new byte[] {1, 2, 3}));
+        assertThat(replayedLease.hashKeyRangeForLease(), equalTo(lease.hashKeyRangeForLease()));
+        assertThat(
+                reopened.getLease(MultiStreamLease.getLeaseKey("123456789012:stream-1:1", "shardId-0")),
+                instanceOf(MultiStreamLease.class));
+        assertThat(reopened.getLease("2"), nullValue());
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        final long size = Files.size(file);
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+        leaseRefresher.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 1);
+        }
+
+        final FileLeaseRefresher reopened = new FileLeaseRefresher(file, false);
+
+        assertThat(Files.size(file), equalTo(size));
+        assertThat(reopened.getLease("1").leaseOwner(), equalTo(OWNER));
+        assertThat(reopened.getLease("2"), nullValue());
+        assertTrue(reopened.createLeaseIfNotExists(lease("2", OWNER)));
+        reopened.close();
+        assertThat(reopen().listLeases().size(), equalTo(2));
+    }
+
+    @Test
+    public void testCompactionKeepsCurrentLeases() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+        final Lease lease = leaseRefresher.getLease("1");
+        for (int i = 0; i < 100; i++) {
+            leaseRefresher.renewLease(lease);
+        }
+        leaseRefresher.deleteLease(lease("2", OWNER));
+        final long size = Files.size(file);
+
+        leaseRefresher.compact();
+        leaseRefresher.renewLease(lease);
+
+        assertTrue(Files.size(file) < size / 10);
+        assertThat(reopen().getLease("1").leaseCounter(), equalTo(101L));
+        assertThat(reopen().listLeases().size(), equalTo(1));
+    }
+
+    @Test
+    public void testTornWriteIsTruncatedSoLaterWritesAreReplayed() throws Exception {
+        leaseRefresher.close();
+        leaseRefresher = new FileLeaseRefresher(file, false) {
+            @Override
+            void write(final FileChannel channel, final ByteBuffer record) throws IOException {
+                if (failWrites) {
+                    record.limit(record.limit() / 2);
+                    channel.write(record);
+                    throw new IOException("No space left on device");
+                }
+                super.write(channel, record);
+            }
+        };
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        final long size = Files.size(file);
+
+        failWrites = true;
+        try {
+            leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+            fail("The torn write should have failed");
+        } catch (DependencyException e) {
+            assertThat(Files.size(file), equalTo(size));
+        }
+        failWrites = false;
+        leaseRefresher.createLeaseIfNotExists(lease("3", OWNER));
+
+        final FileLeaseRefresher reopened = reopen();
+        assertThat(reopened.getLease("1").leaseOwner(), equalTo(OWNER));
+        assertThat(reopened.getLease("2"), nullValue());
+        assertThat(reopened.getLease("3").leaseOwner(), equalTo(OWNER));
+    }
+
+    @Test
+    public void testWritesFailIfTornWriteCantBeTruncated() throws Exception {
+        leaseRefresher.close();
+        leaseRefresher = new FileLeaseRefresher(file, false) {
+            @Override
+            void write(final FileChannel channel, final ByteBuffer record) throws IOException {
+                if (failWrites) {
+                    channel.close();
+                    throw new IOException("Input/output error");
+                }
+                super.write(channel, record);
+            }
+        };
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+
+        failWrites = true;
+        for (String leaseKey : Arrays.asList("2", "3")) {
+            try {
+                leaseRefresher.createLeaseIfNotExists(lease(leaseKey, OWNER));
+                fail("Writes should fail once the log can't be truncated");
+            } catch (DependencyException e) {
+                assertThat(leaseRefresher.getLease(leaseKey), nullValue());
+            }
+        }
+        assertThat(reopen().listLeases().size(), equalTo(1));
+    }
+
+    @Test
+    public void testFailedCompactionKeepsWritingToLog() throws Exception {
+        leaseRefresher.close();
+        leaseRefresher = new FileLeaseRefresher(file, false) {
+            @Override
+            void replaceLog(final Path compactedFile) throws IOException {
+                throw new IOException("Operation not permitted");
+            }
+        };
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+
+        try {
+            leaseRefresher.compact();
+            fail("The compaction should have failed");
+        } catch (DependencyException e) {
+            // The log is reopened, so the next write is persisted.
+        }
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+
+        assertThat(reopen().listLeases().size(), equalTo(2));
+    }
+
+    private FileLeaseRefresher reopen() throws Exception {
+        final FileLeaseRefresher reopened = new FileLeaseRefresher(file, false);
+        reopened.close();
+        return reopened;
+    }
+}
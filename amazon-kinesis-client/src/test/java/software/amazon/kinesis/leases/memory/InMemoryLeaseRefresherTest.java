@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package software.amazon.kinesis.leases.memory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.kinesis.common.StreamIdentifier;
+import software.amazon.kinesis.leases.Lease;
+import software.amazon.kinesis.leases.LeaseBuilder;
+import software.amazon.kinesis.leases.MultiStreamLease;
+import software.amazon.kinesis.leases.UpdateField;
+import software.amazon.kinesis.leases.exceptions.InvalidStateException;
+import software.amazon.kinesis.retrieval.kpl.ExtendedSequenceNumber;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InMemoryLeaseRefresherTest {
+    private static final String OWNER = "worker-1";
+    private static final String OTHER_OWNER = "worker-2";
+
+    private InMemoryLeaseRefresher leaseRefresher;
+
+    @Before
+    public void setup() throws Exception {
+        leaseRefresher = new InMemoryLeaseRefresher();
+    }
+
+    @Test
+    public void testLeaseTableIsCreatedOnce() throws Exception {
+        assertFalse(leaseRefresher.leaseTableExists());
+
+        assertTrue(leaseRefresher.createLeaseTableIfNotExists());
+        assertFalse(leaseRefresher.createLeaseTableIfNotExists());
+
+        assertTrue(leaseRefresher.waitUntilLeaseTableExists(1, 1));
+        assertTrue(leaseRefresher.isLeaseTableEmpty());
+    }
+
+    @Test(expected = InvalidStateException.class)
+    public void testWritesFailWithoutLeaseTable() throws Exception {
+        leaseRefresher.createLeaseIfNotExists(lease("1", null));
+    }
+
+    @Test
+    public void testStoredLeasesAreCopiesWithoutLocalState() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        final Lease lease = lease("1", OWNER);
+        lease.concurrencyToken(UUID.randomUUID());
+        lease.lastCounterIncrementNanos(System.nanoTime());
+
+        assertTrue(leaseRefresher.createLeaseIfNotExists(lease));
+        assertFalse(leaseRefresher.createLeaseIfNotExists(lease("1", OTHER_OWNER)));
+        lease.leaseOwner(OTHER_OWNER);
+
+        final Lease storedLease = leaseRefresher.getLease("1");
+        assertThat(storedLease.leaseOwner(), equalTo(OWNER));
+        assertThat(storedLease.concurrencyToken(), nullValue());
+        assertThat(storedLease.lastCounterIncrementNanos(), nullValue());
+        assertThat(leaseRefresher.getCheckpoint("1"), equalTo(ExtendedSequenceNumber.TRIM_HORIZON));
+    }
+
+    @Test
+    public void testRenewLeaseIsConditionalOnLeaseCounter() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        final Lease lease = leaseRefresher.getLease("1");
+        final Lease staleLease = leaseRefresher.getLease("1");
+
+        assertTrue(leaseRefresher.renewLease(lease));
+        assertThat(lease.leaseCounter(), equalTo(1L));
+        assertFalse(leaseRefresher.renewLease(staleLease));
+        assertThat(staleLease.leaseCounter(), equalTo(0L));
+        assertThat(leaseRefresher.getLease("1").leaseCounter(), equalTo(1L));
+    }
+
+    @Test
+    public void testRenewLeasesRenewsNoLeaseIfAnyCounterDiffers() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+        final Lease lease1 = leaseRefresher.getLease("1");
+        final Lease lease2 = leaseRefresher.getLease("2");
+        leaseRefresher.renewLease(leaseRefresher.getLease("2"));
+
+        assertFalse(leaseRefresher.renewLeases(Arrays.asList(lease1, lease2)));
+        assertThat(leaseRefresher.getLease("1").leaseCounter(), equalTo(0L));
+
+        lease2.leaseCounter(1L);
+        assertTrue(leaseRefresher.renewLeases(Arrays.asList(lease1, lease2)));
+        assertThat(lease1.leaseCounter(), equalTo(1L));
+        assertThat(leaseRefresher.getLease("1").leaseCounter(), equalTo(1L));
+        assertThat(leaseRefresher.getLease("2").leaseCounter(), equalTo(2L));
+    }
+
+    @Test
+    public void testTakeLeaseCountsOwnerSwitches() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        final Lease lease = leaseRefresher.getLease("1");
+
+        assertTrue(leaseRefresher.takeLease(lease, OTHER_OWNER));
+
+        assertThat(lease.leaseOwner(), equalTo(OTHER_OWNER));
+        final Lease storedLease = leaseRefresher.getLease("1");
+        assertThat(storedLease, equalTo(lease));
+        assertThat(storedLease.ownerSwitchesSinceCheckpoint(), equalTo(1L));
+        assertThat(storedLease.leaseCounter(), equalTo(1L));
+        assertFalse(leaseRefresher.takeLease(lease("1", OWNER), OWNER));
+    }
+
+    @Test
+    public void testEvictLeaseIsConditionalOnLeaseOwner() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+
+        assertFalse(leaseRefresher.evictLease(lease("1", OTHER_OWNER)));
+        final Lease lease = lease("1", OWNER);
+        assertTrue(leaseRefresher.evictLease(lease));
+
+        assertThat(lease.leaseOwner(), nullValue());
+        assertThat(leaseRefresher.getLease("1").leaseOwner(), nullValue());
+        assertThat(leaseRefresher.getLease("1").leaseCounter(), equalTo(1L));
+    }
+
+    @Test
+    public void testUpdateLeaseWritesCheckpointsButNotOwner() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        final Lease pendingLease = lease("1", OWNER);
+        pendingLease.pendingCheckpoint(new ExtendedSequenceNumber("5"));
+        leaseRefresher.createLeaseIfNotExists(pendingLease);
+        final Lease lease = leaseRefresher.getLease("1");
+        lease.leaseOwner(OTHER_OWNER);
+        lease.checkpoint(new ExtendedSequenceNumber("10"));
+        lease.pendingCheckpoint(null);
+        lease.childShardIds(Collections.singleton("2"));
+
+        assertTrue(leaseRefresher.updateLease(lease));
+        assertFalse(leaseRefresher.updateLease(lease("1", OWNER)));
+
+        final Lease storedLease = leaseRefresher.getLease("1");
+        assertThat(storedLease.leaseOwner(), equalTo(OWNER));
+        assertThat(storedLease.checkpoint(), equalTo(new ExtendedSequenceNumber("10")));
+        assertThat(storedLease.pendingCheckpoint(), nullValue());
+        assertThat(storedLease.childShardIds(), equalTo(Collections.singleton("2")));
+        assertThat(storedLease.leaseCounter(), equalTo(1L));
+    }
+
+    @Test
+    public void testUpdateLeaseWithMetaInfoOnlyUpdatesExistingLeases() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        final Lease lease = lease("1", OWNER);
+        lease.childShardIds(Collections.singleton("2"));
+
+        leaseRefresher.updateLeaseWithMetaInfo(lease, UpdateField.CHILD_SHARDS);
+        leaseRefresher.updateLeaseWithMetaInfo(lease("3", OWNER), UpdateField.CHILD_SHARDS);
+
+        assertThat(leaseRefresher.getLease("1").childShardIds(), equalTo(Collections.singleton("2")));
+        assertThat(leaseRefresher.getLease("1").leaseCounter(), equalTo(0L));
+        assertThat(leaseRefresher.getLease("3"), nullValue());
+    }
+
+    @Test
+    public void testListLeasesForStream() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        final StreamIdentifier streamIdentifier = StreamIdentifier.multiStreamInstance("123456789012:stream-1:1");
+        leaseRefresher.createLeaseIfNotExists(multiStreamLease(streamIdentifier.serialize(), "shardId-0"));
+        leaseRefresher.createLeaseIfNotExists(multiStreamLease("123456789012:stream-2:1", "shardId-0"));
+
+        assertThat(leaseRefresher.listLeases().size(), equalTo(2));
+        final Lease lease = leaseRefresher.listLeasesForStream(streamIdentifier).get(0);
+        assertThat(lease, instanceOf(MultiStreamLease.class));
+        assertThat(lease.leaseKey(), equalTo(MultiStreamLease.getLeaseKey(streamIdentifier.serialize(), "shardId-0")));
+        assertThat(leaseRefresher.listLeasesForStream(streamIdentifier).size(), equalTo(1));
+    }
+
+    @Test
+    public void testDeleteLeases() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", OWNER));
+        leaseRefresher.createLeaseIfNotExists(lease("2", OWNER));
+        leaseRefresher.createLeaseIfNotExists(lease("3", OWNER));
+
+        leaseRefresher.deleteLease(lease("1", OWNER));
+        assertThat(leaseRefresher.getLease("1"), nullValue());
+        assertThat(leaseRefresher.listLeases().size(), equalTo(2));
+
+        leaseRefresher.deleteAll();
+        assertTrue(leaseRefresher.isLeaseTableEmpty());
+    }
+
+    @Test
+    public void testAsyncOperationsCompleteImmediately() throws Exception {
+        leaseRefresher.createLeaseTableIfNotExists();
+        leaseRefresher.createLeaseIfNotExists(lease("1", null));
+        final Lease lease = leaseRefresher.getLeaseAsync("1").join();
+
+        assertTrue(leaseRefresher.takeLeaseAsync(lease, OWNER).join());
+        assertTrue(leaseRefresher.renewLeaseAsync(lease).join());
+        assertThat(leaseRefresher.listLeasesAsync().join().get(0).leaseCounter(), equalTo(2L));
+    }
+
+    @Test
+    public void testAsyncOperationsFailWithCompletionException() throws Exception {
+        try {
+            leaseRefresher.renewLeaseAsync(lease("1", OWNER)).join();
+            fail("Expected the renewal to fail without a lease table");
+        } catch (CompletionException e) {
+            assertThat(e.getCause(), instanceOf(InvalidStateException.class));
+        }
+    }
+
+    static Lease lease(final String leaseKey, final String owner) {
+        return new LeaseBuilder()
+                .leaseKey(leaseKey)
+                .leaseOwner(owner)
+                .checkpoint(ExtendedSequenceNumber.TRIM_HORIZON)
+                .build();
+    }
+
+    static MultiStreamLease multiStreamLease(final String streamIdentifier, final String shardId) {
+        final MultiStreamLease lease = new MultiStreamLease();
+        lease.leaseKey(MultiStreamLease.getLeaseKey(streamIdentifier, shardId));
+        lease.streamIdentifier(streamIdentifier);
+        lease.shardId(shardId);
+        lease.checkpoint(ExtendedSequenceNumber.LATEST);
+        return lease;
+    }
+}
@@ -150,7 +150,9 @@ public class ConsumerStatesTest {
                 hierarchicalShardSyncer,
                 metricsFactory,
                 leaseCleanupManager,
-                schemaRegistryDecoder);
+                schemaRegistryDecoder,
+                false,
+                null);
         when(shardInfo.shardId()).thenReturn("shardId-000000000000");
         when(shardInfo.streamIdentifierSerOpt())
                 .thenReturn(Optional.of(
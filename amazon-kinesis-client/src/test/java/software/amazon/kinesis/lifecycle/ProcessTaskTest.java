@@ -21,6 +21,7 @@ import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -46,12 +47,17 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
 import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
 import software.amazon.awssdk.services.kinesis.model.Shard;
+import software.amazon.kinesis.checkpoint.PolicyCheckpointer;
 import software.amazon.kinesis.checkpoint.ShardRecordProcessorCheckpointer;
 import software.amazon.kinesis.leases.ShardDetector;
 import software.amazon.kinesis.leases.ShardInfo;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
+import software.amazon.kinesis.metrics.MetricsFactory;
+import software.amazon.kinesis.metrics.MetricsLevel;
+import software.amazon.kinesis.metrics.MetricsScope;
 import software.amazon.kinesis.metrics.NullMetricsFactory;
 import software.amazon.kinesis.processor.Checkpointer;
 import software.amazon.kinesis.processor.ShardRecordProcessor;
@@ -73,6 +79,9 @@ import static org.hamcrest.beans.HasPropertyWithValue.hasProperty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -114,6 +123,10 @@ public class ProcessTaskTest {
     @Mock
     private ThrottlingReporter throttlingReporter;
 
+    private MetricsFactory metricsFactory = new NullMetricsFactory();
+
+    private PolicyCheckpointer policyCheckpointer;
+
     private ProcessTask processTask;
 
     @Before
@@ -147,6 +160,15 @@ public class ProcessTaskTest {
             AggregatorUtil aggregatorUtil,
             boolean skipShardSync,
             SchemaRegistryDecoder schemaRegistryDecoder) {
+        return makeProcessTask(processRecordsInput, aggregatorUtil, skipShardSync, schemaRegistryDecoder, false);
+    }
+
+    private ProcessTask makeProcessTask(
+            ProcessRecordsInput processRecordsInput,
+            AggregatorUtil aggregatorUtil,
+            boolean skipShardSync,
+            SchemaRegistryDecoder schemaRegistryDecoder,
+            boolean lazyDeaggregation) {
         return new ProcessTask(
                 shardInfo,
                 shardRecordProcessor,
@@ -159,8 +181,10 @@ public class ProcessTaskTest {
                 shouldCallProcessRecordsEvenForEmptyRecordList,
                 IDLE_TIME_IN_MILLISECONDS,
                 aggregatorUtil,
-                new NullMetricsFactory(),
-                schemaRegistryDecoder);
+                metricsFactory,
+                schemaRegistryDecoder,
+                lazyDeaggregation,
+                policyCheckpointer);
     }
 
     @Test
@@ -361,6 +385,161 @@ public class ProcessTaskTest {
         assertEquals(expectedLargestPermittedEsqn, outcome.getCheckpointCall());
     }
 
+    @Test
+    public void testLazyDeaggregationFiltersBasedOnLastCheckpointValue() {
+        final BigInteger previousCheckpointSqn = new BigInteger(128, new Random());
+        final String pk = UUID.randomUUID().toString();
+        final KinesisClientRecord record = KinesisClientRecord.builder()
+                .partitionKey("-")
+                .data(generateAggregatedRecord(pk))
+                .sequenceNumber(previousCheckpointSqn.toString())
+                .build();
+        final ExtendedSequenceNumber lastCheckpointValue =
+                new ExtendedSequenceNumber(previousCheckpointSqn.toString(), 0L);
+        when(processRecordsInput.records()).thenReturn(Collections.singletonList(record));
+        when(checkpointer.lastCheckpointValue()).thenReturn(lastCheckpointValue);
+        when(checkpointer.largestPermittedCheckpointValue()).thenReturn(lastCheckpointValue);
+
+        final List<KinesisClientRecord> iteratedRecords = new ArrayList<>();
+        doAnswer(invocation -> {
+                    ProcessRecordsInput input = (ProcessRecordsInput) invocation.getArguments()[0];
+                    for (KinesisClientRecord r : input.lazyRecords()) {
+                        iteratedRecords.add(r);
+                    }
+                    return null;
+                })
+                .when(shardRecordProcessor)
+                .processRecords(any(ProcessRecordsInput.class));
+
+        processTask = makeProcessTask(
+                processRecordsInput,
+                new AggregatorUtil(),
+                skipShardSyncAtWorkerInitializationIfLeasesExist,
+                null,
+                true);
+        processTask.call();
+
+        assertThat(iteratedRecords.size(), equalTo(2));
+        assertThat(iteratedRecords.get(0).partitionKey(), equalTo(pk));
+        assertThat(iteratedRecords.get(0).subSequenceNumber(), equalTo(1L));
+        assertThat(iteratedRecords.get(1).subSequenceNumber(), equalTo(2L));
+
+        ArgumentCaptor<ExtendedSequenceNumber> esnCaptor = ArgumentCaptor.forClass(ExtendedSequenceNumber.class);
+        verify(checkpointer, times(2)).largestPermittedCheckpointValue(esnCaptor.capture());
+        assertThat(
+                esnCaptor.getAllValues(),
+                equalTo(Arrays.asList(
+                        new ExtendedSequenceNumber(previousCheckpointSqn.toString(), 1L),
+                        new ExtendedSequenceNumber(previousCheckpointSqn.toString(), 2L))));
+    }
+
+    @Test
+    public void testLazyDeaggregationRecordsCanStillBeListed() {
+        final String sqn = new BigInteger(128, new Random()).toString();
+        final String pk = UUID.randomUUID().toString();
+        final KinesisClientRecord record = KinesisClientRecord.builder()
+                .partitionKey("-")
+                .data(generateAggregatedRecord(pk))
+                .sequenceNumber(sqn)
+                .build();
+        when(processRecordsInput.records()).thenReturn(Collections.singletonList(record));
+
+        when(checkpointer.lastCheckpointValue()).thenReturn(ExtendedSequenceNumber.TRIM_HORIZON);
+        when(checkpointer.largestPermittedCheckpointValue()).thenReturn(ExtendedSequenceNumber.TRIM_HORIZON);
+
+        processTask = makeProcessTask(
+                processRecordsInput,
+                new AggregatorUtil(),
+                skipShardSyncAtWorkerInitializationIfLeasesExist,
+                null,
+                true);
+        processTask.call();
+        ArgumentCaptor<ProcessRecordsInput> recordsCaptor = ArgumentCaptor.forClass(ProcessRecordsInput.class);
+        verify(shardRecordProcessor).processRecords(recordsCaptor.capture());
+
+        List<KinesisClientRecord> actualRecords = recordsCaptor.getValue().records();
+        assertEquals(3, actualRecords.size());
+        assertThat(actualRecords.get(2).subSequenceNumber(), equalTo(2L));
+        verify(checkpointer).largestPermittedCheckpointValue(new ExtendedSequenceNumber(sqn, 2L));
+
+        List<KinesisClientRecord> iteratedRecords = new ArrayList<>();
+        recordsCaptor.getValue().lazyRecords().forEach(iteratedRecords::add);
+        assertThat(iteratedRecords, equalTo(actualRecords));
+    }
+
+    @Test
+    public void testDataBytesProcessedIsAddedOncePerBatch() {
+        final MetricsScope scope = mock(MetricsScope.class);
+        metricsFactory = () -> scope;
+        final List<KinesisClientRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            records.add(makeKinesisClientRecord("pk", Integer.toString(i + 1), Instant.now()));
+        }
+
+        testWithRecords(records, ExtendedSequenceNumber.TRIM_HORIZON, ExtendedSequenceNumber.TRIM_HORIZON);
+
+        verify(scope)
+                .addData(
+                        eq("DataBytesProcessed"),
+                        eq(3.0 * TEST_DATA.length),
+                        eq(StandardUnit.BYTES),
+                        eq(MetricsLevel.SUMMARY));
+        // the other call adds the initial 0
+        verify(scope, times(2))
+                .addData(eq("DataBytesProcessed"), anyDouble(), eq(StandardUnit.BYTES), eq(MetricsLevel.SUMMARY));
+    }
+
+    @Test
+    public void testCheckpointPolicyIsGivenProcessedRecords() {
+        policyCheckpointer = mock(PolicyCheckpointer.class);
+        final List<KinesisClientRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            records.add(makeKinesisClientRecord("pk", Integer.toString(i + 1), Instant.now()));
+        }
+
+        testWithRecords(records, ExtendedSequenceNumber.TRIM_HORIZON, ExtendedSequenceNumber.TRIM_HORIZON);
+
+        verify(policyCheckpointer).recordsProcessed(3, 3 * TEST_DATA.length);
+    }
+
+    @Test
+    public void testLazyDeaggregationDataBytesProcessedIsAddedOncePerBatch() {
+        final MetricsScope scope = mock(MetricsScope.class);
+        metricsFactory = () -> scope;
+        final KinesisClientRecord record = KinesisClientRecord.builder()
+                .partitionKey("-")
+                .data(generateAggregatedRecord(UUID.randomUUID().toString()))
+                .sequenceNumber(new BigInteger(128, new Random()).toString())
+                .build();
+        when(processRecordsInput.records()).thenReturn(Collections.singletonList(record));
+        when(checkpointer.lastCheckpointValue()).thenReturn(ExtendedSequenceNumber.TRIM_HORIZON);
+        when(checkpointer.largestPermittedCheckpointValue()).thenReturn(ExtendedSequenceNumber.TRIM_HORIZON);
+        doAnswer(invocation -> {
+                    ProcessRecordsInput input = (ProcessRecordsInput) invocation.getArguments()[0];
+                    input.lazyRecords().forEach(r -> {});
+                    return null;
+                })
+                .when(shardRecordProcessor)
+                .processRecords(any(ProcessRecordsInput.class));
+
+        processTask = makeProcessTask(
+                processRecordsInput,
+                new AggregatorUtil(),
+                skipShardSyncAtWorkerInitializationIfLeasesExist,
+                null,
+                true);
+        processTask.call();
+
+        verify(scope)
+                .addData(
+                        eq("DataBytesProcessed"),
+                        eq(3.0 * TEST_DATA.length),
+                        eq(StandardUnit.BYTES),
+                        eq(MetricsLevel.SUMMARY));
+        verify(scope, times(2))
+                .addData(eq("DataBytesProcessed"), anyDouble(), eq(StandardUnit.BYTES), eq(MetricsLevel.SUMMARY));
+    }
+
     @Test
     public void testDiscardReshardedKplData() throws Exception {
         BigInteger sequenceNumber = new BigInteger(120, ThreadLocalRandom.current());
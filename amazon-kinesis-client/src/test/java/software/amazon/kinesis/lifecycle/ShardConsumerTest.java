@@ -27,6 +27,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -51,6 +52,7 @@ import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 import software.amazon.kinesis.common.InitialPositionInStreamExtended;
 import software.amazon.kinesis.common.RequestDetails;
+import software.amazon.kinesis.leases.ShardDetector;
 import software.amazon.kinesis.leases.ShardInfo;
 import software.amazon.kinesis.lifecycle.ConsumerStates.ShardConsumerState;
 import software.amazon.kinesis.lifecycle.events.ProcessRecordsInput;
@@ -414,6 +416,38 @@ public class ShardConsumerTest {
         verifyNoMoreInteractions(taskExecutionListener);
     }
 
+    @Test(timeout = 5000L)
+    public void testLifecycleEventListenerSignalsEachLifecycleStep() throws Exception {
+        mockSuccessfulInitialize(null);
+        mockSuccessfulProcessing(null);
+        mockSuccessfulShutdown(null);
+
+        TestPublisher cache = new TestPublisher();
+        final ShardConsumer consumer = createShardConsumer(cache);
+        final Semaphore lifecycleEvents = new Semaphore(0);
+        consumer.lifecycleEventListener(lifecycleEvents::release);
+
+        //
+        // The lifecycle is only executed when the listener has been run, which is enough to complete it
+        //
+        consumer.executeLifecycle();
+        while (consumer.needsInitialization()) {
+            lifecycleEvents.acquire();
+            consumer.executeLifecycle();
+        }
+        cache.awaitInitialSetup();
+
+        consumer.leaseLost();
+        while (!consumer.isShutdown()) {
+            lifecycleEvents.acquire();
+            consumer.executeLifecycle();
+        }
+
+        verify(cache.subscription).cancel();
+        verify(taskExecutionListener, times(1)).beforeTaskExecution(initialTaskInput);
+        verify(taskExecutionListener, times(1)).beforeTaskExecution(shutdownTaskInput);
+    }
+
     @Test
     public void testDataArrivesAfterProcessing2() throws Exception {
         CyclicBarrier taskCallBarrier = new CyclicBarrier(2);
@@ -1161,6 +1195,18 @@ public class ShardConsumerTest {
         return createShardConsumer(publisher, executorService, initialState);
     }
 
+    @Test
+    public void testShardHashKeyRangeIsLookedUpOnceEvenIfShardIsNotFound() {
+        final ShardDetector shardDetector = mock(ShardDetector.class);
+        when(shardConsumerArgument.shardDetector()).thenReturn(shardDetector);
+        final ShardConsumer consumer = createShardConsumer(executorService, initialState);
+
+        assertNull(consumer.shardHashKeyRange());
+        assertNull(consumer.shardHashKeyRange());
+
+        verify(shardDetector, times(1)).shard(shardId);
+    }
+
     private ShardConsumer createShardConsumer(final ExecutorService executorService, final ConsumerState state) {
         return createShardConsumer(recordsPublisher, executorService, state);
     }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+public class CloudWatchMetricsScopeTest {
+
+    private CloudWatchPublisherRunnable publisher;
+
+    @Before
+    public void setup() {
+        publisher = Mockito.mock(CloudWatchPublisherRunnable.class);
+    }
+
+    @Test
+    public void testEnqueuesStatisticSetsWithDimensions() {
+        CloudWatchMetricsScope scope = new CloudWatchMetricsScope(
+                publisher, MetricsLevel.DETAILED, ImmutableSet.of(MetricsScope.METRICS_DIMENSIONS_ALL));
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addData("Time", 10.0, StandardUnit.MILLISECONDS);
+        scope.addData("Time", 20.0, StandardUnit.MILLISECONDS);
+
+        List<MetricDatum> data = endAndGetData(scope);
+
+        Assert.assertEquals(1, data.size());
+        Assert.assertEquals(30.0, data.get(0).statisticValues().sum(), 0);
+        Assert.assertEquals(2.0, data.get(0).statisticValues().sampleCount(), 0);
+        Assert.assertEquals("shard-0001", data.get(0).dimensions().get(0).value());
+    }
+
+    @Test
+    public void testHistogramUnits() {
+        CloudWatchMetricsScope scope = new CloudWatchMetricsScope(
+                publisher,
+                MetricsLevel.DETAILED,
+                ImmutableSet.of(MetricsScope.METRICS_DIMENSIONS_ALL),
+                ImmutableSet.of(StandardUnit.MILLISECONDS));
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addData("Time", 10.0, StandardUnit.MILLISECONDS);
+        scope.addData("Time", 20.0, StandardUnit.MILLISECONDS);
+        scope.addData("Time", 20.0, StandardUnit.MILLISECONDS);
+        scope.addData("Count", 1.0, StandardUnit.COUNT);
+
+        Map<String, MetricDatum> data =
+                endAndGetData(scope).stream().collect(Collectors.toMap(MetricDatum::metricName, Function.identity()));
+
+        Assert.assertNull(data.get("Time").statisticValues());
+        Assert.assertEquals(2, data.get("Time").values().size());
+        Assert.assertEquals(10.0, data.get("Time").values().get(0), 10.0 / 16);
+        Assert.assertEquals(20.0, data.get("Time").values().get(1), 0);
+        Assert.assertEquals(Arrays.asList(1.0, 2.0), data.get("Time").counts());
+        Assert.assertEquals("shard-0001", data.get("Time").dimensions().get(0).value());
+        Assert.assertEquals(1.0, data.get("Count").statisticValues().sum(), 0);
+    }
+
+    @Test
+    public void testHistogramUnitsAreFilteredByMetricsLevel() {
+        CloudWatchMetricsScope scope = new CloudWatchMetricsScope(
+                publisher,
+                MetricsLevel.SUMMARY,
+                ImmutableSet.of(MetricsScope.METRICS_DIMENSIONS_ALL),
+                ImmutableSet.of(StandardUnit.MILLISECONDS));
+        scope.addData("Time", 10.0, StandardUnit.MILLISECONDS, MetricsLevel.DETAILED);
+
+        Assert.assertTrue(endAndGetData(scope).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<MetricDatum> endAndGetData(CloudWatchMetricsScope scope) {
+        scope.end();
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(publisher).enqueue(captor.capture());
+        return ((Collection<MetricDatumWithKey<CloudWatchMetricKey>>) captor.getValue())
+                .stream().map(dataWithKey -> dataWithKey.datum).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+public class MeterMetricsFactoryTest {
+
+    private final Map<String, List<Double>> recorded = new HashMap<>();
+    private final List<String> registered = new ArrayList<>();
+    private MeterMetricsFactory factory;
+
+    @Before
+    public void setup() {
+        factory = new MeterMetricsFactory(this::meter, MetricsLevel.SUMMARY, ImmutableSet.of("Operation", "ShardId"));
+    }
+
+    private MeterProvider.Meter meter(String name, StandardUnit unit, List<Dimension> dimensions) {
+        final String id = name + dimensions;
+        registered.add(id);
+        final List<Double> values = recorded.computeIfAbsent(id, i -> new ArrayList<>());
+        return values::add;
+    }
+
+    @Test
+    public void testRecordsWithDimensionsAddedAfterData() {
+        MetricsScope scope = MetricsUtil.createMetricsWithOperation(factory, "ProcessTask");
+        scope.addData("RecordsProcessed", 5, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        MetricsUtil.addShardId(scope, "shard-0001");
+        scope.end();
+
+        Assert.assertEquals(
+                Arrays.asList(5.0),
+                recorded.get("RecordsProcessed"
+                        + Arrays.asList(
+                                TestHelper.constructDimension("Operation", "ProcessTask"),
+                                TestHelper.constructDimension("ShardId", "shard-0001"))));
+    }
+
+    @Test
+    public void testMeterIsRequestedOnce() {
+        for (int i = 0; i < 3; i++) {
+            MetricsScope scope = MetricsUtil.createMetricsWithOperation(factory, "ProcessTask");
+            MetricsUtil.addShardId(scope, "shard-0001");
+            scope.addData("Time", i, StandardUnit.MILLISECONDS, MetricsLevel.SUMMARY);
+            scope.addData("Time", 10 + i, StandardUnit.MILLISECONDS, MetricsLevel.SUMMARY);
+            scope.end();
+        }
+
+        Assert.assertEquals(1, registered.size());
+        Assert.assertEquals(Arrays.asList(0.0, 10.0, 1.0, 11.0, 2.0, 12.0), recorded.get(registered.get(0)));
+    }
+
+    @Test
+    public void testFiltersLevelAndDimensions() {
+        MetricsScope scope = MetricsUtil.createMetricsWithOperation(factory, "ProcessTask");
+        MetricsUtil.addWorkerIdentifier(scope, "worker");
+        scope.addData("Detailed", 1, StandardUnit.COUNT, MetricsLevel.DETAILED);
+        scope.addData("Summary", 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        scope.end();
+
+        Assert.assertEquals(
+                Arrays.asList("Summary" + Arrays.asList(TestHelper.constructDimension("Operation", "ProcessTask"))),
+                registered);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedDimensionSets() {
+        // room for the Operation set and two ShardId sets below it
+        factory =
+                new MeterMetricsFactory(this::meter, MetricsLevel.SUMMARY, ImmutableSet.of("Operation", "ShardId"), 3);
+
+        for (String shardId : Arrays.asList("shard-0001", "shard-0002", "shard-0001", "shard-0003", "shard-0002")) {
+            MetricsScope scope = MetricsUtil.createMetricsWithOperation(factory, "ProcessTask");
+            MetricsUtil.addShardId(scope, shardId);
+            scope.addData("Time", 1, StandardUnit.MILLISECONDS, MetricsLevel.SUMMARY);
+            scope.end();
+        }
+
+        // shard-0002 was evicted when shard-0003 was added, as shard-0001 had been used more recently
+        Assert.assertEquals(4, registered.size());
+        Assert.assertEquals(registered.get(1), registered.get(3));
+    }
+
+    @Test
+    public void testCachedDimensionSetsAreBoundedAcrossDimensions() {
+        factory =
+                new MeterMetricsFactory(this::meter, MetricsLevel.SUMMARY, ImmutableSet.of("Operation", "ShardId"), 3);
+
+        for (String operation : Arrays.asList("ProcessTask", "ShutdownTask")) {
+            for (String shardId : Arrays.asList("shard-0001", "shard-0002")) {
+                MetricsScope scope = MetricsUtil.createMetricsWithOperation(factory, operation);
+                MetricsUtil.addShardId(scope, shardId);
+                scope.addData("Time", 1, StandardUnit.MILLISECONDS, MetricsLevel.SUMMARY);
+                scope.end();
+            }
+        }
+
+        Assert.assertEquals(3, factory.cachedDimensionSets());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentUnit() {
+        MetricsScope scope = factory.createMetrics();
+        scope.addData("name", 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        scope.addData("name", 1, StandardUnit.BYTES, MetricsLevel.SUMMARY);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentUnitThanRecordedMetric() {
+        MetricsScope scope = factory.createMetrics();
+        scope.addData("name", 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        scope.end();
+
+        MetricsScope otherScope = factory.createMetrics();
+        otherScope.addData("name", 1, StandardUnit.BYTES, MetricsLevel.SUMMARY);
+        otherScope.end();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDataAfterEnd() {
+        MetricsScope scope = factory.createMetrics();
+        scope.end();
+        scope.addData("name", 1, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+    }
+}
@@ -14,9 +14,16 @@
  */
 package software.amazon.kinesis.metrics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -90,6 +97,33 @@ public class MetricAccumulatingQueueTest {
                         .build());
     }
 
+    /*
+     * Test that MetricDatums with Values and Counts are accumulated into a histogram of their values.
+     */
+    @Test
+    public void testHistogramAccumulation() {
+        MetricDatum datum1 = MetricDatum.builder()
+                .metricName("Time")
+                .unit(StandardUnit.MILLISECONDS)
+                .values(Arrays.asList(10.0, 100.0))
+                .counts(Arrays.asList(1.0, 2.0))
+                .build();
+        queue.offer(new CloudWatchMetricKey(datum1), datum1);
+        MetricDatum datum2 = datum1.toBuilder()
+                .values(Collections.singletonList(100.0))
+                .counts(Collections.singletonList(3.0))
+                .build();
+        queue.offer(new CloudWatchMetricKey(datum2), datum2);
+
+        Assert.assertEquals(1, queue.size());
+        MetricDatum drained = queue.drain(1).get(0).datum;
+
+        Assert.assertNull(drained.statisticValues());
+        Assert.assertEquals(Arrays.asList(1.0, 5.0), drained.counts());
+        Assert.assertEquals(10.0, drained.values().get(0), 10.0 / 16);
+        Assert.assertEquals(100.0, drained.values().get(1), 0);
+    }
+
     /*
      * Test that the number of MetricDatum that can be added to our queue is capped at the MAX_QUEUE_SIZE.
      * Therefore, any datums added to the queue that is greater than the capacity of our queue will be dropped.
@@ -106,4 +140,52 @@ public class MetricAccumulatingQueueTest {
         Assert.assertFalse(queue.offer(new CloudWatchMetricKey(datum), datum));
         Assert.assertEquals(MAX_QUEUE_SIZE, queue.size());
     }
+
+    /*
+     * Test that no data is lost or counted twice when threads offer the same keys while the queue is being drained.
+     */
+    @Test
+    public void testConcurrentOffersAndDrains() throws Exception {
+        final int threads = 4;
+        final int offersPerThread = 10000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<?>> offers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                offers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < offersPerThread; i++) {
+                        MetricDatum datum = TestHelper.constructDatum(
+                                Integer.toString(i % MAX_QUEUE_SIZE), StandardUnit.COUNT, 1, 1, 1, 1);
+                        Assert.assertTrue(queue.offer(new CloudWatchMetricKey(datum), datum));
+                    }
+                    return null;
+                }));
+            }
+
+            double sum = 0;
+            double sampleCount = 0;
+            start.countDown();
+            for (Future<?> offer : offers) {
+                while (!offer.isDone()) {
+                    for (MetricDatumWithKey<CloudWatchMetricKey> item : queue.drain(MAX_QUEUE_SIZE)) {
+                        sum += item.datum.statisticValues().sum();
+                        sampleCount += item.datum.statisticValues().sampleCount();
+                    }
+                }
+                offer.get(1, TimeUnit.SECONDS);
+            }
+            for (MetricDatumWithKey<CloudWatchMetricKey> item : queue.drain(MAX_QUEUE_SIZE)) {
+                sum += item.datum.statisticValues().sum();
+                sampleCount += item.datum.statisticValues().sampleCount();
+            }
+
+            Assert.assertEquals(threads * offersPerThread, sum, 0);
+            Assert.assertEquals(threads * offersPerThread, sampleCount, 0);
+            Assert.assertTrue(queue.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+public class MetricHistogramTest {
+
+    private static final MetricDatum TEMPLATE = MetricDatum.builder()
+            .metricName("Time")
+            .unit(StandardUnit.MILLISECONDS)
+            .dimensions(TestHelper.constructDimension("ShardId", "shard-0001"))
+            .build();
+
+    @Test
+    public void testSingleValueIsExact() {
+        MetricHistogram histogram = new MetricHistogram();
+        histogram.record(123.4, 3);
+
+        List<MetricDatum> data = addData(histogram);
+
+        Assert.assertEquals(1, data.size());
+        Assert.assertEquals(Collections.singletonList(123.4), data.get(0).values());
+        Assert.assertEquals(Collections.singletonList(3.0), data.get(0).counts());
+        Assert.assertEquals("Time", data.get(0).metricName());
+        Assert.assertEquals(TEMPLATE.dimensions(), data.get(0).dimensions());
+        Assert.assertNull(data.get(0).statisticValues());
+    }
+
+    @Test
+    public void testValuesWithinRelativeError() {
+        MetricHistogram histogram = new MetricHistogram();
+        histogram.record(0, 1);
+        histogram.record(10, 1);
+        histogram.record(100, 97);
+        histogram.record(1000, 1);
+        histogram.record(5000, 1);
+
+        MetricDatum datum = addData(histogram).get(0);
+
+        Assert.assertEquals(Arrays.asList(1.0, 1.0, 97.0, 1.0, 1.0), datum.counts());
+        Assert.assertEquals(0, datum.values().get(0), 0);
+        Assert.assertEquals(10, datum.values().get(1), 10 / 16.0);
+        Assert.assertEquals(100, datum.values().get(2), 100 / 16.0);
+        Assert.assertEquals(1000, datum.values().get(3), 1000 / 16.0);
+        Assert.assertEquals(5000, datum.values().get(4), 5000 / 16.0);
+    }
+
+    @Test
+    public void testOutOfRangeValuesAreClamped() {
+        MetricHistogram histogram = new MetricHistogram();
+        histogram.record(1e-9, 1);
+        histogram.record(1e15, 1);
+
+        MetricDatum datum = addData(histogram).get(0);
+
+        Assert.assertEquals(Arrays.asList(1e-9, 1e15), datum.values());
+    }
+
+    @Test
+    public void testSplitsManyBuckets() {
+        MetricHistogram histogram = new MetricHistogram();
+        // one value in each bucket of 50 powers of two
+        for (int i = 0; i < 400; i++) {
+            histogram.record(Math.scalb(1 + (i % 8) / 8.0, i / 8 - 10), 1);
+        }
+
+        List<MetricDatum> data = addData(histogram);
+
+        Assert.assertEquals(3, data.size());
+        double sampleCount = 0;
+        for (MetricDatum datum : data) {
+            Assert.assertTrue(datum.values().size() <= MetricHistogram.MAX_VALUES_PER_DATUM);
+            for (double count : datum.counts()) {
+                sampleCount += count;
+            }
+        }
+        Assert.assertEquals(400, sampleCount, 0);
+    }
+
+    @Test
+    public void testRecordStatisticSet() {
+        MetricHistogram histogram = new MetricHistogram();
+        histogram.record(TestHelper.constructDatum("Time", StandardUnit.MILLISECONDS, 40, 10, 100, 4));
+
+        MetricDatum datum = addData(histogram).get(0);
+
+        Assert.assertEquals(Arrays.asList(1.0, 2.0, 1.0), datum.counts());
+        Assert.assertEquals(10, datum.values().get(0), 10 / 16.0);
+        Assert.assertEquals(25, datum.values().get(1), 25 / 16.0);
+        Assert.assertEquals(40, datum.values().get(2), 0);
+    }
+
+    @Test
+    public void testStatistics() {
+        MetricDatum datum = TEMPLATE.toBuilder()
+                .values(Arrays.asList(1.0, 5.0))
+                .counts(Arrays.asList(2.0, 3.0))
+                .build();
+
+        Assert.assertEquals(
+                TestHelper.constructDatum("Time", StandardUnit.MILLISECONDS, 5, 1, 17, 5)
+                        .statisticValues(),
+                MetricHistogram.statistics(datum));
+    }
+
+    private static List<MetricDatum> addData(MetricHistogram histogram) {
+        List<MetricDatum> data = new ArrayList<>();
+        histogram.addData(TEMPLATE, data);
+        return data;
+    }
+}
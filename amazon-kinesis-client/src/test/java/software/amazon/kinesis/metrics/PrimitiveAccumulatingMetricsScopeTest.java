@@ -0,0 +1,214 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+import software.amazon.awssdk.services.cloudwatch.model.Dimension;
+import software.amazon.awssdk.services.cloudwatch.model.MetricDatum;
+import software.amazon.awssdk.services.cloudwatch.model.StandardUnit;
+
+public class PrimitiveAccumulatingMetricsScopeTest {
+
+    private static class TestScope extends PrimitiveAccumulatingMetricsScope {
+        private List<MetricDatum> published;
+
+        private TestScope() {}
+
+        private TestScope(MetricsLevel metricsLevel, Set<String> metricsEnabledDimensions) {
+            super(metricsLevel, metricsEnabledDimensions);
+        }
+
+        private TestScope(Set<StandardUnit> histogramUnits) {
+            super(MetricsLevel.DETAILED, ImmutableSet.of(METRICS_DIMENSIONS_ALL), histogramUnits);
+        }
+
+        private TestScope(InternedDimensions internedDimensions) {
+            super(
+                    MetricsLevel.DETAILED,
+                    ImmutableSet.of(METRICS_DIMENSIONS_ALL),
+                    Collections.emptySet(),
+                    internedDimensions);
+        }
+
+        @Override
+        protected void publish(List<MetricDatum> data) {
+            published = data;
+        }
+
+        List<MetricDatum> endAndGetData() {
+            end();
+            return published;
+        }
+    }
+
+    @Test
+    public void testAccumulate() {
+        TestScope scope = new TestScope();
+
+        scope.addData("name", 2.0, StandardUnit.COUNT);
+        scope.addData(new String("name"), 3.0, StandardUnit.COUNT);
+        scope.addData("otherName", 4.0, StandardUnit.BYTES, MetricsLevel.SUMMARY);
+
+        Assert.assertEquals(
+                Arrays.asList(
+                        datum("name", StandardUnit.COUNT, 3.0, 2.0, 5.0, 2),
+                        datum("otherName", StandardUnit.BYTES, 4.0, 4.0, 4.0, 1)),
+                scope.endAndGetData());
+    }
+
+    @Test
+    public void testAccumulateManyNames() {
+        TestScope scope = new TestScope();
+
+        for (int i = 0; i < 20; i++) {
+            scope.addData("name" + (i % 10), i, StandardUnit.COUNT);
+        }
+
+        List<MetricDatum> data = scope.endAndGetData();
+        Assert.assertEquals(10, data.size());
+        Assert.assertEquals(datum("name3", StandardUnit.COUNT, 13.0, 3.0, 16.0, 2), data.get(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAccumulateWrongUnit() {
+        TestScope scope = new TestScope();
+
+        scope.addData("name", 2.0, StandardUnit.COUNT);
+        scope.addData("name", 3.0, StandardUnit.MEGABITS);
+    }
+
+    @Test
+    public void testMetricsLevel() {
+        TestScope scope = new TestScope(MetricsLevel.SUMMARY, null);
+        scope.addData("summaryDataName", 2.0, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        scope.addData("summaryDataName", 10.0, StandardUnit.COUNT, MetricsLevel.SUMMARY);
+        scope.addData("detailedDataName", 4.0, StandardUnit.BYTES, MetricsLevel.DETAILED);
+        scope.addData("noLevelDataName", 3.0, StandardUnit.MILLISECONDS);
+
+        Assert.assertEquals(
+                Collections.singletonList(datum("summaryDataName", StandardUnit.COUNT, 10.0, 2.0, 12.0, 2)),
+                scope.endAndGetData());
+    }
+
+    @Test
+    public void testMetricsDimensions() {
+        TestScope scope = new TestScope(MetricsLevel.DETAILED, ImmutableSet.of("ShardId", "Operation"));
+        scope.addDimension("ShardId", "shard-0002");
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addDimension("Operation", "ProcessRecords");
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addDimension("WorkerIdentifier", "testworker");
+        scope.addData("name", 1.0, StandardUnit.COUNT);
+
+        List<Dimension> expected = Arrays.asList(
+                TestHelper.constructDimension("Operation", "ProcessRecords"),
+                TestHelper.constructDimension("ShardId", "shard-0001"),
+                TestHelper.constructDimension("ShardId", "shard-0002"));
+        Assert.assertEquals(expected, scope.endAndGetData().get(0).dimensions());
+    }
+
+    @Test
+    public void testMetricsDimensionsAreInterned() {
+        InternedDimensions internedDimensions = new InternedDimensions();
+        TestScope scope = new TestScope(internedDimensions);
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addData("name", 1.0, StandardUnit.COUNT);
+        TestScope otherScope = new TestScope(internedDimensions);
+        otherScope.addDimension("ShardId", "shard-0001");
+        otherScope.addData("name", 1.0, StandardUnit.COUNT);
+
+        Assert.assertSame(
+                scope.endAndGetData().get(0).dimensions().get(0),
+                otherScope.endAndGetData().get(0).dimensions().get(0));
+    }
+
+    @Test
+    public void testMetricsDimensionsAreNotInternedWithoutInternedDimensions() {
+        TestScope scope = new TestScope();
+        scope.addDimension("ShardId", "shard-0001");
+        scope.addData("name", 1.0, StandardUnit.COUNT);
+        TestScope otherScope = new TestScope();
+        otherScope.addDimension("ShardId", "shard-0001");
+        otherScope.addData("name", 1.0, StandardUnit.COUNT);
+
+        Dimension dimension = scope.endAndGetData().get(0).dimensions().get(0);
+        Dimension otherDimension =
+                otherScope.endAndGetData().get(0).dimensions().get(0);
+        Assert.assertNotSame(dimension, otherDimension);
+        Assert.assertEquals(dimension, otherDimension);
+    }
+
+    @Test
+    public void testInternedDimensionsAreBounded() {
+        InternedDimensions internedDimensions = new InternedDimensions(2);
+
+        Dimension first = internedDimensions.dimension("ShardId", "shard-0001");
+        internedDimensions.dimension("Operation", "ProcessTask");
+        Dimension third = internedDimensions.dimension("ShardId", "shard-0003");
+
+        Assert.assertSame(first, internedDimensions.dimension("ShardId", "shard-0001"));
+        Assert.assertNotSame(third, internedDimensions.dimension("ShardId", "shard-0003"));
+        Assert.assertEquals(2, internedDimensions.size());
+    }
+
+    @Test
+    public void testHistogramUnits() {
+        TestScope scope = new TestScope(ImmutableSet.of(StandardUnit.MILLISECONDS));
+        scope.addData("Time", 10.0, StandardUnit.MILLISECONDS);
+        scope.addData("OtherTime", 20.0, StandardUnit.MILLISECONDS);
+        scope.addData("OtherTime", 20.0, StandardUnit.MILLISECONDS);
+        scope.addData("OtherTime", 30.0, StandardUnit.MILLISECONDS);
+        scope.addData("Count", 1.0, StandardUnit.COUNT);
+
+        List<MetricDatum> data = scope.endAndGetData();
+
+        Assert.assertEquals(3, data.size());
+        Assert.assertEquals(Collections.singletonList(10.0), data.get(0).values());
+        Assert.assertEquals(Collections.singletonList(1.0), data.get(0).counts());
+        Assert.assertNull(data.get(0).statisticValues());
+        Assert.assertEquals(20.0, data.get(1).values().get(0), 20.0 / 16);
+        Assert.assertEquals(30.0, data.get(1).values().get(1), 0);
+        Assert.assertEquals(Arrays.asList(2.0, 1.0), data.get(1).counts());
+        Assert.assertEquals(datum("Count", StandardUnit.COUNT, 1.0, 1.0, 1.0, 1), data.get(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDataAfterEnd() {
+        TestScope scope = new TestScope();
+        scope.end();
+        scope.addData("name", 2.0, StandardUnit.COUNT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEndTwice() {
+        TestScope scope = new TestScope();
+        scope.end();
+        scope.end();
+    }
+
+    private static MetricDatum datum(
+            String name, StandardUnit unit, double maximum, double minimum, double sum, double count) {
+        return TestHelper.constructDatum(name, unit, maximum, minimum, sum, count).toBuilder()
+                .dimensions(Collections.emptyList())
+                .build();
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.retrieval;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import software.amazon.kinesis.retrieval.kpl.AggregatedRecordParser;
+import software.amazon.kinesis.retrieval.kpl.Messages;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AggregatorUtilTest {
+    private static final String SEQUENCE_NUMBER = "49590338271490256608559692538361571095921575989136588898";
+    private static final String LOW_EXPLICIT_HASH_KEY = "1";
+    private static final String HIGH_EXPLICIT_HASH_KEY = "340282366920938463463374607431768211400";
+    private static final BigInteger MAX_HASH_KEY = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+    private final AggregatorUtil copyingAggregatorUtil = new AggregatorUtil();
+    private final AggregatorUtil zeroCopyAggregatorUtil = new AggregatorUtil(true);
+
+    @Test
+    public void testZeroCopyDeaggregationMatchesCopyingDeaggregation() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addPartitionKeyTable("pk-1")
+                .addExplicitHashKeyTable(LOW_EXPLICIT_HASH_KEY)
+                .addRecords(userRecord(0, "first"))
+                .addRecords(userRecord(1, "second").toBuilder().setExplicitHashKeyIndex(0))
+                .addRecords(userRecord(0, "third").toBuilder()
+                        .addTags(Messages.Tag.newBuilder().setKey("key").setValue("value")))
+                .build();
+
+        final KinesisClientRecord source = kinesisRecord(aggregatedRecord);
+
+        final List<KinesisClientRecord> zeroCopied = zeroCopyAggregatorUtil.deaggregate(Collections.singletonList(
+                source.toBuilder().data(source.data().duplicate()).build()));
+        final List<KinesisClientRecord> copied = copyingAggregatorUtil.deaggregate(Collections.singletonList(source));
+
+        assertThat(zeroCopied.size(), equalTo(3));
+        assertThat(zeroCopied, equalTo(copied));
+        assertThat(zeroCopied.get(1).explicitHashKey(), equalTo(LOW_EXPLICIT_HASH_KEY));
+        assertThat(zeroCopied.get(2).subSequenceNumber(), equalTo(2L));
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationUsesOverriddenTailCheck() throws Exception {
+        final AtomicInteger tailChecks = new AtomicInteger();
+        final AggregatorUtil aggregatorUtil = new AggregatorUtil(true) {
+            @Override
+            protected byte[] calculateTailCheck(byte[] data) {
+                tailChecks.incrementAndGet();
+                return super.calculateTailCheck(data);
+            }
+        };
+        final KinesisClientRecord source = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build());
+
+        final List<KinesisClientRecord> result = aggregatorUtil.deaggregate(Collections.singletonList(source));
+
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).partitionKey(), equalTo("pk-0"));
+        assertThat(tailChecks.get(), equalTo(1));
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationSlicesSourceBuffer() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build();
+        final KinesisClientRecord source = kinesisRecord(aggregatedRecord);
+        final int sourcePosition = source.data().position();
+
+        final List<KinesisClientRecord> result = zeroCopyAggregatorUtil.deaggregate(Collections.singletonList(source));
+
+        final ByteBuffer data = result.get(0).data();
+        assertTrue(data.isReadOnly());
+        assertThat(data.position(), equalTo(0));
+        assertThat(data.limit(), equalTo("payload".length()));
+        assertThat(source.data().position(), equalTo(sourcePosition));
+
+        final int payloadOffset = indexOf(source.data(), "payload".getBytes());
+        source.data().put(payloadOffset, (byte) 'P');
+        assertThat(data.get(0), equalTo((byte) 'P'));
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationOfReadOnlyBuffer() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build();
+        final KinesisClientRecord source = kinesisRecord(aggregatedRecord);
+        final KinesisClientRecord readOnlySource =
+                source.toBuilder().data(source.data().asReadOnlyBuffer()).build();
+
+        final List<KinesisClientRecord> result =
+                zeroCopyAggregatorUtil.deaggregate(Collections.singletonList(readOnlySource));
+
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).data(), equalTo(ByteBuffer.wrap("payload".getBytes())));
+        assertTrue(result.get(0).aggregated());
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationPassesThroughNonAggregatedRecords() {
+        final KinesisClientRecord plain = KinesisClientRecord.builder()
+                .sequenceNumber(SEQUENCE_NUMBER)
+                .partitionKey("pk")
+                .data(ByteBuffer.wrap("not aggregated at all".getBytes()))
+                .build();
+
+        final List<KinesisClientRecord> result = zeroCopyAggregatorUtil.deaggregate(Collections.singletonList(plain));
+
+        assertThat(result, equalTo(Collections.singletonList(plain)));
+        assertFalse(result.get(0).aggregated());
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationRejectsBadChecksum() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build();
+        final KinesisClientRecord source = kinesisRecord(aggregatedRecord);
+        final ByteBuffer data = source.data();
+        data.put(data.limit() - 1, (byte) (data.get(data.limit() - 1) + 1));
+
+        final List<KinesisClientRecord> result = zeroCopyAggregatorUtil.deaggregate(Collections.singletonList(source));
+
+        assertThat(result, equalTo(Collections.singletonList(source)));
+    }
+
+    @Test
+    public void testZeroCopyDeaggregationDropsAggregateOutsideHashKeyRange() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addExplicitHashKeyTable(LOW_EXPLICIT_HASH_KEY)
+                .addExplicitHashKeyTable(HIGH_EXPLICIT_HASH_KEY)
+                .addRecords(userRecord(0, "in range").toBuilder().setExplicitHashKeyIndex(0))
+                .addRecords(userRecord(0, "out of range").toBuilder().setExplicitHashKeyIndex(1))
+                .build();
+
+        final List<KinesisClientRecord> result = zeroCopyAggregatorUtil.deaggregate(
+                Collections.singletonList(kinesisRecord(aggregatedRecord)),
+                BigInteger.ZERO,
+                new BigInteger(HIGH_EXPLICIT_HASH_KEY).subtract(BigInteger.ONE));
+
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testPartitionKeyHashIsCheckedAgainstRangeBounds() throws Exception {
+        final BigInteger hashKey =
+                new BigInteger(1, MessageDigest.getInstance("MD5").digest("pk-0".getBytes()));
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "first"))
+                .addRecords(userRecord(0, "second"))
+                .build();
+
+        assertThat(deaggregateWithin(aggregatedRecord, hashKey, hashKey).size(), equalTo(2));
+        assertThat(deaggregateWithin(aggregatedRecord, BigInteger.ZERO, hashKey).size(), equalTo(2));
+        assertTrue(deaggregateWithin(aggregatedRecord, hashKey.add(BigInteger.ONE), MAX_HASH_KEY)
+                .isEmpty());
+        assertTrue(deaggregateWithin(aggregatedRecord, BigInteger.ZERO, hashKey.subtract(BigInteger.ONE))
+                .isEmpty());
+    }
+
+    @Test
+    public void testExplicitHashKeyIsCheckedAgainstRangeBounds() throws Exception {
+        final BigInteger hashKey = BigInteger.ONE.shiftLeft(64);
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addExplicitHashKeyTable(hashKey.toString())
+                .addRecords(userRecord(0, "payload").toBuilder().setExplicitHashKeyIndex(0))
+                .build();
+
+        assertThat(deaggregateWithin(aggregatedRecord, hashKey, hashKey).size(), equalTo(1));
+        assertTrue(deaggregateWithin(aggregatedRecord, BigInteger.ZERO, hashKey.subtract(BigInteger.ONE))
+                .isEmpty());
+        assertTrue(deaggregateWithin(aggregatedRecord, hashKey.add(BigInteger.ONE), MAX_HASH_KEY)
+                .isEmpty());
+    }
+
+    @Test
+    public void testOverriddenEffectiveHashKeyIsUsed() throws Exception {
+        final AggregatorUtil aggregatorUtil = new AggregatorUtil() {
+            @Override
+            protected BigInteger effectiveHashKey(String partitionKey, String explicitHashKey) {
+                return "in".equals(partitionKey) ? BigInteger.TEN : BigInteger.ONE;
+            }
+        };
+        final KinesisClientRecord in = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("in")
+                .addRecords(userRecord(0, "payload"))
+                .build());
+        final KinesisClientRecord out = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("out")
+                .addRecords(userRecord(0, "payload"))
+                .build());
+
+        final List<KinesisClientRecord> result =
+                aggregatorUtil.deaggregate(Arrays.asList(in, out), BigInteger.TEN, BigInteger.TEN);
+
+        assertThat(result.size(), equalTo(1));
+        assertThat(result.get(0).partitionKey(), equalTo("in"));
+    }
+
+    @Test
+    public void testSubclassUsingDefaultHashingSkipsEffectiveHashKey() throws Exception {
+        final AggregatorUtil aggregatorUtil = new AggregatorUtil() {
+            @Override
+            protected boolean usesDefaultHashing() {
+                return true;
+            }
+
+            @Override
+            protected BigInteger effectiveHashKey(String partitionKey, String explicitHashKey) {
+                throw new AssertionError("hash keys are computed by AggregatorUtil");
+            }
+        };
+        final KinesisClientRecord record = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("in")
+                .addRecords(userRecord(0, "payload"))
+                .build());
+
+        assertThat(
+                aggregatorUtil
+                        .deaggregate(Collections.singletonList(record), BigInteger.ZERO, MAX_HASH_KEY)
+                        .size(),
+                equalTo(1));
+    }
+
+    @Test
+    public void testLazyDeaggregationMatchesDeaggregation() throws Exception {
+        final KinesisClientRecord inRange = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addExplicitHashKeyTable(LOW_EXPLICIT_HASH_KEY)
+                .addRecords(userRecord(0, "first").toBuilder().setExplicitHashKeyIndex(0))
+                .addRecords(userRecord(0, "second").toBuilder().setExplicitHashKeyIndex(0))
+                .build());
+        final KinesisClientRecord outOfRange = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addExplicitHashKeyTable(LOW_EXPLICIT_HASH_KEY)
+                .addExplicitHashKeyTable(HIGH_EXPLICIT_HASH_KEY)
+                .addRecords(userRecord(0, "in range").toBuilder().setExplicitHashKeyIndex(0))
+                .addRecords(userRecord(0, "out of range").toBuilder().setExplicitHashKeyIndex(1))
+                .build());
+        final KinesisClientRecord plain = KinesisClientRecord.builder()
+                .sequenceNumber(SEQUENCE_NUMBER)
+                .partitionKey("pk")
+                .data(ByteBuffer.wrap("not aggregated at all".getBytes()))
+                .build();
+        final List<KinesisClientRecord> records = Arrays.asList(inRange, outOfRange, plain, outOfRange, inRange);
+        final BigInteger endingHashKey = new BigInteger(HIGH_EXPLICIT_HASH_KEY).subtract(BigInteger.ONE);
+
+        final List<KinesisClientRecord> lazy = new ArrayList<>();
+        copyingAggregatorUtil
+                .deaggregateLazily(records, BigInteger.ZERO, endingHashKey)
+                .forEachRemaining(lazy::add);
+        records.forEach(r -> r.data().rewind());
+        final List<KinesisClientRecord> eager =
+                copyingAggregatorUtil.deaggregate(records, BigInteger.ZERO, endingHashKey);
+
+        assertThat(lazy.size(), equalTo(5));
+        assertThat(lazy, equalTo(eager));
+        assertThat(lazy.get(1).subSequenceNumber(), equalTo(1L));
+        assertThat(lazy.get(2), equalTo(plain));
+    }
+
+    @Test
+    public void testLazyDeaggregationDeaggregatesOnDemand() throws Exception {
+        final KinesisClientRecord first = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "first"))
+                .build());
+        final KinesisClientRecord second = kinesisRecord(Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "second"))
+                .build());
+        final int unreadPosition = second.data().position();
+
+        final Iterator<KinesisClientRecord> iterator =
+                copyingAggregatorUtil.deaggregateLazily(Arrays.asList(first, second));
+
+        assertThat(iterator.next().data(), equalTo(ByteBuffer.wrap("first".getBytes())));
+        assertThat(second.data().position(), equalTo(unreadPosition));
+        assertThat(iterator.next().data(), equalTo(ByteBuffer.wrap("second".getBytes())));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testParserMatchesGeneratedParser() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addPartitionKeyTable("pk-é")
+                .addExplicitHashKeyTable(HIGH_EXPLICIT_HASH_KEY)
+                .addRecords(userRecord(1, "first").toBuilder().setExplicitHashKeyIndex(0))
+                .addRecords(userRecord(0, ""))
+                .build();
+
+        final Messages.AggregatedRecord parsed =
+                AggregatedRecordParser.parse(ByteBuffer.wrap(aggregatedRecord.toByteArray()));
+
+        assertThat(parsed, equalTo(aggregatedRecord));
+    }
+
+    @Test
+    public void testParserRejectsTruncatedMessage() throws Exception {
+        final byte[] message = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build()
+                .toByteArray();
+
+        assertThat(parseOrNull(Arrays.copyOf(message, message.length - 1)), nullValue());
+    }
+
+    @Test
+    public void testParserRejectsRecordWithoutData() throws Exception {
+        final byte[] message = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(Messages.Record.newBuilder()
+                        .setPartitionKeyIndex(0)
+                        .setData(ByteString.EMPTY)
+                        .buildPartial())
+                .buildPartial()
+                .toByteArray();
+        // drop the trailing, empty data field of the only user record
+        final byte[] withoutData = Arrays.copyOf(message, message.length - 2);
+        withoutData[withoutData.length - 3] -= 2;
+
+        assertThat(parseOrNull(withoutData), nullValue());
+    }
+
+    @Test
+    public void testMessageDataIsRelativeToBufferPosition() throws Exception {
+        final Messages.AggregatedRecord aggregatedRecord = Messages.AggregatedRecord.newBuilder()
+                .addPartitionKeyTable("pk-0")
+                .addRecords(userRecord(0, "payload"))
+                .build();
+        final ByteBuffer data = kinesisRecord(aggregatedRecord).data();
+        final ByteBuffer buffer = ByteBuffer.allocate(data.remaining() + 5);
+        buffer.position(5);
+        buffer.put(data);
+        buffer.position(5);
+
+        assertThat(AggregatorUtil.messageData(buffer), equalTo(aggregatedRecord.toByteArray()));
+        assertThat(buffer.position(), equalTo(5));
+    }
+
+    private List<KinesisClientRecord> deaggregateWithin(
+            final Messages.AggregatedRecord aggregatedRecord,
+            final BigInteger startingHashKey,
+            final BigInteger endingHashKey)
+            throws Exception {
+        return copyingAggregatorUtil.deaggregate(
+                Collections.singletonList(kinesisRecord(aggregatedRecord)),
+                ShardHashKeyRange.of(startingHashKey, endingHashKey));
+    }
+
+    private static Messages.AggregatedRecord parseOrNull(final byte[] message) {
+        try {
+            return AggregatedRecordParser.parse(ByteBuffer.wrap(message));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static Messages.Record userRecord(final int partitionKeyIndex, final String data) {
+        return Messages.Record.newBuilder()
+                .setPartitionKeyIndex(partitionKeyIndex)
+                .setData(ByteString.copyFromUtf8(data))
+                .build();
+    }
+
+    private static KinesisClientRecord kinesisRecord(final Messages.AggregatedRecord aggregatedRecord)
+            throws Exception {
+        final byte[] message = aggregatedRecord.toByteArray();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // leading bytes that are not part of the record, so the data buffer starts at a non-zero array offset
+        out.write(new byte[] {1, 2, 3});
+        out.write(AggregatorUtil.AGGREGATED_RECORD_MAGIC);
+        out.write(message);
+        out.write(MessageDigest.getInstance("MD5").digest(message));
+        final byte[] bytes = out.toByteArray();
+        return KinesisClientRecord.builder()
+                .sequenceNumber(SEQUENCE_NUMBER)
+                .approximateArrivalTimestamp(Instant.now())
+                .partitionKey("outer")
+                .data(ByteBuffer.wrap(bytes, 3, bytes.length - 3).slice())
+                .build();
+    }
+
+    private static int indexOf(final ByteBuffer buffer, final byte[] target) {
+        for (int i = 0; i <= buffer.limit() - target.length; i++) {
+            boolean found = true;
+            for (int j = 0; j < target.length && found; j++) {
+                found = buffer.get(i + j) == target[j];
+            }
+            if (found) {
+                return i;
+            }
+        }
+        throw new AssertionError("target not found");
+    }
+}
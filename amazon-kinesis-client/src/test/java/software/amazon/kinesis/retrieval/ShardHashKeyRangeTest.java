@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 Amazon.com, Inc. or its affiliates.
+ * Licensed under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package software.amazon.kinesis.retrieval;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+import software.amazon.awssdk.services.kinesis.model.HashKeyRange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardHashKeyRangeTest {
+    private static final BigInteger MAX_HASH_KEY = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+    private static final BigInteger TWO_TO_64 = BigInteger.ONE.shiftLeft(64);
+
+    @Test
+    public void testFullRangeContainsAllHashKeys() {
+        assertContains(ShardHashKeyRange.FULL, BigInteger.ZERO, true);
+        assertContains(ShardHashKeyRange.FULL, TWO_TO_64, true);
+        assertContains(ShardHashKeyRange.FULL, MAX_HASH_KEY, true);
+    }
+
+    @Test
+    public void testBoundsAreInclusive() {
+        final BigInteger start = TWO_TO_64.subtract(BigInteger.ONE);
+        final BigInteger end = TWO_TO_64.add(BigInteger.TEN);
+        final ShardHashKeyRange range = ShardHashKeyRange.of(start, end);
+
+        assertContains(range, start.subtract(BigInteger.ONE), false);
+        assertContains(range, start, true);
+        assertContains(range, TWO_TO_64, true);
+        assertContains(range, end, true);
+        assertContains(range, end.add(BigInteger.ONE), false);
+    }
+
+    @Test
+    public void testUnsignedComparison() {
+        // the high bit of both halves is set, which would compare as negative if the halves were signed
+        final BigInteger start = new BigInteger("80000000000000008000000000000000", 16);
+        final ShardHashKeyRange range = ShardHashKeyRange.of(start, MAX_HASH_KEY);
+
+        assertContains(range, start, true);
+        assertContains(range, start.subtract(BigInteger.ONE), false);
+        assertContains(range, BigInteger.ONE, false);
+    }
+
+    @Test
+    public void testRangeOutsideOfHashKeySpaceIsEmpty() {
+        final ShardHashKeyRange range = ShardHashKeyRange.of(BigInteger.valueOf(-10), BigInteger.ONE.negate());
+
+        assertContains(range, BigInteger.ZERO, false);
+        assertContains(range, MAX_HASH_KEY, false);
+    }
+
+    @Test
+    public void testFromShardHashKeyRange() {
+        final ShardHashKeyRange range = ShardHashKeyRange.of(HashKeyRange.builder()
+                .startingHashKey("100")
+                .endingHashKey("200")
+                .build());
+
+        assertEquals(ShardHashKeyRange.of(BigInteger.valueOf(100), BigInteger.valueOf(200)), range);
+        assertContains(range, BigInteger.valueOf(150), true);
+        assertContains(range, BigInteger.valueOf(201), false);
+    }
+
+    private static void assertContains(ShardHashKeyRange range, BigInteger hashKey, boolean expected) {
+        final long high = hashKey.shiftRight(64).longValue();
+        final long low = hashKey.longValue();
+        if (expected) {
+            assertTrue(range.contains(high, low));
+            assertTrue(range.contains(hashKey));
+        } else {
+            assertFalse(range.contains(high, low));
+            assertFalse(range.contains(hashKey));
+        }
+    }
+}
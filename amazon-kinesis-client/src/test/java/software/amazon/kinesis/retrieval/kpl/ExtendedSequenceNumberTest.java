@@ -17,6 +17,9 @@ package software.amazon.kinesis.retrieval.kpl;
 import org.junit.Test;
 import software.amazon.kinesis.checkpoint.SentinelCheckpoint;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class ExtendedSequenceNumberTest {
@@ -32,4 +35,52 @@ public class ExtendedSequenceNumberTest {
             assertTrue(sentinel.name(), esnWithSubsequence.isSentinelCheckpoint());
         }
     }
+
+    @Test
+    public void testCompareToOrdersSentinelsAroundSequenceNumbers() {
+        final ExtendedSequenceNumber[] ordered = {
+            ExtendedSequenceNumber.AT_TIMESTAMP,
+            ExtendedSequenceNumber.TRIM_HORIZON,
+            ExtendedSequenceNumber.LATEST,
+            new ExtendedSequenceNumber("0"),
+            new ExtendedSequenceNumber("9"),
+            new ExtendedSequenceNumber("10"),
+            new ExtendedSequenceNumber("10", 1L),
+            new ExtendedSequenceNumber("49590338271490256608559692538361571095921575989136588801"),
+            new ExtendedSequenceNumber("49590338271490256608559692540925702759324208523137515618"),
+            ExtendedSequenceNumber.SHARD_END
+        };
+        for (int i = 0; i < ordered.length; i++) {
+            for (int j = 0; j < ordered.length; j++) {
+                assertThat(
+                        ordered[i] + " vs " + ordered[j],
+                        Integer.signum(ordered[i].compareTo(ordered[j])),
+                        equalTo(Integer.compare(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompareToIgnoresLeadingZeros() {
+        assertThat(new ExtendedSequenceNumber("000123").compareTo(new ExtendedSequenceNumber("123")), equalTo(0));
+        assertTrue(new ExtendedSequenceNumber("0099").compareTo(new ExtendedSequenceNumber("100")) < 0);
+        assertThat(new ExtendedSequenceNumber("000").compareTo(new ExtendedSequenceNumber("0")), equalTo(0));
+        assertThat(
+                ExtendedSequenceNumber.SHARD_END.compareTo(
+                        new ExtendedSequenceNumber(SentinelCheckpoint.SHARD_END.name(), 7L)),
+                equalTo(0));
+    }
+
+    @Test
+    public void testIsShardEnd() {
+        assertTrue(ExtendedSequenceNumber.SHARD_END.isShardEnd());
+        assertFalse(ExtendedSequenceNumber.LATEST.isShardEnd());
+        assertFalse(new ExtendedSequenceNumber("123").isShardEnd());
+        assertFalse(new ExtendedSequenceNumber("123").isSentinelCheckpoint());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompareToRejectsInvalidSequenceNumbers() {
+        new ExtendedSequenceNumber("123").compareTo(new ExtendedSequenceNumber("12a"));
+    }
 }
@@ -6,9 +6,16 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import software.amazon.awssdk.services.kinesis.KinesisAsyncClient;
+import software.amazon.kinesis.retrieval.PrefetchEngine;
+import software.amazon.kinesis.retrieval.RecordsFetcherFactory;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PollingConfigTest {
@@ -48,4 +55,30 @@ public class PollingConfigTest {
     public void testInvalidRecordLimit() {
         config.maxRecords(PollingConfig.DEFAULT_MAX_RECORDS + 1);
     }
+
+    @Test
+    public void testPrefetchEngineIsPassedToRecordsFetcherFactory() {
+        config.prefetchEngine(PrefetchEngine.SHARED_SCHEDULED_POOL).sharedPrefetchPoolSize(2);
+
+        config.retrievalFactory();
+
+        assertEquals(
+                PrefetchEngine.SHARED_SCHEDULED_POOL,
+                config.recordsFetcherFactory().prefetchEngine());
+        assertEquals(2, config.recordsFetcherFactory().sharedPrefetchPoolSize());
+    }
+
+    @Test
+    public void testUnsupportedPrefetchEngineFallsBackToDedicatedThreads() {
+        RecordsFetcherFactory recordsFetcherFactory = mock(RecordsFetcherFactory.class);
+        when(recordsFetcherFactory.prefetchEngine()).thenReturn(PrefetchEngine.DEDICATED_THREAD);
+        config.recordsFetcherFactory(recordsFetcherFactory)
+                .prefetchEngine(PrefetchEngine.SHARED_SCHEDULED_POOL)
+                .sharedPrefetchPoolSize(2);
+
+        config.retrievalFactory();
+
+        verify(recordsFetcherFactory).prefetchEngine(PrefetchEngine.SHARED_SCHEDULED_POOL);
+        verify(recordsFetcherFactory, never()).sharedPrefetchPoolSize(anyInt());
+    }
 }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -412,6 +413,88 @@ public class PrefetchRecordsPublisherTest {
         assertTrue(spyQueue.size() <= MAX_SIZE);
     }
 
+    @Test
+    public void testSharedSchedulerFillsCacheAndResumesWhenDrained() {
+        when(records.size()).thenReturn(200);
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        final PrefetchRecordsPublisher sharedCache = createSharedPrefetchRecordsPublisher(scheduler);
+        try {
+            sharedCache.start(sequenceNumber, initialPosition);
+            blockUntilConditionSatisfied(
+                    () -> sharedCache
+                                    .getPublisherSession()
+                                    .prefetchRecordsQueue()
+                                    .size()
+                            == MAX_SIZE,
+                    1000);
+            // one more batch is retrieved and held until the consumer takes a batch from the cache
+            verify(getRecordsRetrievalStrategy, timeout(1000).times(MAX_SIZE + 1))
+                    .getRecords(eq(MAX_RECORDS_PER_CALL));
+            sleep(200);
+            verify(getRecordsRetrievalStrategy, times(MAX_SIZE + 1)).getRecords(eq(MAX_RECORDS_PER_CALL));
+
+            sharedCache.getPublisherSession().evictPublishedRecordAndUpdateDemand("shardId");
+            sharedCache.getPublisherSession().evictPublishedRecordAndUpdateDemand("shardId");
+
+            // the held batch and one new batch refill the cache, and another batch is held
+            verify(getRecordsRetrievalStrategy, timeout(1000).times(MAX_SIZE + 3))
+                    .getRecords(eq(MAX_RECORDS_PER_CALL));
+            blockUntilConditionSatisfied(
+                    () -> sharedCache
+                                    .getPublisherSession()
+                                    .prefetchRecordsQueue()
+                                    .size()
+                            == MAX_SIZE,
+                    1000);
+        } finally {
+            sharedCache.shutdown();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSharedSchedulerIsNotShutDownWithPublisher() {
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        final PrefetchRecordsPublisher sharedCache = createSharedPrefetchRecordsPublisher(scheduler);
+        try {
+            sharedCache.start(sequenceNumber, initialPosition);
+            sharedCache.shutdown();
+
+            verify(getRecordsRetrievalStrategy, timeout(1000)).shutdown();
+            assertFalse(scheduler.isShutdown());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSharedSchedulerShutsDownStrategyAfterRetrievalInFlight() throws Exception {
+        final CountDownLatch retrieving = new CountDownLatch(1);
+        final CountDownLatch retrieved = new CountDownLatch(1);
+        when(getRecordsRetrievalStrategy.getRecords(eq(MAX_RECORDS_PER_CALL))).thenAnswer(invocation -> {
+            retrieving.countDown();
+            retrieved.await();
+            return getRecordsResponse;
+        });
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        final PrefetchRecordsPublisher sharedCache = createSharedPrefetchRecordsPublisher(scheduler);
+        try {
+            sharedCache.start(sequenceNumber, initialPosition);
+            assertTrue(retrieving.await(1, TimeUnit.SECONDS));
+
+            sharedCache.shutdown();
+            sleep(200);
+            // the strategy is shut down by the retrieval in flight once it completes, not next to it
+            verify(getRecordsRetrievalStrategy, never()).shutdown();
+
+            retrieved.countDown();
+            verify(getRecordsRetrievalStrategy, timeout(1000)).shutdown();
+            verify(getRecordsRetrievalStrategy, times(1)).getRecords(eq(MAX_RECORDS_PER_CALL));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testSubscribeWithoutStarting() {
         verify(executorService, never()).execute(any());
@@ -907,4 +990,18 @@ public class PrefetchRecordsPublisherTest {
                 "shardId",
                 1L);
     }
+
+    private PrefetchRecordsPublisher createSharedPrefetchRecordsPublisher(final ScheduledExecutorService scheduler) {
+        return new PrefetchRecordsPublisher(
+                MAX_SIZE,
+                3 * SIZE_1_MB,
+                MAX_RECORDS_COUNT,
+                MAX_RECORDS_PER_CALL,
+                getRecordsRetrievalStrategy,
+                0L,
+                new NullMetricsFactory(),
+                PrefetchRecordsPublisherTest.class.getSimpleName(),
+                "shardId",
+                scheduler);
+    }
 }
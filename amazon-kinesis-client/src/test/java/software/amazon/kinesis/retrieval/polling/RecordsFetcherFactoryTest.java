@@ -23,6 +23,7 @@ import software.amazon.kinesis.common.StreamIdentifier;
 import software.amazon.kinesis.metrics.MetricsFactory;
 import software.amazon.kinesis.retrieval.DataFetchingStrategy;
 import software.amazon.kinesis.retrieval.GetRecordsRetrievalStrategy;
+import software.amazon.kinesis.retrieval.PrefetchEngine;
 import software.amazon.kinesis.retrieval.RecordsFetcherFactory;
 import software.amazon.kinesis.retrieval.RecordsPublisher;
 
@@ -67,4 +68,32 @@ public class RecordsFetcherFactoryTest {
                 recordsFetcherFactory.createRecordsFetcher(getRecordsRetrievalStrategy, shardId, metricsFactory, 1);
         assertThat(recordsCache, instanceOf(PrefetchRecordsPublisher.class));
     }
+
+    @Test
+    public void createSharedScheduledPrefetchRecordsFetcherTest() {
+        recordsFetcherFactory.prefetchEngine(PrefetchEngine.SHARED_SCHEDULED_POOL);
+        RecordsPublisher recordsCache =
+                recordsFetcherFactory.createRecordsFetcher(getRecordsRetrievalStrategy, shardId, metricsFactory, 1);
+        assertThat(recordsCache, instanceOf(PrefetchRecordsPublisher.class));
+    }
+
+    @Test
+    public void shutdownSharedPrefetchPoolTest() {
+        recordsFetcherFactory.prefetchEngine(PrefetchEngine.SHARED_SCHEDULED_POOL);
+        recordsFetcherFactory.createRecordsFetcher(getRecordsRetrievalStrategy, shardId, metricsFactory, 1);
+
+        recordsFetcherFactory.shutdown();
+
+        // the pool is released on shutdown, so its size can be changed before it is created again
+        recordsFetcherFactory.sharedPrefetchPoolSize(1);
+        RecordsPublisher recordsCache =
+                recordsFetcherFactory.createRecordsFetcher(getRecordsRetrievalStrategy, shardId, metricsFactory, 1);
+        assertThat(recordsCache, instanceOf(PrefetchRecordsPublisher.class));
+        recordsFetcherFactory.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSharedPrefetchPoolSizeTest() {
+        recordsFetcherFactory.sharedPrefetchPoolSize(0);
+    }
 }